@@ -0,0 +1,154 @@
+package com.pharmacy.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${payment.webhook.workers:4}")
+    private int webhookWorkers;
+
+    @Value("${payment.webhook.queue-capacity:1000}")
+    private int webhookQueueCapacity;
+
+    @Value("${outbox.relay.workers:2}")
+    private int outboxWorkers;
+
+    @Value("${order-stream.send-threads:4}")
+    private int streamSendThreads;
+
+    @Value("${email.dispatcher.workers:4}")
+    private int emailWorkers;
+
+    @Value("${billing.workers:8}")
+    private int billingWorkers;
+
+    @Value("${web-async.workers:16}")
+    private int webAsyncWorkers;
+
+    @Value("${web-async.queue-capacity:64}")
+    private int webAsyncQueueCapacity;
+
+    @Value("${web-async.timeout-ms:300000}")
+    private long webAsyncTimeoutMs;
+
+    // Declaring the pools below switches off Boot's applicationTaskExecutor, which would leave
+    // StreamingResponseBody exports on an unbounded SimpleAsyncTaskExecutor. This bounded pool
+    // takes its place; exports beyond the queue are rejected instead of spawning threads. Tasks run
+    // under the pharmacy bulkhead of the request that started them.
+    @Bean(name = "applicationTaskExecutor")
+    public ThreadPoolTaskExecutor applicationTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webAsyncWorkers);
+        executor.setMaxPoolSize(webAsyncWorkers);
+        executor.setQueueCapacity(webAsyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setTaskDecorator(new TenantContextTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(applicationTaskExecutor());
+        configurer.setDefaultTimeout(webAsyncTimeoutMs);
+    }
+
+    // Worker pool for payment webhook processing (keeps HTTP threads free during bursts).
+    // Overflow is rejected rather than queued without bound; rejected events stay in the inbox for the sweeper.
+    @Bean(name = "webhookExecutor")
+    public ThreadPoolTaskExecutor webhookExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webhookWorkers);
+        executor.setMaxPoolSize(webhookWorkers);
+        executor.setQueueCapacity(webhookQueueCapacity);
+        executor.setThreadNamePrefix("webhook-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Outbox relay workers; the relay never submits more tasks than there are threads
+    @Bean(name = "outboxExecutor")
+    public ThreadPoolTaskExecutor outboxExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(outboxWorkers);
+        executor.setMaxPoolSize(outboxWorkers);
+        executor.setQueueCapacity(outboxWorkers);
+        executor.setThreadNamePrefix("outbox-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Fan-out pool for SSE order stream writes; keeps slow clients off the outbox relay threads
+    @Bean(name = "streamExecutor")
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamSendThreads);
+        executor.setMaxPoolSize(streamSendThreads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("order-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    // The order stream's LISTEN loop; one long-running task, restarted by OrderStreamListener when it ends
+    @Bean(name = "streamListenerExecutor")
+    public ThreadPoolTaskExecutor streamListenerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("order-stream-listen-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Email sender workers; like the outbox relay, the dispatcher never submits more tasks than there are threads
+    @Bean(name = "emailExecutor")
+    public ThreadPoolTaskExecutor emailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(emailWorkers);
+        executor.setMaxPoolSize(emailWorkers);
+        executor.setQueueCapacity(emailWorkers);
+        executor.setThreadNamePrefix("email-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Subscription billing chunks; the daily run queues all of its chunks at once
+    @Bean(name = "billingExecutor")
+    public ThreadPoolTaskExecutor billingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(billingWorkers);
+        executor.setMaxPoolSize(billingWorkers);
+        executor.setThreadNamePrefix("billing-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Order archival; one run at a time, a trigger that finds the last run still going is dropped.
+    // Keeps the first, backlog-sized run off the shared scheduler thread.
+    @Bean(name = "archiveExecutor")
+    public ThreadPoolTaskExecutor archiveExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("order-archive-");
+        executor.initialize();
+        return executor;
+    }
+}
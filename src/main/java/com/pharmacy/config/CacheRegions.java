@@ -0,0 +1,21 @@
+package com.pharmacy.config;
+
+// Hibernate second-level cache regions; each must be declared in application.conf
+public final class CacheRegions {
+
+    private CacheRegions() {}
+
+    // Entity regions
+    public static final String CATEGORIES = "categories";
+    public static final String SETTINGS = "settings";
+    public static final String PHARMACIES = "pharmacies";
+
+    // Query result region for the reference-data finders
+    public static final String REFERENCE_QUERIES = "reference-queries";
+
+    // Hibernate's built-in regions
+    public static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    public static final String[] ENTITY_REGIONS = { CATEGORIES, SETTINGS, PHARMACIES };
+}
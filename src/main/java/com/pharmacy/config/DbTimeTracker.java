@@ -0,0 +1,57 @@
+package com.pharmacy.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up, per request, how long pool connections were held (see TenantBulkheadDataSource).
+ * Only tracked between start() and stop(); outside that, connections are not timed. The total
+ * can be bound to another thread doing the request's work (see TenantContextTaskDecorator).
+ *
+ * This is connection hold time, not statement time: with open-in-view (on by default) a request
+ * keeps its connection from first use until it ends, so for any request that touches the
+ * database it comes close to the request's latency.
+ */
+public final class DbTimeTracker {
+
+    private static final ThreadLocal<AtomicLong> NANOS = new ThreadLocal<>();
+
+    private DbTimeTracker() {}
+
+    // Starts tracking on this thread; the returned total keeps growing while it is bound anywhere
+    public static AtomicLong start() {
+        AtomicLong total = new AtomicLong();
+        NANOS.set(total);
+        return total;
+    }
+
+    public static AtomicLong current() {
+        return NANOS.get();
+    }
+
+    // Continues tracking into total on this thread; null stops
+    public static void bind(AtomicLong total) {
+        if (total != null) {
+            NANOS.set(total);
+        } else {
+            NANOS.remove();
+        }
+    }
+
+    public static boolean isActive() {
+        return NANOS.get() != null;
+    }
+
+    public static void add(long nanos) {
+        AtomicLong total = NANOS.get();
+        if (total != null) {
+            total.addAndGet(nanos);
+        }
+    }
+
+    // Stops tracking on this thread and returns the time recorded so far
+    public static long stop() {
+        AtomicLong total = NANOS.get();
+        NANOS.remove();
+        return total != null ? total.get() : 0;
+    }
+}
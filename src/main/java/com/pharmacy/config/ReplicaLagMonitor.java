@@ -0,0 +1,93 @@
+package com.pharmacy.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Measures how far the replica trails the primary and decides whether read-only transactions
+ * may use it. A replica that has replayed everything it received counts as current (an idle
+ * primary would otherwise look like growing lag), but only while its WAL receiver is streaming:
+ * a stopped or disconnected receiver has nothing left to replay and would look current forever.
+ * Otherwise the lag is the age of the last replayed commit. Until the first successful check, and
+ * whenever a check fails, reads stay on the primary.
+ *
+ * The receiver status needs pg_read_all_stats (e.g. pg_monitor) on the replica; without it only
+ * a running receiver process is required. A receiver stuck on a dead connection is detected once
+ * wal_receiver_timeout ends it.
+ *
+ * A result ages: the replica may have stopped right after the check, so it stays usable only
+ * while the measured lag plus the time since the check is within max-lag-ms. Checks that stop
+ * running (a blocked scheduler) therefore take the replica out of rotation instead of keeping it in.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver
+                                 WHERE coalesce(status, 'streaming') = 'streaming') THEN NULL
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+            END""";
+
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    private volatile boolean replicaUsable;
+    private volatile long lagMs = -1;
+    private volatile long checkedAt;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMs) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(2);
+        this.maxLagMs = maxLagMs;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable && lagMs + (System.currentTimeMillis() - checkedAt) <= maxLagMs;
+    }
+
+    // Last measured lag in milliseconds, -1 when unknown
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${replica-datasource.lag-check-interval-ms:1000}")
+    public void check() {
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagMs = lag != null ? lag.longValue() : -1;
+            checkedAt = System.currentTimeMillis();
+            setUsable(lag != null && lag <= maxLagMs);
+        } catch (DataAccessException e) {
+            lagMs = -1;
+            if (replicaUsable) {
+                log.warn("Replica lag check failed: {}", e.getMessage());
+            }
+            setUsable(false);
+        }
+    }
+
+    void replicaFailed() {
+        setUsable(false);
+    }
+
+    private void setUsable(boolean usable) {
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Replica back in rotation (lag {} ms)", lagMs);
+            } else {
+                log.warn("Replica out of rotation (lag {} ms, max {} ms); read-only transactions use the primary",
+                        lagMs, maxLagMs);
+            }
+        }
+        replicaUsable = usable;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pharmacy.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out replica connections to read-only transactions while ReplicaLagMonitor reports the
+ * replica within the allowed lag; writes, non-transactional access and read-only transactions
+ * named PRIMARY_READ_ONLY use the primary. If the replica refuses a connection, the read falls
+ * back to the primary and the replica stays out of rotation until the next successful lag check.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the read-only flag is only known once the
+ * transaction has started, after the EntityManager has asked for its connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    // Transaction name for read-only work that must see every commit (snapshots kept until the next change)
+    public static final String PRIMARY_READ_ONLY = "primary-read-only";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!useReplica()) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            log.warn("Replica connection failed, reading from the primary: {}", e.getMessage());
+            lagMonitor.replicaFailed();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return useReplica() ? replica.getConnection(username, password) : primary.getConnection(username, password);
+    }
+
+    private boolean useReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !PRIMARY_READ_ONLY.equals(TransactionSynchronizationManager.getCurrentTransactionName())
+                && lagMonitor.isReplicaUsable();
+    }
+}
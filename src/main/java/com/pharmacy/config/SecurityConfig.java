@@ -3,6 +3,8 @@ package com.pharmacy.config;
 import com.pharmacy.security.JwtAuthenticationFilter;
 import com.pharmacy.security.RateLimitingFilter;
 import com.pharmacy.security.SecurityExceptionHandler;
+import com.pharmacy.security.TenantAdmissionFilter;
+import com.pharmacy.security.UsageMeteringFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -34,15 +36,21 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final RateLimitingFilter rateLimitingFilter;
+    private final TenantAdmissionFilter tenantAdmissionFilter;
+    private final UsageMeteringFilter usageMeteringFilter;
     private final UserDetailsService userDetailsService;
     private final SecurityExceptionHandler securityExceptionHandler;
 
     public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter,
                           RateLimitingFilter rateLimitingFilter,
+                          TenantAdmissionFilter tenantAdmissionFilter,
+                          UsageMeteringFilter usageMeteringFilter,
                           UserDetailsService userDetailsService,
                           SecurityExceptionHandler securityExceptionHandler) {
         this.jwtAuthFilter = jwtAuthFilter;
         this.rateLimitingFilter = rateLimitingFilter;
+        this.tenantAdmissionFilter = tenantAdmissionFilter;
+        this.usageMeteringFilter = usageMeteringFilter;
         this.userDetailsService = userDetailsService;
         this.securityExceptionHandler = securityExceptionHandler;
     }
@@ -108,6 +116,12 @@ public class SecurityConfig {
                 // Add JWT filter
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
 
+                // Per-pharmacy admission (bulkheads by subscription plan)
+                .addFilterAfter(tenantAdmissionFilter, JwtAuthenticationFilter.class)
+
+                // Per-pharmacy usage metering (wraps admission so rejections are counted)
+                .addFilterBefore(usageMeteringFilter, TenantAdmissionFilter.class)
+
                 // For H2 console frame options (development only)
                 .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin()));
 
@@ -155,7 +169,8 @@ public class SecurityConfig {
                 "X-Requested-With",
                 "Accept",
                 "Origin",
-                "X-Pharmacy-Id"    // Custom header for multi-tenant
+                "X-Pharmacy-Id",   // Custom header for multi-tenant
+                "If-None-Match"    // Conditional catalog requests
         ));
 
         // Exposed headers (client can read these)
@@ -163,7 +178,8 @@ public class SecurityConfig {
                 "Authorization",
                 "X-RateLimit-Limit",
                 "X-RateLimit-Remaining",
-                "X-RateLimit-Reset"
+                "X-RateLimit-Reset",
+                "ETag"
         ));
 
         // Allow credentials (cookies, authorization headers)
@@ -0,0 +1,33 @@
+package com.pharmacy.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource (the single Hikari pool, or the replica router) in a
+ * TenantBulkheadDataSource, for tenant bulkheads and usage metering. Connections taken outside a
+ * tenant request, Flyway's included, pass straight through.
+ */
+@Configuration
+public class TenantAdmissionConfig {
+
+    // Static: post-processors are created before the rest of the context
+    @Bean
+    public static BeanPostProcessor tenantBulkheadDataSourcePostProcessor(Environment environment) {
+        long connectionTimeoutMs = environment.getProperty("tenant-admission.connection-timeout-ms", Long.class, 1000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new TenantBulkheadDataSource(dataSource, connectionTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.pharmacy.config;
+
+import com.pharmacy.enums.SubscriptionPlan;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One pharmacy's share of the node: at most maxConcurrent requests in flight and maxConnections
+ * JDBC connections held, sized by its subscription plan.
+ *
+ * Requests over the limit wait in arrival order (fair semaphore) for up to the queue timeout, but
+ * only maxQueued of them; the rest are rejected at once so a flood from one pharmacy does not park
+ * Tomcat threads that other pharmacies need. The bulkhead entered by a request is bound to the
+ * threads doing its work (the request thread, then any async thread, see TenantContextTaskDecorator)
+ * so TenantBulkheadDataSource can meter their connections.
+ */
+public class TenantBulkhead {
+
+    private static final ThreadLocal<TenantBulkhead> CURRENT = new ThreadLocal<>();
+
+    private final Long pharmacyId;
+    private final SubscriptionPlan plan;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxConnections;
+    private final Semaphore requests;
+    private final Semaphore connections;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong connectionTimeouts = new AtomicLong();
+
+    public TenantBulkhead(Long pharmacyId, SubscriptionPlan plan, int maxConcurrent, int maxQueued, int maxConnections) {
+        this.pharmacyId = pharmacyId;
+        this.plan = plan;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxConnections = maxConnections;
+        this.requests = new Semaphore(maxConcurrent, true);
+        this.connections = new Semaphore(maxConnections, true);
+    }
+
+    public static TenantBulkhead current() {
+        return CURRENT.get();
+    }
+
+    // Binds the bulkhead to the current thread; null unbinds
+    public static void bind(TenantBulkhead bulkhead) {
+        if (bulkhead != null) {
+            CURRENT.set(bulkhead);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    // True when the request may proceed; the caller must then call exit() once the request,
+    // including any async part, is done
+    public boolean tryEnter(long timeoutMs) throws InterruptedException {
+        if (!requests.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                return false;
+            }
+            try {
+                if (!requests.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+        admitted.incrementAndGet();
+        return true;
+    }
+
+    public void exit() {
+        requests.release();
+    }
+
+    public boolean tryAcquireConnection(long timeoutMs) throws InterruptedException {
+        if (connections.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        connectionTimeouts.incrementAndGet();
+        return false;
+    }
+
+    public void releaseConnection() {
+        connections.release();
+    }
+
+    public Long getPharmacyId() { return pharmacyId; }
+
+    public SubscriptionPlan getPlan() { return plan; }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+
+    public int getMaxConnections() { return maxConnections; }
+
+    public int getInFlight() { return maxConcurrent - requests.availablePermits(); }
+
+    public int getQueued() { return queued.get(); }
+
+    public int getConnectionsInUse() { return maxConnections - connections.availablePermits(); }
+
+    public long getAdmitted() { return admitted.get(); }
+
+    public long getRejected() { return rejected.get(); }
+
+    public long getConnectionTimeouts() { return connectionTimeouts.get(); }
+}
@@ -0,0 +1,123 @@
+package com.pharmacy.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Meters the connections a request takes from the pool against its pharmacy's bulkhead (see
+ * TenantBulkhead). Work outside a tenant request (schedulers, Flyway, admin and anonymous
+ * requests) is not metered.
+ *
+ * A pharmacy at its connection limit waits up to connectionTimeoutMs and then fails the same way
+ * an exhausted Hikari pool does, with an SQLTransientConnectionException (answered with 429).
+ *
+ * Only a thread's first connection is charged a permit. With open-in-view a request holds its
+ * connection until it ends, and the REQUIRES_NEW transactions of checkout take a second one; if
+ * that were charged too, a pharmacy with max-connections requests in flight would wait on itself.
+ *
+ * While DbTimeTracker is active on the thread, the time each connection is held is added to it.
+ */
+public class TenantBulkheadDataSource extends DelegatingDataSource {
+
+    // Connections the thread holds through metered(); a thread already holding one is not charged again
+    private static final ThreadLocal<int[]> HELD = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final long connectionTimeoutMs;
+
+    public TenantBulkheadDataSource(DataSource targetDataSource, long connectionTimeoutMs) {
+        super(targetDataSource);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        TenantBulkhead bulkhead = TenantBulkhead.current();
+        if (bulkhead == null && !DbTimeTracker.isActive()) {
+            return super.getConnection();
+        }
+        return metered(bulkhead, super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        TenantBulkhead bulkhead = TenantBulkhead.current();
+        if (bulkhead == null && !DbTimeTracker.isActive()) {
+            return super.getConnection(username, password);
+        }
+        return metered(bulkhead, () -> super.getConnection(username, password));
+    }
+
+    // bulkhead is null when only the connection time is tracked
+    private Connection metered(TenantBulkhead bulkhead, ConnectionSupplier supplier) throws SQLException {
+        int[] held = HELD.get();
+        TenantBulkhead charged = held[0] == 0 ? bulkhead : null;
+        if (charged != null) {
+            acquirePermit(charged);
+        }
+
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            if (charged != null) {
+                charged.releaseConnection();
+            }
+            throw e;
+        }
+        held[0]++;
+        return releasingOnClose(connection, charged, start);
+    }
+
+    private void acquirePermit(TenantBulkhead bulkhead) throws SQLException {
+        try {
+            if (!bulkhead.tryAcquireConnection(connectionTimeoutMs)) {
+                throw new TenantConnectionLimitException("Pharmacy " + bulkhead.getPharmacyId()
+                        + " has reached its connection limit of " + bulkhead.getMaxConnections());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TenantConnectionLimitException("Interrupted waiting for a tenant connection permit", e);
+        }
+    }
+
+    // The permit (if one was charged) is returned and the time recorded on the first close(); later
+    // calls are passed through untouched
+    private static Connection releasingOnClose(Connection connection, TenantBulkhead bulkhead, long start) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0
+                            && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            int[] held = HELD.get();
+                            held[0] = Math.max(0, held[0] - 1);
+                            DbTimeTracker.add(System.nanoTime() - start);
+                            if (bulkhead != null) {
+                                bulkhead.releaseConnection();
+                            }
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pharmacy.config;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * A pharmacy has held its bulkhead's connections for longer than the connection timeout (see
+ * TenantBulkheadDataSource). Answered with 429, like a request turned away by admission control.
+ */
+public class TenantConnectionLimitException extends SQLTransientConnectionException {
+
+    public TenantConnectionLimitException(String reason) {
+        super(reason);
+    }
+
+    public TenantConnectionLimitException(String reason, Throwable cause) {
+        super(reason, cause);
+    }
+}
@@ -0,0 +1,32 @@
+package com.pharmacy.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries the submitting request's TenantBulkhead and DbTimeTracker total onto the MVC async
+ * thread, so the connections a StreamingResponseBody export or catalog stream takes are metered
+ * against its pharmacy and counted in its usage too.
+ */
+public class TenantContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        TenantBulkhead bulkhead = TenantBulkhead.current();
+        AtomicLong dbNanos = DbTimeTracker.current();
+        if (bulkhead == null && dbNanos == null) {
+            return runnable;
+        }
+        return () -> {
+            TenantBulkhead.bind(bulkhead);
+            DbTimeTracker.bind(dbNanos);
+            try {
+                runnable.run();
+            } finally {
+                TenantBulkhead.bind(null);
+                DbTimeTracker.bind(null);
+            }
+        };
+    }
+}
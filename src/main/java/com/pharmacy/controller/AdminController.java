@@ -1,20 +1,42 @@
 package com.pharmacy.controller;
 
 import com.pharmacy.dto.response.AdminStatsResponse;
+import com.pharmacy.dto.response.CacheStatsResponse;
+import com.pharmacy.dto.response.CartStatsResponse;
+import com.pharmacy.dto.response.MemoryStatsResponse;
 import com.pharmacy.dto.response.PharmacyStatsResponse;
+import com.pharmacy.dto.response.TenantAdmissionStatsResponse;
+import com.pharmacy.dto.response.TenantUsageResponse;
 import com.pharmacy.service.AdminService;
+import com.pharmacy.service.CacheStatsService;
+import com.pharmacy.service.CartReaper;
+import com.pharmacy.service.TenantAdmissionService;
+import com.pharmacy.service.TenantUsageService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
 
     private final AdminService adminService;
+    private final CacheStatsService cacheStatsService;
+    private final CartReaper cartReaper;
+    private final TenantAdmissionService tenantAdmissionService;
+    private final TenantUsageService tenantUsageService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, CacheStatsService cacheStatsService, CartReaper cartReaper,
+                           TenantAdmissionService tenantAdmissionService, TenantUsageService tenantUsageService) {
         this.adminService = adminService;
+        this.cacheStatsService = cacheStatsService;
+        this.cartReaper = cartReaper;
+        this.tenantAdmissionService = tenantAdmissionService;
+        this.tenantUsageService = tenantUsageService;
     }
 
     // ==================== SUPER ADMIN ====================
@@ -33,6 +55,61 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getPharmacyStats(pharmacyId, months));
     }
 
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getStats());
+    }
+
+    @GetMapping("/cache/memory")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<MemoryStatsResponse> getMemoryStats() {
+        return ResponseEntity.ok(cacheStatsService.getMemoryStats());
+    }
+
+    @DeleteMapping("/cache")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Void> evictCaches() {
+        cacheStatsService.evictAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/carts/stats")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<CartStatsResponse> getCartStats() {
+        return ResponseEntity.ok(cartReaper.getStats());
+    }
+
+    @GetMapping("/tenants/admission")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<List<TenantAdmissionStatsResponse>> getTenantAdmissionStats(
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(tenantAdmissionService.getStats(limit));
+    }
+
+    // Defaults to the last 24 hours
+    @GetMapping("/usage")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<List<TenantUsageResponse>> getTenantUsage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "50") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return ResponseEntity.ok(tenantUsageService.getUsageByPharmacy(start, end, limit));
+    }
+
+    @GetMapping("/usage/pharmacies/{pharmacyId}")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<List<TenantUsageResponse>> getPharmacyUsage(
+            @PathVariable Long pharmacyId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return ResponseEntity.ok(tenantUsageService.getUsageByRoute(pharmacyId, start, end));
+    }
+
     // ==================== PHARMACY OWNER / STAFF ====================
 
     @GetMapping("/reports")
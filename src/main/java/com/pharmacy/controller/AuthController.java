@@ -226,6 +226,25 @@ public class AuthController {
         return ResponseEntity.ok(Map.of("message", "If an account exists, a password reset email has been sent"));
     }
 
+    @PostMapping("/reset-password")
+    @Operation(
+            summary = "Reset password",
+            description = "Set a new password with the code from the password reset email"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Password reset successfully"),
+            @ApiResponse(responseCode = "400", description = "Reset code invalid, used or expired"),
+            @ApiResponse(responseCode = "422", description = "New password validation failed")
+    })
+    public ResponseEntity<Map<String, String>> resetPassword(
+            @Valid @RequestBody ResetPasswordRequest request,
+            HttpServletRequest httpRequest) {
+
+        String ipAddress = SecurityUtils.getClientIP(httpRequest);
+        authService.resetPassword(request, ipAddress);
+        return ResponseEntity.ok(Map.of("message", "Password reset successfully"));
+    }
+
     @GetMapping("/check-email")
     @Operation(
             summary = "Check email availability",
@@ -5,19 +5,16 @@ import com.pharmacy.dto.request.CartItemUpdateRequest;
 import com.pharmacy.dto.response.ApiResponse;
 import com.pharmacy.dto.response.CartResponse;
 import com.pharmacy.entity.Cart;
-import com.pharmacy.entity.CartItem;
-import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.entity.Product;
-import com.pharmacy.entity.User;
 import com.pharmacy.exception.BadRequestException;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.mapper.CartMapper;
 import com.pharmacy.security.SecurityUtils;
+import com.pharmacy.service.ActiveCart;
 import com.pharmacy.service.AuditLogService;
 import com.pharmacy.service.CartService;
 import com.pharmacy.service.PharmacyService;
 import com.pharmacy.service.ProductService;
-import com.pharmacy.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -44,7 +41,6 @@ public class CartController {
     private final CartService cartService;
     private final ProductService productService;
     private final PharmacyService pharmacyService;
-    private final UserService userService;
     private final CartMapper cartMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
@@ -52,14 +48,12 @@ public class CartController {
     public CartController(CartService cartService,
                           ProductService productService,
                           PharmacyService pharmacyService,
-                          UserService userService,
                           CartMapper cartMapper,
                           SecurityUtils securityUtils,
                           AuditLogService auditLogService) {
         this.cartService = cartService;
         this.productService = productService;
         this.pharmacyService = pharmacyService;
-        this.userService = userService;
         this.cartMapper = cartMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
@@ -76,12 +70,7 @@ public class CartController {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        Cart cart = cartService.getCart(customerId, pharmacyId)
-                .orElseGet(() -> {
-                    User customer = userService.getById(customerId);
-                    Pharmacy pharmacy = pharmacyService.getById(pharmacyId);
-                    return cartService.getOrCreateCart(customer, pharmacy);
-                });
+        ActiveCart cart = cartService.getActiveCart(customerId, pharmacyId);
 
         return ResponseEntity.ok(cartMapper.toResponse(cart));
     }
@@ -104,26 +93,17 @@ public class CartController {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        Product product = productService.getById(request.getProductId());
-        if (!product.getPharmacy().getId().equals(pharmacyId)) {
-            throw new BadRequestException("Product does not belong to this pharmacy");
-        }
-
-        User customer = userService.getById(customerId);
-        Pharmacy pharmacy = pharmacyService.getById(pharmacyId);
-        Cart cart = cartService.getOrCreateCart(customer, pharmacy);
-
-        CartItem item = cartService.addToCart(cart, product, request.getQuantity());
+        Product product = productService.getById(pharmacyId, request.getProductId());
 
-        cart = cartService.getById(cart.getId());
+        Long productId = product.getId();
+        String productName = product.getName();
+        Integer quantity = request.getQuantity();
 
-        auditLogService.logCartItemAdded(
-                pharmacyId, customerId, customerEmail,
-                cart.getId(), product.getId(), product.getName(), request.getQuantity()
-        );
+        ActiveCart cart = cartService.addItem(customerId, pharmacyId, product, quantity,
+                cartId -> auditLogService.logCartItemAdded(
+                        pharmacyId, customerId, customerEmail, cartId, productId, productName, quantity));
 
-        log.info("Item added to cart: {} x {} by customer: {}",
-                request.getQuantity(), product.getName(), customerEmail);
+        log.info("Item added to cart: {} x {} by customer: {}", quantity, productName, customerEmail);
 
         return ResponseEntity.ok(ApiResponse.success("Item added to cart", cartMapper.toResponse(cart)));
     }
@@ -135,7 +115,7 @@ public class CartController {
     )
     public ResponseEntity<ApiResponse<CartResponse>> updateCartItem(
             @PathVariable Long pharmacyId,
-            @Parameter(description = "Cart item ID") @PathVariable Long itemId,
+            @Parameter(description = "Cart item ID (as returned in the cart, equal to the product ID)") @PathVariable Long itemId,
             @Valid @RequestBody CartItemUpdateRequest request) {
 
         Long customerId = getCurrentCustomerId();
@@ -143,36 +123,30 @@ public class CartController {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        Cart cart = cartService.getCart(customerId, pharmacyId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "pharmacyId", pharmacyId.toString()));
+        ActiveCart cart = cartService.getActiveCart(customerId, pharmacyId);
 
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", itemId));
+        ActiveCart.CartLine line = cart.getLine(itemId);
+        if (line == null) {
+            throw new ResourceNotFoundException("CartItem", itemId);
+        }
 
-        String productName = item.getProduct().getName();
-        Integer oldQuantity = item.getQuantity();
+        String productName = line.getName();
+        Integer oldQuantity = line.getQuantity();
+        Integer newQuantity = request.getQuantity();
 
-        if (request.getQuantity() == 0) {
-            cartService.removeFromCart(itemId);
-            auditLogService.logCartItemRemoved(pharmacyId, customerId, customerEmail,
-                    cart.getId(), item.getProduct().getId(), productName);
+        if (newQuantity == 0) {
+            cart = cartService.removeItem(customerId, pharmacyId, itemId,
+                    cartId -> auditLogService.logCartItemRemoved(
+                            pharmacyId, customerId, customerEmail, cartId, itemId, productName));
         } else {
-            cartService.updateQuantity(itemId, request.getQuantity());
-            auditLogService.logCartItemUpdated(pharmacyId, customerId, customerEmail,
-                    cart.getId(), item.getProduct().getId(), productName, oldQuantity, request.getQuantity());
+            Product product = productService.getById(pharmacyId, itemId);
+            cart = cartService.updateQuantity(customerId, pharmacyId, product, newQuantity,
+                    cartId -> auditLogService.logCartItemUpdated(
+                            pharmacyId, customerId, customerEmail, cartId, itemId, productName, oldQuantity, newQuantity));
         }
 
-        cart = cartService.getCart(customerId, pharmacyId)
-                .orElseGet(() -> {
-                    User customer = userService.getById(customerId);
-                    Pharmacy pharmacy = pharmacyService.getById(pharmacyId);
-                    return cartService.getOrCreateCart(customer, pharmacy);
-                });
-
         log.info("Cart item updated: {} quantity {} -> {} by customer: {}",
-                productName, oldQuantity, request.getQuantity(), customerEmail);
+                productName, oldQuantity, newQuantity, customerEmail);
 
         return ResponseEntity.ok(ApiResponse.success("Cart updated", cartMapper.toResponse(cart)));
     }
@@ -184,34 +158,25 @@ public class CartController {
     )
     public ResponseEntity<ApiResponse<CartResponse>> removeFromCart(
             @PathVariable Long pharmacyId,
-            @PathVariable Long itemId) {
+            @Parameter(description = "Cart item ID (as returned in the cart, equal to the product ID)") @PathVariable Long itemId) {
 
         Long customerId = getCurrentCustomerId();
         String customerEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        Cart cart = cartService.getCart(customerId, pharmacyId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "pharmacyId", pharmacyId.toString()));
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", itemId));
+        ActiveCart cart = cartService.getActiveCart(customerId, pharmacyId);
 
-        String productName = item.getProduct().getName();
-        Long productId = item.getProduct().getId();
-
-        cartService.removeFromCart(itemId);
+        ActiveCart.CartLine line = cart.getLine(itemId);
+        if (line == null) {
+            throw new ResourceNotFoundException("CartItem", itemId);
+        }
 
-        auditLogService.logCartItemRemoved(pharmacyId, customerId, customerEmail, cart.getId(), productId, productName);
+        String productName = line.getName();
 
-        cart = cartService.getCart(customerId, pharmacyId)
-                .orElseGet(() -> {
-                    User customer = userService.getById(customerId);
-                    Pharmacy pharmacy = pharmacyService.getById(pharmacyId);
-                    return cartService.getOrCreateCart(customer, pharmacy);
-                });
+        cart = cartService.removeItem(customerId, pharmacyId, itemId,
+                cartId -> auditLogService.logCartItemRemoved(
+                        pharmacyId, customerId, customerEmail, cartId, itemId, productName));
 
         log.info("Item removed from cart: {} by customer: {}", productName, customerEmail);
 
@@ -227,16 +192,13 @@ public class CartController {
         Long customerId = getCurrentCustomerId();
         String customerEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Cart cart = cartService.getCart(customerId, pharmacyId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "pharmacyId", pharmacyId.toString()));
-
-        cartService.clearCart(cart.getId());
-
-        auditLogService.logCartCleared(pharmacyId, customerId, customerEmail, cart.getId(), "User cleared cart");
+        ActiveCart cart = cartService.getActiveCart(customerId, pharmacyId);
+        if (cart.getCartId() == null && cart.isEmpty()) {
+            throw new ResourceNotFoundException("Cart", "pharmacyId", pharmacyId.toString());
+        }
 
-        User customer = userService.getById(customerId);
-        Pharmacy pharmacy = pharmacyService.getById(pharmacyId);
-        cart = cartService.getOrCreateCart(customer, pharmacy);
+        cart = cartService.clearActiveCart(customerId, pharmacyId,
+                cartId -> auditLogService.logCartCleared(pharmacyId, customerId, customerEmail, cartId, "User cleared cart"));
 
         log.info("Cart cleared by customer: {}", customerEmail);
 
@@ -251,9 +213,7 @@ public class CartController {
     public ResponseEntity<Map<String, Integer>> getCartItemCount(@PathVariable Long pharmacyId) {
         Long customerId = getCurrentCustomerId();
 
-        int count = cartService.getCart(customerId, pharmacyId)
-                .map(cart -> cartService.getCartItemCount(cart.getId()))
-                .orElse(0);
+        int count = cartService.getActiveCart(customerId, pharmacyId).getLineCount();
 
         return ResponseEntity.ok(Map.of("count", count));
     }
@@ -268,12 +228,14 @@ public class CartController {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        Cart cart = cartService.getCart(customerId, pharmacyId)
+        // Checked against current product data, like checkout
+        Cart cart = cartService.getCartForCheckout(customerId, pharmacyId)
                 .orElseThrow(() -> new BadRequestException("Cart is empty"));
 
         var unavailableItems = cartService.getUnavailableItems(cart.getId());
 
-        CartResponse response = cartMapper.toResponse(cart);
+        // Rendered like every other cart endpoint: item IDs are product IDs
+        CartResponse response = cartMapper.toResponse(cartService.getActiveCart(customerId, pharmacyId));
 
         if (!unavailableItems.isEmpty()) {
             return ResponseEntity.ok(ApiResponse.error("Some items are unavailable or out of stock"));
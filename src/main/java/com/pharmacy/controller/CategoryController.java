@@ -9,7 +9,11 @@ import com.pharmacy.exception.BadRequestException;
 import com.pharmacy.mapper.CategoryMapper;
 import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
+import com.pharmacy.service.CatalogVersionService;
 import com.pharmacy.service.CategoryService;
+import com.pharmacy.service.CategoryTreeService;
+import com.pharmacy.service.CategoryTreeService.TreeSnapshot;
+import com.pharmacy.service.PharmacyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -19,9 +23,11 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -36,15 +42,24 @@ public class CategoryController {
     private final CategoryMapper categoryMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final CategoryTreeService categoryTreeService;
+    private final CatalogVersionService catalogVersionService;
+    private final PharmacyService pharmacyService;
 
     public CategoryController(CategoryService categoryService,
                               CategoryMapper categoryMapper,
                               SecurityUtils securityUtils,
-                              AuditLogService auditLogService) {
+                              AuditLogService auditLogService,
+                              CategoryTreeService categoryTreeService,
+                              CatalogVersionService catalogVersionService,
+                              PharmacyService pharmacyService) {
         this.categoryService = categoryService;
         this.categoryMapper = categoryMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.categoryTreeService = categoryTreeService;
+        this.catalogVersionService = catalogVersionService;
+        this.pharmacyService = pharmacyService;
     }
 
     // ==================== PUBLIC ENDPOINTS ====================
@@ -52,14 +67,22 @@ public class CategoryController {
     @GetMapping("/public/categories")
     @Operation(
             summary = "List all categories",
-            description = "Get all active root categories with their children (for storefront menu)"
+            description = "Get the full active category tree (for storefront menu). Supports If-None-Match."
     )
-    public ResponseEntity<List<CategoryResponse>> getPublicCategories() {
-        List<Category> categories = categoryService.findRootCategories();
-        List<CategoryResponse> responses = categories.stream()
-                .map(categoryMapper::toResponseWithChildren)
-                .toList();
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<byte[]> getPublicCategories(WebRequest request) {
+        return treeResponse(categoryTreeService.getTree(), request);
+    }
+
+    @GetMapping("/public/pharmacies/{pharmacyId}/categories")
+    @Operation(
+            summary = "Category tree with product counts",
+            description = "Full active category tree with the pharmacy's active product count per category. Supports If-None-Match."
+    )
+    public ResponseEntity<byte[]> getPharmacyCategoryTree(
+            @Parameter(description = "Pharmacy ID") @PathVariable Long pharmacyId,
+            WebRequest request) {
+        pharmacyService.validatePharmacyActive(pharmacyId);
+        return treeResponse(categoryTreeService.getTree(pharmacyId), request);
     }
 
     @GetMapping("/public/categories/slug/{slug}")
@@ -71,14 +94,22 @@ public class CategoryController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Category found"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Category not found")
     })
-    public ResponseEntity<CategoryResponse> getCategoryBySlug(@PathVariable String slug) {
+    public ResponseEntity<CategoryResponse> getCategoryBySlug(@PathVariable String slug, WebRequest request) {
+        String etag = catalogVersionService.categoryEtag();
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
         Category category = categoryService.getBySlug(slug);
 
         if (!category.isActive()) {
             throw new BadRequestException("Category not found");
         }
 
-        return ResponseEntity.ok(categoryMapper.toResponseWithChildren(category));
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .body(categoryMapper.toResponseWithChildren(category));
     }
 
     @GetMapping("/public/categories/{parentId}/subcategories")
@@ -87,12 +118,33 @@ public class CategoryController {
             description = "List subcategories of a parent category"
     )
     public ResponseEntity<List<CategoryResponse>> getSubcategories(
-            @Parameter(description = "Parent category ID") @PathVariable Long parentId) {
+            @Parameter(description = "Parent category ID") @PathVariable Long parentId,
+            WebRequest request) {
+        String etag = catalogVersionService.categoryEtag();
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
         List<Category> categories = categoryService.findSubcategories(parentId);
         List<CategoryResponse> responses = categories.stream()
                 .map(categoryMapper::toResponse)
                 .toList();
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .body(responses);
+    }
+
+    // Snapshot bytes are written as-is; a matching If-None-Match gets an empty 304
+    private ResponseEntity<byte[]> treeResponse(TreeSnapshot snapshot, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(catalogVersionService.cacheControl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getJson());
     }
 
     // ==================== ADMIN ENDPOINTS ====================
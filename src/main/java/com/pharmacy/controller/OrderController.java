@@ -16,6 +16,7 @@ import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
 import com.pharmacy.service.CartService;
 import com.pharmacy.service.OrderService;
+import com.pharmacy.service.OrderStreamService;
 import com.pharmacy.service.PharmacyService;
 import com.pharmacy.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -33,9 +34,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +58,7 @@ public class OrderController {
     private final OrderMapper orderMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final OrderStreamService orderStreamService;
 
     public OrderController(OrderService orderService,
                            CartService cartService,
@@ -62,7 +66,8 @@ public class OrderController {
                            PharmacyService pharmacyService,
                            OrderMapper orderMapper,
                            SecurityUtils securityUtils,
-                           AuditLogService auditLogService) {
+                           AuditLogService auditLogService,
+                           OrderStreamService orderStreamService) {
         this.orderService = orderService;
         this.cartService = cartService;
         this.userService = userService;
@@ -70,6 +75,7 @@ public class OrderController {
         this.orderMapper = orderMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.orderStreamService = orderStreamService;
     }
 
     // ==================== CUSTOMER ENDPOINTS ====================
@@ -94,7 +100,7 @@ public class OrderController {
 
         pharmacyService.validatePharmacyActive(request.getPharmacyId());
 
-        Cart cart = cartService.getCart(customerId, request.getPharmacyId())
+        Cart cart = cartService.getCartForCheckout(customerId, request.getPharmacyId())
                 .orElseThrow(() -> new BadRequestException("Cart is empty"));
 
         Order order = orderService.createOrderFromCart(
@@ -185,7 +191,7 @@ public class OrderController {
             throw AccessDeniedException.resourceAccess("order");
         }
 
-        order = orderService.cancelOrder(order.getId(), request.getReason(), customerId);
+        order = orderService.cancelOrder(order.getPharmacyId(), order.getId(), request.getReason(), customerId);
 
         auditLogService.logOrderCancelled(
                 order.getPharmacy().getId(), customerId, customerEmail,
@@ -274,6 +280,20 @@ public class OrderController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping(value = "/staff/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('PHARMACY_OWNER', 'STAFF')")
+    @Operation(
+            summary = "Stream order updates",
+            description = "Server-Sent Events feed of order-created and status-changed deltas for the pharmacy. " +
+                    "Send Last-Event-ID on reconnect to replay missed events; a RESYNC event means the lists must be refetched.",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    public SseEmitter streamOrders(
+            @Parameter(description = "Last received event ID") @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long pharmacyId = getCurrentPharmacyId();
+        return orderStreamService.subscribe(pharmacyId, lastEventId);
+    }
+
     @GetMapping("/staff/orders/{orderNumber}")
     @PreAuthorize("hasAnyRole('PHARMACY_OWNER', 'STAFF')")
     @Operation(
@@ -284,8 +304,7 @@ public class OrderController {
     public ResponseEntity<OrderResponse> getOrder(@PathVariable String orderNumber) {
         Long pharmacyId = getCurrentPharmacyId();
 
-        Order order = orderService.getByOrderNumber(orderNumber);
-        validateOrderBelongsToPharmacy(order, pharmacyId);
+        Order order = orderService.getByOrderNumber(pharmacyId, orderNumber);
 
         return ResponseEntity.ok(orderMapper.toResponseWithItems(order));
     }
@@ -309,15 +328,14 @@ public class OrderController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Order order = orderService.getByOrderNumber(orderNumber);
-        validateOrderBelongsToPharmacy(order, pharmacyId);
+        Order order = orderService.getByOrderNumber(pharmacyId, orderNumber);
 
         OrderStatus oldStatus = order.getStatus();
 
-        order = orderService.updateStatus(order.getId(), request.getStatus());
+        order = orderService.updateStatus(pharmacyId, order.getId(), request.getStatus());
 
         if (request.getTrackingNumber() != null && request.getStatus() == OrderStatus.SHIPPED) {
-            order = orderService.setTrackingNumber(order.getId(), request.getTrackingNumber(), request.getCargoCompany());
+            order = orderService.setTrackingNumber(pharmacyId, order.getId(), request.getTrackingNumber(), request.getCargoCompany());
 
             auditLogService.logOrderShipped(
                     pharmacyId, userId, userEmail,
@@ -353,10 +371,9 @@ public class OrderController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Order order = orderService.getByOrderNumber(orderNumber);
-        validateOrderBelongsToPharmacy(order, pharmacyId);
+        Order order = orderService.getByOrderNumber(pharmacyId, orderNumber);
 
-        order = orderService.cancelOrder(order.getId(), request.getReason(), userId);
+        order = orderService.cancelOrder(pharmacyId, order.getId(), request.getReason(), userId);
 
         auditLogService.logOrderCancelled(
                 pharmacyId, userId, userEmail,
@@ -384,10 +401,9 @@ public class OrderController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Order order = orderService.getByOrderNumber(orderNumber);
-        validateOrderBelongsToPharmacy(order, pharmacyId);
+        Order order = orderService.getByOrderNumber(pharmacyId, orderNumber);
 
-        order = orderService.setTrackingNumber(order.getId(), trackingNumber, cargoCompany);
+        order = orderService.setTrackingNumber(pharmacyId, order.getId(), trackingNumber, cargoCompany);
 
         auditLogService.logOrderTrackingUpdated(
                 pharmacyId, userId, userEmail,
@@ -434,10 +450,4 @@ public class OrderController {
         return securityUtils.getCurrentPharmacyId()
                 .orElseThrow(() -> new BadRequestException("No pharmacy associated with current user"));
     }
-
-    private void validateOrderBelongsToPharmacy(Order order, Long pharmacyId) {
-        if (!order.getPharmacy().getId().equals(pharmacyId)) {
-            throw AccessDeniedException.resourceAccess("order");
-        }
-    }
 }
\ No newline at end of file
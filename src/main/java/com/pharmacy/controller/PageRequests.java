@@ -0,0 +1,38 @@
+package com.pharmacy.controller;
+
+import com.pharmacy.exception.BadRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Set;
+
+/**
+ * Page and sort parameters of listing endpoints: negative pages and out-of-range sizes are clamped,
+ * and only whitelisted fields can be sorted on (anything else would reach the query as a path).
+ */
+final class PageRequests {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private PageRequests() {
+    }
+
+    static int pageNumber(int page) {
+        return Math.max(page, 0);
+    }
+
+    static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    static Pageable sorted(int page, int size, String sortBy, String sortDir, Set<String> sortFields) {
+        if (!sortFields.contains(sortBy)) {
+            throw new BadRequestException("Invalid sort field: " + sortBy);
+        }
+        Sort sort = sortDir.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+        return PageRequest.of(pageNumber(page), pageSize(size), sort);
+    }
+}
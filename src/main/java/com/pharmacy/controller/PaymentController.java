@@ -6,6 +6,8 @@ import com.pharmacy.dto.response.ApiResponse;
 import com.pharmacy.dto.response.PaymentResponse;
 import com.pharmacy.entity.Order;
 import com.pharmacy.entity.Payment;
+import com.pharmacy.entity.PaymentWebhookEvent;
+import com.pharmacy.entity.User;
 import com.pharmacy.enums.PaymentStatus;
 import com.pharmacy.exception.AccessDeniedException;
 import com.pharmacy.exception.BadRequestException;
@@ -15,6 +17,8 @@ import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
 import com.pharmacy.service.OrderService;
 import com.pharmacy.service.PaymentService;
+import com.pharmacy.service.PaymentWebhookDispatcher;
+import com.pharmacy.service.PaymentWebhookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -42,17 +46,23 @@ public class PaymentController {
     private final PaymentMapper paymentMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final PaymentWebhookService webhookService;
+    private final PaymentWebhookDispatcher webhookDispatcher;
 
     public PaymentController(PaymentService paymentService,
                              OrderService orderService,
                              PaymentMapper paymentMapper,
                              SecurityUtils securityUtils,
-                             AuditLogService auditLogService) {
+                             AuditLogService auditLogService,
+                             PaymentWebhookService webhookService,
+                             PaymentWebhookDispatcher webhookDispatcher) {
         this.paymentService = paymentService;
         this.orderService = orderService;
         this.paymentMapper = paymentMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.webhookService = webhookService;
+        this.webhookDispatcher = webhookDispatcher;
     }
 
     // ==================== CUSTOMER ENDPOINTS ====================
@@ -115,7 +125,7 @@ public class PaymentController {
 
         Payment payment = paymentService.getById(paymentId);
 
-        if (!payment.getOrder().getCustomer().getId().equals(customerId)) {
+        if (!customerId.equals(payment.getCustomerId())) {
             throw AccessDeniedException.resourceAccess("payment");
         }
 
@@ -172,7 +182,7 @@ public class PaymentController {
 
         try {
             Payment payment = paymentService.getByConversationId(conversationId);
-            Long pharmacyId = payment.getOrder().getPharmacy().getId();
+            Long pharmacyId = payment.getPharmacyId();
 
             if ("success".equalsIgnoreCase(status)) {
                 String transactionId = params.get("transactionId");
@@ -181,47 +191,57 @@ public class PaymentController {
 
                 payment = paymentService.processSuccessfulPayment(
                         conversationId, transactionId, paymentId, cardLastFour, cardBrand);
+                User customer = paymentService.getLiveOrder(payment).getCustomer();
 
                 auditLogService.logPaymentSuccess(
-                        pharmacyId, payment.getOrder().getCustomer().getId(),
-                        payment.getOrder().getCustomer().getEmail(),
-                        payment.getId(), payment.getOrder().getId(),
-                        payment.getOrder().getOrderNumber(),
+                        pharmacyId, customer.getId(), customer.getEmail(),
+                        payment.getId(), payment.getOrderId(), payment.getOrderNumber(),
                         payment.getAmount(), transactionId, cardLastFour
                 );
 
-                log.info("Payment successful for order: {}", payment.getOrder().getOrderNumber());
+                log.info("Payment successful for order: {}", payment.getOrderNumber());
 
                 return ResponseEntity.ok(Map.of(
                         "success", true,
                         "message", "Payment successful",
-                        "orderNumber", payment.getOrder().getOrderNumber(),
-                        "redirectUrl", "/orders/" + payment.getOrder().getOrderNumber() + "/success"
+                        "orderNumber", payment.getOrderNumber(),
+                        "redirectUrl", "/orders/" + payment.getOrderNumber() + "/success"
                 ));
             } else {
                 String errorCode = params.get("errorCode");
                 String errorMessage = params.get("errorMessage");
 
                 payment = paymentService.processFailedPayment(conversationId, errorCode, errorMessage);
+                User customer = paymentService.getLiveOrder(payment).getCustomer();
 
                 auditLogService.logPaymentFailed(
-                        pharmacyId, payment.getOrder().getCustomer().getId(),
-                        payment.getOrder().getCustomer().getEmail(),
-                        payment.getId(), payment.getOrder().getId(),
-                        payment.getOrder().getOrderNumber(),
+                        pharmacyId, customer.getId(), customer.getEmail(),
+                        payment.getId(), payment.getOrderId(), payment.getOrderNumber(),
                         errorCode, errorMessage
                 );
 
                 log.warn("Payment failed for order: {} - {}: {}",
-                        payment.getOrder().getOrderNumber(), errorCode, errorMessage);
+                        payment.getOrderNumber(), errorCode, errorMessage);
 
                 return ResponseEntity.ok(Map.of(
                         "success", false,
                         "message", errorMessage != null ? errorMessage : "Payment failed",
                         "errorCode", errorCode != null ? errorCode : "UNKNOWN",
-                        "redirectUrl", "/orders/" + payment.getOrder().getOrderNumber() + "/failed"
+                        "redirectUrl", "/orders/" + payment.getOrderNumber() + "/failed"
                 ));
             }
+        } catch (BusinessException e) {
+            // The webhook settled the payment first; report the outcome it recorded
+            log.info("Payment callback for {} arrived after settlement: {}", conversationId, e.getMessage());
+            Payment payment = paymentService.getByConversationId(conversationId);
+            boolean paid = payment.getStatus() == PaymentStatus.SUCCESS;
+            String orderNumber = payment.getOrderNumber();
+            return ResponseEntity.ok(Map.of(
+                    "success", paid,
+                    "message", paid ? "Payment successful" : "Payment failed",
+                    "orderNumber", orderNumber,
+                    "redirectUrl", "/orders/" + orderNumber + (paid ? "/success" : "/failed")
+            ));
         } catch (Exception e) {
             log.error("Error processing payment callback", e);
             return ResponseEntity.internalServerError().body(Map.of(
@@ -234,16 +254,24 @@ public class PaymentController {
     @PostMapping("/public/payments/webhook")
     @Operation(
             summary = "Payment webhook",
-            description = "Handle async payment notifications from payment provider"
+            description = "Handle async payment notifications from payment provider. " +
+                    "The event is stored in the webhook inbox and acknowledged immediately; processing happens on a worker pool."
     )
+    @ApiResponses({
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Webhook accepted (or duplicate)"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid signature")
+    })
     public ResponseEntity<String> handleWebhook(
             @RequestBody String payload,
             @RequestHeader(value = "X-Iyzico-Signature", required = false) String signature) {
 
-        log.info("Payment webhook received");
+        PaymentWebhookEvent event = webhookService.receive(payload, signature);
+
+        log.info("Payment webhook received: {} for conversation: {}", event.getId(), event.getConversationId());
 
-        // TODO: Validate signature
-        // TODO: Process webhook payload
+        if (!event.isFinished()) {
+            webhookDispatcher.dispatch(event.getId());
+        }
 
         return ResponseEntity.ok("OK");
     }
@@ -260,11 +288,7 @@ public class PaymentController {
     public ResponseEntity<PaymentResponse> getPaymentForOrder(@PathVariable String orderNumber) {
         Long pharmacyId = getCurrentPharmacyId();
 
-        Order order = orderService.getByOrderNumber(orderNumber);
-
-        if (!order.getPharmacy().getId().equals(pharmacyId)) {
-            throw AccessDeniedException.resourceAccess("order");
-        }
+        Order order = orderService.getByOrderNumber(pharmacyId, orderNumber);
 
         Payment payment = paymentService.findByOrder(order.getId())
                 .orElseThrow(() -> new BadRequestException("No payment found for this order"));
@@ -292,7 +316,7 @@ public class PaymentController {
 
         Payment payment = paymentService.getById(request.getPaymentId());
 
-        if (!payment.getOrder().getPharmacy().getId().equals(pharmacyId)) {
+        if (!pharmacyId.equals(payment.getPharmacyId())) {
             throw AccessDeniedException.resourceAccess("payment");
         }
 
@@ -302,8 +326,7 @@ public class PaymentController {
 
         auditLogService.logPaymentRefundInitiated(
                 pharmacyId, userId, userEmail,
-                payment.getId(), payment.getOrder().getId(),
-                payment.getOrder().getOrderNumber(),
+                payment.getId(), payment.getOrderId(), payment.getOrderNumber(),
                 request.getAmount() != null ? request.getAmount() : payment.getAmount()
         );
 
@@ -316,8 +339,7 @@ public class PaymentController {
 
         auditLogService.logPaymentRefundSuccess(
                 pharmacyId, userId, userEmail,
-                refundedPayment.getId(), refundedPayment.getOrder().getId(),
-                refundedPayment.getOrder().getOrderNumber(),
+                refundedPayment.getId(), refundedPayment.getOrderId(), refundedPayment.getOrderNumber(),
                 refundedPayment.getRefundedAmount()
         );
 
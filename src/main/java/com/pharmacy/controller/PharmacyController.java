@@ -1,13 +1,16 @@
 package com.pharmacy.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pharmacy.dto.request.PharmacyCreateRequest;
 import com.pharmacy.dto.request.PharmacyUpdateRequest;
 import com.pharmacy.dto.request.RegisterPharmacyOwnerRequest;
 import com.pharmacy.dto.response.ApiResponse;
+import com.pharmacy.dto.response.PageResponse;
 import com.pharmacy.dto.response.PharmacyPublicResponse;
 import com.pharmacy.dto.response.PharmacyResponse;
 import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.entity.User;
+import com.pharmacy.enums.PharmacyStatus;
 import com.pharmacy.enums.SubscriptionPlan;
 import com.pharmacy.enums.UserRole;
 import com.pharmacy.exception.AccessDeniedException;
@@ -17,6 +20,7 @@ import com.pharmacy.mapper.PharmacyMapper;
 import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
 import com.pharmacy.service.AuthService;
+import com.pharmacy.service.CatalogVersionService;
 import com.pharmacy.service.PharmacyService;
 import com.pharmacy.service.ProductService;
 import com.pharmacy.service.UserService;
@@ -28,13 +32,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -50,6 +61,11 @@ public class PharmacyController {
     private final PharmacyMapper pharmacyMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final CatalogVersionService catalogVersionService;
+    private final ObjectMapper objectMapper;
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final Set<String> ADMIN_SORT_FIELDS = Set.of("createdAt", "name", "status", "nextPaymentDate");
 
     public PharmacyController(PharmacyService pharmacyService,
                               UserService userService,
@@ -57,7 +73,9 @@ public class PharmacyController {
                               ProductService productService,
                               PharmacyMapper pharmacyMapper,
                               SecurityUtils securityUtils,
-                              AuditLogService auditLogService) {
+                              AuditLogService auditLogService,
+                              CatalogVersionService catalogVersionService,
+                              ObjectMapper objectMapper) {
         this.pharmacyService = pharmacyService;
         this.userService = userService;
         this.authService = authService;
@@ -65,6 +83,8 @@ public class PharmacyController {
         this.pharmacyMapper = pharmacyMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.catalogVersionService = catalogVersionService;
+        this.objectMapper = objectMapper;
     }
 
     // ==================== PUBLIC ENDPOINTS ====================
@@ -78,13 +98,12 @@ public class PharmacyController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Pharmacy found"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Pharmacy not found or inactive")
     })
-    public ResponseEntity<PharmacyPublicResponse> getPharmacyBySubdomain(@PathVariable String subdomain) {
+    public ResponseEntity<PharmacyPublicResponse> getPharmacyBySubdomain(@PathVariable String subdomain,
+                                                                         WebRequest request) {
         Pharmacy pharmacy = pharmacyService.findBySubdomain(subdomain.toLowerCase())
                 .orElseThrow(() -> new BadRequestException("Pharmacy not found"));
 
-        pharmacyService.validatePharmacyActive(pharmacy.getId());
-
-        return ResponseEntity.ok(pharmacyMapper.toPublicResponse(pharmacy));
+        return publicProfile(pharmacy, request);
     }
 
     @GetMapping("/public/pharmacies/domain/{domain}")
@@ -92,13 +111,12 @@ public class PharmacyController {
             summary = "Get pharmacy by custom domain",
             description = "Get pharmacy info for storefront (by custom domain)"
     )
-    public ResponseEntity<PharmacyPublicResponse> getPharmacyByDomain(@PathVariable String domain) {
+    public ResponseEntity<PharmacyPublicResponse> getPharmacyByDomain(@PathVariable String domain,
+                                                                      WebRequest request) {
         Pharmacy pharmacy = pharmacyService.findByCustomDomain(domain)
                 .orElseThrow(() -> new BadRequestException("Pharmacy not found"));
 
-        pharmacyService.validatePharmacyActive(pharmacy.getId());
-
-        return ResponseEntity.ok(pharmacyMapper.toPublicResponse(pharmacy));
+        return publicProfile(pharmacy, request);
     }
 
     @GetMapping("/public/pharmacies/{id}")
@@ -106,11 +124,22 @@ public class PharmacyController {
             summary = "Get pharmacy by ID",
             description = "Get public pharmacy info by ID"
     )
-    public ResponseEntity<PharmacyPublicResponse> getPharmacyPublic(@PathVariable Long id) {
-        Pharmacy pharmacy = pharmacyService.getById(id);
-        pharmacyService.validatePharmacyActive(id);
+    public ResponseEntity<PharmacyPublicResponse> getPharmacyPublic(@PathVariable Long id, WebRequest request) {
+        return publicProfile(pharmacyService.getById(id), request);
+    }
+
+    private ResponseEntity<PharmacyPublicResponse> publicProfile(Pharmacy pharmacy, WebRequest request) {
+        pharmacyService.validatePharmacyActive(pharmacy.getId());
+
+        String etag = catalogVersionService.pharmacyEtag(pharmacy.getId());
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
 
-        return ResponseEntity.ok(pharmacyMapper.toPublicResponse(pharmacy));
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .body(pharmacyMapper.toPublicResponse(pharmacy));
     }
 
     // ==================== ADMIN ENDPOINTS ====================
@@ -118,16 +147,56 @@ public class PharmacyController {
     @GetMapping("/admin/pharmacies")
     @PreAuthorize("hasRole('SUPER_ADMIN')")
     @Operation(
-            summary = "List all pharmacies",
-            description = "Get all pharmacies (Super Admin only)",
+            summary = "List pharmacies",
+            description = "Get a filtered page of pharmacies (Super Admin only)",
             security = @SecurityRequirement(name = "Bearer Authentication")
     )
-    public ResponseEntity<List<PharmacyResponse>> getAllPharmacies() {
-        List<Pharmacy> pharmacies = pharmacyService.findAll();
-        List<PharmacyResponse> responses = pharmacies.stream()
-                .map(pharmacyMapper::toResponse)
-                .toList();
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<PageResponse<PharmacyResponse>> getAllPharmacies(
+            @Parameter(description = "Filter by status") @RequestParam(required = false) PharmacyStatus status,
+            @Parameter(description = "Filter by subscription plan") @RequestParam(required = false) SubscriptionPlan plan,
+            @Parameter(description = "Search in name, subdomain and email") @RequestParam(required = false) String q,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort field: createdAt, name, status, nextPaymentDate") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
+
+        Pageable pageable = PageRequests.sorted(page, size, sortBy, sortDir, ADMIN_SORT_FIELDS);
+
+        Page<PharmacyResponse> pharmacies = pharmacyService.searchPharmacies(status, plan, q, pageable)
+                .map(pharmacyMapper::toResponse);
+
+        return ResponseEntity.ok(PageResponse.of(pharmacies));
+    }
+
+    @GetMapping(value = "/admin/pharmacies/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @Operation(
+            summary = "Export pharmacies",
+            description = "Stream all matching pharmacies as newline-delimited JSON (Super Admin only)",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    public ResponseEntity<StreamingResponseBody> exportPharmacies(
+            @Parameter(description = "Filter by status") @RequestParam(required = false) PharmacyStatus status,
+            @Parameter(description = "Filter by subscription plan") @RequestParam(required = false) SubscriptionPlan plan,
+            @Parameter(description = "Search in name, subdomain and email") @RequestParam(required = false) String q) {
+
+        log.info("Pharmacy export started by {}", securityUtils.getCurrentUserEmail().orElse("system"));
+
+        StreamingResponseBody body = out -> pharmacyService.forEachPharmacyBatch(status, plan, q, EXPORT_BATCH_SIZE, batch -> {
+            try {
+                for (Pharmacy pharmacy : batch) {
+                    out.write(objectMapper.writeValueAsBytes(pharmacyMapper.toResponse(pharmacy)));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @GetMapping("/admin/pharmacies/{id}")
@@ -41,22 +41,28 @@ public class PharmacyReportsController {
 
         Map<String, Object> reports = new HashMap<>();
 
+        // Lifetime totals include archived orders
         // Total orders
         Long totalOrders = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM orders WHERE pharmacy_id = ?",
-                Long.class, pharmacyId);
+                "SELECT (SELECT COUNT(*) FROM orders WHERE pharmacy_id = ?) " +
+                        "+ (SELECT COUNT(*) FROM orders_archive WHERE pharmacy_id = ?)",
+                Long.class, pharmacyId, pharmacyId);
         reports.put("totalOrders", totalOrders != null ? totalOrders : 0);
 
         // Total revenue
         Double totalRevenue = jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(total_amount), 0) FROM orders WHERE pharmacy_id = ? AND status != 'CANCELLED'",
-                Double.class, pharmacyId);
+                "SELECT COALESCE(SUM(total_amount), 0) FROM (" +
+                        "SELECT total_amount FROM orders WHERE pharmacy_id = ? AND status != 'CANCELLED' UNION ALL " +
+                        "SELECT total_amount FROM orders_archive WHERE pharmacy_id = ? AND status != 'CANCELLED') o",
+                Double.class, pharmacyId, pharmacyId);
         reports.put("totalRevenue", totalRevenue != null ? totalRevenue : 0.0);
 
         // Total customers
         Long totalCustomers = jdbcTemplate.queryForObject(
-                "SELECT COUNT(DISTINCT customer_id) FROM orders WHERE pharmacy_id = ?",
-                Long.class, pharmacyId);
+                "SELECT COUNT(DISTINCT customer_id) FROM (" +
+                        "SELECT customer_id FROM orders WHERE pharmacy_id = ? UNION ALL " +
+                        "SELECT customer_id FROM orders_archive WHERE pharmacy_id = ?) o",
+                Long.class, pharmacyId, pharmacyId);
         reports.put("totalCustomers", totalCustomers != null ? totalCustomers : 0);
 
         // Total products
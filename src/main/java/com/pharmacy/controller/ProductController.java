@@ -1,22 +1,28 @@
 package com.pharmacy.controller;
 
+import com.pharmacy.dto.request.BulkStockUpdateRequest;
 import com.pharmacy.dto.request.ProductCreateRequest;
 import com.pharmacy.dto.request.ProductUpdateRequest;
 import com.pharmacy.dto.request.StockUpdateRequest;
 import com.pharmacy.dto.response.ApiResponse;
+import com.pharmacy.dto.response.BulkStockUpdateResponse;
 import com.pharmacy.dto.response.PageResponse;
+import com.pharmacy.dto.response.ProductFacetResponse;
 import com.pharmacy.dto.response.ProductResponse;
 import com.pharmacy.entity.Category;
 import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.entity.Product;
-import com.pharmacy.exception.AccessDeniedException;
 import com.pharmacy.exception.BadRequestException;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.mapper.ProductMapper;
 import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
+import com.pharmacy.service.CatalogFacetIndex;
+import com.pharmacy.service.CatalogVersionService;
 import com.pharmacy.service.CategoryService;
+import com.pharmacy.service.OffHeapCatalogStore;
 import com.pharmacy.service.PharmacyService;
+import com.pharmacy.service.ProductJsonCache;
 import com.pharmacy.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,13 +39,21 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -48,25 +62,40 @@ public class ProductController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
 
+    // Products loaded, encoded and written per round trip when streaming a category listing
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final ProductService productService;
     private final CategoryService categoryService;
     private final PharmacyService pharmacyService;
     private final ProductMapper productMapper;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final CatalogVersionService catalogVersionService;
+    private final ProductJsonCache productJsonCache;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final Optional<OffHeapCatalogStore> offHeapCatalogStore;
 
     public ProductController(ProductService productService,
                              CategoryService categoryService,
                              PharmacyService pharmacyService,
                              ProductMapper productMapper,
                              SecurityUtils securityUtils,
-                             AuditLogService auditLogService) {
+                             AuditLogService auditLogService,
+                             CatalogVersionService catalogVersionService,
+                             ProductJsonCache productJsonCache,
+                             CatalogFacetIndex catalogFacetIndex,
+                             Optional<OffHeapCatalogStore> offHeapCatalogStore) {
         this.productService = productService;
         this.categoryService = categoryService;
         this.pharmacyService = pharmacyService;
         this.productMapper = productMapper;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.catalogVersionService = catalogVersionService;
+        this.productJsonCache = productJsonCache;
+        this.catalogFacetIndex = catalogFacetIndex;
+        this.offHeapCatalogStore = offHeapCatalogStore;
     }
 
     // ==================== PUBLIC ENDPOINTS ====================
@@ -85,10 +114,16 @@ public class ProductController {
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort field") @RequestParam(defaultValue = "name") String sortBy,
-            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir,
+            WebRequest request) {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
+        String etag = catalogVersionService.pharmacyEtag(pharmacyId);
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
         Sort sort = sortDir.equalsIgnoreCase("desc")
                 ? Sort.by(sortBy).descending()
                 : Sort.by(sortBy).ascending();
@@ -97,7 +132,7 @@ public class ProductController {
         Page<Product> products = productService.findByPharmacy(pharmacyId, pageable);
         Page<ProductResponse> responsePage = products.map(productMapper::toResponse);
 
-        return ResponseEntity.ok(PageResponse.of(responsePage));
+        return catalogResponse(etag, PageResponse.of(responsePage));
     }
 
     @GetMapping("/public/pharmacies/{pharmacyId}/products/slug/{slug}")
@@ -106,15 +141,31 @@ public class ProductController {
             description = "Get a single product by its URL-friendly slug"
     )
     @ApiResponses({
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Product found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Product found",
+                    content = @Content(schema = @Schema(implementation = ProductResponse.class))),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Product not found")
     })
-    public ResponseEntity<ProductResponse> getPublicProductBySlug(
+    public ResponseEntity<byte[]> getPublicProductBySlug(
             @PathVariable Long pharmacyId,
-            @PathVariable String slug) {
+            @PathVariable String slug,
+            WebRequest request) {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
+        String etag = catalogVersionService.pharmacyEtag(pharmacyId);
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
+        if (offHeapCatalogStore.isPresent()) {
+            OffHeapCatalogStore.Snapshot catalog = offHeapCatalogStore.get().get(pharmacyId);
+            int index = catalog.findBySlug(slug);
+            if (index < 0) {
+                throw new ResourceNotFoundException("Product", "slug", slug);
+            }
+            return catalogJsonResponse(etag, catalog.productJson(index));
+        }
+
         Product product = productService.findByPharmacyAndSlug(pharmacyId, slug)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "slug", slug));
 
@@ -122,7 +173,7 @@ public class ProductController {
             throw new ResourceNotFoundException("Product", "slug", slug);
         }
 
-        return ResponseEntity.ok(productMapper.toResponse(product));
+        return catalogJsonResponse(etag, productJsonCache.encode(product));
     }
 
     @GetMapping("/public/pharmacies/{pharmacyId}/products/category/{categoryId}")
@@ -130,18 +181,37 @@ public class ProductController {
             summary = "Get products by category",
             description = "List all products in a specific category"
     )
-    public ResponseEntity<List<ProductResponse>> getPublicProductsByCategory(
+    public ResponseEntity<StreamingResponseBody> getPublicProductsByCategory(
             @PathVariable Long pharmacyId,
-            @PathVariable Long categoryId) {
+            @PathVariable Long categoryId,
+            WebRequest request) {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        List<Product> products = productService.findByCategory(pharmacyId, categoryId);
-        List<ProductResponse> responses = products.stream()
-                .map(productMapper::toResponse)
-                .toList();
+        String etag = catalogVersionService.pharmacyEtag(pharmacyId);
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
 
-        return ResponseEntity.ok(responses);
+        if (offHeapCatalogStore.isPresent()) {
+            OffHeapCatalogStore.Snapshot catalog = offHeapCatalogStore.get().get(pharmacyId);
+            return catalogJsonResponse(etag, out -> catalog.writeCategory(categoryId, out));
+        }
+
+        // Encoded and written one keyset batch at a time; the list is never held in full
+        return catalogJsonResponse(etag, out -> {
+            ProductJsonCache.ArrayWriter writer = new ProductJsonCache.ArrayWriter(out);
+            productService.forEachProductBatchInCategory(pharmacyId, categoryId, STREAM_BATCH_SIZE, batch -> {
+                try {
+                    for (Product product : batch) {
+                        writer.write(productJsonCache.encode(product));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.close();
+        });
     }
 
     @GetMapping("/public/pharmacies/{pharmacyId}/products/featured")
@@ -149,15 +219,22 @@ public class ProductController {
             summary = "Get featured products",
             description = "List featured products for the pharmacy homepage"
     )
-    public ResponseEntity<List<ProductResponse>> getFeaturedProducts(@PathVariable Long pharmacyId) {
+    public ResponseEntity<StreamingResponseBody> getFeaturedProducts(@PathVariable Long pharmacyId,
+                                                                     WebRequest request) {
         pharmacyService.validatePharmacyActive(pharmacyId);
 
-        List<Product> products = productService.findFeaturedProducts(pharmacyId);
-        List<ProductResponse> responses = products.stream()
-                .map(productMapper::toResponse)
-                .toList();
+        String etag = catalogVersionService.pharmacyEtag(pharmacyId);
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
 
-        return ResponseEntity.ok(responses);
+        if (offHeapCatalogStore.isPresent()) {
+            OffHeapCatalogStore.Snapshot catalog = offHeapCatalogStore.get().get(pharmacyId);
+            return catalogJsonResponse(etag, catalog::writeFeatured);
+        }
+
+        List<Product> products = productService.findFeaturedProducts(pharmacyId);
+        return catalogArrayResponse(etag, productJsonCache.encodeAll(products));
     }
 
     @GetMapping("/public/pharmacies/{pharmacyId}/products/search")
@@ -169,10 +246,16 @@ public class ProductController {
             @PathVariable Long pharmacyId,
             @Parameter(description = "Search keyword (min 2 chars)") @RequestParam("q") String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
 
         pharmacyService.validatePharmacyActive(pharmacyId);
 
+        String etag = catalogVersionService.pharmacyEtag(pharmacyId);
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
         if (keyword == null || keyword.trim().length() < 2) {
             throw new BadRequestException("Search keyword must be at least 2 characters");
         }
@@ -181,7 +264,98 @@ public class ProductController {
         Page<Product> products = productService.searchProducts(pharmacyId, keyword.trim(), pageable);
         Page<ProductResponse> responsePage = products.map(productMapper::toResponse);
 
-        return ResponseEntity.ok(PageResponse.of(responsePage));
+        return catalogResponse(etag, PageResponse.of(responsePage));
+    }
+
+    @GetMapping("/public/pharmacies/{pharmacyId}/products/filter")
+    @Operation(
+            summary = "Filter products",
+            description = "Combine category (with subcategories), brand, price band, in-stock, discount and featured " +
+                    "filters; returns the matching products (newest first) and counts for every facet value"
+    )
+    public ResponseEntity<ProductFacetResponse> filterProducts(
+            @PathVariable Long pharmacyId,
+            @Parameter(description = "Category ID (includes subcategories)") @RequestParam(required = false) Long categoryId,
+            @Parameter(description = "Brands (any of)") @RequestParam(required = false) List<String> brand,
+            @Parameter(description = "Price bands, e.g. 50-100 or 1000+ (any of)") @RequestParam(required = false) List<String> priceBand,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "false") boolean onDiscount,
+            @RequestParam(defaultValue = "false") boolean featured,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+
+        pharmacyService.validatePharmacyActive(pharmacyId);
+
+        Set<String> bands = priceBand != null ? new HashSet<>(priceBand) : Set.of();
+        if (!CatalogFacetIndex.getPriceBandKeys().containsAll(bands)) {
+            throw new BadRequestException("Invalid price band; expected one of " + CatalogFacetIndex.getPriceBandKeys());
+        }
+        int pageSize = PageRequests.pageSize(size);
+        int pageNumber = PageRequests.pageNumber(page);
+
+        // The search is in memory; the ETag needs the version of the index that answered it
+        CatalogFacetIndex.FacetQuery query = new CatalogFacetIndex.FacetQuery(categoryId,
+                brand != null ? new HashSet<>(brand) : Set.of(), bands, inStock, onDiscount, featured);
+        CatalogFacetIndex.FacetResult result = catalogFacetIndex.search(pharmacyId, query, pageNumber, pageSize);
+
+        String etag = catalogVersionService.facetEtag(pharmacyId, result.getIndexVersion());
+        if (catalogVersionService.checkNotModified(request, etag)) {
+            return null;
+        }
+
+        List<ProductResponse> products = productService.findAllInOrder(pharmacyId, result.getProductIds()).stream()
+                .map(productMapper::toResponse)
+                .toList();
+        int totalPages = (int) ((result.getTotal() + pageSize - 1) / pageSize);
+
+        ProductFacetResponse response = new ProductFacetResponse();
+        response.setProducts(new PageResponse<>(products, pageNumber, pageSize, result.getTotal(), totalPages));
+        response.setCategories(toFacetCounts(result.getCategories()));
+        response.setBrands(toFacetCounts(result.getBrands()));
+        response.setPriceBands(toFacetCounts(result.getPriceBands()));
+        response.setInStockCount(result.getInStockCount());
+        response.setOnDiscountCount(result.getOnDiscountCount());
+        response.setFeaturedCount(result.getFeaturedCount());
+
+        return catalogResponse(etag, response);
+    }
+
+    private List<ProductFacetResponse.FacetCount> toFacetCounts(List<CatalogFacetIndex.FacetCount> counts) {
+        return counts.stream()
+                .map(c -> new ProductFacetResponse.FacetCount(c.value(), c.label(), c.count()))
+                .toList();
+    }
+
+    // Public catalog responses carry the pharmacy's catalog ETag and are cacheable by shared caches
+    private <T> ResponseEntity<T> catalogResponse(String etag, T body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .body(body);
+    }
+
+    // Product arrays are written from cached per-product JSON instead of being re-serialized
+    private ResponseEntity<StreamingResponseBody> catalogArrayResponse(String etag, List<byte[]> elements) {
+        return catalogJsonResponse(etag, out -> ProductJsonCache.writeArray(elements, out));
+    }
+
+    // Writes already-encoded JSON (cached bytes or the off-heap catalog) as the response body
+    private ResponseEntity<StreamingResponseBody> catalogJsonResponse(String etag, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // A single encoded document is small enough to write on the request thread, without an async dispatch
+    private ResponseEntity<byte[]> catalogJsonResponse(String etag, byte[] json) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
     }
 
     // ==================== STAFF ENDPOINTS ====================
@@ -243,8 +417,7 @@ public class ProductController {
     public ResponseEntity<ProductResponse> getProduct(@PathVariable Long id) {
         Long pharmacyId = getCurrentPharmacyId();
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
         return ResponseEntity.ok(productMapper.toResponse(product));
     }
@@ -298,8 +471,7 @@ public class ProductController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
         if (request.getCategoryId() != null &&
                 !request.getCategoryId().equals(product.getCategory().getId())) {
@@ -333,11 +505,10 @@ public class ProductController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
         Integer oldStock = product.getStockQuantity();
-        product = productService.updateStock(id, request.getQuantity());
+        product = productService.updateStock(pharmacyId, id, request.getQuantity());
 
         auditLogService.logProductStockChanged(pharmacyId, userId, userEmail,
                 product.getId(), product.getName(), oldStock, request.getQuantity(),
@@ -349,6 +520,34 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Stock updated successfully", productMapper.toResponse(product)));
     }
 
+    @PatchMapping("/staff/products/stock/bulk")
+    @PreAuthorize("hasAnyRole('PHARMACY_OWNER', 'STAFF')")
+    @Operation(
+            summary = "Bulk update stock",
+            description = "Apply absolute or delta stock changes keyed by SKU or barcode (up to 10000 lines). " +
+                    "Returns a result per line; failed lines do not affect the others.",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    public ResponseEntity<ApiResponse<BulkStockUpdateResponse>> bulkUpdateStock(
+            @Valid @RequestBody BulkStockUpdateRequest request) {
+
+        Long pharmacyId = getCurrentPharmacyId();
+        Long userId = securityUtils.getCurrentUserId().orElse(null);
+        String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
+
+        BulkStockUpdateResponse response = new BulkStockUpdateResponse(
+                productService.bulkUpdateStock(pharmacyId, request.getLines()));
+
+        auditLogService.logProductBulkStockUpdate(pharmacyId, userId, userEmail,
+                response.getUpdated(), response.getFailed(),
+                request.getReason() != null ? request.getReason() : "Bulk update");
+
+        log.info("Bulk stock update for pharmacy: {} - {} updated, {} failed by user: {}",
+                pharmacyId, response.getUpdated(), response.getFailed(), userEmail);
+
+        return ResponseEntity.ok(ApiResponse.success("Bulk stock update processed", response));
+    }
+
     @PatchMapping("/staff/products/{id}/featured")
     @PreAuthorize("hasAnyRole('PHARMACY_OWNER', 'STAFF')")
     @Operation(
@@ -362,10 +561,9 @@ public class ProductController {
 
         Long pharmacyId = getCurrentPharmacyId();
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
-        product = productService.setFeatured(id, featured);
+        product = productService.setFeatured(pharmacyId, id, featured);
 
         String message = featured ? "Product marked as featured" : "Product removed from featured";
         return ResponseEntity.ok(ApiResponse.success(message, productMapper.toResponse(product)));
@@ -383,10 +581,9 @@ public class ProductController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
-        product = productService.activateProduct(id);
+        product = productService.activateProduct(pharmacyId, id);
 
         auditLogService.logProductActivated(pharmacyId, userId, userEmail, product.getId(), product.getName());
 
@@ -405,10 +602,9 @@ public class ProductController {
         Long userId = securityUtils.getCurrentUserId().orElse(null);
         String userEmail = securityUtils.getCurrentUserEmail().orElse("unknown");
 
-        Product product = productService.getById(id);
-        validateProductBelongsToPharmacy(product, pharmacyId);
+        Product product = productService.getById(pharmacyId, id);
 
-        product = productService.deactivateProduct(id);
+        product = productService.deactivateProduct(pharmacyId, id);
 
         auditLogService.logProductDeactivated(pharmacyId, userId, userEmail, product.getId(), product.getName());
 
@@ -471,12 +667,6 @@ public class ProductController {
                 .orElseThrow(() -> new BadRequestException("No pharmacy associated with current user"));
     }
 
-    private void validateProductBelongsToPharmacy(Product product, Long pharmacyId) {
-        if (!product.getPharmacy().getId().equals(pharmacyId)) {
-            throw AccessDeniedException.resourceAccess("product");
-        }
-    }
-
     @GetMapping("/staff/products/stats")
     @PreAuthorize("hasAnyRole('PHARMACY_OWNER', 'STAFF')")
     @Operation(
@@ -503,8 +693,7 @@ public class ProductController {
         stats.put("inactive", inactive);
 
         // Low stock products
-        List<Product> lowStockProducts = productService.findLowStockProducts(pharmacyId);
-        stats.put("lowStock", lowStockProducts.size());
+        stats.put("lowStock", productService.countLowStockProducts(pharmacyId));
 
         return ResponseEntity.ok(stats);
     }
@@ -1,8 +1,12 @@
 package com.pharmacy.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pharmacy.dto.response.ApiResponse;
+import com.pharmacy.dto.response.PageResponse;
+import com.pharmacy.dto.response.UserSummaryResponse;
 import com.pharmacy.entity.User;
 import com.pharmacy.enums.UserRole;
+import com.pharmacy.mapper.UserMapper;
 
 import com.pharmacy.security.SecurityUtils;
 import com.pharmacy.service.AuditLogService;
@@ -13,13 +17,19 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/admin/users")
@@ -31,49 +41,79 @@ public class UserController {
     private final UserService userService;
     private final SecurityUtils securityUtils;
     private final AuditLogService auditLogService;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final Set<String> SORT_FIELDS = Set.of("createdAt", "email", "lastName", "lastLogin");
 
     public UserController(UserService userService,
                           SecurityUtils securityUtils,
-                          AuditLogService auditLogService) {
+                          AuditLogService auditLogService,
+                          UserMapper userMapper,
+                          ObjectMapper objectMapper) {
         this.userService = userService;
         this.securityUtils = securityUtils;
         this.auditLogService = auditLogService;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
     @Operation(
-            summary = "List all users",
-            description = "Get all users in the system (Super Admin only)",
+            summary = "List users",
+            description = "Get a filtered page of users (Super Admin only)",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    public ResponseEntity<PageResponse<UserSummaryResponse>> getAllUsers(
+            @Parameter(description = "Filter by role") @RequestParam(required = false) UserRole role,
+            @Parameter(description = "Filter by pharmacy") @RequestParam(required = false) Long pharmacyId,
+            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Search in email and name") @RequestParam(required = false) String q,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort field: createdAt, email, lastName, lastLogin") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
+
+        Pageable pageable = PageRequests.sorted(page, size, sortBy, sortDir, SORT_FIELDS);
+
+        Page<UserSummaryResponse> users = userService.searchUsers(role, pharmacyId, active, q, pageable)
+                .map(userMapper::toSummaryResponse);
+
+        return ResponseEntity.ok(PageResponse.of(users));
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @Operation(
+            summary = "Export users",
+            description = "Stream all matching users as newline-delimited JSON (Super Admin only)",
             security = @SecurityRequirement(name = "Bearer Authentication")
     )
-    public ResponseEntity<List<Map<String, Object>>> getAllUsers(
-            @Parameter(description = "Filter by role") @RequestParam(required = false) UserRole role) {
-
-        List<User> users = role != null
-                ? userService.findByRole(role)
-                : userService.findAll();
-
-        List<Map<String, Object>> responses = users.stream()
-                .map(user -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("id", user.getId());
-                    map.put("email", user.getEmail());
-                    map.put("firstName", user.getFirstName());
-                    map.put("lastName", user.getLastName());
-                    map.put("phone", user.getPhone() != null ? user.getPhone() : "");
-                    map.put("role", user.getRole().name());
-                    map.put("active", user.isActive());
-                    map.put("emailVerified", user.isEmailVerified());
-                    map.put("pharmacyId", user.getPharmacy() != null ? user.getPharmacy().getId() : null);
-                    map.put("pharmacyName", user.getPharmacy() != null ? user.getPharmacy().getName() : null);
-                    map.put("createdAt", user.getCreatedAt().toString());
-                    map.put("lastLogin", user.getLastLogin() != null ? user.getLastLogin().toString() : null);
-                    return map;
-                })
-                .toList();
-
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter(description = "Filter by role") @RequestParam(required = false) UserRole role,
+            @Parameter(description = "Filter by pharmacy") @RequestParam(required = false) Long pharmacyId,
+            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Search in email and name") @RequestParam(required = false) String q) {
+
+        log.info("User export started by {}", securityUtils.getCurrentUserEmail().orElse("system"));
+
+        StreamingResponseBody body = out -> userService.forEachUserBatch(role, pharmacyId, active, q, EXPORT_BATCH_SIZE, batch -> {
+            try {
+                for (User user : batch) {
+                    out.write(objectMapper.writeValueAsBytes(userMapper.toSummaryResponse(user)));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @GetMapping("/{id}")
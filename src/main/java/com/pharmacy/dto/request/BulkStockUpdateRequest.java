@@ -0,0 +1,56 @@
+package com.pharmacy.dto.request;
+
+import com.pharmacy.enums.StockUpdateMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BulkStockUpdateRequest {
+
+    @NotEmpty(message = "At least one line is required")
+    @Size(max = 10000, message = "A batch cannot exceed 10000 lines")
+    @Valid
+    private List<Line> lines;
+
+    // Applied to the aggregated audit record
+    @Size(max = 255, message = "Reason cannot exceed 255 characters")
+    private String reason;
+
+    // Getters and Setters
+    public List<Line> getLines() { return lines; }
+    public void setLines(List<Line> lines) { this.lines = lines; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    // One stock change, keyed by SKU or barcode (SKU wins when both are given)
+    public static class Line {
+
+        @Size(max = 100, message = "SKU cannot exceed 100 characters")
+        private String sku;
+
+        @Size(max = 50, message = "Barcode cannot exceed 50 characters")
+        private String barcode;
+
+        @NotNull(message = "Mode is required")
+        private StockUpdateMode mode;
+
+        // New stock for ABSOLUTE, signed change for DELTA
+        @NotNull(message = "Quantity is required")
+        private Integer quantity;
+
+        public String getSku() { return sku; }
+        public void setSku(String sku) { this.sku = sku; }
+
+        public String getBarcode() { return barcode; }
+        public void setBarcode(String barcode) { this.barcode = barcode; }
+
+        public StockUpdateMode getMode() { return mode; }
+        public void setMode(StockUpdateMode mode) { this.mode = mode; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    }
+}
@@ -0,0 +1,86 @@
+package com.pharmacy.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkStockUpdateResponse {
+
+    private int totalLines;
+    private int updated;
+    private int failed;
+    private List<LineResult> results;
+
+    public BulkStockUpdateResponse() {}
+
+    public BulkStockUpdateResponse(List<LineResult> results) {
+        this.results = results;
+        this.totalLines = results.size();
+        this.updated = (int) results.stream().filter(r -> LineResult.UPDATED.equals(r.getStatus())).count();
+        this.failed = totalLines - updated;
+    }
+
+    // Getters and Setters
+    public int getTotalLines() { return totalLines; }
+    public void setTotalLines(int totalLines) { this.totalLines = totalLines; }
+
+    public int getUpdated() { return updated; }
+    public void setUpdated(int updated) { this.updated = updated; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public List<LineResult> getResults() { return results; }
+    public void setResults(List<LineResult> results) { this.results = results; }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LineResult {
+
+        public static final String UPDATED = "UPDATED";
+        public static final String NOT_FOUND = "NOT_FOUND";
+        public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+        public static final String INVALID = "INVALID";
+        public static final String AMBIGUOUS = "AMBIGUOUS";
+
+        private int line;
+        private String sku;
+        private String barcode;
+        private Long productId;
+        private String status;
+        private Integer oldStock;
+        private Integer newStock;
+        private String message;
+
+        public LineResult() {}
+
+        public LineResult(int line, String sku, String barcode) {
+            this.line = line;
+            this.sku = sku;
+            this.barcode = barcode;
+        }
+
+        public int getLine() { return line; }
+        public void setLine(int line) { this.line = line; }
+
+        public String getSku() { return sku; }
+        public void setSku(String sku) { this.sku = sku; }
+
+        public String getBarcode() { return barcode; }
+        public void setBarcode(String barcode) { this.barcode = barcode; }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public Integer getOldStock() { return oldStock; }
+        public void setOldStock(Integer oldStock) { this.oldStock = oldStock; }
+
+        public Integer getNewStock() { return newStock; }
+        public void setNewStock(Integer newStock) { this.newStock = newStock; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
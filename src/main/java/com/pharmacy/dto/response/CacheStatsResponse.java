@@ -0,0 +1,56 @@
+package com.pharmacy.dto.response;
+
+import java.util.List;
+
+public class CacheStatsResponse {
+
+    private boolean statisticsEnabled;
+    private List<RegionStats> regions;
+
+    public CacheStatsResponse() {}
+
+    public CacheStatsResponse(boolean statisticsEnabled, List<RegionStats> regions) {
+        this.statisticsEnabled = statisticsEnabled;
+        this.regions = regions;
+    }
+
+    public boolean isStatisticsEnabled() { return statisticsEnabled; }
+    public void setStatisticsEnabled(boolean statisticsEnabled) { this.statisticsEnabled = statisticsEnabled; }
+
+    public List<RegionStats> getRegions() { return regions; }
+    public void setRegions(List<RegionStats> regions) { this.regions = regions; }
+
+    public static class RegionStats {
+        private String region;
+        private long hits;
+        private long misses;
+        private long puts;
+        private double hitRatio;
+
+        public RegionStats() {}
+
+        public RegionStats(String region, long hits, long misses, long puts) {
+            this.region = region;
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            long lookups = hits + misses;
+            this.hitRatio = lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+
+        public long getPuts() { return puts; }
+        public void setPuts(long puts) { this.puts = puts; }
+
+        public double getHitRatio() { return hitRatio; }
+        public void setHitRatio(double hitRatio) { this.hitRatio = hitRatio; }
+    }
+}
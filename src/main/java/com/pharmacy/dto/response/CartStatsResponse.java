@@ -0,0 +1,23 @@
+package com.pharmacy.dto.response;
+
+public class CartStatsResponse {
+
+    private long activeCarts;
+    private long abandonedCarts;
+    private long cachedCarts;
+    private int ttlDays;
+
+    public CartStatsResponse() {}
+
+    public long getActiveCarts() { return activeCarts; }
+    public void setActiveCarts(long activeCarts) { this.activeCarts = activeCarts; }
+
+    public long getAbandonedCarts() { return abandonedCarts; }
+    public void setAbandonedCarts(long abandonedCarts) { this.abandonedCarts = abandonedCarts; }
+
+    public long getCachedCarts() { return cachedCarts; }
+    public void setCachedCarts(long cachedCarts) { this.cachedCarts = cachedCarts; }
+
+    public int getTtlDays() { return ttlDays; }
+    public void setTtlDays(int ttlDays) { this.ttlDays = ttlDays; }
+}
@@ -0,0 +1,43 @@
+package com.pharmacy.dto.response;
+
+public class MemoryStatsResponse {
+
+    private long heapUsedBytes;
+    private long heapCommittedBytes;
+    private long directBufferBytes;
+    private long gcCount;
+    private long gcTimeMs;
+    private boolean offHeapCatalogEnabled;
+    private int offHeapCatalogPharmacies;
+    private long offHeapCatalogProducts;
+    private long offHeapCatalogBytes;
+
+    public MemoryStatsResponse() {}
+
+    public long getHeapUsedBytes() { return heapUsedBytes; }
+    public void setHeapUsedBytes(long heapUsedBytes) { this.heapUsedBytes = heapUsedBytes; }
+
+    public long getHeapCommittedBytes() { return heapCommittedBytes; }
+    public void setHeapCommittedBytes(long heapCommittedBytes) { this.heapCommittedBytes = heapCommittedBytes; }
+
+    public long getDirectBufferBytes() { return directBufferBytes; }
+    public void setDirectBufferBytes(long directBufferBytes) { this.directBufferBytes = directBufferBytes; }
+
+    public long getGcCount() { return gcCount; }
+    public void setGcCount(long gcCount) { this.gcCount = gcCount; }
+
+    public long getGcTimeMs() { return gcTimeMs; }
+    public void setGcTimeMs(long gcTimeMs) { this.gcTimeMs = gcTimeMs; }
+
+    public boolean isOffHeapCatalogEnabled() { return offHeapCatalogEnabled; }
+    public void setOffHeapCatalogEnabled(boolean offHeapCatalogEnabled) { this.offHeapCatalogEnabled = offHeapCatalogEnabled; }
+
+    public int getOffHeapCatalogPharmacies() { return offHeapCatalogPharmacies; }
+    public void setOffHeapCatalogPharmacies(int offHeapCatalogPharmacies) { this.offHeapCatalogPharmacies = offHeapCatalogPharmacies; }
+
+    public long getOffHeapCatalogProducts() { return offHeapCatalogProducts; }
+    public void setOffHeapCatalogProducts(long offHeapCatalogProducts) { this.offHeapCatalogProducts = offHeapCatalogProducts; }
+
+    public long getOffHeapCatalogBytes() { return offHeapCatalogBytes; }
+    public void setOffHeapCatalogBytes(long offHeapCatalogBytes) { this.offHeapCatalogBytes = offHeapCatalogBytes; }
+}
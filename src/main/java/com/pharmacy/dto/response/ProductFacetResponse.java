@@ -0,0 +1,59 @@
+package com.pharmacy.dto.response;
+
+import java.util.List;
+
+// Filtered storefront products plus the counts for each facet value
+public class ProductFacetResponse {
+
+    private PageResponse<ProductResponse> products;
+    private List<FacetCount> categories;
+    private List<FacetCount> brands;
+    private List<FacetCount> priceBands;
+    private long inStockCount;
+    private long onDiscountCount;
+    private long featuredCount;
+
+    public PageResponse<ProductResponse> getProducts() { return products; }
+    public void setProducts(PageResponse<ProductResponse> products) { this.products = products; }
+
+    public List<FacetCount> getCategories() { return categories; }
+    public void setCategories(List<FacetCount> categories) { this.categories = categories; }
+
+    public List<FacetCount> getBrands() { return brands; }
+    public void setBrands(List<FacetCount> brands) { this.brands = brands; }
+
+    public List<FacetCount> getPriceBands() { return priceBands; }
+    public void setPriceBands(List<FacetCount> priceBands) { this.priceBands = priceBands; }
+
+    public long getInStockCount() { return inStockCount; }
+    public void setInStockCount(long inStockCount) { this.inStockCount = inStockCount; }
+
+    public long getOnDiscountCount() { return onDiscountCount; }
+    public void setOnDiscountCount(long onDiscountCount) { this.onDiscountCount = onDiscountCount; }
+
+    public long getFeaturedCount() { return featuredCount; }
+    public void setFeaturedCount(long featuredCount) { this.featuredCount = featuredCount; }
+
+    public static class FacetCount {
+        private String value;
+        private String label;
+        private long count;
+
+        public FacetCount() {}
+
+        public FacetCount(String value, String label, long count) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+        }
+
+        public String getValue() { return value; }
+        public void setValue(String value) { this.value = value; }
+
+        public String getLabel() { return label; }
+        public void setLabel(String label) { this.label = label; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pharmacy.dto.response;
+
+public class TenantAdmissionStatsResponse {
+
+    private Long pharmacyId;
+    private String plan;
+    private int maxConcurrent;
+    private int inFlight;
+    private int queued;
+    private long admitted;
+    private long rejected;
+    private int maxConnections;
+    private int connectionsInUse;
+    private long connectionTimeouts;
+
+    public TenantAdmissionStatsResponse() {}
+
+    public Long getPharmacyId() { return pharmacyId; }
+    public void setPharmacyId(Long pharmacyId) { this.pharmacyId = pharmacyId; }
+
+    public String getPlan() { return plan; }
+    public void setPlan(String plan) { this.plan = plan; }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+    public int getInFlight() { return inFlight; }
+    public void setInFlight(int inFlight) { this.inFlight = inFlight; }
+
+    public int getQueued() { return queued; }
+    public void setQueued(int queued) { this.queued = queued; }
+
+    public long getAdmitted() { return admitted; }
+    public void setAdmitted(long admitted) { this.admitted = admitted; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public int getMaxConnections() { return maxConnections; }
+    public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+    public int getConnectionsInUse() { return connectionsInUse; }
+    public void setConnectionsInUse(int connectionsInUse) { this.connectionsInUse = connectionsInUse; }
+
+    public long getConnectionTimeouts() { return connectionTimeouts; }
+    public void setConnectionTimeouts(long connectionTimeouts) { this.connectionTimeouts = connectionTimeouts; }
+}
@@ -0,0 +1,47 @@
+package com.pharmacy.dto.response;
+
+public class TenantUsageResponse {
+
+    private Long pharmacyId;
+    private String route;
+    private long requests;
+    private long errors;
+    private long responseBytes;
+    private long dbTimeMs;
+    private double avgLatencyMs;
+    private double maxP95LatencyMs;
+    private double maxP99LatencyMs;
+    private double maxLatencyMs;
+
+    public TenantUsageResponse() {}
+
+    public Long getPharmacyId() { return pharmacyId; }
+    public void setPharmacyId(Long pharmacyId) { this.pharmacyId = pharmacyId; }
+
+    public String getRoute() { return route; }
+    public void setRoute(String route) { this.route = route; }
+
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+
+    public long getErrors() { return errors; }
+    public void setErrors(long errors) { this.errors = errors; }
+
+    public long getResponseBytes() { return responseBytes; }
+    public void setResponseBytes(long responseBytes) { this.responseBytes = responseBytes; }
+
+    public long getDbTimeMs() { return dbTimeMs; }
+    public void setDbTimeMs(long dbTimeMs) { this.dbTimeMs = dbTimeMs; }
+
+    public double getAvgLatencyMs() { return avgLatencyMs; }
+    public void setAvgLatencyMs(double avgLatencyMs) { this.avgLatencyMs = avgLatencyMs; }
+
+    public double getMaxP95LatencyMs() { return maxP95LatencyMs; }
+    public void setMaxP95LatencyMs(double maxP95LatencyMs) { this.maxP95LatencyMs = maxP95LatencyMs; }
+
+    public double getMaxP99LatencyMs() { return maxP99LatencyMs; }
+    public void setMaxP99LatencyMs(double maxP99LatencyMs) { this.maxP99LatencyMs = maxP99LatencyMs; }
+
+    public double getMaxLatencyMs() { return maxLatencyMs; }
+    public void setMaxLatencyMs(double maxLatencyMs) { this.maxLatencyMs = maxLatencyMs; }
+}
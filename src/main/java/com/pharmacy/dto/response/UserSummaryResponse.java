@@ -0,0 +1,58 @@
+package com.pharmacy.dto.response;
+
+import com.pharmacy.enums.UserRole;
+import java.time.LocalDateTime;
+
+// Row of the super admin user listing
+public class UserSummaryResponse {
+
+    private Long id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private UserRole role;
+    private boolean active;
+    private boolean emailVerified;
+    private Long pharmacyId;
+    private String pharmacyName;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastLogin;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getFirstName() { return firstName; }
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+
+    public String getLastName() { return lastName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+
+    public String getPhone() { return phone; }
+    public void setPhone(String phone) { this.phone = phone; }
+
+    public UserRole getRole() { return role; }
+    public void setRole(UserRole role) { this.role = role; }
+
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+
+    public boolean isEmailVerified() { return emailVerified; }
+    public void setEmailVerified(boolean emailVerified) { this.emailVerified = emailVerified; }
+
+    public Long getPharmacyId() { return pharmacyId; }
+    public void setPharmacyId(Long pharmacyId) { this.pharmacyId = pharmacyId; }
+
+    public String getPharmacyName() { return pharmacyName; }
+    public void setPharmacyName(String pharmacyName) { this.pharmacyName = pharmacyName; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getLastLogin() { return lastLogin; }
+    public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; }
+}
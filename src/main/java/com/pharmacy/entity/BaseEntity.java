@@ -7,7 +7,7 @@ import java.time.LocalDateTime;
 public abstract class BaseEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
     
     @Column(name = "created_at", nullable = false, updatable = false)
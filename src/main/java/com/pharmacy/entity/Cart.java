@@ -1,7 +1,6 @@
 package com.pharmacy.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -74,10 +73,4 @@ public class Cart extends BaseEntity {
                 .mapToInt(CartItem::getQuantity)
                 .sum();
     }
-
-    public BigDecimal getSubtotal() {
-        return items.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
 }
\ No newline at end of file
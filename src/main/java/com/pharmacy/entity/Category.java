@@ -1,11 +1,15 @@
 package com.pharmacy.entity;
 
+import com.pharmacy.config.CacheRegions;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "categories")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CATEGORIES)
 public class Category extends BaseEntity {
 
     @Column(nullable = false)
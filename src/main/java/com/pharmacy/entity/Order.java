@@ -3,6 +3,7 @@ package com.pharmacy.entity;
 import com.pharmacy.enums.DeliveryType;
 import com.pharmacy.enums.OrderStatus;
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -11,24 +12,27 @@ import java.util.List;
 @Entity
 @Table(name = "orders", indexes = {
         @Index(name = "idx_order_pharmacy", columnList = "pharmacy_id"),
-        @Index(name = "idx_order_customer", columnList = "customer_id"),
-        @Index(name = "idx_order_status", columnList = "status"),
         @Index(name = "idx_order_number", columnList = "order_number")
 })
 public class Order extends BaseEntity {
 
     // Multi-tenant: which pharmacy this order belongs to
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "pharmacy_id", nullable = false)
+    @JoinColumn(name = "pharmacy_id", nullable = false, insertable = false, updatable = false)
     private Pharmacy pharmacy;
 
+    // Hash partition key of orders (and of their order_items)
+    @PartitionKey
+    @Column(name = "pharmacy_id", nullable = false, updatable = false)
+    private Long pharmacyId;
+
     // Customer who placed the order
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private User customer;
 
-    // Unique order number: ORD-2025-00001
-    @Column(name = "order_number", unique = true, nullable = false)
+    // Unique order number: ORD-2025-00001 (from a global sequence; the key is per pharmacy)
+    @Column(name = "order_number", nullable = false)
     private String orderNumber;
 
     @Enumerated(EnumType.STRING)
@@ -110,6 +114,11 @@ public class Order extends BaseEntity {
 
     public void setPharmacy(Pharmacy pharmacy) {
         this.pharmacy = pharmacy;
+        this.pharmacyId = pharmacy != null ? pharmacy.getId() : null;
+    }
+
+    public Long getPharmacyId() {
+        return pharmacyId;
     }
 
     public User getCustomer() {
@@ -1,6 +1,7 @@
 package com.pharmacy.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
 import java.math.BigDecimal;
 
 @Entity
@@ -12,6 +13,11 @@ public class OrderItem extends BaseEntity {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    // Copied from the order: order_items are partitioned together with orders
+    @PartitionKey
+    @Column(name = "pharmacy_id", nullable = false, updatable = false)
+    private Long pharmacyId;
+
     // Product reference
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
@@ -42,6 +48,13 @@ public class OrderItem extends BaseEntity {
 
     public void setOrder(Order order) {
         this.order = order;
+        if (order != null) {
+            this.pharmacyId = order.getPharmacyId();
+        }
+    }
+
+    public Long getPharmacyId() {
+        return pharmacyId;
     }
 
     public Product getProduct() {
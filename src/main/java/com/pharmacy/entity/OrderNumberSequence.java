@@ -0,0 +1,34 @@
+package com.pharmacy.entity;
+
+import jakarta.persistence.*;
+
+// One row per calendar year; nodes reserve blocks of order numbers from it
+@Entity
+@Table(name = "order_number_sequences")
+public class OrderNumberSequence {
+
+    @Id
+    @Column(name = "seq_year")
+    private Integer year;
+
+    // First number not yet handed out to any node
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    // Getters and Setters
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
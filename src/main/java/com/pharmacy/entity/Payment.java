@@ -13,9 +13,19 @@ import java.time.LocalDateTime;
 })
 public class Payment extends BaseEntity {
 
-    @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", nullable = false)
-    private Order order;
+    // The order is referenced by id, not mapped: OrderArchiver moves terminal orders out of
+    // orders while their payments stay. Number, pharmacy and customer are copied at creation.
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "order_number")
+    private String orderNumber;
+
+    @Column(name = "pharmacy_id")
+    private Long pharmacyId;
+
+    @Column(name = "customer_id")
+    private Long customerId;
 
     // iyzico transaction ID
     @Column(name = "transaction_id")
@@ -62,12 +72,44 @@ public class Payment extends BaseEntity {
     private LocalDateTime refundedAt;
 
     // Getters and Setters
-    public Order getOrder() {
-        return order;
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+
+    public Long getPharmacyId() {
+        return pharmacyId;
+    }
+
+    public void setPharmacyId(Long pharmacyId) {
+        this.pharmacyId = pharmacyId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
     }
 
+    // Copies the order's identifiers; the payment keeps them after the order is archived
     public void setOrder(Order order) {
-        this.order = order;
+        this.orderId = order.getId();
+        this.orderNumber = order.getOrderNumber();
+        this.pharmacyId = order.getPharmacy().getId();
+        this.customerId = order.getCustomer().getId();
     }
 
     public String getTransactionId() {
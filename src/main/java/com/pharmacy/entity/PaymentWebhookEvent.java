@@ -0,0 +1,142 @@
+package com.pharmacy.entity;
+
+import com.pharmacy.enums.WebhookEventStatus;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "payment_webhook_events", indexes = {
+        @Index(name = "idx_webhook_status", columnList = "status, updated_at"),
+        @Index(name = "idx_webhook_conversation", columnList = "conversation_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_webhook_idempotency_key", columnNames = "idempotency_key")
+})
+public class PaymentWebhookEvent extends BaseEntity {
+
+    // Derived from provider reference + event type + status, one row per distinct notification
+    @Column(name = "idempotency_key", nullable = false, length = 128)
+    private String idempotencyKey;
+
+    // iyzico event type (e.g. CHECKOUT_FORM_AUTH, THREE_DS_AUTH)
+    @Column(name = "event_type")
+    private String eventType;
+
+    // iyzico conversation ID (links the event to our payment)
+    @Column(name = "conversation_id")
+    private String conversationId;
+
+    // iyzico payment ID
+    @Column(name = "payment_id")
+    private String paymentId;
+
+    // Provider-reported status (SUCCESS / FAILURE)
+    @Column(name = "provider_status")
+    private String providerStatus;
+
+    // Raw request body, kept for replay and debugging
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Getters and Setters
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getProviderStatus() {
+        return providerStatus;
+    }
+
+    public void setProviderStatus(String providerStatus) {
+        this.providerStatus = providerStatus;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public WebhookEventStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(WebhookEventStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    // Helper methods
+    public boolean isSuccessEvent() {
+        return "SUCCESS".equalsIgnoreCase(providerStatus);
+    }
+
+    public boolean isFinished() {
+        return status == WebhookEventStatus.PROCESSED || status == WebhookEventStatus.IGNORED;
+    }
+}
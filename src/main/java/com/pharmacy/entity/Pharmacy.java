@@ -1,15 +1,19 @@
 package com.pharmacy.entity;
 
+import com.pharmacy.config.CacheRegions;
 import com.pharmacy.enums.PaymentPeriod;
 import com.pharmacy.enums.PharmacyStatus;
 import com.pharmacy.enums.SubscriptionPlan;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "pharmacies")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PHARMACIES)
 public class Pharmacy extends BaseEntity {
 
     @Column(nullable = false)
@@ -87,6 +91,10 @@ public class Pharmacy extends BaseEntity {
     @Column(name = "suspended_at")
     private LocalDateTime suspendedAt;
 
+    // Day of the last billing attempt; the daily run skips pharmacies already attempted today
+    @Column(name = "last_billing_date")
+    private LocalDate lastBillingDate;
+
     // Getters and Setters
     public String getName() {
         return name;
@@ -288,6 +296,14 @@ public class Pharmacy extends BaseEntity {
         this.suspendedAt = suspendedAt;
     }
 
+    public LocalDate getLastBillingDate() {
+        return lastBillingDate;
+    }
+
+    public void setLastBillingDate(LocalDate lastBillingDate) {
+        this.lastBillingDate = lastBillingDate;
+    }
+
     // Helper methods
     public boolean isActive() {
         return status == PharmacyStatus.ACTIVE;
@@ -1,6 +1,7 @@
 package com.pharmacy.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
 import java.math.BigDecimal;
 
 @Entity
@@ -13,9 +14,14 @@ public class Product extends BaseEntity {
 
     // Multi-tenant: which pharmacy owns this product
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "pharmacy_id", nullable = false)
+    @JoinColumn(name = "pharmacy_id", nullable = false, insertable = false, updatable = false)
     private Pharmacy pharmacy;
 
+    // Hash partition key of products; Hibernate adds it to every update and delete by ID
+    @PartitionKey
+    @Column(name = "pharmacy_id", nullable = false, updatable = false)
+    private Long pharmacyId;
+
     // Product category
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
@@ -24,8 +30,7 @@ public class Product extends BaseEntity {
     @Column(nullable = false)
     private String name;
 
-    // URL-friendly name
-    @Column(unique = true)
+    // URL-friendly name, unique per pharmacy
     private String slug;
 
     @Column(columnDefinition = "TEXT")
@@ -65,6 +70,12 @@ public class Product extends BaseEntity {
     @Column(name = "is_featured")
     private boolean featured = false;
 
+    // Last stock alert raised (0 = none, 1 = low, 2 = out of stock).
+    // Written only through conditional updates in LowStockMonitor so each crossing alerts once.
+    @Column(name = "stock_alert_level", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private Integer stockAlertLevel = 0;
+
     // Getters and Setters
     public Pharmacy getPharmacy() {
         return pharmacy;
@@ -72,6 +83,11 @@ public class Product extends BaseEntity {
 
     public void setPharmacy(Pharmacy pharmacy) {
         this.pharmacy = pharmacy;
+        this.pharmacyId = pharmacy != null ? pharmacy.getId() : null;
+    }
+
+    public Long getPharmacyId() {
+        return pharmacyId;
     }
 
     public Category getCategory() {
@@ -194,6 +210,14 @@ public class Product extends BaseEntity {
         this.featured = featured;
     }
 
+    public Integer getStockAlertLevel() {
+        return stockAlertLevel;
+    }
+
+    public void setStockAlertLevel(Integer stockAlertLevel) {
+        this.stockAlertLevel = stockAlertLevel;
+    }
+
     // Helper methods
     public boolean isInStock() {
         return stockQuantity > 0;
@@ -1,14 +1,18 @@
 package com.pharmacy.entity;
 
+import com.pharmacy.config.CacheRegions;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "settings")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SETTINGS)
 public class Settings {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     // Platform Settings
@@ -0,0 +1,6 @@
+package com.pharmacy.enums;
+
+public enum StockUpdateMode {
+    ABSOLUTE,
+    DELTA
+}
@@ -0,0 +1,9 @@
+package com.pharmacy.enums;
+
+public enum WebhookEventStatus {
+    RECEIVED,
+    PROCESSING,
+    PROCESSED,
+    FAILED,
+    IGNORED
+}
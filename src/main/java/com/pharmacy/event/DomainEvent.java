@@ -0,0 +1,43 @@
+package com.pharmacy.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable view of an outbox row handed to {@link DomainEventListener}s.
+ * Delivery is at-least-once: the same {@code id} may be seen more than once after a relay failure.
+ */
+public class DomainEvent {
+
+    private final Long id;
+    private final String aggregateType;
+    private final Long aggregateId;
+    private final Long pharmacyId;
+    private final String eventType;
+    private final String payload;
+    private final LocalDateTime occurredAt;
+
+    public DomainEvent(Long id, String aggregateType, Long aggregateId, Long pharmacyId,
+                       String eventType, String payload, LocalDateTime occurredAt) {
+        this.id = id;
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.pharmacyId = pharmacyId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getId() { return id; }
+
+    public String getAggregateType() { return aggregateType; }
+
+    public Long getAggregateId() { return aggregateId; }
+
+    public Long getPharmacyId() { return pharmacyId; }
+
+    public String getEventType() { return eventType; }
+
+    public String getPayload() { return payload; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+}
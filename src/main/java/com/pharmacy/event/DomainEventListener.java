@@ -0,0 +1,14 @@
+package com.pharmacy.event;
+
+/**
+ * In-process consumer of outbox events. Any Spring bean implementing this interface is picked up by the relay.
+ * Implementations must be idempotent (keyed on {@link DomainEvent#getId()}) since delivery is at-least-once.
+ * Each delivery runs in its own transaction; throwing rolls back the listener's work and leaves the
+ * event unpublished, to be retried after a backoff. Ordering is not guaranteed (see OutboxRelay).
+ */
+public interface DomainEventListener {
+
+    boolean supports(String eventType);
+
+    void onEvent(DomainEvent event);
+}
@@ -0,0 +1,20 @@
+package com.pharmacy.event;
+
+public final class DomainEventTypes {
+
+    private DomainEventTypes() {}
+
+    // Aggregates
+    public static final String ORDER = "ORDER";
+    public static final String PAYMENT = "PAYMENT";
+
+    // Order events
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+
+    // Payment events
+    public static final String PAYMENT_SUCCEEDED = "PAYMENT_SUCCEEDED";
+    public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
+    public static final String PAYMENT_REFUNDED = "PAYMENT_REFUNDED";
+}
@@ -27,4 +27,8 @@ public class AuthenticationException extends BaseException {
     public static AuthenticationException invalidToken() {
         return new AuthenticationException("Invalid token");
     }
+
+    public static AuthenticationException invalidSignature() {
+        return new AuthenticationException("Invalid webhook signature");
+    }
 }
@@ -35,6 +35,10 @@ public class BusinessException extends BaseException {
         return new BusinessException("Payment failed: " + reason, "PAYMENT_FAILED");
     }
 
+    public static BusinessException paymentAlreadySettled(String status) {
+        return new BusinessException("Payment already " + status, "PAYMENT_ALREADY_SETTLED");
+    }
+
     public static BusinessException refundNotAllowed() {
         return new BusinessException("Refund is not allowed for this payment", "REFUND_NOT_ALLOWED");
     }
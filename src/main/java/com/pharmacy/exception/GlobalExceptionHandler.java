@@ -1,10 +1,14 @@
 package com.pharmacy.exception;
 
+import com.pharmacy.config.TenantConnectionLimitException;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.DisabledException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -116,6 +120,25 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.UNAUTHORIZED);
     }
 
+    // A pharmacy at its connection limit (TenantBulkheadDataSource) is asked to retry, as when
+    // admission control turns it away; any other data access failure is a 500
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessException.class})
+    public ResponseEntity<ErrorResponse> handleDataAccess(RuntimeException ex, WebRequest request) {
+        if (!(NestedExceptionUtils.getMostSpecificCause(ex) instanceof TenantConnectionLimitException)) {
+            return handleAllExceptions(ex, request);
+        }
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+                .errorCode("TENANT_CONNECTION_LIMIT")
+                .message("This pharmacy has too many requests in progress. Please try again shortly.")
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").body(error);
+    }
+
     // Handle all other exceptions
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleAllExceptions(Exception ex, WebRequest request) {
@@ -5,15 +5,18 @@ import com.pharmacy.dto.response.CartResponse;
 import com.pharmacy.entity.Cart;
 import com.pharmacy.entity.CartItem;
 import com.pharmacy.entity.Product;
+import com.pharmacy.service.ActiveCart;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class CartMapper {
 
-    private static final BigDecimal DEFAULT_SHIPPING = new BigDecimal("20.00");
+    private static final long DEFAULT_SHIPPING_CENTS = 2000;
+    private static final BigDecimal DEFAULT_SHIPPING = fromCents(DEFAULT_SHIPPING_CENTS);
 
     public CartResponse toResponse(Cart cart) {
         CartResponse response = new CartResponse();
@@ -89,4 +92,54 @@ public class CartMapper {
 
         return response;
     }
-}
\ No newline at end of file
+
+    // Renders a CartStore cart from its line snapshots and running totals; item IDs are product IDs
+    public CartResponse toResponse(ActiveCart cart) {
+        ActiveCart.View view = cart.view();
+
+        CartResponse response = new CartResponse();
+        response.setId(view.cartId());
+        response.setUpdatedAt(view.updatedAt());
+        response.setPharmacyId(cart.getPharmacyId());
+        response.setPharmacyName(cart.getPharmacyName());
+
+        List<CartItemResponse> items = new ArrayList<>(view.lines().size());
+        for (ActiveCart.CartLine line : view.lines()) {
+            items.add(toCartItemResponse(line));
+        }
+        response.setItems(items);
+        response.setItemCount(items.size());
+        response.setTotalQuantity(view.totalQuantity());
+        response.setSubtotal(fromCents(view.subtotalCents()));
+        response.setHasUnavailableItems(view.unavailableCount() > 0);
+
+        long shippingCents = items.isEmpty() ? 0 : DEFAULT_SHIPPING_CENTS;
+        response.setEstimatedShipping(fromCents(shippingCents));
+        response.setEstimatedTotal(fromCents(view.subtotalCents() + shippingCents));
+
+        return response;
+    }
+
+    public CartItemResponse toCartItemResponse(ActiveCart.CartLine line) {
+        CartItemResponse response = new CartItemResponse();
+        response.setId(line.getProductId());
+        response.setQuantity(line.getQuantity());
+        response.setTotalPrice(fromCents(line.getTotalCents()));
+        response.setAvailable(line.isAvailable());
+        response.setProductId(line.getProductId());
+        response.setProductName(line.getName());
+        response.setProductSlug(line.getSlug());
+        response.setProductSku(line.getSku());
+        response.setProductImageUrl(line.getImageUrl());
+        response.setUnitPrice(line.getPrice());
+        response.setDiscountedPrice(line.getDiscountedPrice());
+        response.setEffectivePrice(fromCents(line.getEffectivePriceCents()));
+        response.setAvailableStock(line.getStockQuantity());
+        response.setInStock(line.isInStock());
+        return response;
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -23,11 +23,8 @@ public class PaymentMapper {
         response.setPaidAt(payment.getPaidAt());
         response.setRefundedAt(payment.getRefundedAt());
         response.setCreatedAt(payment.getCreatedAt());
-
-        if (payment.getOrder() != null) {
-            response.setOrderId(payment.getOrder().getId());
-            response.setOrderNumber(payment.getOrder().getOrderNumber());
-        }
+        response.setOrderId(payment.getOrderId());
+        response.setOrderNumber(payment.getOrderNumber());
 
         return response;
     }
@@ -0,0 +1,31 @@
+package com.pharmacy.mapper;
+
+import com.pharmacy.dto.response.UserSummaryResponse;
+import com.pharmacy.entity.User;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserMapper {
+
+    // Expects the pharmacy to be fetched with the user (see UserRepository.searchWithPharmacy)
+    public UserSummaryResponse toSummaryResponse(User user) {
+        UserSummaryResponse response = new UserSummaryResponse();
+        response.setId(user.getId());
+        response.setEmail(user.getEmail());
+        response.setFirstName(user.getFirstName());
+        response.setLastName(user.getLastName());
+        response.setPhone(user.getPhone() != null ? user.getPhone() : "");
+        response.setRole(user.getRole());
+        response.setActive(user.isActive());
+        response.setEmailVerified(user.isEmailVerified());
+        response.setCreatedAt(user.getCreatedAt());
+        response.setLastLogin(user.getLastLogin());
+
+        if (user.getPharmacy() != null) {
+            response.setPharmacyId(user.getPharmacy().getId());
+            response.setPharmacyName(user.getPharmacy().getName());
+        }
+
+        return response;
+    }
+}
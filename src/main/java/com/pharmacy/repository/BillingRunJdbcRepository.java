@@ -0,0 +1,58 @@
+package com.pharmacy.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Due-pharmacy selection and per-day progress (billing_runs) for the subscription billing run.
+ */
+@Repository
+public class BillingRunJdbcRepository {
+
+    // Served by idx_pharmacy_billing_due; pharmacies attempted today are skipped, so a restarted
+    // run continues where the last one stopped
+    private static final String FIND_DUE_SQL =
+            "SELECT id FROM pharmacies " +
+            "WHERE status IN ('ACTIVE', 'GRACE_PERIOD') AND next_payment_date <= ? " +
+            "AND (last_billing_date IS NULL OR last_billing_date < ?) ORDER BY id";
+
+    private static final String START_SQL =
+            "INSERT INTO billing_runs (run_date, status, started_at, due_count) VALUES (?, 'RUNNING', now(), ?) " +
+            "ON CONFLICT (run_date) DO UPDATE SET status = 'RUNNING', finished_at = NULL";
+
+    private static final String CHUNK_DONE_SQL =
+            "UPDATE billing_runs SET chunks_done = chunks_done + 1, renewed = renewed + ?, " +
+            "failed = failed + ?, suspended = suspended + ? WHERE run_date = ?";
+
+    private static final String FINISH_SQL =
+            "UPDATE billing_runs SET status = ?, finished_at = now() WHERE run_date = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BillingRunJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> findDuePharmacyIds(LocalDate runDate) {
+        Date date = Date.valueOf(runDate);
+        return jdbcTemplate.queryForList(FIND_DUE_SQL, Long.class, date, date);
+    }
+
+    // A restart on the same day keeps the day's row and counters
+    public void start(LocalDate runDate, int dueCount) {
+        jdbcTemplate.update(START_SQL, Date.valueOf(runDate), dueCount);
+    }
+
+    // Once per chunk, after its charges are recorded; a chunk cut short by a crash adds nothing
+    public void chunkDone(LocalDate runDate, int renewed, int failed, int suspended) {
+        jdbcTemplate.update(CHUNK_DONE_SQL, renewed, failed, suspended, Date.valueOf(runDate));
+    }
+
+    public void finish(LocalDate runDate, String status) {
+        jdbcTemplate.update(FINISH_SQL, status, Date.valueOf(runDate));
+    }
+}
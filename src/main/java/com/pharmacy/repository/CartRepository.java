@@ -1,9 +1,16 @@
 package com.pharmacy.repository;
 
 import com.pharmacy.entity.Cart;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,9 +19,38 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     // Find cart by customer and pharmacy (unique combination)
     Optional<Cart> findByCustomerIdAndPharmacyId(Long customerId, Long pharmacyId);
 
+    // Row-locked lookup for CartPersister; waits for a CartReaper batch holding the cart and then finds it gone
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.customer.id = :customerId AND c.pharmacy.id = :pharmacyId")
+    Optional<Cart> findByCustomerIdAndPharmacyIdForUpdate(@Param("customerId") Long customerId,
+                                                           @Param("pharmacyId") Long pharmacyId);
+
+    // Cart with items and their products in one query (CartStore load)
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items i LEFT JOIN FETCH i.product " +
+            "WHERE c.customer.id = :customerId AND c.pharmacy.id = :pharmacyId")
+    Optional<Cart> findWithItems(@Param("customerId") Long customerId, @Param("pharmacyId") Long pharmacyId);
+
     // Check if cart exists
     boolean existsByCustomerIdAndPharmacyId(Long customerId, Long pharmacyId);
 
     // Delete cart by customer and pharmacy
     void deleteByCustomerIdAndPharmacyId(Long customerId, Long pharmacyId);
+
+    // Lock a batch of carts untouched since the cutoff; carts being written right now are skipped
+    @Query(value = "SELECT id FROM carts WHERE updated_at < :before " +
+            "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockIdleBatch(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id IN (:cartIds)", nativeQuery = true)
+    int deleteItemsByCartIdIn(@Param("cartIds") List<Long> cartIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM carts WHERE id IN (:cartIds)", nativeQuery = true)
+    int deleteByIdIn(@Param("cartIds") List<Long> cartIds);
+
+    // Active vs abandoned (for monitoring)
+    long countByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    long countByUpdatedAtBefore(LocalDateTime before);
 }
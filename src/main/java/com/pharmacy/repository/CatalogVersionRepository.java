@@ -0,0 +1,22 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Long> {
+
+    // Creates the scope row on first change, otherwise increments it; returns the new version
+    @Query(value = "INSERT INTO catalog_versions (scope_id, version, updated_at) VALUES (:scopeId, 1, now()) " +
+            "ON CONFLICT (scope_id) DO UPDATE SET version = catalog_versions.version + 1, updated_at = now() " +
+            "RETURNING version", nativeQuery = true)
+    Long bump(@Param("scopeId") Long scopeId);
+
+    @Query("SELECT c.version FROM CatalogVersion c WHERE c.scopeId = :scopeId")
+    Optional<Long> findVersion(@Param("scopeId") Long scopeId);
+}
@@ -1,7 +1,11 @@
 package com.pharmacy.repository;
 
+import com.pharmacy.config.CacheRegions;
 import com.pharmacy.entity.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,21 +15,37 @@ import java.util.Optional;
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     // Find by slug (for URL)
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<Category> findBySlug(String slug);
 
     // Find all root categories (no parent)
     List<Category> findByParentIsNullAndActiveTrue();
 
     // Find child categories
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     List<Category> findByParentIdAndActiveTrue(Long parentId);
 
     // Find all active categories
     List<Category> findByActiveTrue();
 
     // Find all active categories ordered
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     List<Category> findByActiveTrueOrderByDisplayOrderAsc();
 
     // Find root categories ordered
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     List<Category> findByParentIsNullAndActiveTrueOrderByDisplayOrderAsc();
 
     // Check if slug exists
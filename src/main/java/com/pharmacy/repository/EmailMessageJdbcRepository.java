@@ -0,0 +1,38 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.EmailMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Plain JDBC access to the email queue for statements JPA cannot express.
+ */
+@Repository
+public class EmailMessageJdbcRepository {
+
+    // A message whose dedupe key is already queued is skipped by the database, not by a prior
+    // lookup, so concurrent enqueues of the same cause never fail on uq_email_dedupe_key
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO email_messages (id, created_at, updated_at, pharmacy_id, template, dedupe_key, recipient, " +
+            "from_name, from_address, reply_to, subject, body, attempts, next_attempt_at) " +
+            "VALUES (nextval('email_messages_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?) " +
+            "ON CONFLICT (dedupe_key) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmailMessageJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Returns false if a message with the same dedupe key was already queued
+    public boolean insertIfAbsent(EmailMessage message, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(INSERT_IF_ABSENT_SQL,
+                timestamp, timestamp, message.getPharmacyId(), message.getTemplate(), message.getDedupeKey(),
+                message.getRecipient(), message.getFromName(), message.getFromAddress(), message.getReplyTo(),
+                message.getSubject(), message.getBody(), Timestamp.valueOf(message.getNextAttemptAt())) == 1;
+    }
+}
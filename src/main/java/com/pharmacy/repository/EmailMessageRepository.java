@@ -0,0 +1,37 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.EmailMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailMessageRepository extends JpaRepository<EmailMessage, Long> {
+
+    // Lock the next batch of due messages; rows locked by other dispatcher workers are skipped
+    @Query(value = "SELECT * FROM email_messages WHERE sent_at IS NULL AND attempts < :maxAttempts " +
+            "AND next_attempt_at <= :now ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailMessage> lockNextBatch(@Param("now") LocalDateTime now,
+                                     @Param("maxAttempts") int maxAttempts,
+                                     @Param("limit") int limit);
+
+    // Record a sent batch in one statement
+    @Modifying
+    @Query("UPDATE EmailMessage m SET m.sentAt = :now, m.lastError = null, m.updatedAt = :now WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Count messages waiting to be sent (for monitoring)
+    long countBySentAtIsNull();
+
+    // Purge sent messages past retention
+    @Modifying
+    @Query("DELETE FROM EmailMessage m WHERE m.sentAt IS NOT NULL AND m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
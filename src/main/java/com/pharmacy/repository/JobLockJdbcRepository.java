@@ -0,0 +1,46 @@
+package com.pharmacy.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Lease-based job locks in job_locks. A lock is held until locked_until; the holder extends it
+ * while working, and a lease left to expire (crashed node) can be taken by anyone.
+ * Statements run on their own (auto-commit), outside the caller's transaction.
+ */
+@Repository
+public class JobLockJdbcRepository {
+
+    // Takes a free or expired lock, or renews our own; no row is written when someone else holds it
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO job_locks (name, owner, locked_at, locked_until) " +
+            "VALUES (?, ?, now(), now() + make_interval(secs => ?)) " +
+            "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, locked_at = EXCLUDED.locked_at, " +
+            "locked_until = EXCLUDED.locked_until " +
+            "WHERE job_locks.locked_until < now() OR job_locks.owner = EXCLUDED.owner";
+
+    private static final String EXTEND_SQL =
+            "UPDATE job_locks SET locked_until = now() + make_interval(secs => ?) WHERE name = ? AND owner = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE job_locks SET locked_until = now() WHERE name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobLockJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean tryAcquire(String name, String owner, long leaseSeconds) {
+        return jdbcTemplate.update(ACQUIRE_SQL, name, owner, leaseSeconds) == 1;
+    }
+
+    // False when the lease was lost (expired and taken over); the caller must stop
+    public boolean extend(String name, String owner, long leaseSeconds) {
+        return jdbcTemplate.update(EXTEND_SQL, leaseSeconds, name, owner) == 1;
+    }
+
+    public void release(String name, String owner) {
+        jdbcTemplate.update(RELEASE_SQL, name, owner);
+    }
+}
@@ -0,0 +1,173 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.Order;
+import com.pharmacy.entity.OrderItem;
+import com.pharmacy.enums.DeliveryType;
+import com.pharmacy.enums.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Plain JDBC access to orders_archive/order_items_archive.
+ *
+ * Archived orders come back as detached Order instances (pharmacy, customer and product are
+ * lazy references) so the existing mappers render them unchanged. They are read-only: never
+ * save or merge them, the rows no longer exist in orders.
+ */
+@Repository
+public class OrderArchiveJdbcRepository {
+
+    // Moves one chunk of a pharmacy's terminal orders, with their items, in a single statement.
+    // SKIP LOCKED leaves orders a live transaction is touching (and other archiver nodes' chunks)
+    // for a later run. Items written before V5 may still lack pharmacy_id until it is backfilled.
+    private static final String ARCHIVE_CHUNK_SQL =
+            "WITH picked AS (" +
+            "  SELECT id FROM orders" +
+            "  WHERE pharmacy_id = ? AND status IN ('DELIVERED', 'CANCELLED') AND created_at < ?" +
+            "  LIMIT ? FOR UPDATE SKIP LOCKED" +
+            "), moved_items AS (" +
+            "  DELETE FROM order_items oi USING picked p" +
+            "  WHERE oi.order_id = p.id AND (oi.pharmacy_id = ? OR oi.pharmacy_id IS NULL)" +
+            "  RETURNING oi.*" +
+            "), archived_items AS (" +
+            "  INSERT INTO order_items_archive SELECT * FROM moved_items" +
+            "), moved AS (" +
+            "  DELETE FROM orders o USING picked p WHERE o.id = p.id AND o.pharmacy_id = ?" +
+            "  RETURNING o.*" +
+            ") INSERT INTO orders_archive SELECT * FROM moved";
+
+    private static final String SELECT_ORDERS = "SELECT * FROM orders_archive WHERE ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PharmacyRepository pharmacyRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+
+    public OrderArchiveJdbcRepository(JdbcTemplate jdbcTemplate,
+                                      PharmacyRepository pharmacyRepository,
+                                      UserRepository userRepository,
+                                      ProductRepository productRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pharmacyRepository = pharmacyRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+    }
+
+    public List<Long> findPharmacyIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM pharmacies ORDER BY id", Long.class);
+    }
+
+    // Returns the number of orders moved; fewer than limit means the pharmacy is done (or locked)
+    public int archiveChunk(Long pharmacyId, LocalDateTime createdBefore, int limit) {
+        return jdbcTemplate.update(ARCHIVE_CHUNK_SQL,
+                pharmacyId, Timestamp.valueOf(createdBefore), limit, pharmacyId, pharmacyId);
+    }
+
+    // ==================== READS ====================
+
+    public Optional<Order> findByOrderNumber(String orderNumber) {
+        return findOrders("order_number = ?", orderNumber).stream().findFirst();
+    }
+
+    public Optional<Order> findByPharmacyIdAndOrderNumber(Long pharmacyId, String orderNumber) {
+        return findOrders("pharmacy_id = ? AND order_number = ?", pharmacyId, orderNumber).stream().findFirst();
+    }
+
+    public List<Order> findByCustomerId(Long customerId, long offset, int limit) {
+        return findOrders("customer_id = ? ORDER BY created_at DESC OFFSET ? LIMIT ?", customerId, offset, limit);
+    }
+
+    public long countByCustomerId(Long customerId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders_archive WHERE customer_id = ?", Long.class, customerId);
+        return count != null ? count : 0;
+    }
+
+    public List<Order> findByPharmacyId(Long pharmacyId, long offset, int limit) {
+        return findOrders("pharmacy_id = ? ORDER BY created_at DESC OFFSET ? LIMIT ?", pharmacyId, offset, limit);
+    }
+
+    public long countByPharmacyId(Long pharmacyId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders_archive WHERE pharmacy_id = ?", Long.class, pharmacyId);
+        return count != null ? count : 0;
+    }
+
+    public List<Order> findByPharmacyIdAndCreatedAtBetween(Long pharmacyId, LocalDateTime start, LocalDateTime end) {
+        return findOrders("pharmacy_id = ? AND created_at BETWEEN ? AND ?",
+                pharmacyId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+
+    private List<Order> findOrders(String condition, Object... args) {
+        List<Order> orders = jdbcTemplate.query(SELECT_ORDERS + condition, (rs, rowNum) -> mapOrder(rs), args);
+        if (!orders.isEmpty()) {
+            attachItems(orders);
+        }
+        return orders;
+    }
+
+    private void attachItems(List<Order> orders) {
+        Map<Long, Order> byId = orders.stream().collect(Collectors.toMap(Order::getId, Function.identity()));
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM order_items_archive WHERE order_id = ANY(?) ORDER BY id");
+            ps.setArray(1, con.createArrayOf("bigint", byId.keySet().toArray()));
+            return ps;
+        }, rs -> {
+            OrderItem item = new OrderItem();
+            item.setId(rs.getLong("id"));
+            item.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+            item.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+            item.setProduct(productRepository.getReferenceById(rs.getLong("product_id")));
+            item.setProductName(rs.getString("product_name"));
+            item.setProductSku(rs.getString("product_sku"));
+            item.setQuantity(rs.getInt("quantity"));
+            item.setUnitPrice(rs.getBigDecimal("unit_price"));
+            item.setTotalPrice(rs.getBigDecimal("total_price"));
+            byId.get(rs.getLong("order_id")).addItem(item);
+        });
+    }
+
+    private Order mapOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getLong("id"));
+        order.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        order.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        order.setCreatedBy((Long) rs.getObject("created_by"));
+        order.setUpdatedBy((Long) rs.getObject("updated_by"));
+        order.setPharmacy(pharmacyRepository.getReferenceById(rs.getLong("pharmacy_id")));
+        order.setCustomer(userRepository.getReferenceById(rs.getLong("customer_id")));
+        order.setOrderNumber(rs.getString("order_number"));
+        order.setStatus(OrderStatus.valueOf(rs.getString("status")));
+        order.setDeliveryType(DeliveryType.valueOf(rs.getString("delivery_type")));
+        order.setSubtotal(rs.getBigDecimal("subtotal"));
+        order.setShippingCost(rs.getBigDecimal("shipping_cost"));
+        order.setTotalAmount(rs.getBigDecimal("total_amount"));
+        order.setTrackingNumber(rs.getString("tracking_number"));
+        order.setCargoCompany(rs.getString("cargo_company"));
+        order.setShippingAddress(rs.getString("shipping_address"));
+        order.setShippingCity(rs.getString("shipping_city"));
+        order.setShippingDistrict(rs.getString("shipping_district"));
+        order.setShippingPostalCode(rs.getString("shipping_postal_code"));
+        order.setShippingPhone(rs.getString("shipping_phone"));
+        order.setNotes(rs.getString("notes"));
+        order.setCancellationReason(rs.getString("cancellation_reason"));
+        order.setCancelledAt(rs.getObject("cancelled_at", LocalDateTime.class));
+        order.setCancelledBy((Long) rs.getObject("cancelled_by"));
+        order.setConfirmedAt(rs.getObject("confirmed_at", LocalDateTime.class));
+        order.setPreparingAt(rs.getObject("preparing_at", LocalDateTime.class));
+        order.setShippedAt(rs.getObject("shipped_at", LocalDateTime.class));
+        order.setDeliveredAt(rs.getObject("delivered_at", LocalDateTime.class));
+        return order;
+    }
+}
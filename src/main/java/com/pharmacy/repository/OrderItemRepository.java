@@ -11,22 +11,24 @@ import java.util.List;
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
+    // Every query carries pharmacy_id, the partition key shared with orders
+
     // Find all items in order
-    List<OrderItem> findByOrderId(Long orderId);
+    List<OrderItem> findByPharmacyIdAndOrderId(Long pharmacyId, Long orderId);
 
     // Find by product (to check product sales)
-    List<OrderItem> findByProductId(Long productId);
+    List<OrderItem> findByPharmacyIdAndProductId(Long pharmacyId, Long productId);
 
     // Count how many times product was sold
-    long countByProductId(Long productId);
+    long countByPharmacyIdAndProductId(Long pharmacyId, Long productId);
 
     // Get total quantity sold for a product
-    @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.product.id = :productId")
-    Long getTotalQuantitySold(@Param("productId") Long productId);
+    @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.pharmacyId = :pharmacyId AND oi.product.id = :productId")
+    Long getTotalQuantitySold(@Param("pharmacyId") Long pharmacyId, @Param("productId") Long productId);
 
     // Get best selling products for pharmacy
     @Query("SELECT oi.product.id, SUM(oi.quantity) as total FROM OrderItem oi " +
-            "WHERE oi.order.pharmacy.id = :pharmacyId " +
+            "WHERE oi.pharmacyId = :pharmacyId " +
             "GROUP BY oi.product.id ORDER BY total DESC")
     List<Object[]> findBestSellingProducts(@Param("pharmacyId") Long pharmacyId);
 }
@@ -0,0 +1,25 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.OrderNumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderNumberSequenceRepository extends JpaRepository<OrderNumberSequence, Integer> {
+
+    // Reserve a block atomically: creates the year row on first use, otherwise bumps it.
+    // Returns the new next_value; the reserved block is [result - blockSize, result - 1].
+    @Query(value = "INSERT INTO order_number_sequences (seq_year, next_value) VALUES (:year, :initialValue) " +
+            "ON CONFLICT (seq_year) DO UPDATE SET next_value = order_number_sequences.next_value + :blockSize " +
+            "RETURNING next_value", nativeQuery = true)
+    Long reserveBlock(@Param("year") int year,
+                      @Param("initialValue") long initialValue,
+                      @Param("blockSize") int blockSize);
+
+    // Highest numeric suffix already used for a year (seeds the sequence for existing data)
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(order_number FROM :suffixStart) AS BIGINT)), 0) " +
+            "FROM orders WHERE order_number LIKE :prefix", nativeQuery = true)
+    Long findMaxOrderSuffix(@Param("prefix") String prefix, @Param("suffixStart") int suffixStart);
+}
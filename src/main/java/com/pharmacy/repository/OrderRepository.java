@@ -16,19 +16,21 @@ import java.util.Optional;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    // Find by order number
+    // Find by order number across pharmacies (customer lookups; probes every partition)
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    // Find by order number within pharmacy (partition-pruned)
+    Optional<Order> findByPharmacyIdAndOrderNumber(Long pharmacyId, String orderNumber);
+
+    Optional<Order> findByIdAndPharmacyId(Long id, Long pharmacyId);
+
     // Find by pharmacy (multi-tenant)
     Page<Order> findByPharmacyId(Long pharmacyId, Pageable pageable);
 
     // Find by pharmacy and status
     List<Order> findByPharmacyIdAndStatus(Long pharmacyId, OrderStatus status);
 
-    // Find by customer
-    List<Order> findByCustomerId(Long customerId);
-
-    // Find by customer with pagination
+    // Customer order history spans pharmacies, so it reads every partition's customer index
     Page<Order> findByCustomerId(Long customerId, Pageable pageable);
 
     // Find by customer and pharmacy
@@ -55,8 +57,5 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Find recent orders
     List<Order> findTop10ByPharmacyIdOrderByCreatedAtDesc(Long pharmacyId);
 
-    // Check if order number exists
-    boolean existsByOrderNumber(String orderNumber);
-
     List<Order> findByPharmacyIdAndCreatedAtBetween(Long pharmacyId, LocalDateTime start, LocalDateTime end);
 }
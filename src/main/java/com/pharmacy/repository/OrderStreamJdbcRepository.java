@@ -0,0 +1,81 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.event.DomainEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Outbox access for the staff order stream on every node. The relay announces each streamed event
+ * on the order_stream channel; NOTIFY is transactional, so listeners hear the id only once the
+ * dispatch commits, and read the event back from outbox_events.
+ */
+@Repository
+public class OrderStreamJdbcRepository {
+
+    public static final String CHANNEL = "order_stream";
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify('" + CHANNEL + "', ?)";
+
+    private static final String SELECT_EVENTS =
+            "SELECT id, aggregate_type, aggregate_id, pharmacy_id, event_type, payload, created_at FROM outbox_events ";
+
+    private static final String FIND_BY_IDS_SQL = SELECT_EVENTS + "WHERE id = ANY(?) ORDER BY id";
+
+    // Also takes events not marked published yet: a dispatch commits (and notifies) before its relay
+    // batch sets published_at. Both conditions are served by idx_outbox_unpublished (published_at, id).
+    private static final String FIND_RECENT_SQL = SELECT_EVENTS +
+            "WHERE (published_at >= ? OR published_at IS NULL) AND event_type = ANY(?) " +
+            "AND pharmacy_id IS NOT NULL ORDER BY id";
+
+    private static final RowMapper<DomainEvent> EVENT_MAPPER = (rs, rowNum) -> new DomainEvent(
+            rs.getLong("id"),
+            rs.getString("aggregate_type"),
+            rs.getObject("aggregate_id", Long.class),
+            rs.getObject("pharmacy_id", Long.class),
+            rs.getString("event_type"),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderStreamJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Joins the caller's transaction: the notification is delivered when it commits, or never
+    public void notifyCommitted(Long eventId) {
+        jdbcTemplate.execute(NOTIFY_SQL, (PreparedStatementCallback<Boolean>) ps -> {
+            ps.setString(1, String.valueOf(eventId));
+            return ps.execute();
+        });
+    }
+
+    public List<DomainEvent> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, EVENT_MAPPER);
+    }
+
+    // Events notified since the given time (and a few not yet), to catch up after a lost connection
+    public List<DomainEvent> findRecent(LocalDateTime since, Collection<String> eventTypes) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_RECENT_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            ps.setArray(2, con.createArrayOf("varchar", eventTypes.toArray()));
+            return ps;
+        }, EVENT_MAPPER);
+    }
+}
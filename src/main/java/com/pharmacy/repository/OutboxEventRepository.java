@@ -0,0 +1,31 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Lock the next batch of due, unpublished events; rows locked by other relay workers are skipped
+    @Query(value = "SELECT * FROM outbox_events WHERE published_at IS NULL AND attempts < :maxAttempts " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("maxAttempts") int maxAttempts,
+                                    @Param("now") LocalDateTime now,
+                                    @Param("limit") int limit);
+
+    // Count events waiting to be relayed (for monitoring)
+    long countByPublishedAtIsNull();
+
+    // Purge published events past retention
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt IS NOT NULL AND e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
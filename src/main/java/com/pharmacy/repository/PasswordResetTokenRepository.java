@@ -0,0 +1,32 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.PasswordResetToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
+
+    // Row-locked, so two concurrent redemptions of one code cannot both succeed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM PasswordResetToken t WHERE t.tokenHash = :tokenHash")
+    Optional<PasswordResetToken> findByTokenHashForUpdate(@Param("tokenHash") String tokenHash);
+
+    // Retire every outstanding code of a user (a newer code was issued, or one was redeemed)
+    @Modifying
+    @Query("UPDATE PasswordResetToken t SET t.usedAt = :now WHERE t.user.id = :userId AND t.usedAt IS NULL")
+    int retireOutstanding(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Purge codes past expiry
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken t WHERE t.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") LocalDateTime before);
+}
@@ -2,7 +2,11 @@ package com.pharmacy.repository;
 
 import com.pharmacy.entity.Payment;
 import com.pharmacy.enums.PaymentStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,6 +27,11 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     // Find by conversation ID
     Optional<Payment> findByConversationId(String conversationId);
 
+    // Row-locked lookup; serializes the 3DS callback and webhook processing of one payment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.conversationId = :conversationId")
+    Optional<Payment> findByConversationIdForUpdate(@Param("conversationId") String conversationId);
+
     // Find by status
     List<Payment> findByStatus(PaymentStatus status);
 
@@ -0,0 +1,49 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.PaymentWebhookEvent;
+import com.pharmacy.enums.WebhookEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    // Find by idempotency key (duplicate detection)
+    Optional<PaymentWebhookEvent> findByIdempotencyKey(String idempotencyKey);
+
+    // Atomically claim an event for processing; returns 0 if another worker already has it
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = com.pharmacy.enums.WebhookEventStatus.PROCESSING, " +
+            "e.attempts = e.attempts + 1, e.updatedAt = :now " +
+            "WHERE e.id = :id AND e.status IN :claimable AND e.attempts < :maxAttempts")
+    int claim(@Param("id") Long id,
+              @Param("claimable") Collection<WebhookEventStatus> claimable,
+              @Param("maxAttempts") int maxAttempts,
+              @Param("now") LocalDateTime now);
+
+    // Events waiting for (re)processing, oldest first
+    @Query("SELECT e.id FROM PaymentWebhookEvent e WHERE e.status IN :statuses " +
+            "AND e.attempts < :maxAttempts AND e.updatedAt < :before ORDER BY e.id ASC")
+    List<Long> findIdsForRetry(@Param("statuses") Collection<WebhookEventStatus> statuses,
+                               @Param("maxAttempts") int maxAttempts,
+                               @Param("before") LocalDateTime before,
+                               Pageable pageable);
+
+    // Events stuck in PROCESSING (worker died mid-flight)
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = com.pharmacy.enums.WebhookEventStatus.FAILED, " +
+            "e.lastError = 'Processing timed out' " +
+            "WHERE e.status = com.pharmacy.enums.WebhookEventStatus.PROCESSING AND e.updatedAt < :before")
+    int releaseStuck(@Param("before") LocalDateTime before);
+
+    long countByStatus(WebhookEventStatus status);
+}
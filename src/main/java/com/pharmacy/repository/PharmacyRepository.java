@@ -1,9 +1,17 @@
 package com.pharmacy.repository;
 
+import com.pharmacy.config.CacheRegions;
 import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.enums.PharmacyStatus;
 import com.pharmacy.enums.SubscriptionPlan;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,10 +20,23 @@ import java.util.Optional;
 @Repository
 public interface PharmacyRepository extends JpaRepository<Pharmacy, Long> {
 
+    String FILTER = "(:status IS NULL OR p.status = :status) " +
+            "AND (:plan IS NULL OR p.subscriptionPlan = :plan) " +
+            "AND (:search IS NULL OR LOWER(p.name) LIKE :search ESCAPE '\\' " +
+            "OR LOWER(p.subdomain) LIKE :search ESCAPE '\\' OR LOWER(p.email) LIKE :search ESCAPE '\\')";
+
     // Find by subdomain: ozan.pharmacyplatform.com
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<Pharmacy> findBySubdomain(String subdomain);
 
     // Find by custom domain: ozaneczanesi.com
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<Pharmacy> findByCustomDomain(String customDomain);
 
     // Find by either subdomain or custom domain
@@ -34,4 +55,19 @@ public interface PharmacyRepository extends JpaRepository<Pharmacy, Long> {
     Optional<Pharmacy> findByEmail(String email);
     long countByStatus(PharmacyStatus status);
     long countBySubscriptionPlan(SubscriptionPlan plan);
+
+    // Admin listing: filtered page (null filters are ignored); search is a SearchPatterns.contains pattern
+    @Query("SELECT p FROM Pharmacy p WHERE " + FILTER)
+    Page<Pharmacy> search(@Param("status") PharmacyStatus status,
+                          @Param("plan") SubscriptionPlan plan,
+                          @Param("search") String search,
+                          Pageable pageable);
+
+    // Keyset batch for full exports: the next pharmacies after afterId in ID order
+    @Query("SELECT p FROM Pharmacy p WHERE p.id > :afterId AND " + FILTER + " ORDER BY p.id")
+    List<Pharmacy> findBatch(@Param("afterId") Long afterId,
+                             @Param("status") PharmacyStatus status,
+                             @Param("plan") SubscriptionPlan plan,
+                             @Param("search") String search,
+                             Pageable limit);
 }
@@ -4,10 +4,12 @@ import com.pharmacy.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,8 +25,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Find by pharmacy and category
     List<Product> findByPharmacyIdAndCategoryIdAndActiveTrue(Long pharmacyId, Long categoryId);
 
-    // Find by slug
-    Optional<Product> findBySlug(String slug);
+    // Find by ID within pharmacy (partition-pruned)
+    Optional<Product> findByIdAndPharmacyId(Long id, Long pharmacyId);
+
+    List<Product> findByPharmacyIdAndIdIn(Long pharmacyId, Collection<Long> ids);
 
     // Find by pharmacy and slug
     Optional<Product> findByPharmacyIdAndSlug(Long pharmacyId, String slug);
@@ -39,6 +43,51 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.pharmacy.id = :pharmacyId AND p.stockQuantity <= p.lowStockThreshold AND p.active = true")
     List<Product> findLowStockProducts(@Param("pharmacyId") Long pharmacyId);
 
+    // Low and out-of-stock products by their maintained alert level (partial index idx_product_stock_alert)
+    @Query("SELECT p FROM Product p WHERE p.pharmacyId = :pharmacyId AND p.stockAlertLevel > 0")
+    List<Product> findStockAlerted(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.pharmacyId = :pharmacyId AND p.stockAlertLevel > 0")
+    long countStockAlerted(@Param("pharmacyId") Long pharmacyId);
+
+    // Active product count per category (category ID, count) for the category tree
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p WHERE p.pharmacy.id = :pharmacyId AND p.active = true GROUP BY p.category.id")
+    List<Object[]> countActiveByCategory(@Param("pharmacyId") Long pharmacyId);
+
+    // Facet fields of all active products (ID, category ID, brand, price, discounted price, stock, featured)
+    @Query("SELECT p.id, p.category.id, p.brand, p.price, p.discountedPrice, p.stockQuantity, p.featured " +
+            "FROM Product p WHERE p.pharmacy.id = :pharmacyId AND p.active = true ORDER BY p.id")
+    List<Object[]> findFacetRows(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category " +
+           "WHERE p.pharmacy.id = :pharmacyId AND p.active = true ORDER BY p.id")
+    List<Product> findActiveWithCategory(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.pharmacyId = :pharmacyId AND p.id IN :ids")
+    List<Product> findAllWithCategory(@Param("pharmacyId") Long pharmacyId, @Param("ids") Collection<Long> ids);
+
+    // Keyset batch for streamed category listings: the next active products after afterId in ID order
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.pharmacyId = :pharmacyId " +
+           "AND p.category.id = :categoryId AND p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<Product> findCategoryBatch(@Param("pharmacyId") Long pharmacyId,
+                                    @Param("categoryId") Long categoryId,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    // Raise the stock alert level; returns 1 only for the transaction that crosses the threshold
+    @Modifying
+    @Query("UPDATE Product p SET p.stockAlertLevel = :level " +
+           "WHERE p.pharmacyId = :pharmacyId AND p.id = :productId AND p.stockAlertLevel < :level")
+    int raiseStockAlertLevel(@Param("pharmacyId") Long pharmacyId, @Param("productId") Long productId,
+                             @Param("level") int level);
+
+    // Lower the stock alert level after a restock (no alert)
+    @Modifying
+    @Query("UPDATE Product p SET p.stockAlertLevel = :level " +
+           "WHERE p.pharmacyId = :pharmacyId AND p.id = :productId AND p.stockAlertLevel > :level")
+    int lowerStockAlertLevel(@Param("pharmacyId") Long pharmacyId, @Param("productId") Long productId,
+                             @Param("level") int level);
+
     // Find out of stock products
     List<Product> findByPharmacyIdAndStockQuantityAndActiveTrue(Long pharmacyId, Integer stockQuantity);
 
@@ -49,8 +98,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.pharmacy.id = :pharmacyId AND p.active = true AND LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<Product> searchByName(@Param("pharmacyId") Long pharmacyId, @Param("keyword") String keyword, Pageable pageable);
 
-    // Check if slug exists
-    boolean existsBySlug(String slug);
+    // Check if slug exists in pharmacy
+    boolean existsByPharmacyIdAndSlug(Long pharmacyId, String slug);
 
     // Check if SKU exists in pharmacy
     boolean existsByPharmacyIdAndSku(Long pharmacyId, String sku);
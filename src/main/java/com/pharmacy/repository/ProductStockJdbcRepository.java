@@ -0,0 +1,133 @@
+package com.pharmacy.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC access for bulk stock changes. Bypasses the persistence context, so callers must not
+ * hold managed Product instances for the same rows in the current transaction.
+ */
+@Repository
+public class ProductStockJdbcRepository {
+
+    // ABSOLUTE lines use keep = 0 (stock = amount), DELTA lines use keep = 1 (stock = stock + amount),
+    // so every line shares one statement and the whole request is a single JDBC batch.
+    // The WHERE clause rejects any change that would drive stock negative.
+    private static final String UPDATE_STOCK_SQL =
+            "UPDATE products SET stock_quantity = ? * stock_quantity + ?, updated_at = ? " +
+            "WHERE id = ? AND pharmacy_id = ? AND ? * stock_quantity + ? >= 0";
+
+    // Locks the rows (in id order, so concurrent batches cannot deadlock) until the caller's transaction
+    // ends: the stock read here is exactly what the batch applies to, and what it reports back
+    private static final String LOCK_BY_KEYS_SQL =
+            "SELECT id, sku, barcode, name, stock_quantity, low_stock_threshold, is_active, stock_alert_level FROM products " +
+            "WHERE pharmacy_id = ? AND (sku = ANY(?) OR barcode = ANY(?)) ORDER BY id FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<StockRow> lockByKeys(Long pharmacyId, Collection<String> skus, Collection<String> barcodes) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_BY_KEYS_SQL);
+            ps.setLong(1, pharmacyId);
+            ps.setArray(2, con.createArrayOf("varchar", skus.toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", barcodes.toArray()));
+            return ps;
+        }, (rs, rowNum) -> new StockRow(
+                rs.getLong("id"),
+                rs.getString("sku"),
+                rs.getString("barcode"),
+                rs.getString("name"),
+                rs.getInt("stock_quantity"),
+                (Integer) rs.getObject("low_stock_threshold"),
+                rs.getBoolean("is_active"),
+                rs.getInt("stock_alert_level")));
+    }
+
+    // Returns one update count per change; 0 means the row changed underneath us and the guard failed
+    public int[] applyChanges(Long pharmacyId, List<StockChange> changes) {
+        if (changes.isEmpty()) {
+            return new int[0];
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(UPDATE_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockChange change = changes.get(i);
+                int keep = change.isDelta() ? 1 : 0;
+                ps.setInt(1, keep);
+                ps.setInt(2, change.getAmount());
+                ps.setTimestamp(3, now);
+                ps.setLong(4, change.getProductId());
+                ps.setLong(5, pharmacyId);
+                ps.setInt(6, keep);
+                ps.setInt(7, change.getAmount());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+
+    public static class StockRow {
+        private final long id;
+        private final String sku;
+        private final String barcode;
+        private final String name;
+        private final int stockQuantity;
+        private final Integer lowStockThreshold;
+        private final boolean active;
+        private final int stockAlertLevel;
+
+        public StockRow(long id, String sku, String barcode, String name, int stockQuantity,
+                        Integer lowStockThreshold, boolean active, int stockAlertLevel) {
+            this.id = id;
+            this.sku = sku;
+            this.barcode = barcode;
+            this.name = name;
+            this.stockQuantity = stockQuantity;
+            this.lowStockThreshold = lowStockThreshold;
+            this.active = active;
+            this.stockAlertLevel = stockAlertLevel;
+        }
+
+        public long getId() { return id; }
+        public String getSku() { return sku; }
+        public String getBarcode() { return barcode; }
+        public String getName() { return name; }
+        public int getStockQuantity() { return stockQuantity; }
+        public Integer getLowStockThreshold() { return lowStockThreshold; }
+        public boolean isActive() { return active; }
+        public int getStockAlertLevel() { return stockAlertLevel; }
+    }
+
+    public static class StockChange {
+        private final long productId;
+        private final boolean delta;
+        private final int amount;
+
+        public StockChange(long productId, boolean delta, int amount) {
+            this.productId = productId;
+            this.delta = delta;
+            this.amount = amount;
+        }
+
+        public long getProductId() { return productId; }
+        public boolean isDelta() { return delta; }
+        public int getAmount() { return amount; }
+    }
+}
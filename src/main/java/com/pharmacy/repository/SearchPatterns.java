@@ -0,0 +1,24 @@
+package com.pharmacy.repository;
+
+/**
+ * Builds the lowercase "contains" LIKE patterns used by the admin search queries. User input is
+ * escaped so % and _ match literally; queries must declare the escape character with
+ * {@code LIKE :search ESCAPE '\'}.
+ */
+public final class SearchPatterns {
+
+    private SearchPatterns() {
+    }
+
+    // Null for a blank query, so the ":search IS NULL" branch of the filter applies
+    public static String contains(String q) {
+        if (q == null || q.isBlank()) {
+            return null;
+        }
+        String escaped = q.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
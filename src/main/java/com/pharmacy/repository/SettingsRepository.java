@@ -1,7 +1,11 @@
 package com.pharmacy.repository;
 
+import com.pharmacy.config.CacheRegions;
 import com.pharmacy.entity.Settings;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,5 +14,9 @@ import java.util.Optional;
 public interface SettingsRepository extends JpaRepository<Settings, Long> {
 
     // Settings is a singleton - only one row
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<Settings> findFirstByOrderByIdAsc();
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.dto.response.TenantUsageResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-minute usage rollups in tenant_usage.
+ */
+@Repository
+public class TenantUsageJdbcRepository {
+
+    // Another node's rollup for the same minute is merged into the row
+    private static final String UPSERT_SQL =
+            "INSERT INTO tenant_usage (pharmacy_id, bucket_start, route, requests, errors, response_bytes, db_time_us, " +
+            "latency_total_us, latency_p50_us, latency_p95_us, latency_p99_us, latency_max_us) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (pharmacy_id, bucket_start, route) DO UPDATE SET " +
+            "requests = tenant_usage.requests + EXCLUDED.requests, " +
+            "errors = tenant_usage.errors + EXCLUDED.errors, " +
+            "response_bytes = tenant_usage.response_bytes + EXCLUDED.response_bytes, " +
+            "db_time_us = tenant_usage.db_time_us + EXCLUDED.db_time_us, " +
+            "latency_total_us = tenant_usage.latency_total_us + EXCLUDED.latency_total_us, " +
+            "latency_p50_us = GREATEST(tenant_usage.latency_p50_us, EXCLUDED.latency_p50_us), " +
+            "latency_p95_us = GREATEST(tenant_usage.latency_p95_us, EXCLUDED.latency_p95_us), " +
+            "latency_p99_us = GREATEST(tenant_usage.latency_p99_us, EXCLUDED.latency_p99_us), " +
+            "latency_max_us = GREATEST(tenant_usage.latency_max_us, EXCLUDED.latency_max_us)";
+
+    private static final String SUMMARY_COLUMNS =
+            "SUM(requests) AS requests, SUM(errors) AS errors, SUM(response_bytes) AS response_bytes, " +
+            "SUM(db_time_us) AS db_time_us, SUM(latency_total_us) AS latency_total_us, " +
+            "MAX(latency_p95_us) AS latency_p95_us, MAX(latency_p99_us) AS latency_p99_us, " +
+            "MAX(latency_max_us) AS latency_max_us ";
+
+    private static final String BY_ROUTE_SQL =
+            "SELECT pharmacy_id, route, " + SUMMARY_COLUMNS +
+            "FROM tenant_usage WHERE pharmacy_id = ? AND bucket_start >= ? AND bucket_start < ? " +
+            "GROUP BY pharmacy_id, route ORDER BY requests DESC";
+
+    private static final String BY_PHARMACY_SQL =
+            "SELECT pharmacy_id, NULL AS route, " + SUMMARY_COLUMNS +
+            "FROM tenant_usage WHERE bucket_start >= ? AND bucket_start < ? " +
+            "GROUP BY pharmacy_id ORDER BY db_time_us DESC LIMIT ?";
+
+    private static final RowMapper<TenantUsageResponse> SUMMARY_MAPPER = (rs, rowNum) -> {
+        TenantUsageResponse usage = new TenantUsageResponse();
+        usage.setPharmacyId(rs.getLong("pharmacy_id"));
+        usage.setRoute(rs.getString("route"));
+        usage.setRequests(rs.getLong("requests"));
+        usage.setErrors(rs.getLong("errors"));
+        usage.setResponseBytes(rs.getLong("response_bytes"));
+        usage.setDbTimeMs(rs.getLong("db_time_us") / 1000);
+        usage.setAvgLatencyMs(usage.getRequests() > 0
+                ? rs.getLong("latency_total_us") / 1000.0 / usage.getRequests() : 0);
+        usage.setMaxP95LatencyMs(rs.getLong("latency_p95_us") / 1000.0);
+        usage.setMaxP99LatencyMs(rs.getLong("latency_p99_us") / 1000.0);
+        usage.setMaxLatencyMs(rs.getLong("latency_max_us") / 1000.0);
+        return usage;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TenantUsageJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Each row: pharmacy_id, bucket_start, route, then the nine counters in column order
+    public void upsert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    public List<TenantUsageResponse> summarizeByRoute(Long pharmacyId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(BY_ROUTE_SQL, SUMMARY_MAPPER,
+                pharmacyId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // Pharmacies that held the most DB time first
+    public List<TenantUsageResponse> summarizeByPharmacy(LocalDateTime from, LocalDateTime to, int limit) {
+        return jdbcTemplate.query(BY_PHARMACY_SQL, SUMMARY_MAPPER,
+                Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+    }
+
+    public int deleteBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM tenant_usage WHERE bucket_start < ?", Timestamp.valueOf(before));
+    }
+}
@@ -2,6 +2,8 @@ package com.pharmacy.repository;
 
 import com.pharmacy.entity.User;
 import com.pharmacy.enums.UserRole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +15,12 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    String FILTER = "(:role IS NULL OR u.role = :role) " +
+            "AND (:pharmacyId IS NULL OR u.pharmacy.id = :pharmacyId) " +
+            "AND (:active IS NULL OR u.active = :active) " +
+            "AND (:search IS NULL OR LOWER(u.email) LIKE :search ESCAPE '\\' " +
+            "OR LOWER(u.firstName) LIKE :search ESCAPE '\\' OR LOWER(u.lastName) LIKE :search ESCAPE '\\')";
+
     // Find by email (for login)
     Optional<User> findByEmail(String email);
 
@@ -46,4 +54,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.pharmacy WHERE u.role = :role")
     List<User> findByRoleWithPharmacy(@Param("role") UserRole role);
+
+    // Admin listing: filtered page with pharmacy fetched in the same query (null filters are ignored).
+    // search is a SearchPatterns.contains pattern.
+    @Query(value = "SELECT u FROM User u LEFT JOIN FETCH u.pharmacy WHERE " + FILTER,
+            countQuery = "SELECT COUNT(u) FROM User u WHERE " + FILTER)
+    Page<User> searchWithPharmacy(@Param("role") UserRole role,
+                                  @Param("pharmacyId") Long pharmacyId,
+                                  @Param("active") Boolean active,
+                                  @Param("search") String search,
+                                  Pageable pageable);
+
+    // Keyset batch for full exports: the next users after afterId in ID order
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.pharmacy WHERE u.id > :afterId AND " + FILTER + " ORDER BY u.id")
+    List<User> findBatchWithPharmacy(@Param("afterId") Long afterId,
+                                     @Param("role") UserRole role,
+                                     @Param("pharmacyId") Long pharmacyId,
+                                     @Param("active") Boolean active,
+                                     @Param("search") String search,
+                                     Pageable limit);
 }
\ No newline at end of file
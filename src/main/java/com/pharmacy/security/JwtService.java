@@ -1,6 +1,7 @@
 package com.pharmacy.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -89,6 +90,16 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
+    // Pharmacy of a staff/owner token; null for other roles and for tokens that fail verification
+    public Long extractPharmacyId(String token) {
+        try {
+            Number pharmacyId = extractClaim(token, claims -> claims.get("pharmacyId", Number.class));
+            return pharmacyId != null ? pharmacyId.longValue() : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     // Extract single claim from token
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
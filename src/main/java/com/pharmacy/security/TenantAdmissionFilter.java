@@ -0,0 +1,127 @@
+package com.pharmacy.security;
+
+import com.pharmacy.config.TenantBulkhead;
+import com.pharmacy.service.TenantAdmissionService;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Admits each request against its pharmacy's bulkhead (see TenantBulkhead). The pharmacy comes
+ * from TenantResolver; requests without one (admin, auth, customer profile) are not limited here.
+ *
+ * A pharmacy over its share gets 429 straight away, or after queue-timeout-ms in its queue.
+ *
+ * An async request (StreamingResponseBody exports, catalog streams) keeps its permit until the
+ * async part completes, not just until the initial dispatch returns. Server-sent event streams
+ * are the exception: a staff dashboard keeps its stream open for up to order-stream.timeout-ms
+ * while doing no work on the pharmacy's behalf, so it returns its permit once subscribed.
+ */
+@Component
+public class TenantAdmissionFilter extends OncePerRequestFilter {
+
+    private final TenantAdmissionService tenantAdmissionService;
+    private final TenantResolver tenantResolver;
+
+    @Value("${tenant-admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tenant-admission.queue-timeout-ms:200}")
+    private long queueTimeoutMs;
+
+    public TenantAdmissionFilter(TenantAdmissionService tenantAdmissionService, TenantResolver tenantResolver) {
+        this.tenantAdmissionService = tenantAdmissionService;
+        this.tenantResolver = tenantResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        Long pharmacyId = enabled ? tenantResolver.resolvePharmacyId(request) : null;
+        Optional<TenantBulkhead> bulkhead = pharmacyId != null
+                ? tenantAdmissionService.bulkheadFor(pharmacyId) : Optional.empty();
+        if (bulkhead.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean admitted;
+        try {
+            admitted = bulkhead.get().tryEnter(queueTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json");
+            response.getWriter().write(
+                    "{\"error\":\"Too many requests\",\"message\":\"This pharmacy has too many requests in progress. Please try again shortly.\",\"retryAfter\":1}"
+            );
+            return;
+        }
+
+        boolean async = false;
+        TenantBulkhead.bind(bulkhead.get());
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !isEventStream(response)) {
+                request.getAsyncContext().addListener(new ExitOnComplete(bulkhead.get()));
+                async = true;
+            }
+        } finally {
+            TenantBulkhead.bind(null);
+            if (!async) {
+                bulkhead.get().exit();
+            }
+        }
+    }
+
+    private boolean isEventStream(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    // onComplete follows a timeout or error as well, so it is the one place the permit is returned
+    private static final class ExitOnComplete implements AsyncListener {
+
+        private final TenantBulkhead bulkhead;
+
+        ExitOnComplete(TenantBulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            bulkhead.exit();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // A restarted async cycle drops its listeners; stay registered for the new one
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.pharmacy.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Works out which pharmacy a request is for, before authentication: the pharmacyId claim of a
+ * verified staff/owner token, else a storefront path (/api/public/pharmacies/{id}/...,
+ * /api/customer/cart/{id}). Null for requests without one (admin, auth, customer profile).
+ * The answer is kept on the request, so the filters that need it resolve it once.
+ */
+@Component
+public class TenantResolver {
+
+    private static final String PHARMACY_ID_ATTRIBUTE = TenantResolver.class.getName() + ".pharmacyId";
+    private static final Long NONE = -1L;
+
+    private static final Pattern PHARMACY_PATH =
+            Pattern.compile("^/api/(?:public/pharmacies|customer/cart)/(\\d+)(?:/|$)");
+
+    private final JwtService jwtService;
+
+    public TenantResolver(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    public Long resolvePharmacyId(HttpServletRequest request) {
+        Long pharmacyId = (Long) request.getAttribute(PHARMACY_ID_ATTRIBUTE);
+        if (pharmacyId == null) {
+            pharmacyId = resolve(request);
+            request.setAttribute(PHARMACY_ID_ATTRIBUTE, pharmacyId != null ? pharmacyId : NONE);
+        }
+        return NONE.equals(pharmacyId) ? null : pharmacyId;
+    }
+
+    private Long resolve(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            Long pharmacyId = jwtService.extractPharmacyId(authHeader.substring(7));
+            if (pharmacyId != null) {
+                return pharmacyId;
+            }
+        }
+
+        Matcher matcher = PHARMACY_PATH.matcher(request.getRequestURI());
+        if (matcher.find()) {
+            try {
+                return Long.valueOf(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,217 @@
+package com.pharmacy.security;
+
+import com.pharmacy.config.DbTimeTracker;
+import com.pharmacy.service.TenantAdmissionService;
+import com.pharmacy.service.TenantUsageService;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters every pharmacy request (pharmacy from TenantResolver) into TenantUsageService: route,
+ * status, response bytes, time spent holding DB connections and latency. Requests rejected by
+ * admission control are counted too, under the UNMATCHED route. Ids that are not a pharmacy are
+ * not metered, so made-up storefront URLs cannot add counters or tenant_usage rows.
+ *
+ * Async requests (StreamingResponseBody exports and catalog streams, the SSE order stream) are
+ * recorded when the async part completes, with the bytes and DB time of the async thread
+ * included. DB time is connection hold time; see DbTimeTracker for what that means under
+ * open-in-view.
+ *
+ * Bytes are counted before compression.
+ */
+@Component
+public class UsageMeteringFilter extends OncePerRequestFilter {
+
+    private static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    private final TenantUsageService tenantUsageService;
+    private final TenantResolver tenantResolver;
+    private final TenantAdmissionService tenantAdmissionService;
+
+    @Value("${usage-metering.enabled:true}")
+    private boolean enabled;
+
+    public UsageMeteringFilter(TenantUsageService tenantUsageService,
+                               TenantResolver tenantResolver,
+                               TenantAdmissionService tenantAdmissionService) {
+        this.tenantUsageService = tenantUsageService;
+        this.tenantResolver = tenantResolver;
+        this.tenantAdmissionService = tenantAdmissionService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        Long pharmacyId = enabled ? tenantResolver.resolvePharmacyId(request) : null;
+        if (pharmacyId == null || !tenantAdmissionService.exists(pharmacyId)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        CountingResponse countingResponse = new CountingResponse(response);
+        long start = System.nanoTime();
+        AtomicLong dbNanos = DbTimeTracker.start();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, countingResponse);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordOnComplete(pharmacyId, request, countingResponse, dbNanos, start));
+                async = true;
+            }
+        } finally {
+            DbTimeTracker.stop();
+            if (!async) {
+                record(pharmacyId, request, countingResponse, dbNanos, start);
+            }
+        }
+    }
+
+    private void record(Long pharmacyId, HttpServletRequest request, CountingResponse response,
+                        AtomicLong dbNanos, long start) {
+        tenantUsageService.record(pharmacyId, route(request), response.getStatus(),
+                response.bytes, dbNanos.get(), System.nanoTime() - start);
+    }
+
+    // The matched handler pattern, so /products/17 and /products/18 share a route
+    private String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? request.getMethod() + " " + pattern : UNMATCHED_ROUTE;
+    }
+
+    // onComplete follows a timeout or error as well, so the request is recorded exactly once
+    private final class RecordOnComplete implements AsyncListener {
+
+        private final Long pharmacyId;
+        private final HttpServletRequest request;
+        private final CountingResponse response;
+        private final AtomicLong dbNanos;
+        private final long start;
+
+        RecordOnComplete(Long pharmacyId, HttpServletRequest request, CountingResponse response,
+                         AtomicLong dbNanos, long start) {
+            this.pharmacyId = pharmacyId;
+            this.request = request;
+            this.response = response;
+            this.dbNanos = dbNanos;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(pharmacyId, request, response, dbNanos, start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // A restarted async cycle drops its listeners; stay registered for the new one
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    // Counts what passes through to the container's stream/writer; adds no buffering of its own.
+    // Written on the async thread for streamed bodies, read once the request completes.
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private volatile long bytes;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        // Counts characters, which matches bytes for the ASCII-heavy JSON this API writes
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new FilterWriter(super.getWriter()) {
+                    @Override
+                    public void write(int c) throws IOException {
+                        out.write(c);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        out.write(cbuf, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void write(String str, int off, int len) throws IOException {
+                        out.write(str, off, len);
+                        bytes += len;
+                    }
+                });
+            }
+            return writer;
+        }
+    }
+}
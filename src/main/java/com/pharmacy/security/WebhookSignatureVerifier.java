@@ -0,0 +1,52 @@
+package com.pharmacy.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Verifies the X-Iyzico-Signature header of incoming payment webhooks.
+ * The signature is the hex-encoded HMAC-SHA256 of the raw request body keyed with the merchant secret.
+ */
+@Component
+public class WebhookSignatureVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookSignatureVerifier.class);
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${payment.webhook.secret:}")
+    private String secret;
+
+    public boolean verify(String payload, String signature) {
+        if (secret == null || secret.isBlank()) {
+            log.error("Payment webhook secret is not configured, rejecting webhook");
+            return false;
+        }
+        if (payload == null || signature == null || signature.isBlank()) {
+            return false;
+        }
+
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = signature.trim().toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    // Hex HMAC-SHA256 of the body; the tests' FakePaymentProvider signs the same way on its own
+    public String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute webhook signature", e);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * A customer's cart at one pharmacy as held by the CartStore.
+ *
+ * Lines carry the product fields the cart view needs, so rendering never loads products, and
+ * the cart keeps running totals (in cents) that every line change adjusts by its delta.
+ * All state is guarded by the instance monitor; version counts quantity changes so a
+ * write-behind flush can tell whether the cart changed while it was being written.
+ *
+ * A cart the store has written back and dropped is retired: it is no longer the customer's cart,
+ * and callers that still hold it must fetch the current one from the store before mutating.
+ */
+public class ActiveCart {
+
+    private final Long customerId;
+    private final Long pharmacyId;
+    private final String pharmacyName;
+    private final Map<Long, CartLine> lines = new LinkedHashMap<>();
+
+    // Audit entries written together with the cart; they receive the persisted cart ID
+    private final List<LongConsumer> pendingAudit = new ArrayList<>();
+
+    // Serializes flushes of this cart without blocking readers and writers
+    private final Object flushLock = new Object();
+
+    private Long cartId;
+    private LocalDateTime updatedAt;
+    private long version;
+    private long flushedVersion;
+    private boolean retired;
+
+    // Running totals over all lines
+    private long subtotalCents;
+    private int totalQuantity;
+    private int unavailableCount;
+
+    // Told about every product that enters or leaves the cart (the store's reverse index)
+    private LineListener lineListener;
+
+    public ActiveCart(Long customerId, Long pharmacyId, String pharmacyName,
+                      Long cartId, List<CartLine> lines, LocalDateTime updatedAt) {
+        this.customerId = customerId;
+        this.pharmacyId = pharmacyId;
+        this.pharmacyName = pharmacyName;
+        this.cartId = cartId;
+        this.updatedAt = updatedAt;
+        for (CartLine line : lines) {
+            this.lines.put(line.getProductId(), line);
+            addTotals(line);
+        }
+    }
+
+    public Long getCustomerId() { return customerId; }
+    public Long getPharmacyId() { return pharmacyId; }
+    public String getPharmacyName() { return pharmacyName; }
+
+    public synchronized Long getCartId() { return cartId; }
+
+    public synchronized CartLine getLine(Long productId) {
+        return lines.get(productId);
+    }
+
+    public synchronized int getLineCount() {
+        return lines.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // Consistent copy of the lines and totals for rendering
+    public synchronized View view() {
+        return new View(cartId, updatedAt, new ArrayList<>(lines.values()),
+                subtotalCents, totalQuantity, unavailableCount);
+    }
+
+    // ==================== MUTATIONS ====================
+
+    public synchronized void put(Product product, int quantity) {
+        CartLine line = new CartLine(product, quantity);
+        CartLine previous = lines.put(line.getProductId(), line);
+        if (previous != null) {
+            subtractTotals(previous);
+        } else if (lineListener != null) {
+            lineListener.lineAdded(this, line.getProductId());
+        }
+        addTotals(line);
+        touch();
+    }
+
+    public synchronized CartLine remove(Long productId) {
+        CartLine removed = lines.remove(productId);
+        if (removed != null) {
+            subtractTotals(removed);
+            if (lineListener != null) {
+                lineListener.lineRemoved(this, productId);
+            }
+            touch();
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        if (!lines.isEmpty()) {
+            detachLines();
+            lines.clear();
+            subtotalCents = 0;
+            totalQuantity = 0;
+            unavailableCount = 0;
+            touch();
+        }
+    }
+
+    public synchronized void audit(LongConsumer entry) {
+        pendingAudit.add(entry);
+    }
+
+    // Price, name or status of a product in the cart changed; quantities (and so the flush) are unaffected
+    public synchronized boolean refreshProduct(CartLine template) {
+        CartLine current = lines.get(template.getProductId());
+        if (current == null) {
+            return false;
+        }
+        replace(current, template.withQuantity(current.getQuantity()));
+        return true;
+    }
+
+    public synchronized boolean refreshStock(Long productId, int stockQuantity, boolean active) {
+        CartLine current = lines.get(productId);
+        if (current == null) {
+            return false;
+        }
+        replace(current, current.withStock(stockQuantity, active));
+        return true;
+    }
+
+    private void replace(CartLine current, CartLine updated) {
+        lines.put(updated.getProductId(), updated);
+        subtractTotals(current);
+        addTotals(updated);
+    }
+
+    private void addTotals(CartLine line) {
+        subtotalCents += line.getTotalCents();
+        totalQuantity += line.getQuantity();
+        if (!line.isAvailable()) {
+            unavailableCount++;
+        }
+    }
+
+    private void subtractTotals(CartLine line) {
+        subtotalCents -= line.getTotalCents();
+        totalQuantity -= line.getQuantity();
+        if (!line.isAvailable()) {
+            unavailableCount--;
+        }
+    }
+
+    private void touch() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    // ==================== REVERSE INDEX ====================
+
+    public interface LineListener {
+        void lineAdded(ActiveCart cart, Long productId);
+        void lineRemoved(ActiveCart cart, Long productId);
+    }
+
+    // Registers the current lines with the listener and reports later changes to it
+    synchronized void attach(LineListener listener) {
+        this.lineListener = listener;
+        for (Long productId : lines.keySet()) {
+            listener.lineAdded(this, productId);
+        }
+    }
+
+    synchronized void detach() {
+        detachLines();
+        lineListener = null;
+    }
+
+    private void detachLines() {
+        if (lineListener != null) {
+            for (Long productId : lines.keySet()) {
+                lineListener.lineRemoved(this, productId);
+            }
+        }
+    }
+
+    // ==================== WRITE-BEHIND ====================
+
+    public synchronized boolean isDirty() {
+        return version != flushedVersion || !pendingAudit.isEmpty();
+    }
+
+    public synchronized boolean isRetired() {
+        return retired;
+    }
+
+    // Retires the cart once everything in it is written; false if changes are still pending
+    synchronized boolean retireIfClean() {
+        if (isDirty()) {
+            return false;
+        }
+        retire();
+        return true;
+    }
+
+    // Retires the cart regardless of pending changes (the persisted cart was changed directly)
+    synchronized void retire() {
+        retired = true;
+        detach();
+    }
+
+    Object getFlushLock() {
+        return flushLock;
+    }
+
+    // Current lines and drained audit entries, or null when there is nothing to write
+    synchronized Snapshot snapshot() {
+        if (!isDirty()) {
+            return null;
+        }
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartLine line : lines.values()) {
+            quantities.put(line.getProductId(), line.getQuantity());
+        }
+        List<LongConsumer> audit = new ArrayList<>(pendingAudit);
+        pendingAudit.clear();
+        return new Snapshot(version, quantities, audit);
+    }
+
+    synchronized void flushed(Snapshot snapshot, Long cartId) {
+        this.cartId = cartId;
+        flushedVersion = Math.max(flushedVersion, snapshot.version());
+    }
+
+    synchronized void flushFailed(Snapshot snapshot) {
+        pendingAudit.addAll(0, snapshot.audit());
+    }
+
+    record Snapshot(long version, Map<Long, Integer> quantities, List<LongConsumer> audit) {}
+
+    public record View(Long cartId, LocalDateTime updatedAt, List<CartLine> lines,
+                       long subtotalCents, int totalQuantity, int unavailableCount) {}
+
+    // ==================== LINES ====================
+
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // Immutable; replaced on every change to the line
+    public static class CartLine {
+        private final Long productId;
+        private final int quantity;
+        private final String name;
+        private final String slug;
+        private final String sku;
+        private final String imageUrl;
+        private final BigDecimal price;
+        private final BigDecimal discountedPrice;
+        private final long effectivePriceCents;
+        private final int stockQuantity;
+        private final boolean active;
+
+        public CartLine(Product product, int quantity) {
+            this(product.getId(), quantity, product.getName(), product.getSlug(), product.getSku(),
+                    product.getImageUrl(), product.getPrice(), product.getDiscountedPrice(),
+                    toCents(product.getEffectivePrice()), product.getStockQuantity(), product.isActive());
+        }
+
+        private CartLine(Long productId, int quantity, String name, String slug, String sku, String imageUrl,
+                         BigDecimal price, BigDecimal discountedPrice, long effectivePriceCents,
+                         int stockQuantity, boolean active) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.name = name;
+            this.slug = slug;
+            this.sku = sku;
+            this.imageUrl = imageUrl;
+            this.price = price;
+            this.discountedPrice = discountedPrice;
+            this.effectivePriceCents = effectivePriceCents;
+            this.stockQuantity = stockQuantity;
+            this.active = active;
+        }
+
+        CartLine withQuantity(int quantity) {
+            return new CartLine(productId, quantity, name, slug, sku, imageUrl,
+                    price, discountedPrice, effectivePriceCents, stockQuantity, active);
+        }
+
+        CartLine withStock(int stockQuantity, boolean active) {
+            return new CartLine(productId, quantity, name, slug, sku, imageUrl,
+                    price, discountedPrice, effectivePriceCents, stockQuantity, active);
+        }
+
+        public Long getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public String getName() { return name; }
+        public String getSlug() { return slug; }
+        public String getSku() { return sku; }
+        public String getImageUrl() { return imageUrl; }
+        public BigDecimal getPrice() { return price; }
+        public BigDecimal getDiscountedPrice() { return discountedPrice; }
+        public long getEffectivePriceCents() { return effectivePriceCents; }
+        public int getStockQuantity() { return stockQuantity; }
+        public boolean isActive() { return active; }
+
+        public long getTotalCents() {
+            return effectivePriceCents * quantity;
+        }
+
+        public boolean isInStock() {
+            return stockQuantity > 0;
+        }
+
+        public boolean isAvailable() {
+            return active && stockQuantity >= quantity;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.repository.*;
 import com.pharmacy.security.SecurityUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -23,22 +24,26 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true)
 public class AdminService {
 
     private final PharmacyRepository pharmacyRepository;
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
+    private final OrderArchiveJdbcRepository orderArchiveRepository;
     private final ProductRepository productRepository;
     private final SecurityUtils securityUtils;
 
     public AdminService(PharmacyRepository pharmacyRepository,
                         UserRepository userRepository,
                         OrderRepository orderRepository,
+                        OrderArchiveJdbcRepository orderArchiveRepository,
                         ProductRepository productRepository,
                         SecurityUtils securityUtils) {
         this.pharmacyRepository = pharmacyRepository;
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
+        this.orderArchiveRepository = orderArchiveRepository;
         this.productRepository = productRepository;
         this.securityUtils = securityUtils;
     }
@@ -79,8 +84,7 @@ public class AdminService {
             LocalDateTime startOfMonth = month.atDay(1).atStartOfDay();
             LocalDateTime endOfMonth = month.atEndOfMonth().atTime(23, 59, 59);
 
-            List<Order> orders = orderRepository.findByPharmacyIdAndCreatedAtBetween(
-                    pharmacyId, startOfMonth, endOfMonth);
+            List<Order> orders = findOrdersCreatedBetween(pharmacyId, startOfMonth, endOfMonth);
 
             long orderCount = orders.size();
             BigDecimal revenue = orders.stream()
@@ -124,8 +128,7 @@ public class AdminService {
         LocalDateTime startDate = getStartDate(range);
         LocalDateTime endDate = LocalDateTime.now();
 
-        List<Order> orders = orderRepository.findByPharmacyIdAndCreatedAtBetween(
-                pharmacyId, startDate, endDate);
+        List<Order> orders = findOrdersCreatedBetween(pharmacyId, startDate, endDate);
 
         // Basic stats
         long totalOrdersCount = orders.size();
@@ -222,6 +225,13 @@ public class AdminService {
         return response;
     }
 
+    // Live and archived orders; ranges newer than the archive cutoff find nothing archived
+    private List<Order> findOrdersCreatedBetween(Long pharmacyId, LocalDateTime start, LocalDateTime end) {
+        List<Order> orders = new ArrayList<>(orderRepository.findByPharmacyIdAndCreatedAtBetween(pharmacyId, start, end));
+        orders.addAll(orderArchiveRepository.findByPharmacyIdAndCreatedAtBetween(pharmacyId, start, end));
+        return orders;
+    }
+
     private LocalDateTime getStartDate(String range) {
         LocalDate today = LocalDate.now();
         switch (range.toLowerCase()) {
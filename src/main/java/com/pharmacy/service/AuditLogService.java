@@ -224,6 +224,14 @@ public class AuditLogService {
                 null, null, null, null);
     }
 
+    public AuditLog logProductBulkStockUpdate(Long pharmacyId, Long userId, String userEmail,
+                                              int updatedCount, int failedCount, String reason) {
+        return log(pharmacyId, userId, userEmail, "PRODUCT_BULK_STOCK_UPDATE", "PRODUCT", null,
+                null, updatedCount + " updated, " + failedCount + " failed",
+                "Bulk stock update (" + reason + ")",
+                null, null, null, null);
+    }
+
     public AuditLog logProductLowStock(Long pharmacyId, Long productId, String productName,
                                        Integer currentStock, Integer threshold) {
         return log(pharmacyId, null, null, "PRODUCT_LOW_STOCK", "PRODUCT", productId,
@@ -466,39 +474,48 @@ public class AuditLogService {
 
     // ==================== QUERY METHODS ====================
 
+    @Transactional(readOnly = true)
     public Page<AuditLog> findByPharmacy(Long pharmacyId, Pageable pageable) {
         return auditLogRepository.findByPharmacyId(pharmacyId, pageable);
     }
 
+    @Transactional(readOnly = true)
     public List<AuditLog> findByUser(Long userId) {
         return auditLogRepository.findByUserId(userId);
     }
 
+    @Transactional(readOnly = true)
     public List<AuditLog> findByActionType(String actionType) {
         return auditLogRepository.findByActionType(actionType);
     }
 
+    @Transactional(readOnly = true)
     public List<AuditLog> findByEntity(String entityType, Long entityId) {
         return auditLogRepository.findByEntityTypeAndEntityId(entityType, entityId);
     }
 
+    @Transactional(readOnly = true)
     public Page<AuditLog> findByPharmacyAndActionType(Long pharmacyId, String actionType, Pageable pageable) {
         return auditLogRepository.findByPharmacyIdAndActionType(pharmacyId, actionType, pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<AuditLog> findByPharmacyAndEntityType(Long pharmacyId, String entityType, Pageable pageable) {
         return auditLogRepository.findByPharmacyIdAndEntityType(pharmacyId, entityType, pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<AuditLog> findByPharmacyAndDateRange(Long pharmacyId, LocalDateTime startDate,
                                                      LocalDateTime endDate, Pageable pageable) {
         return auditLogRepository.findByPharmacyIdAndCreatedAtBetween(pharmacyId, startDate, endDate, pageable);
     }
 
+    @Transactional(readOnly = true)
     public List<AuditLog> findRecentLogs(Long pharmacyId) {
         return auditLogRepository.findTop50ByPharmacyIdOrderByCreatedAtDesc(pharmacyId);
     }
 
+    @Transactional(readOnly = true)
     public Page<AuditLog> findSystemLogs(Pageable pageable) {
         return auditLogRepository.findByPharmacyIdIsNull(pageable);
     }
@@ -3,6 +3,7 @@ package com.pharmacy.service;
 import com.pharmacy.dto.common.UserDto;
 import com.pharmacy.dto.request.*;
 import com.pharmacy.dto.response.AuthResponse;
+import com.pharmacy.entity.PasswordResetToken;
 import com.pharmacy.entity.User;
 import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.enums.UserRole;
@@ -11,6 +12,7 @@ import com.pharmacy.exception.BadRequestException;
 import com.pharmacy.exception.DuplicateResourceException;
 import com.pharmacy.exception.PasswordValidationException;
 import com.pharmacy.exception.ResourceNotFoundException;
+import com.pharmacy.repository.PasswordResetTokenRepository;
 import com.pharmacy.repository.UserRepository;
 import com.pharmacy.repository.PharmacyRepository;
 import com.pharmacy.security.JwtService;
@@ -18,16 +20,23 @@ import com.pharmacy.security.PasswordValidator;
 import com.pharmacy.security.TokenBlacklistService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -37,6 +46,9 @@ public class AuthService {
 
     private static final int MAX_FAILED_ATTEMPTS = 5;
     private static final int LOCK_DURATION_MINUTES = 30;
+    private static final int RESET_TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
 
     private final UserRepository userRepository;
     private final PharmacyRepository pharmacyRepository;
@@ -45,6 +57,11 @@ public class AuthService {
     private final JwtService jwtService;
     private final TokenBlacklistService tokenBlacklistService;
     private final AuditLogService auditLogService;
+    private final EmailService emailService;
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Value("${password-reset.ttl-minutes:30}")
+    private long resetTokenTtlMinutes;
 
     public AuthService(UserRepository userRepository,
                        PharmacyRepository pharmacyRepository,
@@ -52,7 +69,9 @@ public class AuthService {
                        PasswordValidator passwordValidator,
                        JwtService jwtService,
                        TokenBlacklistService tokenBlacklistService,
-                       AuditLogService auditLogService) {
+                       AuditLogService auditLogService,
+                       EmailService emailService,
+                       PasswordResetTokenRepository passwordResetTokenRepository) {
         this.userRepository = userRepository;
         this.pharmacyRepository = pharmacyRepository;
         this.passwordEncoder = passwordEncoder;
@@ -60,6 +79,8 @@ public class AuthService {
         this.jwtService = jwtService;
         this.tokenBlacklistService = tokenBlacklistService;
         this.auditLogService = auditLogService;
+        this.emailService = emailService;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
     }
 
     /**
@@ -381,7 +402,7 @@ public class AuthService {
     }
 
     /**
-     * Request password reset - generates reset token
+     * Request password reset - emails a single-use code valid for password-reset.ttl-minutes
      */
     public void requestPasswordReset(String email, String ipAddress) {
         log.info("Password reset request for email: {} from IP: {}", email, ipAddress);
@@ -395,17 +416,76 @@ public class AuthService {
         }
 
         User user = userOpt.get();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Only the latest code works
+        passwordResetTokenRepository.retireOutstanding(user.getId(), now);
+        byte[] random = new byte[RESET_TOKEN_BYTES];
+        secureRandom.nextBytes(random);
+        String resetToken = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        PasswordResetToken token = new PasswordResetToken();
+        token.setUser(user);
+        token.setTokenHash(hashResetToken(resetToken));
+        token.setExpiresAt(now.plusMinutes(resetTokenTtlMinutes));
+        token = passwordResetTokenRepository.save(token);
+
+        Long pharmacyId = user.getPharmacy() != null ? user.getPharmacy().getId() : null;
+        emailService.enqueue(pharmacyId, EmailTemplates.PASSWORD_RESET, "password-reset:" + token.getId(),
+                user.getEmail(), Map.of("firstName", user.getFirstName(), "resetToken", resetToken,
+                        "validMinutes", resetTokenTtlMinutes));
+        log.info("Password reset email queued for user: {}", email);
+
+        auditLogService.log(pharmacyId,
+                user.getId(), user.getEmail(), "PASSWORD_RESET_REQUESTED", "USER", user.getId(),
+                null, null, "Password reset requested from IP: " + ipAddress);
+    }
 
-        // Generate reset token (would normally send via email)
-        String resetToken = UUID.randomUUID().toString();
+    /**
+     * Reset password with an emailed code - the code is used up, and any other outstanding code retired
+     */
+    public void resetPassword(ResetPasswordRequest request, String ipAddress) {
+        if (!request.isPasswordMatch()) {
+            throw new BadRequestException("New password and confirmation do not match");
+        }
 
-        // TODO: Store reset token with expiration and send email
-        // For now, just log it
-        log.info("Password reset token generated for user: {} - Token: {}", email, resetToken);
+        LocalDateTime now = LocalDateTime.now();
+        PasswordResetToken token = passwordResetTokenRepository.findByTokenHashForUpdate(hashResetToken(request.getToken()))
+                .filter(t -> t.isUsable(now))
+                .orElseThrow(() -> new BadRequestException("Reset code is invalid or has expired", "INVALID_RESET_TOKEN"));
+        User user = token.getUser();
 
-        auditLogService.log(user.getPharmacy() != null ? user.getPharmacy().getId() : null,
-                user.getId(), user.getEmail(), "PASSWORD_RESET_REQUESTED", "USER", user.getId(),
-                null, null, "Password reset requested from IP: " + ipAddress);
+        // Validate new password
+        var result = passwordValidator.validate(request.getNewPassword());
+        if (!result.valid()) {
+            throw new PasswordValidationException(result.errors());
+        }
+        var userInfoResult = passwordValidator.validateAgainstUserInfo(
+                request.getNewPassword(), user.getEmail(), user.getFirstName(), user.getLastName());
+        if (!userInfoResult.valid()) {
+            throw new PasswordValidationException(userInfoResult.errors());
+        }
+
+        // Proving control of the mailbox also lifts a lockout from failed logins
+        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setFailedLoginAttempts(0);
+        user.setLockedUntil(null);
+        userRepository.save(user);
+
+        token.setUsedAt(now);
+        passwordResetTokenRepository.retireOutstanding(user.getId(), now);
+
+        auditLogService.logPasswordReset(user.getId(), user.getEmail(), user.getId(), user.getEmail());
+        log.info("Password reset with emailed code for user: {} from IP: {}", user.getEmail(), ipAddress);
+    }
+
+    // Nightly at 04:20; used and retired codes go once they would have expired anyway
+    @Scheduled(cron = "0 20 4 * * *")
+    public void purgeExpiredResetTokens() {
+        int deleted = passwordResetTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired password reset codes", deleted);
+        }
     }
 
     /**
@@ -420,6 +500,15 @@ public class AuthService {
 
     // ==================== PRIVATE HELPER METHODS ====================
 
+    private String hashResetToken(String resetToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(resetToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private void handleFailedLogin(User user, String ipAddress) {
         int attempts = user.getFailedLoginAttempts() + 1;
         user.setFailedLoginAttempts(attempts);
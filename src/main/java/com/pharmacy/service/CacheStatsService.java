@@ -0,0 +1,95 @@
+package com.pharmacy.service;
+
+import com.pharmacy.config.CacheRegions;
+import com.pharmacy.dto.response.CacheStatsResponse;
+import com.pharmacy.dto.response.CacheStatsResponse.RegionStats;
+import com.pharmacy.dto.response.MemoryStatsResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Hit/miss figures and manual eviction for the second-level cache regions.
+ * Figures are per node and reset on restart; they are only collected when
+ * hibernate.generate_statistics is enabled.
+ */
+@Service
+public class CacheStatsService {
+
+    private final SessionFactory sessionFactory;
+    private final Optional<OffHeapCatalogStore> offHeapCatalogStore;
+
+    public CacheStatsService(EntityManagerFactory entityManagerFactory,
+                             Optional<OffHeapCatalogStore> offHeapCatalogStore) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.offHeapCatalogStore = offHeapCatalogStore;
+    }
+
+    public CacheStatsResponse getStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<RegionStats> regions = new ArrayList<>();
+
+        for (String region : CacheRegions.ENTITY_REGIONS) {
+            regions.add(toRegionStats(region, statistics.getDomainDataRegionStatistics(region)));
+        }
+        regions.add(toRegionStats(CacheRegions.REFERENCE_QUERIES,
+                statistics.getQueryRegionStatistics(CacheRegions.REFERENCE_QUERIES)));
+
+        return new CacheStatsResponse(statistics.isStatisticsEnabled(), regions);
+    }
+
+    // Drops every cached entity and query result on this node, e.g. after a manual SQL fix
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    // Heap, direct memory and cumulative GC figures of this JVM, for comparing cache set-ups under load
+    public MemoryStatsResponse getMemoryStats() {
+        MemoryStatsResponse response = new MemoryStatsResponse();
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        response.setHeapUsedBytes(heap.getUsed());
+        response.setHeapCommittedBytes(heap.getCommitted());
+
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                response.setDirectBufferBytes(pool.getMemoryUsed());
+            }
+        }
+
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcTimeMs += Math.max(collector.getCollectionTime(), 0);
+        }
+        response.setGcCount(gcCount);
+        response.setGcTimeMs(gcTimeMs);
+
+        offHeapCatalogStore.ifPresent(store -> {
+            OffHeapCatalogStore.Stats stats = store.getStats();
+            response.setOffHeapCatalogEnabled(true);
+            response.setOffHeapCatalogPharmacies(stats.pharmacies());
+            response.setOffHeapCatalogProducts(stats.products());
+            response.setOffHeapCatalogBytes(stats.bytes());
+        });
+        return response;
+    }
+
+    private RegionStats toRegionStats(String region, CacheRegionStatistics stats) {
+        if (stats == null) {
+            return new RegionStats(region, 0, 0, 0);
+        }
+        return new RegionStats(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+    }
+}
@@ -0,0 +1,145 @@
+package com.pharmacy.service;
+
+import com.pharmacy.config.ReplicaRoutingDataSource;
+import com.pharmacy.entity.Cart;
+import com.pharmacy.entity.CartItem;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.repository.CartRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import com.pharmacy.repository.ProductRepository;
+import com.pharmacy.repository.UserRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Moves carts between carts/cart_items and the CartStore: loads a cart with its items and
+ * products in one query, and writes an ActiveCart back by diffing it against the stored items.
+ * Only carts with items are stored; CartReaper removes the ones left idle.
+ */
+@Component
+public class CartPersister {
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final PharmacyRepository pharmacyRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate requiresNew;
+    private final TransactionTemplate readOnly;
+
+    public CartPersister(CartRepository cartRepository,
+                         UserRepository userRepository,
+                         PharmacyRepository pharmacyRepository,
+                         ProductRepository productRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.pharmacyRepository = pharmacyRepository;
+        this.productRepository = productRepository;
+        // REQUIRES_NEW: flushes also run from the scheduler and from cache eviction
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+        // Never from a replica: a cart evicted moments ago must come back with its last flush
+        this.readOnly.setName(ReplicaRoutingDataSource.PRIMARY_READ_ONLY);
+    }
+
+    // A missing cart becomes an empty ActiveCart; it is only inserted once something is added
+    public ActiveCart load(Long customerId, Long pharmacyId) {
+        return readOnly.execute(status -> {
+            String pharmacyName = pharmacyRepository.findById(pharmacyId)
+                    .map(Pharmacy::getName)
+                    .orElse(null);
+
+            return cartRepository.findWithItems(customerId, pharmacyId)
+                    .map(cart -> new ActiveCart(customerId, pharmacyId, pharmacyName, cart.getId(),
+                            cart.getItems().stream()
+                                    .map(item -> new ActiveCart.CartLine(item.getProduct(), item.getQuantity()))
+                                    .toList(),
+                            cart.getUpdatedAt()))
+                    .orElseGet(() -> new ActiveCart(customerId, pharmacyId, pharmacyName, null, List.of(), null));
+        });
+    }
+
+    // Throws if the write fails; the cart then stays dirty for the next attempt
+    public void flush(ActiveCart activeCart) {
+        synchronized (activeCart.getFlushLock()) {
+            ActiveCart.Snapshot snapshot = activeCart.snapshot();
+            if (snapshot == null) {
+                return;
+            }
+            try {
+                Long cartId = requiresNew.execute(status -> write(activeCart, snapshot));
+                activeCart.flushed(snapshot, cartId);
+            } catch (RuntimeException e) {
+                // Lines stay dirty and the audit entries are re-queued for the next attempt
+                activeCart.flushFailed(snapshot);
+                throw e;
+            }
+        }
+    }
+
+    private Long write(ActiveCart activeCart, ActiveCart.Snapshot snapshot) {
+        // Locked so CartReaper skips the cart from here on; one it is deleting right now comes back
+        // empty once that commits and is recreated below instead of failing the item insert
+        Cart cart = cartRepository.findByCustomerIdAndPharmacyIdForUpdate(activeCart.getCustomerId(), activeCart.getPharmacyId())
+                .orElse(null);
+
+        if (cart == null && !snapshot.quantities().isEmpty()) {
+            cart = new Cart();
+            cart.setCustomer(userRepository.getReferenceById(activeCart.getCustomerId()));
+            cart.setPharmacy(pharmacyRepository.getReferenceById(activeCart.getPharmacyId()));
+            cart = cartRepository.save(cart);
+        }
+
+        Long cartId = cart != null ? cart.getId() : null;
+
+        if (cart != null && snapshot.quantities().isEmpty()) {
+            // Emptied carts are deleted rather than kept as empty rows
+            cartRepository.delete(cart);
+        } else if (cart != null) {
+            syncItems(cart, snapshot.quantities());
+            // Item changes alone would not move the cart's updated_at
+            cart.setUpdatedAt(LocalDateTime.now());
+        }
+
+        // Audit entries still get the ID of a cart deleted above
+        for (LongConsumer entry : snapshot.audit()) {
+            entry.accept(cartId);
+        }
+        return snapshot.quantities().isEmpty() ? null : cartId;
+    }
+
+    private void syncItems(Cart cart, Map<Long, Integer> quantities) {
+        Map<Long, Integer> remaining = new HashMap<>(quantities);
+
+        Iterator<CartItem> items = cart.getItems().iterator();
+        while (items.hasNext()) {
+            CartItem item = items.next();
+            Integer quantity = remaining.remove(item.getProduct().getId());
+            if (quantity == null) {
+                items.remove();
+                item.setCart(null);
+            } else if (!quantity.equals(item.getQuantity())) {
+                item.setQuantity(quantity);
+            }
+        }
+
+        remaining.forEach((productId, quantity) -> {
+            CartItem item = new CartItem();
+            item.setProduct(productRepository.getReferenceById(productId));
+            item.setQuantity(quantity);
+            cart.addItem(item);
+        });
+    }
+}
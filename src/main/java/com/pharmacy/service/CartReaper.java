@@ -0,0 +1,95 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.response.CartStatsResponse;
+import com.pharmacy.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes carts nobody has changed for cart-reaper.ttl-days, batch-size carts per transaction and
+ * at most max-batches per run. Batches are locked with FOR UPDATE SKIP LOCKED, so a cart being
+ * written by CartPersister is left alone and nodes running the reaper together split the work.
+ * CartPersister locks the cart too, so a flush that reaches a cart mid-reap waits and recreates it.
+ *
+ * A cart reaped while a node still holds it unchanged is written again on its next change;
+ * checkout finds it gone and drops the cached copy.
+ */
+@Component
+public class CartReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(CartReaper.class);
+
+    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${cart-reaper.ttl-days:30}")
+    private int ttlDays;
+
+    @Value("${cart-reaper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${cart-reaper.max-batches:100}")
+    private int maxBatches;
+
+    public CartReaper(CartRepository cartRepository,
+                      CartStore cartStore,
+                      PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${cart-reaper.interval-ms:3600000}")
+    public void reap() {
+        LocalDateTime cutoff = abandonedBefore();
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                Integer deleted = requiresNew.execute(status -> deleteBatch(cutoff));
+                total += deleted;
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Cart reaper failed after deleting {} carts", total, e);
+        }
+        if (total > 0) {
+            log.info("Reaped {} carts idle since before {}", total, cutoff);
+        }
+    }
+
+    public CartStatsResponse getStats() {
+        LocalDateTime cutoff = abandonedBefore();
+        CartStatsResponse response = new CartStatsResponse();
+        response.setActiveCarts(cartRepository.countByUpdatedAtGreaterThanEqual(cutoff));
+        response.setAbandonedCarts(cartRepository.countByUpdatedAtBefore(cutoff));
+        response.setCachedCarts(cartStore.size());
+        response.setTtlDays(ttlDays);
+        return response;
+    }
+
+    private int deleteBatch(LocalDateTime cutoff) {
+        List<Long> cartIds = cartRepository.lockIdleBatch(cutoff, batchSize);
+        if (cartIds.isEmpty()) {
+            return 0;
+        }
+        cartRepository.deleteItemsByCartIdIn(cartIds);
+        return cartRepository.deleteByIdIn(cartIds);
+    }
+
+    private LocalDateTime abandonedBefore() {
+        return LocalDateTime.now().minusDays(ttlDays);
+    }
+}
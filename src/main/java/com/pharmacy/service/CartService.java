@@ -3,19 +3,20 @@ package com.pharmacy.service;
 import com.pharmacy.entity.Cart;
 import com.pharmacy.entity.CartItem;
 import com.pharmacy.entity.Product;
-import com.pharmacy.entity.User;
-import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.BusinessException;
 import com.pharmacy.repository.CartRepository;
 import com.pharmacy.repository.CartItemRepository;
-import com.pharmacy.repository.ProductRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Service
 @Transactional
@@ -23,118 +24,127 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    private final ProductRepository productRepository;
+    private final CartStore cartStore;
 
     public CartService(CartRepository cartRepository,
                        CartItemRepository cartItemRepository,
-                       ProductRepository productRepository) {
+                       CartStore cartStore) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
-        this.productRepository = productRepository;
+        this.cartStore = cartStore;
     }
 
-    public Cart getOrCreateCart(User customer, Pharmacy pharmacy) {
-        return cartRepository.findByCustomerIdAndPharmacyId(customer.getId(), pharmacy.getId())
-                .orElseGet(() -> {
-                    Cart cart = new Cart();
-                    cart.setCustomer(customer);
-                    cart.setPharmacy(pharmacy);
-                    return cartRepository.save(cart);
-                });
-    }
+    // ==================== ACTIVE CART (CartStore) ====================
+    // These run without a transaction: they only touch the store, which persists write-behind.
 
-    public Optional<Cart> getCart(Long customerId, Long pharmacyId) {
-        return cartRepository.findByCustomerIdAndPharmacyId(customerId, pharmacyId);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ActiveCart getActiveCart(Long customerId, Long pharmacyId) {
+        return cartStore.get(customerId, pharmacyId);
     }
 
-    public Cart getById(Long cartId) {
-        return cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", cartId));
-    }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ActiveCart addItem(Long customerId, Long pharmacyId, Product product, int quantity, LongConsumer audit) {
+        validateAvailable(product);
 
-    public CartItem addToCart(Cart cart, Product product, Integer quantity) {
-        // Validate product is active
-        if (!product.isActive()) {
-            throw new BusinessException("Product is not available: " + product.getName(), "PRODUCT_UNAVAILABLE");
-        }
+        return mutate(customerId, pharmacyId, cart -> {
+            ActiveCart.CartLine existing = cart.getLine(product.getId());
+            int newQuantity = existing != null ? existing.getQuantity() + quantity : quantity;
+
+            if (product.getStockQuantity() < newQuantity) {
+                throw BusinessException.insufficientStock(product.getName(), product.getStockQuantity());
+            }
+
+            cart.put(product, newQuantity);
+            cart.audit(audit);
+        });
+    }
 
-        // Validate stock
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ActiveCart updateQuantity(Long customerId, Long pharmacyId, Product product, int quantity, LongConsumer audit) {
         if (product.getStockQuantity() < quantity) {
             throw BusinessException.insufficientStock(product.getName(), product.getStockQuantity());
         }
+        return mutate(customerId, pharmacyId, cart -> {
+            cart.put(product, quantity);
+            cart.audit(audit);
+        });
+    }
 
-        // Check if product already in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId());
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ActiveCart removeItem(Long customerId, Long pharmacyId, Long productId, LongConsumer audit) {
+        return mutate(customerId, pharmacyId, cart -> {
+            if (cart.remove(productId) == null) {
+                throw new ResourceNotFoundException("CartItem", productId);
+            }
+            cart.audit(audit);
+        });
+    }
 
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            int newQuantity = item.getQuantity() + quantity;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ActiveCart clearActiveCart(Long customerId, Long pharmacyId, LongConsumer audit) {
+        return mutate(customerId, pharmacyId, cart -> {
+            cart.clear();
+            cart.audit(audit);
+        });
+    }
 
-            if (product.getStockQuantity() < newQuantity) {
-                throw BusinessException.insufficientStock(product.getName(), product.getStockQuantity());
+    // Applies the change to the store's current cart under its monitor. A cart retired after it was
+    // fetched (written back and dropped by the store) is stale, so the change moves to a fresh copy.
+    private ActiveCart mutate(Long customerId, Long pharmacyId, Consumer<ActiveCart> change) {
+        while (true) {
+            ActiveCart cart = cartStore.get(customerId, pharmacyId);
+            synchronized (cart) {
+                if (!cart.isRetired()) {
+                    change.accept(cart);
+                    return cart;
+                }
             }
-
-            item.setQuantity(newQuantity);
-            return cartItemRepository.save(item);
-        } else {
-            CartItem item = new CartItem();
-            item.setCart(cart);
-            item.setProduct(product);
-            item.setQuantity(quantity);
-            cart.addItem(item);
-            return cartItemRepository.save(item);
         }
     }
 
-    public CartItem updateQuantity(Long cartItemId, Integer quantity) {
-        CartItem item = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", cartItemId));
-
-        if (quantity <= 0) {
-            // Miktar 0 veya negatifse sil
-            Cart cart = item.getCart();
-            cart.removeItem(item);
-            cartRepository.save(cart);
-            return null;
+    // Checkout and validation work on the persisted cart, so pending changes are written first.
+    // A failed write propagates: checking out the older persisted cart would drop the customer's changes.
+    public Optional<Cart> getCartForCheckout(Long customerId, Long pharmacyId) {
+        cartStore.flush(customerId, pharmacyId);
+        Optional<Cart> cart = cartRepository.findByCustomerIdAndPharmacyId(customerId, pharmacyId);
+        if (cart.isEmpty()) {
+            // Reaped while this node still held it unchanged; the next read starts from the empty cart
+            cartStore.evict(customerId, pharmacyId);
         }
+        return cart;
+    }
 
-        if (item.getProduct().getStockQuantity() < quantity) {
-            throw BusinessException.insufficientStock(item.getProduct().getName(), item.getProduct().getStockQuantity());
-        }
+    // Called wherever a product's price, status or stock is written; cached carts follow after commit
+    public void productChanged(Product product) {
+        ActiveCart.CartLine template = new ActiveCart.CartLine(product, 0);
+        afterCommit(() -> cartStore.productChanged(template));
+    }
 
-        item.setQuantity(quantity);
-        return cartItemRepository.save(item);
+    // Stock-only variant for the JDBC bulk path, which has no Product entity
+    public void stockChanged(Long productId, int stockQuantity, boolean active) {
+        afterCommit(() -> cartStore.stockChanged(productId, stockQuantity, active));
     }
 
-    public void removeFromCart(Long cartItemId) {
-        CartItem item = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", cartItemId));
+    // ==================== PERSISTED CART ====================
 
-        // delete item from cart
-        Cart cart = item.getCart();
-        cart.removeItem(item);
-        cartRepository.save(cart);
+    public Optional<Cart> getCart(Long customerId, Long pharmacyId) {
+        return cartRepository.findByCustomerIdAndPharmacyId(customerId, pharmacyId);
     }
 
-    public void removeProductFromCart(Long cartId, Long productId) {
-        Cart cart = getById(cartId);
-        CartItem item = cartItemRepository.findByCartIdAndProductId(cartId, productId)
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", "productId", productId.toString()));
-        cart.removeItem(item);
-        cartRepository.save(cart);
+    public Cart getById(Long cartId) {
+        return cartRepository.findById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", cartId));
     }
 
+    // After checkout: the cart row goes with its items, empty carts are not kept
     public void clearCart(Long cartId) {
         Cart cart = getById(cartId);
-        cart.clear();
-        cartRepository.save(cart);
-    }
+        cartRepository.delete(cart);
 
-    public BigDecimal getCartSubtotal(Long cartId) {
-        Cart cart = getById(cartId);
-        return cart.getItems().stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // The store's copy still has the old lines; reload it once this commits
+        Long customerId = cart.getCustomer().getId();
+        Long pharmacyId = cart.getPharmacy().getId();
+        afterCommit(() -> cartStore.evict(customerId, pharmacyId));
     }
 
     public int getCartItemCount(Long cartId) {
@@ -160,4 +170,23 @@ public class CartService {
                 .filter(item -> !item.isAvailable())
                 .toList();
     }
-}
\ No newline at end of file
+
+    private void validateAvailable(Product product) {
+        if (!product.isActive()) {
+            throw new BusinessException("Product is not available: " + product.getName(), "PRODUCT_UNAVAILABLE");
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.pharmacy.service;
+
+/**
+ * Holds the active carts behind CartController. Carts are mutated in the store and reach
+ * carts/cart_items through CartPersister (write-behind), not on the request thread.
+ *
+ * InMemoryCartStore keeps them on the local node; a shared implementation can replace it
+ * when cart requests are not routed to the same node.
+ */
+public interface CartStore {
+
+    // Loads the persisted cart (or an empty, unsaved one) on a miss
+    ActiveCart get(Long customerId, Long pharmacyId);
+
+    // Writes pending changes now; used before checkout reads the persisted cart
+    void flush(Long customerId, Long pharmacyId);
+
+    // Drops the cached copy without writing it (the persisted cart was changed directly)
+    void evict(Long customerId, Long pharmacyId);
+
+    // Applies a product's new price/status (template line, quantity ignored) to every cart holding it
+    void productChanged(ActiveCart.CartLine template);
+
+    // Applies a product's new stock to every cart holding it
+    void stockChanged(Long productId, int stockQuantity, boolean active);
+
+    // Carts currently held (by this node, for a node-local store)
+    long size();
+}
@@ -0,0 +1,565 @@
+package com.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacy.config.ReplicaRoutingDataSource;
+import com.pharmacy.entity.Category;
+import com.pharmacy.entity.Product;
+import com.pharmacy.repository.CategoryRepository;
+import com.pharmacy.repository.ProductRepository;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory faceted filtering over each pharmacy's active products.
+ *
+ * Products get dense per-pharmacy ordinals and every facet value (category, brand, price band,
+ * in stock, on discount, featured) is a RoaringBitmap over them. A query intersects the selected
+ * values; each facet is counted against the other facets' selections, so the counts show what
+ * picking another value would return. A category's count covers its whole subtree, like the
+ * category filter. An index is built from one query on first use, kept current by product changes
+ * after commit, and dropped every facet-index.refresh-interval-ms so changes made on other nodes
+ * are picked up.
+ *
+ * Each index has its own version: a random build ID plus the number of changes applied since.
+ * Indexes on different nodes (or before and after a refresh) can differ for the same catalog
+ * version, so responses must be tagged with the index version, not just the catalog ETag.
+ *
+ * Builds run outside the cache's compute, one at a time per pharmacy; changes that commit while
+ * a build is running are queued and applied to the new index before it is published.
+ */
+@Service
+public class CatalogFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogFacetIndex.class);
+
+    // Lower bounds of the price bands in cents (effective price); the last band is open-ended
+    private static final long[] PRICE_BANDS = { 0, 5_000, 10_000, 25_000, 50_000, 100_000 };
+    private static final List<String> PRICE_BAND_KEYS = priceBandKeys();
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate readOnly;
+    private final Cache<Long, PharmacyFacets> indexes;
+    private final Map<Long, Build> building = new ConcurrentHashMap<>();
+
+    private volatile CategoryInfo categories;
+
+    public CatalogFacetIndex(ProductRepository productRepository,
+                             CategoryRepository categoryRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${facet-index.max-pharmacies:1000}") long maxPharmacies) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+        // Builds read the primary: change events that arrived before the build are not replayed
+        this.readOnly.setName(ReplicaRoutingDataSource.PRIMARY_READ_ONLY);
+        this.indexes = Caffeine.newBuilder().maximumSize(maxPharmacies).build();
+    }
+
+    public static List<String> getPriceBandKeys() {
+        return PRICE_BAND_KEYS;
+    }
+
+    // ==================== QUERY ====================
+
+    // Product IDs of the requested page (newest first) plus facet counts
+    public FacetResult search(Long pharmacyId, FacetQuery query, int page, int size) {
+        PharmacyFacets facets = facets(pharmacyId);
+        CategoryInfo categoryInfo = categoryInfo();
+
+        ReentrantReadWriteLock.ReadLock lock = facets.lock.readLock();
+        lock.lock();
+        try {
+            RoaringBitmap category = query.categoryId() != null
+                    ? union(categoryInfo.subtree(query.categoryId()).stream().map(facets.byCategory::get).toList())
+                    : null;
+            RoaringBitmap brand = !query.brands().isEmpty()
+                    ? union(query.brands().stream().map(b -> facets.byBrand.get(normalizeBrand(b))).toList())
+                    : null;
+            RoaringBitmap price = !query.priceBands().isEmpty()
+                    ? union(query.priceBands().stream().map(key -> facets.byPriceBand.get(key)).toList())
+                    : null;
+            RoaringBitmap inStock = query.inStock() ? facets.inStock : null;
+            RoaringBitmap onDiscount = query.onDiscount() ? facets.onDiscount : null;
+            RoaringBitmap featured = query.featured() ? facets.featured : null;
+
+            RoaringBitmap matches = intersect(facets.live, category, brand, price, inStock, onDiscount, featured);
+
+            FacetResult result = new FacetResult();
+            result.indexVersion = facets.version();
+            result.total = matches.getLongCardinality();
+            result.productIds = page(facets, matches, page, size);
+
+            // A product has one category, so a subtree's count is the sum of its categories' own counts
+            RoaringBitmap withoutCategory = intersect(facets.live, brand, price, inStock, onDiscount, featured);
+            Map<Long, Long> subtreeCounts = new HashMap<>();
+            facets.byCategory.forEach((categoryId, bitmap) -> {
+                int count = RoaringBitmap.andCardinality(withoutCategory, bitmap);
+                if (count > 0) {
+                    for (Long id : categoryInfo.pathToRoot(categoryId)) {
+                        subtreeCounts.merge(id, (long) count, Long::sum);
+                    }
+                }
+            });
+            subtreeCounts.forEach((categoryId, count) ->
+                    result.categories.add(new FacetCount(categoryId.toString(), categoryInfo.name(categoryId), count)));
+
+            RoaringBitmap withoutBrand = intersect(facets.live, category, price, inStock, onDiscount, featured);
+            facets.byBrand.forEach((key, bitmap) -> {
+                int count = RoaringBitmap.andCardinality(withoutBrand, bitmap);
+                if (count > 0) {
+                    result.brands.add(new FacetCount(key, facets.brandLabels.get(key), count));
+                }
+            });
+
+            RoaringBitmap withoutPrice = intersect(facets.live, category, brand, inStock, onDiscount, featured);
+            for (String key : PRICE_BAND_KEYS) {
+                RoaringBitmap bitmap = facets.byPriceBand.get(key);
+                int count = bitmap != null ? RoaringBitmap.andCardinality(withoutPrice, bitmap) : 0;
+                result.priceBands.add(new FacetCount(key, key, count));
+            }
+
+            result.inStockCount = RoaringBitmap.andCardinality(
+                    intersect(facets.live, category, brand, price, onDiscount, featured), facets.inStock);
+            result.onDiscountCount = RoaringBitmap.andCardinality(
+                    intersect(facets.live, category, brand, price, inStock, featured), facets.onDiscount);
+            result.featuredCount = RoaringBitmap.andCardinality(
+                    intersect(facets.live, category, brand, price, inStock, onDiscount), facets.featured);
+
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Long> page(PharmacyFacets facets, RoaringBitmap matches, int page, int size) {
+        List<Long> ids = new ArrayList<>(size);
+        long skip = (long) page * size;
+        IntIterator ordinals = matches.getReverseIntIterator();
+        while (ordinals.hasNext() && ids.size() < size) {
+            int ordinal = ordinals.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            ids.add(facets.productIds[ordinal]);
+        }
+        return ids;
+    }
+
+    // ==================== CHANGE NOTIFICATIONS ====================
+
+    // Called wherever a product's category, brand, price, stock, flags or status are written
+    public void productChanged(Product product) {
+        FacetEntry entry = FacetEntry.of(product);
+        Long pharmacyId = product.getPharmacy().getId();
+        afterCommit(() -> apply(pharmacyId, facets -> facets.put(entry)));
+    }
+
+    // Stock-only variant for the JDBC bulk path
+    public void stockChanged(Long pharmacyId, Long productId, int stockQuantity) {
+        afterCommit(() -> apply(pharmacyId, facets -> facets.setStock(productId, stockQuantity)));
+    }
+
+    // A build in progress may have read the product before this change committed, so it gets the
+    // change too. A build that starts later reads the committed row.
+    private void apply(Long pharmacyId, Consumer<PharmacyFacets> change) {
+        Build pending = building.get(pharmacyId);
+        if (pending != null) {
+            synchronized (pending) {
+                if (!pending.published) {
+                    pending.changes.add(change);
+                    return;
+                }
+            }
+        }
+        PharmacyFacets facets = indexes.getIfPresent(pharmacyId);
+        if (facets != null) {
+            facets.write(() -> change.accept(facets));
+        }
+    }
+
+    // Called by CatalogVersionService; the subtree map is rebuilt on next use
+    public void categoriesChanged() {
+        afterCommit(() -> categories = null);
+    }
+
+    @Scheduled(fixedDelayString = "${facet-index.refresh-interval-ms:600000}",
+            initialDelayString = "${facet-index.refresh-interval-ms:600000}")
+    public void refresh() {
+        indexes.invalidateAll();
+        categories = null;
+    }
+
+    // ==================== BUILD ====================
+
+    private PharmacyFacets facets(Long pharmacyId) {
+        PharmacyFacets facets = indexes.getIfPresent(pharmacyId);
+        return facets != null ? facets : buildOnce(pharmacyId);
+    }
+
+    // Runs the build unless one for the same pharmacy is already in progress, in which case its
+    // result is shared. The query runs outside the cache, so readers of other pharmacies never wait on it.
+    private PharmacyFacets buildOnce(Long pharmacyId) {
+        Build mine = new Build();
+        Build running = building.putIfAbsent(pharmacyId, mine);
+        if (running != null) {
+            try {
+                return running.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            PharmacyFacets facets = build(pharmacyId);
+            synchronized (mine) {
+                for (Consumer<PharmacyFacets> change : mine.changes) {
+                    facets.write(() -> change.accept(facets));
+                }
+                indexes.put(pharmacyId, facets);
+                mine.published = true;
+            }
+            mine.result.complete(facets);
+            return facets;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(pharmacyId, mine);
+        }
+    }
+
+    private PharmacyFacets build(Long pharmacyId) {
+        List<Object[]> rows = readOnly.execute(status -> productRepository.findFacetRows(pharmacyId));
+        PharmacyFacets facets = new PharmacyFacets();
+        for (Object[] row : rows) {
+            facets.put(FacetEntry.of(row));
+        }
+        log.debug("Built facet index for pharmacy {}: {} products", pharmacyId, rows.size());
+        return facets;
+    }
+
+    private CategoryInfo categoryInfo() {
+        CategoryInfo info = categories;
+        if (info == null) {
+            info = readOnly.execute(status -> new CategoryInfo(categoryRepository.findByActiveTrue()));
+            categories = info;
+        }
+        return info;
+    }
+
+    private static RoaringBitmap intersect(RoaringBitmap base, RoaringBitmap... filters) {
+        RoaringBitmap result = base.clone();
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    // A selection that matches no facet value yields an empty bitmap, not "no filter"
+    private static RoaringBitmap union(Collection<RoaringBitmap> bitmaps) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (RoaringBitmap bitmap : bitmaps) {
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private static String normalizeBrand(String brand) {
+        return brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String priceBandOf(long cents) {
+        int band = 0;
+        while (band + 1 < PRICE_BANDS.length && cents >= PRICE_BANDS[band + 1]) {
+            band++;
+        }
+        return PRICE_BAND_KEYS.get(band);
+    }
+
+    private static List<String> priceBandKeys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < PRICE_BANDS.length; i++) {
+            long lower = PRICE_BANDS[i] / 100;
+            keys.add(i + 1 < PRICE_BANDS.length ? lower + "-" + PRICE_BANDS[i + 1] / 100 : lower + "+");
+        }
+        return List.copyOf(keys);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ==================== TYPES ====================
+
+    public record FacetQuery(Long categoryId, Set<String> brands, Set<String> priceBands,
+                             boolean inStock, boolean onDiscount, boolean featured) {}
+
+    public record FacetCount(String value, String label, long count) {}
+
+    public static class FacetResult {
+        private String indexVersion;
+        private long total;
+        private List<Long> productIds;
+        private final List<FacetCount> categories = new ArrayList<>();
+        private final List<FacetCount> brands = new ArrayList<>();
+        private final List<FacetCount> priceBands = new ArrayList<>();
+        private long inStockCount;
+        private long onDiscountCount;
+        private long featuredCount;
+
+        public String getIndexVersion() { return indexVersion; }
+        public long getTotal() { return total; }
+        public List<Long> getProductIds() { return productIds; }
+        public List<FacetCount> getCategories() { return categories; }
+        public List<FacetCount> getBrands() { return brands; }
+        public List<FacetCount> getPriceBands() { return priceBands; }
+        public long getInStockCount() { return inStockCount; }
+        public long getOnDiscountCount() { return onDiscountCount; }
+        public long getFeaturedCount() { return featuredCount; }
+    }
+
+    private record FacetEntry(Long productId, Long categoryId, String brandKey, String brandLabel,
+                              String priceBand, boolean onDiscount, int stockQuantity,
+                              boolean featured, boolean active) {
+
+        static FacetEntry of(Product product) {
+            return new FacetEntry(product.getId(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    brandKeyOrNull(product.getBrand()), product.getBrand(),
+                    priceBandOf(ActiveCart.toCents(product.getEffectivePrice())), product.hasDiscount(),
+                    product.getStockQuantity(), product.isFeatured(), product.isActive());
+        }
+
+        // Row of ProductRepository.findFacetRows (active products only)
+        static FacetEntry of(Object[] row) {
+            BigDecimal price = (BigDecimal) row[3];
+            BigDecimal discountedPrice = (BigDecimal) row[4];
+            boolean onDiscount = discountedPrice != null && discountedPrice.compareTo(price) < 0;
+            String brand = (String) row[2];
+            return new FacetEntry((Long) row[0], (Long) row[1], brandKeyOrNull(brand), brand,
+                    priceBandOf(ActiveCart.toCents(onDiscount ? discountedPrice : price)), onDiscount,
+                    (Integer) row[5], (Boolean) row[6], true);
+        }
+
+        FacetEntry withStock(int stockQuantity) {
+            return new FacetEntry(productId, categoryId, brandKey, brandLabel, priceBand,
+                    onDiscount, stockQuantity, featured, active);
+        }
+
+        private static String brandKeyOrNull(String brand) {
+            return brand != null && !brand.isBlank() ? normalizeBrand(brand) : null;
+        }
+    }
+
+    // An index build in progress; guarded by its own monitor
+    private static class Build {
+        final CompletableFuture<PharmacyFacets> result = new CompletableFuture<>();
+        final List<Consumer<PharmacyFacets>> changes = new ArrayList<>();
+        boolean published;
+    }
+
+    private static class PharmacyFacets {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Random, so indexes built on different nodes or at different times never share a version
+        final long buildId = ThreadLocalRandom.current().nextLong() >>> 1;
+        long changes;
+        final Map<Long, Integer> ordinals = new HashMap<>();
+        long[] productIds = new long[64];
+        FacetEntry[] entries = new FacetEntry[64];
+        int size;
+
+        final RoaringBitmap live = new RoaringBitmap();
+        final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+        final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+        final Map<String, String> brandLabels = new HashMap<>();
+        final Map<String, RoaringBitmap> byPriceBand = new HashMap<>();
+        final RoaringBitmap inStock = new RoaringBitmap();
+        final RoaringBitmap onDiscount = new RoaringBitmap();
+        final RoaringBitmap featured = new RoaringBitmap();
+
+        void write(Runnable change) {
+            lock.writeLock().lock();
+            try {
+                change.run();
+                changes++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Read under the read lock
+        String version() {
+            return Long.toString(buildId, 36) + "." + changes;
+        }
+
+        // Ordinals are never reused; an inactive product just leaves every bitmap
+        void put(FacetEntry entry) {
+            Integer ordinal = ordinals.get(entry.productId());
+            if (ordinal == null) {
+                if (!entry.active()) {
+                    return;
+                }
+                ordinal = size++;
+                if (ordinal == productIds.length) {
+                    productIds = Arrays.copyOf(productIds, ordinal * 2);
+                    entries = Arrays.copyOf(entries, ordinal * 2);
+                }
+                ordinals.put(entry.productId(), ordinal);
+                productIds[ordinal] = entry.productId();
+            } else if (entries[ordinal] != null) {
+                unset(ordinal, entries[ordinal]);
+            }
+
+            entries[ordinal] = entry.active() ? entry : null;
+            if (entry.active()) {
+                set(ordinal, entry);
+            }
+        }
+
+        void setStock(Long productId, int stockQuantity) {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal != null && entries[ordinal] != null) {
+                put(entries[ordinal].withStock(stockQuantity));
+            }
+        }
+
+        private void set(int ordinal, FacetEntry entry) {
+            live.add(ordinal);
+            if (entry.categoryId() != null) {
+                byCategory.computeIfAbsent(entry.categoryId(), id -> new RoaringBitmap()).add(ordinal);
+            }
+            if (entry.brandKey() != null) {
+                byBrand.computeIfAbsent(entry.brandKey(), key -> new RoaringBitmap()).add(ordinal);
+                brandLabels.putIfAbsent(entry.brandKey(), entry.brandLabel().trim());
+            }
+            byPriceBand.computeIfAbsent(entry.priceBand(), key -> new RoaringBitmap()).add(ordinal);
+            if (entry.stockQuantity() > 0) {
+                inStock.add(ordinal);
+            }
+            if (entry.onDiscount()) {
+                onDiscount.add(ordinal);
+            }
+            if (entry.featured()) {
+                featured.add(ordinal);
+            }
+        }
+
+        private void unset(int ordinal, FacetEntry entry) {
+            live.remove(ordinal);
+            if (entry.categoryId() != null) {
+                removeFrom(byCategory, entry.categoryId(), ordinal);
+            }
+            if (entry.brandKey() != null && removeFrom(byBrand, entry.brandKey(), ordinal)) {
+                brandLabels.remove(entry.brandKey());
+            }
+            removeFrom(byPriceBand, entry.priceBand(), ordinal);
+            inStock.remove(ordinal);
+            onDiscount.remove(ordinal);
+            featured.remove(ordinal);
+        }
+
+        // Returns true when the value's bitmap became empty and was dropped
+        private static <K> boolean removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            if (bitmap == null) {
+                return false;
+            }
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Active categories: names and each category's subtree (itself plus all descendants)
+    private static class CategoryInfo {
+        private final Map<Long, String> names = new HashMap<>();
+        private final Map<Long, Long> parents = new HashMap<>();
+        private final Map<Long, List<Long>> children = new HashMap<>();
+
+        CategoryInfo(List<Category> categories) {
+            for (Category category : categories) {
+                names.put(category.getId(), category.getName());
+                if (category.getParent() != null) {
+                    parents.put(category.getId(), category.getParent().getId());
+                    children.computeIfAbsent(category.getParent().getId(), id -> new ArrayList<>())
+                            .add(category.getId());
+                }
+            }
+        }
+
+        String name(Long categoryId) {
+            return names.get(categoryId);
+        }
+
+        // The category and its ancestors, i.e. every subtree it belongs to
+        List<Long> pathToRoot(Long categoryId) {
+            List<Long> ids = new ArrayList<>();
+            for (Long id = categoryId; id != null && !ids.contains(id); id = parents.get(id)) {
+                ids.add(id);
+            }
+            return ids;
+        }
+
+        List<Long> subtree(Long categoryId) {
+            List<Long> ids = new ArrayList<>();
+            Deque<Long> pending = new ArrayDeque<>();
+            pending.push(categoryId);
+            while (!pending.isEmpty()) {
+                Long id = pending.pop();
+                ids.add(id);
+                for (Long child : children.getOrDefault(id, List.of())) {
+                    pending.push(child);
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.CatalogVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-pharmacy catalog version counters behind the weak ETags on public catalog endpoints.
+ *
+ * Every product, category or pharmacy mutation goes through one of the *Changed methods, which
+ * bump the shared counter in catalog_versions after the writing transaction commits (so a
+ * client can never cache old content under a new tag). A transaction bumps each scope at most
+ * once. Reads are served from a short-lived local copy, letting If-None-Match requests be
+ * answered with a 304 without touching the database; other nodes' changes become visible within
+ * catalog-cache.version-ttl-ms.
+ *
+ * Sales, cancellations and stock edits only bump immediately when a product's public in-stock or
+ * low-stock flag flips. Quantity-only changes are collected and folded into one bump per pharmacy
+ * every catalog-cache.stock-refresh-ms, so checkouts neither contend on the pharmacy's version
+ * row nor rotate its ETags on every sale; the quantities shown may lag by that interval.
+ *
+ * A pharmacy has two scopes: its profile (the pharmacy ID) and its products (the negated ID).
+ * Caches of product data alone, like the off-heap catalog, key on the product scope so that
+ * profile or status edits do not invalidate them.
+ */
+@Service
+public class CatalogVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogVersionService.class);
+
+    // Scope of the shared category data; pharmacy IDs start at 1, product scopes are negative
+    private static final long CATEGORY_SCOPE = 0L;
+
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final CategoryTreeService categoryTreeService;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final TransactionTemplate requiresNew;
+
+    private final Map<Long, CachedVersion> versions = new ConcurrentHashMap<>();
+    // Product scopes with committed quantity-only stock changes not yet reflected in their version
+    private final Set<Long> pendingStock = ConcurrentHashMap.newKeySet();
+
+    @Value("${catalog-cache.version-ttl-ms:2000}")
+    private long versionTtlMs;
+
+    @Value("${catalog-cache.max-age-seconds:30}")
+    private long maxAgeSeconds;
+
+    public CatalogVersionService(CatalogVersionRepository catalogVersionRepository,
+                                 CategoryTreeService categoryTreeService,
+                                 CatalogFacetIndex catalogFacetIndex,
+                                 PlatformTransactionManager transactionManager) {
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.categoryTreeService = categoryTreeService;
+        this.catalogFacetIndex = catalogFacetIndex;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ==================== ETAGS ====================
+
+    // For responses built only from shared category data
+    public String categoryEtag() {
+        return "W/\"c" + version(CATEGORY_SCOPE) + "\"";
+    }
+
+    // For responses built from a pharmacy's catalog (products embed their category)
+    public String pharmacyEtag(Long pharmacyId) {
+        return "W/\"" + pharmacyVersion(pharmacyId) + "\"";
+    }
+
+    // For facet responses: the node-local facet index can lag the catalog, so its version is part of the tag
+    public String facetEtag(Long pharmacyId, String indexVersion) {
+        return "W/\"" + pharmacyVersion(pharmacyId) + "-f" + indexVersion + "\"";
+    }
+
+    // Version of the pharmacy's product data (with the categories it embeds), without its profile
+    public String productsVersion(Long pharmacyId) {
+        return "c" + version(CATEGORY_SCOPE) + "-r" + version(productScope(pharmacyId));
+    }
+
+    private String pharmacyVersion(Long pharmacyId) {
+        return productsVersion(pharmacyId) + "-p" + version(pharmacyId);
+    }
+
+    private static long productScope(Long pharmacyId) {
+        return -pharmacyId;
+    }
+
+    // Lets shared caches (CDN) serve catalog responses for a short while, then revalidate by ETag
+    public CacheControl cacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+    }
+
+    // WebRequest.checkNotModified that also sends Cache-Control on the 304, so shared caches
+    // keep honouring max-age for the revalidated entry
+    public boolean checkNotModified(WebRequest request, String etag) {
+        if (!request.checkNotModified(etag)) {
+            return false;
+        }
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl().getHeaderValue());
+        }
+        return true;
+    }
+
+    // ==================== CHANGE NOTIFICATIONS ====================
+
+    // Any category mutation
+    public void categoriesChanged() {
+        categoryTreeService.categoriesChanged();
+        catalogFacetIndex.categoriesChanged();
+        bumpAfterCommit(CATEGORY_SCOPE);
+    }
+
+    // Product added, removed from sale or moved between categories
+    public void productsChanged(Long pharmacyId) {
+        categoryTreeService.productsChanged(pharmacyId);
+        bumpAfterCommit(productScope(pharmacyId));
+    }
+
+    // Price, flags or other product fields changed; category counts are unaffected
+    public void productUpdated(Long pharmacyId) {
+        bumpAfterCommit(productScope(pharmacyId));
+    }
+
+    // Pharmacy profile or status changed; product data is unaffected
+    public void catalogChanged(Long pharmacyId) {
+        bumpAfterCommit(pharmacyId);
+    }
+
+    // Stock moved without any other edit (sale, cancellation, stock update)
+    public void stockChanged(Long pharmacyId, int oldStock, int newStock, Integer lowStockThreshold) {
+        long scopeId = productScope(pharmacyId);
+        if (flagsChanged(oldStock, newStock, lowStockThreshold)) {
+            bumpAfterCommit(scopeId);
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingBumps().stockOnly.add(scopeId);
+        } else {
+            pendingStock.add(scopeId);
+        }
+    }
+
+    // Same rules as Product.isInStock / isLowStock
+    static boolean flagsChanged(int oldStock, int newStock, Integer lowStockThreshold) {
+        if ((oldStock > 0) != (newStock > 0)) {
+            return true;
+        }
+        return lowStockThreshold != null && (oldStock <= lowStockThreshold) != (newStock <= lowStockThreshold);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog-cache.stock-refresh-ms:60000}",
+            initialDelayString = "${catalog-cache.stock-refresh-ms:60000}")
+    public void flushStockChanges() {
+        for (Long scopeId : List.copyOf(pendingStock)) {
+            bump(scopeId);
+        }
+    }
+
+    private long version(long scopeId) {
+        CachedVersion cached = versions.get(scopeId);
+        if (cached != null && !cached.isStale(versionTtlMs)) {
+            return cached.version;
+        }
+        long version = catalogVersionRepository.findVersion(scopeId).orElse(0L);
+        versions.put(scopeId, new CachedVersion(version));
+        return version;
+    }
+
+    private void bumpAfterCommit(long scopeId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(scopeId);
+            return;
+        }
+        pendingBumps().scopes.add(scopeId);
+    }
+
+    private PendingBumps pendingBumps() {
+        PendingBumps pending = (PendingBumps) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingBumps();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private void bump(long scopeId) {
+        // Any quantity-only change already committed is covered by this bump; later ones stay pending
+        boolean hadPendingStock = pendingStock.remove(scopeId);
+        try {
+            Long version = requiresNew.execute(status -> catalogVersionRepository.bump(scopeId));
+            versions.put(scopeId, new CachedVersion(version));
+        } catch (RuntimeException e) {
+            if (hadPendingStock) {
+                pendingStock.add(scopeId);
+            }
+            // The change is committed; drop the local copy so the next read goes to the table
+            versions.remove(scopeId);
+            log.error("Failed to bump catalog version for scope {}", scopeId, e);
+        }
+    }
+
+    // Version changes of the current transaction, applied once it commits; bound to it as a resource
+    private class PendingBumps implements TransactionSynchronization {
+        final Set<Long> scopes = new LinkedHashSet<>();
+        final Set<Long> stockOnly = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            for (Long scopeId : new ArrayList<>(scopes)) {
+                bump(scopeId);
+            }
+            stockOnly.removeAll(scopes);
+            pendingStock.addAll(stockOnly);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CatalogVersionService.this);
+        }
+    }
+
+    private static class CachedVersion {
+        final long version;
+        final long loadedAt = System.currentTimeMillis();
+
+        CachedVersion(long version) {
+            this.version = version;
+        }
+
+        boolean isStale(long ttlMs) {
+            return System.currentTimeMillis() - loadedAt > ttlMs;
+        }
+    }
+}
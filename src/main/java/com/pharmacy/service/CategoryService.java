@@ -17,9 +17,12 @@ import java.util.regex.Pattern;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CatalogVersionService catalogVersionService;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository,
+                           CatalogVersionService catalogVersionService) {
         this.categoryRepository = categoryRepository;
+        this.catalogVersionService = catalogVersionService;
     }
 
     public Category createCategory(Category category) {
@@ -32,7 +35,9 @@ public class CategoryService {
         }
 
         category.setActive(true);
-        return categoryRepository.save(category);
+        category = categoryRepository.save(category);
+        catalogVersionService.categoriesChanged();
+        return category;
     }
 
     public Category createSubcategory(Category category, Long parentId) {
@@ -59,50 +64,65 @@ public class CategoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "slug", slug));
     }
 
+    @Transactional(readOnly = true)
     public List<Category> findRootCategories() {
         return categoryRepository.findByParentIsNullAndActiveTrueOrderByDisplayOrderAsc();
     }
 
+    @Transactional(readOnly = true)
     public List<Category> findSubcategories(Long parentId) {
         return categoryRepository.findByParentIdAndActiveTrue(parentId);
     }
 
+    @Transactional(readOnly = true)
     public List<Category> findAllActive() {
         return categoryRepository.findByActiveTrueOrderByDisplayOrderAsc();
     }
 
+    @Transactional(readOnly = true)
     public List<Category> findAll() {
         return categoryRepository.findAll();
     }
 
     public Category updateCategory(Category category) {
-        return categoryRepository.save(category);
+        category = categoryRepository.save(category);
+        catalogVersionService.categoriesChanged();
+        return category;
     }
 
     public Category updateDisplayOrder(Long categoryId, Integer newOrder) {
         Category category = getById(categoryId);
         category.setDisplayOrder(newOrder);
-        return categoryRepository.save(category);
+        category = categoryRepository.save(category);
+        catalogVersionService.categoriesChanged();
+        return category;
     }
 
     public Category deactivateCategory(Long categoryId) {
         Category category = getById(categoryId);
+        deactivateSubtree(category);
+        catalogVersionService.categoriesChanged();
+        return category;
+    }
+
+    // Deactivates the category and every descendant, not just direct children
+    private void deactivateSubtree(Category category) {
         category.setActive(false);
+        categoryRepository.save(category);
 
         if (category.hasChildren()) {
             for (Category child : category.getChildren()) {
-                child.setActive(false);
-                categoryRepository.save(child);
+                deactivateSubtree(child);
             }
         }
-
-        return categoryRepository.save(category);
     }
 
     public Category activateCategory(Long categoryId) {
         Category category = getById(categoryId);
         category.setActive(true);
-        return categoryRepository.save(category);
+        category = categoryRepository.save(category);
+        catalogVersionService.categoriesChanged();
+        return category;
     }
 
     private String generateSlug(String name) {
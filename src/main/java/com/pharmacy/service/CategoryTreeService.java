@@ -0,0 +1,258 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacy.config.ReplicaRoutingDataSource;
+import com.pharmacy.dto.response.CategoryResponse;
+import com.pharmacy.entity.Category;
+import com.pharmacy.mapper.CategoryMapper;
+import com.pharmacy.repository.CategoryRepository;
+import com.pharmacy.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Serves the storefront category navigation from pre-built, pre-serialized snapshots.
+ *
+ * The full active tree is built from one query and kept as JSON bytes plus a content ETag.
+ * Per-pharmacy variants add active product counts (rolled up into parents) and are built on
+ * first request; at most max-pharmacy-trees of them are kept. Category changes swap in a new tree
+ * after commit; product changes drop only the affected pharmacy's snapshot. A periodic rebuild
+ * picks up changes made on other nodes.
+ *
+ * Rebuilds are single-flight per tree: concurrent readers of a stale tree wait for the one build in
+ * progress instead of each running the queries. The build runs outside any cache lock.
+ */
+@Service
+public class CategoryTreeService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTreeService.class);
+
+    // Key of the pharmacy-independent tree in the in-flight build map
+    private static final long ALL_PHARMACIES = -1L;
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final CategoryMapper categoryMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+
+    private final AtomicReference<TreeSnapshot> tree = new AtomicReference<>();
+    private final Cache<Long, TreeSnapshot> pharmacyTrees;
+    private final Map<Long, CompletableFuture<TreeSnapshot>> building = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a snapshot built from an older version is rebuilt on next read
+    private final AtomicLong categoryVersion = new AtomicLong();
+    private final Map<Long, AtomicLong> productVersions = new ConcurrentHashMap<>();
+
+    public CategoryTreeService(CategoryRepository categoryRepository,
+                               ProductRepository productRepository,
+                               CategoryMapper categoryMapper,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${category-tree.max-pharmacy-trees:1000}") long maxPharmacyTrees) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.categoryMapper = categoryMapper;
+        this.objectMapper = objectMapper;
+        this.pharmacyTrees = Caffeine.newBuilder().maximumSize(maxPharmacyTrees).build();
+        // REQUIRES_NEW: rebuilds also run from afterCommit callbacks of the writing transaction
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+        // Rebuilds read the primary: a tree is kept until the next change notification
+        this.readOnly.setName(ReplicaRoutingDataSource.PRIMARY_READ_ONLY);
+    }
+
+    public TreeSnapshot getTree() {
+        long version = categoryVersion.get();
+        TreeSnapshot snapshot = tree.get();
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
+        }
+        return buildOnce(ALL_PHARMACIES, () -> {
+            TreeSnapshot built = build(null, version);
+            tree.set(built);
+            return built;
+        });
+    }
+
+    public TreeSnapshot getTree(Long pharmacyId) {
+        long version = categoryVersion.get() + productVersion(pharmacyId).get();
+        TreeSnapshot snapshot = pharmacyTrees.getIfPresent(pharmacyId);
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
+        }
+        return buildOnce(pharmacyId, () -> {
+            TreeSnapshot built = build(pharmacyId, version);
+            pharmacyTrees.put(pharmacyId, built);
+            return built;
+        });
+    }
+
+    // Called by CategoryService on any category mutation
+    public void categoriesChanged() {
+        afterCommit(() -> {
+            categoryVersion.incrementAndGet();
+            pharmacyTrees.invalidateAll();
+            getTree();
+        });
+    }
+
+    // Called by ProductService when a change can move a pharmacy's per-category counts
+    public void productsChanged(Long pharmacyId) {
+        afterCommit(() -> {
+            productVersion(pharmacyId).incrementAndGet();
+            pharmacyTrees.invalidate(pharmacyId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${category-tree.refresh-interval-ms:300000}",
+            initialDelayString = "${category-tree.refresh-interval-ms:300000}")
+    public void refresh() {
+        categoryVersion.incrementAndGet();
+        pharmacyTrees.invalidateAll();
+        getTree();
+    }
+
+    // Runs the build unless one for the same tree is already in progress, in which case its result
+    // is shared. A reader may get a snapshot one version behind; the next read rebuilds it.
+    private TreeSnapshot buildOnce(long key, Supplier<TreeSnapshot> builder) {
+        CompletableFuture<TreeSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<TreeSnapshot> running = building.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            TreeSnapshot snapshot = builder.get();
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, mine);
+        }
+    }
+
+    private TreeSnapshot build(Long pharmacyId, long version) {
+        List<CategoryResponse> roots = readOnly.execute(status -> buildNodes(pharmacyId));
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(roots);
+            // Weak: the same snapshot may go out gzip-encoded or not
+            String etag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new TreeSnapshot(json, etag, version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize category tree", e);
+        }
+    }
+
+    private List<CategoryResponse> buildNodes(Long pharmacyId) {
+        List<Category> categories = categoryRepository.findByActiveTrueOrderByDisplayOrderAsc();
+
+        Map<Long, CategoryResponse> nodes = new LinkedHashMap<>();
+        for (Category category : categories) {
+            nodes.put(category.getId(), categoryMapper.toResponse(category));
+        }
+
+        // Attach children in display order; a child of an inactive parent is dropped with it
+        List<CategoryResponse> roots = new ArrayList<>();
+        for (CategoryResponse node : nodes.values()) {
+            if (node.getParentId() == null) {
+                roots.add(node);
+                continue;
+            }
+            CategoryResponse parent = nodes.get(node.getParentId());
+            if (parent != null) {
+                if (parent.getChildren() == null) {
+                    parent.setChildren(new ArrayList<>());
+                }
+                parent.getChildren().add(node);
+            }
+        }
+
+        if (pharmacyId != null) {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (Object[] row : productRepository.countActiveByCategory(pharmacyId)) {
+                counts.put((Long) row[0], ((Long) row[1]).intValue());
+            }
+            for (CategoryResponse root : roots) {
+                rollUpCounts(root, counts);
+            }
+        }
+
+        log.debug("Built category tree: {} categories, pharmacy {}", nodes.size(), pharmacyId);
+        return roots;
+    }
+
+    private int rollUpCounts(CategoryResponse node, Map<Long, Integer> counts) {
+        int total = counts.getOrDefault(node.getId(), 0);
+        if (node.getChildren() != null) {
+            for (CategoryResponse child : node.getChildren()) {
+                total += rollUpCounts(child, counts);
+            }
+        }
+        node.setProductCount(total);
+        return total;
+    }
+
+    private AtomicLong productVersion(Long pharmacyId) {
+        return productVersions.computeIfAbsent(pharmacyId, id -> new AtomicLong());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public static class TreeSnapshot {
+        private final byte[] json;
+        private final String etag;
+        private final long version;
+
+        public TreeSnapshot(byte[] json, String etag, long version) {
+            this.json = json;
+            this.etag = etag;
+            this.version = version;
+        }
+
+        public byte[] getJson() { return json; }
+        public String getEtag() { return etag; }
+        public long getVersion() { return version; }
+    }
+}
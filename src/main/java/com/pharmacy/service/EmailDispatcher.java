@@ -0,0 +1,76 @@
+package com.pharmacy.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the email queue on a pool of sender workers, the same way OutboxRelay drains the outbox:
+ * each worker locks its own batch with FOR UPDATE SKIP LOCKED and sends it over one SMTP
+ * connection. Nothing is sent until spring.mail.host is configured; messages wait in the queue.
+ */
+@Component
+public class EmailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    private final EmailService emailService;
+    private final TaskExecutor emailExecutor;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    @Value("${email.dispatcher.workers:4}")
+    private int workers;
+
+    @Value("${email.dispatcher.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.dispatcher.retention-days:7}")
+    private int retentionDays;
+
+    public EmailDispatcher(EmailService emailService,
+                           @Qualifier("emailExecutor") TaskExecutor emailExecutor) {
+        this.emailService = emailService;
+        this.emailExecutor = emailExecutor;
+    }
+
+    // Poll every second; workers still running from the previous tick are not duplicated
+    @Scheduled(fixedDelayString = "${email.dispatcher.poll-interval-ms:1000}")
+    public void dispatch() {
+        if (!emailService.isMailConfigured()) {
+            return;
+        }
+        while (activeWorkers.get() < workers) {
+            activeWorkers.incrementAndGet();
+            emailExecutor.execute(this::drain);
+        }
+    }
+
+    // Purge sent emails daily at 04:15
+    @Scheduled(cron = "0 15 4 * * *")
+    public void purge() {
+        int deleted = emailService.purgeSent(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} sent emails", deleted);
+        }
+    }
+
+    private void drain() {
+        try {
+            int sent;
+            do {
+                sent = emailService.sendBatch(batchSize);
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            log.error("Email dispatcher worker failed", e);
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.EmailMessage;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.Settings;
+import com.pharmacy.repository.EmailMessageJdbcRepository;
+import com.pharmacy.repository.EmailMessageRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UnsupportedEncodingException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbound email. Callers queue a message inside their own transaction (nothing is sent on the
+ * request thread); EmailDispatcher workers send due messages in batches, one SMTP connection
+ * per batch, and retry failures with exponential backoff. No transaction or row lock is held
+ * while talking to SMTP: a batch is claimed for send-lease-seconds, sent, then recorded.
+ *
+ * Messages go out from Settings.emailFromAddress. Pharmacy emails carry the pharmacy's name as
+ * the sender name and its address as Reply-To; platform emails use Settings.emailFromName.
+ */
+@Service
+@Transactional
+public class EmailService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final EmailMessageRepository emailMessageRepository;
+    private final EmailMessageJdbcRepository emailMessageJdbcRepository;
+    private final PharmacyRepository pharmacyRepository;
+    private final SettingsService settingsService;
+    private final EmailTemplates emailTemplates;
+    private final ObjectProvider<JavaMailSender> mailSender;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${email.dispatcher.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.dispatcher.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${email.dispatcher.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    // A claimed batch is not picked up by another worker for this long; must outlast an SMTP send
+    @Value("${email.dispatcher.send-lease-seconds:300}")
+    private long sendLeaseSeconds;
+
+    public EmailService(EmailMessageRepository emailMessageRepository,
+                        EmailMessageJdbcRepository emailMessageJdbcRepository,
+                        PharmacyRepository pharmacyRepository,
+                        SettingsService settingsService,
+                        EmailTemplates emailTemplates,
+                        ObjectProvider<JavaMailSender> mailSender,
+                        PlatformTransactionManager transactionManager) {
+        this.emailMessageRepository = emailMessageRepository;
+        this.emailMessageJdbcRepository = emailMessageJdbcRepository;
+        this.pharmacyRepository = pharmacyRepository;
+        this.settingsService = settingsService;
+        this.emailTemplates = emailTemplates;
+        this.mailSender = mailSender;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Joins the caller's transaction so the email is queued only if the caller commits.
+    // A message already queued under dedupeKey is not queued again; a concurrent duplicate is
+    // skipped by the insert itself and never fails the caller's transaction.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long pharmacyId, String template, String dedupeKey, String recipient, Map<String, ?> params) {
+        Settings settings = settingsService.getSettings();
+        if (!Boolean.TRUE.equals(settings.getEmailEnabled())) {
+            return;
+        }
+
+        EmailTemplates.RenderedEmail rendered = emailTemplates.render(template, params);
+        EmailMessage message = new EmailMessage();
+        message.setPharmacyId(pharmacyId);
+        message.setTemplate(template);
+        message.setDedupeKey(dedupeKey);
+        message.setRecipient(recipient);
+        message.setFromAddress(settings.getEmailFromAddress() != null
+                ? settings.getEmailFromAddress() : settings.getPlatformEmail());
+        message.setFromName(settings.getEmailFromName());
+        if (pharmacyId != null) {
+            Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId).orElse(null);
+            if (pharmacy != null) {
+                message.setFromName(pharmacy.getName());
+                message.setReplyTo(pharmacy.getEmail());
+            }
+        }
+        message.setSubject(rendered.subject());
+        message.setBody(rendered.body());
+        LocalDateTime now = LocalDateTime.now();
+        message.setNextAttemptAt(now);
+        emailMessageJdbcRepository.insertIfAbsent(message, now);
+    }
+
+    public boolean isMailConfigured() {
+        return mailSender.getIfAvailable() != null;
+    }
+
+    // Claims one batch, sends it over a single SMTP connection and records the outcome; returns
+    // the number of messages claimed. Claim and record are short transactions of their own, and
+    // neither a row lock nor a connection is held during the send. A worker that dies mid-send
+    // leaves its batch to be retried once the lease runs out.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int sendBatch(int batchSize) {
+        JavaMailSender sender = mailSender.getObject();
+        LocalDateTime claimedAt = LocalDateTime.now();
+        List<EmailMessage> batch = requiresNew.execute(status -> {
+            List<EmailMessage> locked = emailMessageRepository.lockNextBatch(claimedAt, maxAttempts, batchSize);
+            for (EmailMessage message : locked) {
+                message.setNextAttemptAt(claimedAt.plusSeconds(sendLeaseSeconds));
+            }
+            return locked;
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<EmailMessage> failed = new ArrayList<>();
+        Map<MimeMessage, EmailMessage> outgoing = new IdentityHashMap<>();
+        for (EmailMessage message : batch) {
+            try {
+                outgoing.put(toMimeMessage(sender, message), message);
+            } catch (MessagingException | UnsupportedEncodingException e) {
+                failed(message, claimedAt, e);
+                failed.add(message);
+            }
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        if (!outgoing.isEmpty()) {
+            try {
+                sender.send(outgoing.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                failures = e.getFailedMessages();
+            } catch (MailException e) {
+                // Connection or authentication failure: nothing in the batch was sent
+                failures = new IdentityHashMap<>();
+                for (MimeMessage mime : outgoing.keySet()) {
+                    failures.put(mime, e);
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> sent = new ArrayList<>();
+        for (Map.Entry<MimeMessage, EmailMessage> entry : outgoing.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                failed(entry.getValue(), now, failure);
+                failed.add(entry.getValue());
+            } else {
+                sent.add(entry.getValue().getId());
+            }
+        }
+
+        requiresNew.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                emailMessageRepository.markSent(sent, now);
+            }
+            emailMessageRepository.saveAll(failed);
+        });
+        return batch.size();
+    }
+
+    public int purgeSent(LocalDateTime before) {
+        return emailMessageRepository.deleteSentBefore(before);
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return emailMessageRepository.countBySentAtIsNull();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private MimeMessage toMimeMessage(JavaMailSender sender, EmailMessage message)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage mime = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, false, "UTF-8");
+        helper.setFrom(message.getFromAddress(), message.getFromName());
+        helper.setTo(message.getRecipient());
+        if (message.getReplyTo() != null) {
+            helper.setReplyTo(message.getReplyTo());
+        }
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), false);
+        return mime;
+    }
+
+    // Retries after backoffSeconds, doubling per attempt up to maxBackoffSeconds
+    private void failed(EmailMessage message, LocalDateTime now, Exception e) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(truncate(e.getMessage()));
+        long delay = Math.min(maxBackoffSeconds, backoffSeconds << Math.min(attempts - 1, 20));
+        message.setNextAttemptAt(now.plusSeconds(delay));
+        if (attempts >= maxAttempts) {
+            log.error("Email {} ({}) to {} gave up after {} attempts",
+                    message.getId(), message.getTemplate(), message.getRecipient(), attempts, e);
+        } else {
+            log.warn("Email {} ({}) failed, retrying in {}s: {}",
+                    message.getId(), message.getTemplate(), delay, e.getMessage());
+        }
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= MAX_ERROR_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,98 @@
+package com.pharmacy.service;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain-text email templates from classpath:email/*.txt, compiled once at startup.
+ *
+ * A template's first line is "Subject: ..."; the rest is the body. ${name} placeholders are
+ * replaced by the matching parameter (empty when missing). Compiling splits each template into
+ * literal and placeholder parts, so rendering is a single pass with no parsing.
+ */
+@Component
+public class EmailTemplates {
+
+    public static final String PASSWORD_RESET = "password-reset";
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_STATUS_CHANGED = "order-status-changed";
+    public static final String ORDER_CANCELLED = "order-cancelled";
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+
+    private final Map<String, CompiledTemplate> templates = new HashMap<>();
+
+    public EmailTemplates() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:email/*.txt");
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            String name = filename.substring(0, filename.length() - ".txt".length());
+            templates.put(name, compile(name, resource.getContentAsString(StandardCharsets.UTF_8)));
+        }
+    }
+
+    public RenderedEmail render(String name, Map<String, ?> params) {
+        CompiledTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return new RenderedEmail(template.subject().render(params), template.body().render(params));
+    }
+
+    public record RenderedEmail(String subject, String body) {
+    }
+
+    private static CompiledTemplate compile(String name, String source) {
+        int newline = source.indexOf('\n');
+        if (!source.startsWith(SUBJECT_PREFIX) || newline < 0) {
+            throw new IllegalStateException("Email template " + name + " must start with a Subject: line");
+        }
+        String subject = source.substring(SUBJECT_PREFIX.length(), newline).trim();
+        return new CompiledTemplate(Parts.parse(subject), Parts.parse(source.substring(newline + 1)));
+    }
+
+    private record CompiledTemplate(Parts subject, Parts body) {
+    }
+
+    // Alternating literals and parameter names: literals[0] names[0] literals[1] ... literals[n]
+    private record Parts(String[] literals, String[] names) {
+
+        static Parts parse(String text) {
+            List<String> literals = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            int from = 0;
+            int start;
+            while ((start = text.indexOf("${", from)) >= 0) {
+                int end = text.indexOf('}', start);
+                if (end < 0) {
+                    break;
+                }
+                literals.add(text.substring(from, start));
+                names.add(text.substring(start + 2, end).trim());
+                from = end + 1;
+            }
+            literals.add(text.substring(from));
+            return new Parts(literals.toArray(String[]::new), names.toArray(String[]::new));
+        }
+
+        String render(Map<String, ?> params) {
+            StringBuilder sb = new StringBuilder(literals[0]);
+            for (int i = 0; i < names.length; i++) {
+                Object value = params.get(names[i]);
+                if (value != null) {
+                    sb.append(value);
+                }
+                sb.append(literals[i + 1]);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.pharmacy.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for the subscription payment gateway: no network, answers immediately.
+ *
+ * billing.fake-provider.failure-percent makes that share of pharmacies (by ID) decline, so the
+ * grace period and suspension paths can be exercised. Repeated keys return the first result.
+ */
+@Component
+public class FakeSubscriptionPaymentProvider implements SubscriptionPaymentProvider {
+
+    private final Map<String, ChargeResult> charges = new ConcurrentHashMap<>();
+
+    @Value("${billing.fake-provider.failure-percent:0}")
+    private int failurePercent;
+
+    @Override
+    public ChargeResult charge(Long pharmacyId, BigDecimal amount, String idempotencyKey) {
+        return charges.computeIfAbsent(idempotencyKey, key -> pharmacyId % 100 < failurePercent
+                ? ChargeResult.failure("Card declined")
+                : ChargeResult.success("fake-" + UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,180 @@
+package com.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, node-local CartStore.
+ *
+ * Dirty carts are flushed every cart-store.flush-interval-ms and on shutdown, so a crash loses at
+ * most one flush interval of cart changes. Assumes a customer's cart requests reach the same node
+ * (sticky sessions).
+ *
+ * A cart evicted for size or idle time is not written inside the eviction: it moves to a
+ * write-back queue that the next flush drains. Until it is written it is still the customer's cart,
+ * so a read in the meantime gets the same instance back instead of a stale copy from the database,
+ * and a failed write is simply retried on the next flush. Once written, the cart is retired and
+ * dropped; requests that still hold it switch to the current cart (see CartService).
+ *
+ * A reverse index from product ID to the cached carts holding it lets product changes reach
+ * those carts' lines (and running totals) without scanning the store.
+ */
+@Component
+public class InMemoryCartStore implements CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final CartPersister cartPersister;
+    private final Cache<CartKey, ActiveCart> carts;
+    // Evicted carts waiting to be written back; still attached to the reverse index
+    private final Map<CartKey, ActiveCart> evicted = new ConcurrentHashMap<>();
+    private final Map<Long, Set<ActiveCart>> cartsByProduct = new ConcurrentHashMap<>();
+    private final ActiveCart.LineListener index = new ActiveCart.LineListener() {
+        @Override
+        public void lineAdded(ActiveCart cart, Long productId) {
+            cartsByProduct.compute(productId, (id, holders) -> {
+                Set<ActiveCart> set = holders != null ? holders : ConcurrentHashMap.newKeySet();
+                set.add(cart);
+                return set;
+            });
+        }
+
+        @Override
+        public void lineRemoved(ActiveCart cart, Long productId) {
+            cartsByProduct.computeIfPresent(productId, (id, holders) -> {
+                holders.remove(cart);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    };
+
+    public InMemoryCartStore(CartPersister cartPersister,
+                             @Value("${cart-store.max-entries:100000}") long maxEntries,
+                             @Value("${cart-store.idle-minutes:30}") long idleMinutes) {
+        this.cartPersister = cartPersister;
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                // Atomic with the removal, so a read right after the eviction finds the cart here
+                .evictionListener((CartKey key, ActiveCart cart, RemovalCause cause) -> {
+                    if (cart != null) {
+                        evicted.put(key, cart);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public ActiveCart get(Long customerId, Long pharmacyId) {
+        return carts.get(new CartKey(customerId, pharmacyId), key -> {
+            ActiveCart pending = evicted.remove(key);
+            if (pending != null) {
+                return pending;
+            }
+            ActiveCart cart = cartPersister.load(key.customerId(), key.pharmacyId());
+            cart.attach(index);
+            return cart;
+        });
+    }
+
+    @Override
+    public void flush(Long customerId, Long pharmacyId) {
+        CartKey key = new CartKey(customerId, pharmacyId);
+        ActiveCart cart = carts.getIfPresent(key);
+        if (cart == null) {
+            cart = evicted.get(key);
+        }
+        if (cart != null) {
+            cartPersister.flush(cart);
+        }
+    }
+
+    @Override
+    public void evict(Long customerId, Long pharmacyId) {
+        CartKey key = new CartKey(customerId, pharmacyId);
+        ActiveCart cart = carts.asMap().remove(key);
+        if (cart != null) {
+            cart.retire();
+        }
+        ActiveCart pending = evicted.remove(key);
+        if (pending != null) {
+            pending.retire();
+        }
+    }
+
+    @Override
+    public void productChanged(ActiveCart.CartLine template) {
+        Set<ActiveCart> holders = cartsByProduct.get(template.getProductId());
+        if (holders != null) {
+            for (ActiveCart cart : holders) {
+                cart.refreshProduct(template);
+            }
+        }
+    }
+
+    @Override
+    public void stockChanged(Long productId, int stockQuantity, boolean active) {
+        Set<ActiveCart> holders = cartsByProduct.get(productId);
+        if (holders != null) {
+            for (ActiveCart cart : holders) {
+                cart.refreshStock(productId, stockQuantity, active);
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        return carts.estimatedSize() + evicted.size();
+    }
+
+    @Scheduled(fixedDelayString = "${cart-store.flush-interval-ms:1000}")
+    public void flushDirty() {
+        // Runs pending evictions now, so carts evicted since the last pass are written in this one
+        carts.cleanUp();
+
+        for (ActiveCart cart : carts.asMap().values()) {
+            if (cart.isDirty()) {
+                tryFlush(cart);
+            }
+        }
+
+        for (Map.Entry<CartKey, ActiveCart> entry : evicted.entrySet()) {
+            ActiveCart cart = entry.getValue();
+            if (tryFlush(cart)) {
+                // Dropped only if no read revived it and nothing changed since the write
+                evicted.computeIfPresent(entry.getKey(),
+                        (key, pending) -> pending == cart && cart.retireIfClean() ? null : pending);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    private boolean tryFlush(ActiveCart cart) {
+        try {
+            cartPersister.flush(cart);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to write cart of customer {} at pharmacy {}; retrying on the next flush",
+                    cart.getCustomerId(), cart.getPharmacyId(), e);
+            return false;
+        }
+    }
+
+    private record CartKey(Long customerId, Long pharmacyId) {}
+}
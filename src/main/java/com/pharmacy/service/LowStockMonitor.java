@@ -0,0 +1,86 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Product;
+import com.pharmacy.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Tracks low-stock products from the stock mutation paths instead of scanning the products table.
+ *
+ * Every stock change calls {@link #onStockChanged}, which keeps products.stock_alert_level current.
+ * Threshold crossings are detected with a conditional update on that column, so exactly one
+ * transaction (on any node) raises each alert. Reads go through the partial index on
+ * stock_alert_level > 0, so they touch only the pharmacy's alerted products and always reflect
+ * writes made on every node. Products without a threshold are not tracked.
+ */
+@Component
+public class LowStockMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockMonitor.class);
+
+    public static final int LEVEL_OK = 0;
+    public static final int LEVEL_LOW = 1;
+    public static final int LEVEL_OUT = 2;
+
+    private final ProductRepository productRepository;
+    private final AuditLogService auditLogService;
+
+    public LowStockMonitor(ProductRepository productRepository, AuditLogService auditLogService) {
+        this.productRepository = productRepository;
+        this.auditLogService = auditLogService;
+    }
+
+    // ==================== MUTATION HOOKS ====================
+
+    public void onStockChanged(Product product) {
+        int level = onStockChanged(product.getPharmacy().getId(), product.getId(), product.getName(),
+                product.getStockQuantity(), product.getLowStockThreshold(), product.isActive(),
+                product.getStockAlertLevel());
+        product.setStockAlertLevel(level);
+    }
+
+    // Must run inside the transaction that changed the stock; returns the product's new alert level
+    public int onStockChanged(Long pharmacyId, Long productId, String productName,
+                              int stock, Integer threshold, boolean active, Integer knownLevel) {
+        int level = levelOf(stock, threshold, active);
+
+        if (knownLevel == null || knownLevel != level) {
+            if (level > LEVEL_OK && productRepository.raiseStockAlertLevel(pharmacyId, productId, level) == 1) {
+                if (level == LEVEL_OUT) {
+                    auditLogService.logProductOutOfStock(pharmacyId, productId, productName);
+                } else {
+                    auditLogService.logProductLowStock(pharmacyId, productId, productName, stock, threshold);
+                }
+                log.info("Stock alert for product {} in pharmacy {}: level {}", productId, pharmacyId, level);
+            } else {
+                productRepository.lowerStockAlertLevel(pharmacyId, productId, level);
+            }
+        }
+
+        return level;
+    }
+
+    // ==================== READS ====================
+
+    public long countLowStock(Long pharmacyId) {
+        return productRepository.countStockAlerted(pharmacyId);
+    }
+
+    public List<Product> findLowStock(Long pharmacyId) {
+        return productRepository.findStockAlerted(pharmacyId);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Same rule as the old dashboard query (active and stock <= threshold), split into low and out
+    static int levelOf(int stock, Integer threshold, boolean active) {
+        if (!active || threshold == null || stock > threshold) {
+            return LEVEL_OK;
+        }
+        return stock <= 0 ? LEVEL_OUT : LEVEL_LOW;
+    }
+}
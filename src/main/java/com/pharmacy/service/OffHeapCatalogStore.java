@@ -0,0 +1,367 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacy.config.ReplicaRoutingDataSource;
+import com.pharmacy.entity.Product;
+import com.pharmacy.mapper.ProductMapper;
+import com.pharmacy.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Off-heap snapshot of each pharmacy's active storefront products, enabled with
+ * catalog-store.off-heap.enabled.
+ *
+ * A snapshot is one direct ByteBuffer: fixed-width records sorted by product ID, an
+ * open-addressing slug table pointing at them, and a pool holding the slugs and the encoded
+ * ProductResponse JSON. Public product endpoints copy JSON from the pool to the response
+ * through one staging buffer per response, so serving a listing allocates nothing per product
+ * and the catalog does not sit in the old generation.
+ *
+ * A snapshot is tagged with the pharmacy's product version (CatalogVersionService.productsVersion),
+ * which pharmacy profile edits and quantity-only sales between stock refreshes do not move. It is
+ * rebuilt on the first read after the version moves: one build per pharmacy at a time, outside
+ * the cache, with concurrent readers of that pharmacy sharing its result. The memory of replaced
+ * snapshots is released by the GC once no response is still writing from them.
+ */
+@Service
+@ConditionalOnProperty(name = "catalog-store.off-heap.enabled", havingValue = "true")
+public class OffHeapCatalogStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapCatalogStore.class);
+
+    // Record layout (byte offsets)
+    private static final int ID = 0;                  // long
+    private static final int CATEGORY_ID = 8;         // long, 0 when uncategorized
+    private static final int PRICE_CENTS = 16;        // long, effective price
+    private static final int STOCK = 24;              // int
+    private static final int FLAGS = 28;              // int
+    private static final int SLUG_OFFSET = 32;        // int, into the pool
+    private static final int SLUG_LENGTH = 36;        // int
+    private static final int JSON_OFFSET = 40;        // int, into the pool
+    private static final int JSON_LENGTH = 44;        // int
+    private static final int RECORD_SIZE = 48;
+
+    private static final int FLAG_FEATURED = 1;
+
+    private static final byte ARRAY_START = '[';
+    private static final byte ARRAY_END = ']';
+    private static final byte SEPARATOR = ',';
+
+    // Upper bound of the staging buffer for copying pool bytes to a response stream
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersionService catalogVersionService;
+    private final TransactionTemplate readOnly;
+    private final Cache<Long, Snapshot> snapshots;
+    private final Map<Long, CompletableFuture<Snapshot>> building = new ConcurrentHashMap<>();
+
+    public OffHeapCatalogStore(ProductRepository productRepository,
+                               ProductMapper productMapper,
+                               ObjectMapper objectMapper,
+                               CatalogVersionService catalogVersionService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${catalog-store.off-heap.max-bytes:1073741824}") long maxBytes) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.catalogVersionService = catalogVersionService;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+        // Builds read the primary: a snapshot is kept under its version until the products change again
+        this.readOnly.setName(ReplicaRoutingDataSource.PRIMARY_READ_ONLY);
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long pharmacyId, Snapshot snapshot) -> snapshot.buffer.capacity())
+                .build();
+    }
+
+    // The pharmacy's current snapshot, rebuilt first if its product version has moved
+    public Snapshot get(Long pharmacyId) {
+        String version = catalogVersionService.productsVersion(pharmacyId);
+        Snapshot snapshot = snapshots.getIfPresent(pharmacyId);
+        if (snapshot != null && snapshot.version.equals(version)) {
+            return snapshot;
+        }
+        return buildOnce(pharmacyId, version);
+    }
+
+    // Runs the build unless one for the same pharmacy is already in progress, in which case its
+    // result is shared. A reader may get a snapshot one version behind; the next read rebuilds it.
+    private Snapshot buildOnce(Long pharmacyId, String version) {
+        CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = building.putIfAbsent(pharmacyId, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Snapshot snapshot = build(pharmacyId, version);
+            snapshots.put(pharmacyId, snapshot);
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(pharmacyId, mine);
+        }
+    }
+
+    public Stats getStats() {
+        long products = 0;
+        long bytes = 0;
+        int pharmacies = 0;
+        for (Snapshot snapshot : snapshots.asMap().values()) {
+            pharmacies++;
+            products += snapshot.count;
+            bytes += snapshot.buffer.capacity();
+        }
+        return new Stats(pharmacies, products, bytes);
+    }
+
+    public record Stats(int pharmacies, long products, long bytes) {}
+
+    // ==================== BUILD ====================
+
+    // The version is read before loading, so a change during the build only causes one more rebuild
+    private Snapshot build(Long pharmacyId, String version) {
+        long start = System.currentTimeMillis();
+
+        Encoded encoded = readOnly.execute(status -> encode(productRepository.findActiveWithCategory(pharmacyId)));
+        int count = encoded.products.size();
+        int slots = tableSize(count);
+        long poolStart = (long) count * RECORD_SIZE + (long) slots * Integer.BYTES;
+        long capacity = poolStart + encoded.poolSize;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Catalog of pharmacy " + pharmacyId + " exceeds 2 GB");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) capacity);
+        int tableStart = count * RECORD_SIZE;
+        int poolOffset = (int) poolStart;
+        for (int i = 0; i < count; i++) {
+            Product product = encoded.products.get(i);
+            byte[] slug = encoded.slugs[i];
+            byte[] json = encoded.json[i];
+            int record = i * RECORD_SIZE;
+
+            buffer.putLong(record + ID, product.getId());
+            buffer.putLong(record + CATEGORY_ID, product.getCategory() != null ? product.getCategory().getId() : 0L);
+            buffer.putLong(record + PRICE_CENTS, ActiveCart.toCents(product.getEffectivePrice()));
+            buffer.putInt(record + STOCK, product.getStockQuantity());
+            buffer.putInt(record + FLAGS, product.isFeatured() ? FLAG_FEATURED : 0);
+
+            buffer.put(poolOffset, slug);
+            buffer.putInt(record + SLUG_OFFSET, poolOffset);
+            buffer.putInt(record + SLUG_LENGTH, slug.length);
+            poolOffset += slug.length;
+
+            buffer.put(poolOffset, json);
+            buffer.putInt(record + JSON_OFFSET, poolOffset);
+            buffer.putInt(record + JSON_LENGTH, json.length);
+            poolOffset += json.length;
+
+            if (slug.length > 0) {
+                int slot = hash(slug, 0, slug.length) & (slots - 1);
+                while (buffer.getInt(tableStart + slot * Integer.BYTES) != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                // Slot values are record index + 1 so that 0 marks an empty slot
+                buffer.putInt(tableStart + slot * Integer.BYTES, i + 1);
+            }
+        }
+
+        log.info("Built off-heap catalog of pharmacy {}: {} products, {} bytes in {} ms",
+                pharmacyId, count, capacity, System.currentTimeMillis() - start);
+        return new Snapshot(version, buffer, count, tableStart, slots);
+    }
+
+    // Runs inside the loading transaction so the mapper can read the fetched categories
+    private Encoded encode(List<Product> products) {
+        byte[][] slugs = new byte[products.size()][];
+        byte[][] json = new byte[products.size()][];
+        long poolSize = 0;
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            slugs[i] = product.getSlug() != null ? product.getSlug().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            try {
+                json[i] = objectMapper.writeValueAsBytes(productMapper.toResponse(product));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize product " + product.getId(), e);
+            }
+            poolSize += slugs[i].length + json[i].length;
+        }
+        return new Encoded(products, slugs, json, poolSize);
+    }
+
+    private record Encoded(List<Product> products, byte[][] slugs, byte[][] json, long poolSize) {}
+
+    // Power of two with a load factor of at most 0.5
+    private static int tableSize(int count) {
+        int size = 2;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    // FNV-1a over UTF-8 bytes
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    // ==================== SNAPSHOT ====================
+
+    /**
+     * Immutable once built; all reads use absolute buffer positions, so any number of threads can
+     * read one snapshot. Records are identified by their index.
+     */
+    public static final class Snapshot {
+        private final String version;
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int tableStart;
+        private final int slots;
+
+        private Snapshot(String version, ByteBuffer buffer, int count, int tableStart, int slots) {
+            this.version = version;
+            this.buffer = buffer;
+            this.count = count;
+            this.tableStart = tableStart;
+            this.slots = slots;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        // Record index, or -1 when no active product has the slug
+        public int findBySlug(String slug) {
+            byte[] key = slug.getBytes(StandardCharsets.UTF_8);
+            int slot = hash(key, 0, key.length) & (slots - 1);
+            int entry;
+            while ((entry = buffer.getInt(tableStart + slot * Integer.BYTES)) != 0) {
+                int record = (entry - 1) * RECORD_SIZE;
+                if (poolEquals(buffer.getInt(record + SLUG_OFFSET), buffer.getInt(record + SLUG_LENGTH), key)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & (slots - 1);
+            }
+            return -1;
+        }
+
+        // Record index, or -1 when no active product has the ID
+        public int findById(long productId) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = buffer.getLong(mid * RECORD_SIZE + ID);
+                if (id < productId) {
+                    low = mid + 1;
+                } else if (id > productId) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        // The product's JSON as a plain array, for responses written without an async dispatch
+        public byte[] productJson(int index) {
+            int record = index * RECORD_SIZE;
+            byte[] json = new byte[buffer.getInt(record + JSON_LENGTH)];
+            buffer.get(buffer.getInt(record + JSON_OFFSET), json);
+            return json;
+        }
+
+        // Products directly in the category (not its subcategories), in ID order
+        public void writeCategory(long categoryId, OutputStream out) throws IOException {
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            out.write(ARRAY_START);
+            boolean first = true;
+            for (int i = 0; i < count; i++) {
+                if (buffer.getLong(i * RECORD_SIZE + CATEGORY_ID) == categoryId) {
+                    first = writeElement(i, first, chunk, out);
+                }
+            }
+            out.write(ARRAY_END);
+        }
+
+        public void writeFeatured(OutputStream out) throws IOException {
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            out.write(ARRAY_START);
+            boolean first = true;
+            for (int i = 0; i < count; i++) {
+                if ((buffer.getInt(i * RECORD_SIZE + FLAGS) & FLAG_FEATURED) != 0) {
+                    first = writeElement(i, first, chunk, out);
+                }
+            }
+            out.write(ARRAY_END);
+        }
+
+        private boolean writeElement(int index, boolean first, byte[] chunk, OutputStream out) throws IOException {
+            if (!first) {
+                out.write(SEPARATOR);
+            }
+            int record = index * RECORD_SIZE;
+            copy(buffer.getInt(record + JSON_OFFSET), buffer.getInt(record + JSON_LENGTH), chunk, out);
+            return false;
+        }
+
+        private void copy(int offset, int length, byte[] chunk, OutputStream out) throws IOException {
+            while (length > 0) {
+                int n = Math.min(length, chunk.length);
+                buffer.get(offset, chunk, 0, n);
+                out.write(chunk, 0, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private boolean poolEquals(int offset, int length, byte[] key) {
+            if (length != key.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(offset + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
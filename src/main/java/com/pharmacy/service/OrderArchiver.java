@@ -0,0 +1,80 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.OrderArchiveJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Moves DELIVERED and CANCELLED orders older than order-archive.min-age-days (with their items)
+ * into orders_archive/order_items_archive, one pharmacy at a time in chunks of batch-size.
+ *
+ * Each chunk is a single statement that commits on its own and picks its orders with
+ * FOR UPDATE SKIP LOCKED, so it never waits on live traffic and nodes running the job at the
+ * same time split the work. OrderService reads fall through to the archive.
+ *
+ * Runs on the single-threaded archiveExecutor, not the scheduler thread: the first run moves
+ * the whole backlog and would otherwise hold up every other @Scheduled job until it finishes.
+ */
+@Component
+public class OrderArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private final OrderArchiveJdbcRepository orderArchiveRepository;
+    private final ThreadPoolTaskExecutor archiveExecutor;
+
+    @Value("${order-archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order-archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${order-archive.batch-size:500}")
+    private int batchSize;
+
+    public OrderArchiver(OrderArchiveJdbcRepository orderArchiveRepository,
+                         @Qualifier("archiveExecutor") ThreadPoolTaskExecutor archiveExecutor) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.archiveExecutor = archiveExecutor;
+    }
+
+    // Nightly at 03:30, after the busiest hours
+    @Scheduled(cron = "${order-archive.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExecutor.execute(this::archiveAll);
+        } catch (TaskRejectedException e) {
+            log.warn("Order archival still running from the previous trigger; skipping this one");
+        }
+    }
+
+    void archiveAll() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        long total = 0;
+        for (Long pharmacyId : orderArchiveRepository.findPharmacyIds()) {
+            try {
+                int moved;
+                do {
+                    moved = orderArchiveRepository.archiveChunk(pharmacyId, cutoff, batchSize);
+                    total += moved;
+                } while (moved == batchSize);
+            } catch (Exception e) {
+                log.error("Order archival failed for pharmacy: {}", pharmacyId, e);
+            }
+        }
+        if (total > 0) {
+            log.info("Archived {} orders created before {}", total, cutoff);
+        }
+    }
+}
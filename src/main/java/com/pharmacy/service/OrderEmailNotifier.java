@@ -0,0 +1,87 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.User;
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.event.DomainEventListener;
+import com.pharmacy.event.DomainEventTypes;
+import com.pharmacy.repository.PharmacyRepository;
+import com.pharmacy.repository.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queues customer emails for order events from the outbox. Runs in the relay's transaction;
+ * the outbox event ID is the dedupe key, so a redelivered event does not queue a second email.
+ */
+@Component
+public class OrderEmailNotifier implements DomainEventListener {
+
+    private static final Set<String> NOTIFIED_EVENTS = Set.of(
+            DomainEventTypes.ORDER_CREATED,
+            DomainEventTypes.ORDER_STATUS_CHANGED,
+            DomainEventTypes.ORDER_CANCELLED
+    );
+
+    private final EmailService emailService;
+    private final UserRepository userRepository;
+    private final PharmacyRepository pharmacyRepository;
+    private final ObjectMapper objectMapper;
+
+    public OrderEmailNotifier(EmailService emailService,
+                              UserRepository userRepository,
+                              PharmacyRepository pharmacyRepository,
+                              ObjectMapper objectMapper) {
+        this.emailService = emailService;
+        this.userRepository = userRepository;
+        this.pharmacyRepository = pharmacyRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return NOTIFIED_EVENTS.contains(eventType);
+    }
+
+    @Override
+    public void onEvent(DomainEvent event) {
+        JsonNode payload = readPayload(event);
+        User customer = userRepository.findById(payload.path("customerId").asLong()).orElse(null);
+        if (customer == null) {
+            return;
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("firstName", customer.getFirstName());
+        params.put("orderNumber", payload.path("orderNumber").asText());
+        params.put("pharmacyName", pharmacyRepository.findById(event.getPharmacyId()).map(Pharmacy::getName).orElse(""));
+        params.put("totalAmount", payload.path("totalAmount").asText());
+        params.put("status", payload.path("newStatus").asText());
+        params.put("cancellationReason", payload.path("cancellationReason").asText(""));
+
+        emailService.enqueue(event.getPharmacyId(), template(event.getEventType()),
+                "outbox:" + event.getId(), customer.getEmail(), params);
+    }
+
+    private String template(String eventType) {
+        return switch (eventType) {
+            case DomainEventTypes.ORDER_CREATED -> EmailTemplates.ORDER_CREATED;
+            case DomainEventTypes.ORDER_CANCELLED -> EmailTemplates.ORDER_CANCELLED;
+            default -> EmailTemplates.ORDER_STATUS_CHANGED;
+        };
+    }
+
+    private JsonNode readPayload(DomainEvent event) {
+        try {
+            return objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable payload in outbox event " + event.getId(), e);
+        }
+    }
+}
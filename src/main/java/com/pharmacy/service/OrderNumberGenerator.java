@@ -0,0 +1,90 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.OrderNumberSequenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Hands out order numbers (ORD-2025-00001) from blocks reserved in order_number_sequences.
+ * Each node reserves a block with one atomic upsert and then allocates locally, so numbers are
+ * unique across replicas and only a block reservation touches the database. The sequence restarts
+ * at 1 every calendar year. Numbers left in a block when a node stops are never reused (gaps are expected).
+ *
+ * The lock only guards taking a number from the current block. A thread that finds the block used
+ * up reserves the next one without holding it: callers are usually inside a checkout transaction
+ * holding a pooled connection, and waiting on a lock whose owner needs a second connection could
+ * starve the pool. When several threads refill at once, one block is kept and the remainder of the
+ * others is skipped.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNumberGenerator.class);
+    private static final String PREFIX = "ORD-";
+
+    private final OrderNumberSequenceRepository sequenceRepository;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${order-number.block-size:50}")
+    private int blockSize;
+
+    // Current block; guarded by this
+    private int blockYear;
+    private long next;
+    private long limit;
+
+    public OrderNumberGenerator(OrderNumberSequenceRepository sequenceRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.sequenceRepository = sequenceRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String nextOrderNumber() {
+        int year = LocalDate.now().getYear();
+        synchronized (this) {
+            if (year == blockYear && next < limit) {
+                return format(year, next++);
+            }
+        }
+
+        long end = reserveBlock(year);
+        long number = end - blockSize;
+        synchronized (this) {
+            // Keep this block unless another thread already installed a usable one meanwhile
+            if (year != blockYear || next >= limit) {
+                blockYear = year;
+                next = number + 1;
+                limit = end;
+            }
+        }
+        return format(year, number);
+    }
+
+    // Runs in its own transaction: a rolled-back checkout must not release numbers this node still holds.
+    // Returns the exclusive end of the reserved block.
+    private long reserveBlock(int year) {
+        Long end = requiresNew.execute(status -> {
+            String prefix = PREFIX + year + "-";
+            // Only matters the first time a year is used (or after migrating from the old counter)
+            long seed = sequenceRepository.existsById(year)
+                    ? 0
+                    : sequenceRepository.findMaxOrderSuffix(prefix + "%", prefix.length() + 1);
+            return sequenceRepository.reserveBlock(year, seed + 1 + blockSize, blockSize);
+        });
+
+        log.debug("Reserved order numbers {}..{} for {}", end - blockSize, end - 1, year);
+        return end;
+    }
+
+    private String format(int year, long number) {
+        return PREFIX + year + "-" + String.format("%05d", number);
+    }
+}
@@ -3,41 +3,62 @@ package com.pharmacy.service;
 import com.pharmacy.entity.*;
 import com.pharmacy.enums.DeliveryType;
 import com.pharmacy.enums.OrderStatus;
+import com.pharmacy.event.DomainEventTypes;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.BusinessException;
+import com.pharmacy.repository.OrderArchiveJdbcRepository;
 import com.pharmacy.repository.OrderRepository;
 import com.pharmacy.repository.OrderItemRepository;
 import com.pharmacy.repository.ProductRepository;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 @Service
 @Transactional
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderArchiveJdbcRepository orderArchiveRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final CartService cartService;
-
-    private static final AtomicLong orderCounter = new AtomicLong(0);
+    private final OutboxService outboxService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final LowStockMonitor lowStockMonitor;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogFacetIndex catalogFacetIndex;
 
     public OrderService(OrderRepository orderRepository,
+                        OrderArchiveJdbcRepository orderArchiveRepository,
                         OrderItemRepository orderItemRepository,
                         ProductRepository productRepository,
-                        CartService cartService) {
+                        CartService cartService,
+                        OutboxService outboxService,
+                        OrderNumberGenerator orderNumberGenerator,
+                        LowStockMonitor lowStockMonitor,
+                        CatalogVersionService catalogVersionService,
+                        CatalogFacetIndex catalogFacetIndex) {
         this.orderRepository = orderRepository;
+        this.orderArchiveRepository = orderArchiveRepository;
         this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
         this.cartService = cartService;
+        this.outboxService = outboxService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.lowStockMonitor = lowStockMonitor;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogFacetIndex = catalogFacetIndex;
     }
 
     public Order createOrderFromCart(Cart cart, DeliveryType deliveryType,
@@ -51,7 +72,7 @@ public class OrderService {
         Order order = new Order();
         order.setPharmacy(cart.getPharmacy());
         order.setCustomer(cart.getCustomer());
-        order.setOrderNumber(generateOrderNumber());
+        order.setOrderNumber(orderNumberGenerator.nextOrderNumber());
         order.setStatus(OrderStatus.PENDING);
         order.setDeliveryType(deliveryType);
         order.setShippingAddress(shippingAddress);
@@ -94,59 +115,101 @@ public class OrderService {
 
             subtotal = subtotal.add(orderItem.getTotalPrice());
 
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
+            int oldStock = product.getStockQuantity();
+            product.setStockQuantity(oldStock - cartItem.getQuantity());
             productRepository.save(product);
+            lowStockMonitor.onStockChanged(product);
+            cartService.productChanged(product);
+            catalogFacetIndex.productChanged(product);
+            catalogVersionService.stockChanged(order.getPharmacy().getId(), oldStock,
+                    product.getStockQuantity(), product.getLowStockThreshold());
         }
 
         order = orderRepository.save(order);
 
         cartService.clearCart(cart.getId());
 
+        publishOrderEvent(order, DomainEventTypes.ORDER_CREATED, null);
+
         return order;
     }
 
-    public Optional<Order> findById(Long id) {
-        return orderRepository.findById(id);
+    // Staff lookups carry the pharmacy ID so orders is read from one hash partition
+    public Order getById(Long pharmacyId, Long id) {
+        return orderRepository.findByIdAndPharmacyId(id, pharmacyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", id));
+    }
+
+    // Order number lookups fall through to the archive; archived orders are detached and read-only,
+    // and getById (behind every status change) only sees live orders
+    public Order getByOrderNumber(Long pharmacyId, String orderNumber) {
+        return orderRepository.findByPharmacyIdAndOrderNumber(pharmacyId, orderNumber)
+                .or(() -> orderArchiveRepository.findByPharmacyIdAndOrderNumber(pharmacyId, orderNumber))
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "orderNumber", orderNumber));
     }
 
+    // Customer lookups: a customer orders from any pharmacy, so these probe every partition
     public Order getById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", id));
     }
 
-    public Optional<Order> findByOrderNumber(String orderNumber) {
-        return orderRepository.findByOrderNumber(orderNumber);
-    }
-
     public Order getByOrderNumber(String orderNumber) {
         return orderRepository.findByOrderNumber(orderNumber)
+                .or(() -> orderArchiveRepository.findByOrderNumber(orderNumber))
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "orderNumber", orderNumber));
     }
 
+    @Transactional(readOnly = true)
     public Page<Order> findByPharmacy(Long pharmacyId, Pageable pageable) {
-        return orderRepository.findByPharmacyId(pharmacyId, pageable);
+        return withArchived(orderRepository.findByPharmacyId(pharmacyId, pageable),
+                orderArchiveRepository.countByPharmacyId(pharmacyId),
+                (offset, limit) -> orderArchiveRepository.findByPharmacyId(pharmacyId, offset, limit));
     }
 
+    @Transactional(readOnly = true)
     public Page<Order> findByCustomer(Long customerId, Pageable pageable) {
-        return orderRepository.findByCustomerId(customerId, pageable);
+        return withArchived(orderRepository.findByCustomerId(customerId, pageable),
+                orderArchiveRepository.countByCustomerId(customerId),
+                (offset, limit) -> orderArchiveRepository.findByCustomerId(customerId, offset, limit));
     }
 
+    // Continues a newest-first page of live orders with archived ones. Archived orders are older
+    // than anything still live apart from stuck non-terminal orders, so the archive is treated
+    // as the tail of the list rather than merged by date.
+    private Page<Order> withArchived(Page<Order> live, long archivedTotal,
+                                     BiFunction<Long, Integer, List<Order>> archived) {
+        long total = live.getTotalElements() + archivedTotal;
+        int missing = live.getPageable().getPageSize() - live.getNumberOfElements();
+        if (archivedTotal == 0 || missing == 0) {
+            return new PageImpl<>(live.getContent(), live.getPageable(), total);
+        }
+        long archiveOffset = Math.max(0, live.getPageable().getOffset() - live.getTotalElements());
+        List<Order> content = new ArrayList<>(live.getContent());
+        content.addAll(archived.apply(archiveOffset, missing));
+        return new PageImpl<>(content, live.getPageable(), total);
+    }
+
+    @Transactional(readOnly = true)
     public List<Order> findByPharmacyAndStatus(Long pharmacyId, OrderStatus status) {
         return orderRepository.findByPharmacyIdAndStatus(pharmacyId, status);
     }
 
+    @Transactional(readOnly = true)
     public List<Order> findPendingOrders(Long pharmacyId) {
         return orderRepository.findByPharmacyIdAndStatusOrderByCreatedAtAsc(pharmacyId, OrderStatus.PENDING);
     }
 
+    @Transactional(readOnly = true)
     public List<Order> findRecentOrders(Long pharmacyId) {
         return orderRepository.findTop10ByPharmacyIdOrderByCreatedAtDesc(pharmacyId);
     }
 
-    public Order updateStatus(Long orderId, OrderStatus newStatus) {
-        Order order = getById(orderId);
+    public Order updateStatus(Long pharmacyId, Long orderId, OrderStatus newStatus) {
+        Order order = getById(pharmacyId, orderId);
 
-        validateStatusTransition(order.getStatus(), newStatus);
+        OrderStatus oldStatus = order.getStatus();
+        validateStatusTransition(oldStatus, newStatus);
 
         order.setStatus(newStatus);
 
@@ -158,23 +221,26 @@ public class OrderService {
             default -> {}
         }
 
-        return orderRepository.save(order);
+        order = orderRepository.save(order);
+        publishOrderEvent(order, DomainEventTypes.ORDER_STATUS_CHANGED, oldStatus);
+        return order;
     }
 
-    public Order setTrackingNumber(Long orderId, String trackingNumber, String cargoCompany) {
-        Order order = getById(orderId);
+    public Order setTrackingNumber(Long pharmacyId, Long orderId, String trackingNumber, String cargoCompany) {
+        Order order = getById(pharmacyId, orderId);
         order.setTrackingNumber(trackingNumber);
         order.setCargoCompany(cargoCompany);
         return orderRepository.save(order);
     }
 
-    public Order cancelOrder(Long orderId, String reason, Long cancelledBy) {
-        Order order = getById(orderId);
+    public Order cancelOrder(Long pharmacyId, Long orderId, String reason, Long cancelledBy) {
+        Order order = getById(pharmacyId, orderId);
 
         if (!order.isCancellable()) {
             throw BusinessException.orderNotCancellable();
         }
 
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancellationReason(reason);
         order.setCancelledAt(LocalDateTime.now());
@@ -183,36 +249,46 @@ public class OrderService {
         // Restore stock
         for (OrderItem item : order.getItems()) {
             Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
+            int oldStock = product.getStockQuantity();
+            product.setStockQuantity(oldStock + item.getQuantity());
             productRepository.save(product);
+            lowStockMonitor.onStockChanged(product);
+            cartService.productChanged(product);
+            catalogFacetIndex.productChanged(product);
+            catalogVersionService.stockChanged(order.getPharmacy().getId(), oldStock,
+                    product.getStockQuantity(), product.getLowStockThreshold());
         }
 
-        return orderRepository.save(order);
+        order = orderRepository.save(order);
+        publishOrderEvent(order, DomainEventTypes.ORDER_CANCELLED, oldStatus);
+        return order;
     }
 
+    @Transactional(readOnly = true)
     public long countByStatus(Long pharmacyId, OrderStatus status) {
         return orderRepository.countByPharmacyIdAndStatus(pharmacyId, status);
     }
 
+    @Transactional(readOnly = true)
     public long countTodayOrders(Long pharmacyId) {
         LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
         return orderRepository.countTodayOrders(pharmacyId, startOfDay);
     }
 
-    private String generateOrderNumber() {
-        String year = String.valueOf(LocalDateTime.now().getYear());
-        long count = orderCounter.incrementAndGet();
-        String number = String.format("%05d", count);
-
-        String orderNumber = "ORD-" + year + "-" + number;
-
-        while (orderRepository.existsByOrderNumber(orderNumber)) {
-            count = orderCounter.incrementAndGet();
-            number = String.format("%05d", count);
-            orderNumber = "ORD-" + year + "-" + number;
+    private void publishOrderEvent(Order order, String eventType, OrderStatus oldStatus) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("orderNumber", order.getOrderNumber());
+        payload.put("customerId", order.getCustomer().getId());
+        payload.put("oldStatus", oldStatus != null ? oldStatus.name() : null);
+        payload.put("newStatus", order.getStatus().name());
+        payload.put("totalAmount", order.getTotalAmount());
+        if (order.isCancelled()) {
+            payload.put("cancellationReason", order.getCancellationReason());
+            payload.put("cancelledBy", order.getCancelledBy());
         }
 
-        return orderNumber;
+        outboxService.append(DomainEventTypes.ORDER, order.getId(), order.getPharmacy().getId(), eventType, payload);
     }
 
     private BigDecimal calculateShippingCost(DeliveryType deliveryType) {
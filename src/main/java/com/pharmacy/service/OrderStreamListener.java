@@ -0,0 +1,147 @@
+package com.pharmacy.service;
+
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.repository.OrderStreamJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds this node's OrderStreamService from the order_stream channel, so staff connected to any
+ * node see every event, whichever node's relay dispatched it. LISTEN belongs to a session, so the
+ * loop keeps one dedicated connection to the primary outside the pool, on the listener thread.
+ *
+ * Notifications sent while no connection is listening are lost; each (re)connect therefore first
+ * reads back the streamed events of the last catch-up-seconds before the previous connection was
+ * last heard from. Events already buffered are dropped by OrderStreamService.
+ */
+@Component
+public class OrderStreamListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStreamListener.class);
+
+    private final OrderStreamService orderStreamService;
+    private final OrderStreamJdbcRepository orderStreamRepository;
+    private final DataSource listenConnections;
+    private final TaskExecutor listenerExecutor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean listening;
+    private volatile boolean stopped;
+    private volatile LocalDateTime lastHeardAt;
+
+    @Value("${order-stream.listen-poll-ms:500}")
+    private int pollMs;
+
+    @Value("${order-stream.catch-up-seconds:60}")
+    private long catchUpSeconds;
+
+    @Autowired
+    public OrderStreamListener(OrderStreamService orderStreamService,
+                               OrderStreamJdbcRepository orderStreamRepository,
+                               DataSourceProperties dataSourceProperties,
+                               @Qualifier("streamListenerExecutor") TaskExecutor listenerExecutor) {
+        this(orderStreamService, orderStreamRepository,
+                new DriverManagerDataSource(dataSourceProperties.determineUrl(),
+                        dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()),
+                listenerExecutor);
+    }
+
+    OrderStreamListener(OrderStreamService orderStreamService,
+                        OrderStreamJdbcRepository orderStreamRepository,
+                        DataSource listenConnections,
+                        TaskExecutor listenerExecutor) {
+        this.orderStreamService = orderStreamService;
+        this.orderStreamRepository = orderStreamRepository;
+        this.listenConnections = listenConnections;
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    // Starts the loop, and restarts it after a lost connection
+    @Scheduled(fixedDelayString = "${order-stream.listen-check-interval-ms:5000}")
+    public void ensureListening() {
+        if (stopped || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            listenerExecutor.execute(this::listen);
+        } catch (TaskRejectedException e) {
+            running.set(false);
+        }
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    private void listen() {
+        try (Connection connection = listenConnections.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + OrderStreamJdbcRepository.CHANNEL);
+            }
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            listening = true;
+            catchUp();
+
+            while (!stopped) {
+                PGNotification[] notifications = pgConnection.getNotifications(pollMs);
+                lastHeardAt = LocalDateTime.now();
+                if (notifications != null && notifications.length > 0) {
+                    deliver(notifications);
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            if (!stopped) {
+                log.warn("Order stream listener lost its connection, reconnecting: {}", e.getMessage());
+            }
+        } finally {
+            listening = false;
+            running.set(false);
+        }
+    }
+
+    private void catchUp() {
+        LocalDateTime heardAt = lastHeardAt != null ? lastHeardAt : LocalDateTime.now();
+        List<DomainEvent> missed = orderStreamRepository.findRecent(
+                heardAt.minusSeconds(catchUpSeconds), OrderStreamService.STREAMED_EVENTS);
+        missed.forEach(orderStreamService::publish);
+    }
+
+    private void deliver(PGNotification[] notifications) {
+        List<Long> eventIds = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            try {
+                eventIds.add(Long.valueOf(notification.getParameter()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed order stream notification: {}", notification.getParameter());
+            }
+        }
+        orderStreamRepository.findByIds(eventIds).forEach(orderStreamService::publish);
+    }
+}
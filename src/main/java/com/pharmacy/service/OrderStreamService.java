@@ -0,0 +1,249 @@
+package com.pharmacy.service;
+
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.event.DomainEventListener;
+import com.pharmacy.event.DomainEventTypes;
+import com.pharmacy.repository.OrderStreamJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes order deltas from the outbox to staff dashboards over Server-Sent Events.
+ * Each pharmacy keeps a small ring buffer of recent events so a reconnecting client can
+ * resume from its Last-Event-ID instead of re-polling the order lists.
+ *
+ * A staff client may be connected to any node, while only one node's relay dispatches a given
+ * event. The relay therefore only announces the event (see OrderStreamJdbcRepository), and every
+ * node's OrderStreamListener hands it to publish() once the dispatch has committed.
+ */
+@Service
+public class OrderStreamService implements DomainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStreamService.class);
+
+    static final Set<String> STREAMED_EVENTS = Set.of(
+            DomainEventTypes.ORDER_CREATED,
+            DomainEventTypes.ORDER_STATUS_CHANGED,
+            DomainEventTypes.ORDER_CANCELLED,
+            DomainEventTypes.PAYMENT_SUCCEEDED,
+            DomainEventTypes.PAYMENT_FAILED
+    );
+
+    // Sent when the requested Last-Event-ID is older than the buffer; the client should refetch lists
+    private static final String RESYNC_EVENT = "RESYNC";
+
+    // Pharmacy ID -> connected staff emitters
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    // Pharmacy ID -> recent events for reconnect replay
+    private final Map<Long, RecentEvents> recentEvents = new ConcurrentHashMap<>();
+
+    private final OrderStreamJdbcRepository orderStreamRepository;
+    private final TaskExecutor streamExecutor;
+
+    @Value("${order-stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${order-stream.replay-buffer-size:200}")
+    private int replayBufferSize;
+
+    @Value("${order-stream.max-connections-per-pharmacy:50}")
+    private int maxConnectionsPerPharmacy;
+
+    public OrderStreamService(OrderStreamJdbcRepository orderStreamRepository,
+                              @Qualifier("streamExecutor") TaskExecutor streamExecutor) {
+        this.orderStreamRepository = orderStreamRepository;
+        this.streamExecutor = streamExecutor;
+    }
+
+    // ==================== SUBSCRIPTION ====================
+
+    public SseEmitter subscribe(Long pharmacyId, Long lastEventId) {
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(pharmacyId, id -> new CopyOnWriteArrayList<>());
+
+        SseEmitter emitter = createEmitter();
+        if (emitters.size() >= maxConnectionsPerPharmacy) {
+            // Oldest connection is most likely a forgotten tab
+            SseEmitter oldest = emitters.remove(0);
+            oldest.complete();
+        }
+        emitters.add(emitter);
+
+        emitter.onCompletion(() -> unsubscribe(pharmacyId, emitter));
+        emitter.onTimeout(() -> unsubscribe(pharmacyId, emitter));
+        emitter.onError(e -> unsubscribe(pharmacyId, emitter));
+
+        replay(pharmacyId, emitter, lastEventId);
+
+        log.debug("Order stream subscribed for pharmacy: {} ({} connections)", pharmacyId, emitters.size());
+        return emitter;
+    }
+
+    public int countSubscribers(Long pharmacyId) {
+        List<SseEmitter> emitters = subscribers.get(pharmacyId);
+        return emitters != null ? emitters.size() : 0;
+    }
+
+    // ==================== OUTBOX LISTENER ====================
+
+    @Override
+    public boolean supports(String eventType) {
+        return STREAMED_EVENTS.contains(eventType);
+    }
+
+    // Runs in the event's dispatch transaction: a rolled-back dispatch announces nothing
+    @Override
+    public void onEvent(DomainEvent event) {
+        if (event.getPharmacyId() != null) {
+            orderStreamRepository.notifyCommitted(event.getId());
+        }
+    }
+
+    // ==================== FAN-OUT ====================
+
+    // Called by OrderStreamListener for every streamed event, whichever node dispatched it
+    public void publish(DomainEvent event) {
+        if (event.getPharmacyId() == null) {
+            return;
+        }
+
+        // At-least-once relay may redeliver, and workers commit batches out of id order:
+        // drop ids already seen, but always fan out a new event even when it arrives late
+        RecentEvents buffer = recentEvents.computeIfAbsent(event.getPharmacyId(), id -> new RecentEvents());
+        synchronized (buffer) {
+            if (!buffer.add(event, replayBufferSize)) {
+                return;
+            }
+        }
+
+        List<SseEmitter> emitters = subscribers.get(event.getPharmacyId());
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+
+        // Fan out off the listener thread so one slow client never holds up the others
+        for (SseEmitter emitter : emitters) {
+            submit(event.getPharmacyId(), emitter, toSseEvent(event));
+        }
+    }
+
+    // ==================== HEARTBEAT ====================
+
+    // Comment line every 15 seconds keeps proxies from closing idle connections. Writes go through
+    // the send pool, so a stalled client never blocks the shared scheduler thread.
+    @Scheduled(fixedRateString = "${order-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        subscribers.forEach((pharmacyId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                submit(pharmacyId, emitter, SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(emitterTimeoutMs);
+    }
+
+    private void replay(Long pharmacyId, SseEmitter emitter, Long lastEventId) {
+        if (lastEventId == null) {
+            return;
+        }
+
+        List<DomainEvent> missed = new ArrayList<>();
+        boolean gap;
+        RecentEvents buffer = recentEvents.get(pharmacyId);
+        if (buffer == null) {
+            gap = true;
+        } else {
+            synchronized (buffer) {
+                // Outbox ids are global, so this is conservative: anything older than the buffer resyncs
+                gap = buffer.events.isEmpty() || buffer.events.firstKey() > lastEventId;
+                missed.addAll(buffer.events.tailMap(lastEventId, false).values());
+            }
+        }
+
+        if (gap) {
+            send(pharmacyId, emitter, SseEmitter.event().name(RESYNC_EVENT).data("{}", MediaType.APPLICATION_JSON));
+        }
+        for (DomainEvent event : missed) {
+            send(pharmacyId, emitter, toSseEvent(event));
+        }
+    }
+
+    private void submit(Long pharmacyId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            streamExecutor.execute(() -> send(pharmacyId, emitter, event));
+        } catch (TaskRejectedException e) {
+            log.warn("Order stream executor saturated, dropping connection for pharmacy: {}", pharmacyId);
+            emitter.complete();
+        }
+    }
+
+    private void send(Long pharmacyId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            // SseEmitter is not thread-safe for concurrent sends
+            synchronized (emitter) {
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(pharmacyId, emitter);
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSseEvent(DomainEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name(event.getEventType())
+                .data(event.getPayload(), MediaType.APPLICATION_JSON);
+    }
+
+    private void unsubscribe(Long pharmacyId, SseEmitter emitter) {
+        List<SseEmitter> emitters = subscribers.get(pharmacyId);
+        if (emitters != null) {
+            emitters.remove(emitter);
+        }
+    }
+
+    // Replay buffer in id order plus a bounded set of delivered ids for dedupe; guarded by its own monitor
+    private static final class RecentEvents {
+
+        private final TreeMap<Long, DomainEvent> events = new TreeMap<>();
+        private final Set<Long> seen = new LinkedHashSet<>();
+
+        // False when the event was already delivered
+        boolean add(DomainEvent event, int capacity) {
+            if (!seen.add(event.getId())) {
+                return false;
+            }
+            // Remember more ids than are buffered, so redeliveries of evicted events are still caught
+            if (seen.size() > capacity * 4) {
+                seen.remove(seen.iterator().next());
+            }
+            events.put(event.getId(), event);
+            while (events.size() > capacity) {
+                events.pollFirstEntry();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pharmacy.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the outbox on a small pool of relay workers. Each worker locks its own batch with
+ * FOR UPDATE SKIP LOCKED, so workers (and app nodes) split the backlog without blocking each other.
+ * Events are delivered in id order within a batch only: batches on different workers interleave,
+ * and a failed event is retried after backoff, behind newer events. Listeners must not assume
+ * global (or even per-aggregate) ordering.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxService outboxService;
+    private final TaskExecutor outboxExecutor;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    @Value("${outbox.relay.workers:2}")
+    private int workers;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.retention-days:7}")
+    private int retentionDays;
+
+    public OutboxRelay(OutboxService outboxService,
+                       @Qualifier("outboxExecutor") TaskExecutor outboxExecutor) {
+        this.outboxService = outboxService;
+        this.outboxExecutor = outboxExecutor;
+    }
+
+    // Poll every second; workers still running from the previous tick are not duplicated
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:1000}")
+    public void relay() {
+        while (activeWorkers.get() < workers) {
+            activeWorkers.incrementAndGet();
+            outboxExecutor.execute(this::drain);
+        }
+    }
+
+    // Purge published events daily at 04:00
+    @Scheduled(cron = "0 0 4 * * *")
+    public void purge() {
+        int deleted = outboxService.purgePublished(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    private void drain() {
+        try {
+            int relayed;
+            do {
+                relayed = outboxService.relayBatch(batchSize);
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay worker failed", e);
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+}
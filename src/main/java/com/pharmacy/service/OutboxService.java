@@ -0,0 +1,144 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.OutboxEvent;
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.event.DomainEventListener;
+import com.pharmacy.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Transactional
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<DomainEventListener> listeners;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.backoff-seconds:5}")
+    private long backoffSeconds;
+
+    @Value("${outbox.relay.max-backoff-seconds:600}")
+    private long maxBackoffSeconds;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         ObjectProvider<DomainEventListener> listeners,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.listeners = listeners;
+        this.objectMapper = objectMapper;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Must join the caller's transaction so the event commits (or rolls back) with the state change
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent append(String aggregateType, Long aggregateId, Long pharmacyId,
+                              String eventType, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setPharmacyId(pharmacyId);
+        event.setEventType(eventType);
+        event.setPayload(toJson(payload));
+        return outboxEventRepository.save(event);
+    }
+
+    // Locks and dispatches one batch; returns the number of rows locked (0 means nothing left to do).
+    // Each event is dispatched in its own transaction: a failing listener rolls back only its own
+    // work and cannot mark the relay transaction (which holds the row locks) rollback-only.
+    public int relayBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(maxAttempts, now, batchSize);
+
+        for (OutboxEvent event : batch) {
+            try {
+                requiresNew.executeWithoutResult(status -> dispatch(event));
+                event.setPublishedAt(LocalDateTime.now());
+                event.setLastError(null);
+                event.setNextAttemptAt(null);
+            } catch (Exception e) {
+                failed(event, now, e);
+            }
+        }
+
+        return batch.size();
+    }
+
+    public int purgePublished(LocalDateTime before) {
+        return outboxEventRepository.deletePublishedBefore(before);
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return outboxEventRepository.countByPublishedAtIsNull();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void dispatch(OutboxEvent event) {
+        DomainEvent domainEvent = new DomainEvent(
+                event.getId(), event.getAggregateType(), event.getAggregateId(), event.getPharmacyId(),
+                event.getEventType(), event.getPayload(), event.getCreatedAt());
+
+        for (DomainEventListener listener : listeners.orderedStream().toList()) {
+            if (listener.supports(event.getEventType())) {
+                listener.onEvent(domainEvent);
+            }
+        }
+    }
+
+    // Retries after backoffSeconds, doubling per attempt up to maxBackoffSeconds. A retried event is
+    // delivered after events queued behind it, so listeners must not rely on ordering across retries.
+    private void failed(OutboxEvent event, LocalDateTime now, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(e.getMessage()));
+        long delay = Math.min(maxBackoffSeconds, backoffSeconds << Math.min(attempts - 1, 20));
+        event.setNextAttemptAt(now.plusSeconds(delay));
+        if (attempts >= maxAttempts) {
+            log.error("Outbox event {} ({}) gave up after {} attempts",
+                    event.getId(), event.getEventType(), attempts, e);
+        } else {
+            log.warn("Outbox event {} ({}) failed, retrying in {}s: {}",
+                    event.getId(), event.getEventType(), delay, e.getMessage());
+        }
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize outbox payload", e);
+        }
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= MAX_ERROR_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -4,6 +4,7 @@ import com.pharmacy.entity.Order;
 import com.pharmacy.entity.Payment;
 import com.pharmacy.enums.OrderStatus;
 import com.pharmacy.enums.PaymentStatus;
+import com.pharmacy.event.DomainEventTypes;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.DuplicateResourceException;
 import com.pharmacy.exception.BusinessException;
@@ -14,6 +15,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,10 +26,14 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
 
-    public PaymentService(PaymentRepository paymentRepository, OrderRepository orderRepository) {
+    public PaymentService(PaymentRepository paymentRepository,
+                          OrderRepository orderRepository,
+                          OutboxService outboxService) {
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
+        this.outboxService = outboxService;
     }
 
     public Payment createPayment(Order order) {
@@ -65,9 +72,15 @@ public class PaymentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Payment", "conversationId", conversationId));
     }
 
+    // Locks the payment row until the surrounding transaction ends
+    public Payment lockByConversationId(String conversationId) {
+        return paymentRepository.findByConversationIdForUpdate(conversationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment", "conversationId", conversationId));
+    }
+
     public Payment processSuccessfulPayment(String conversationId, String transactionId,
                                             String paymentId, String cardLastFour, String cardBrand) {
-        Payment payment = getByConversationId(conversationId);
+        Payment payment = lockPending(conversationId);
 
         payment.setStatus(PaymentStatus.SUCCESS);
         payment.setTransactionId(transactionId);
@@ -76,26 +89,32 @@ public class PaymentService {
         payment.setCardBrand(cardBrand);
         payment.setPaidAt(LocalDateTime.now());
 
-        Order order = payment.getOrder();
+        Order order = getLiveOrder(payment);
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CONFIRMED);
         order.setConfirmedAt(LocalDateTime.now());
         orderRepository.save(order);
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        publishPaymentEvent(payment, DomainEventTypes.PAYMENT_SUCCEEDED, oldStatus, order.getStatus());
+        return payment;
     }
 
     public Payment processFailedPayment(String conversationId, String errorCode, String errorMessage) {
-        Payment payment = getByConversationId(conversationId);
+        Payment payment = lockPending(conversationId);
 
         payment.setStatus(PaymentStatus.FAILED);
         payment.setErrorCode(errorCode);
         payment.setErrorMessage(errorMessage);
 
-        Order order = payment.getOrder();
+        Order order = getLiveOrder(payment);
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.PAYMENT_FAILED);
         orderRepository.save(order);
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        publishPaymentEvent(payment, DomainEventTypes.PAYMENT_FAILED, oldStatus, order.getStatus());
+        return payment;
     }
 
     public Payment processFullRefund(Long paymentId) {
@@ -109,7 +128,9 @@ public class PaymentService {
         payment.setRefundedAmount(payment.getAmount());
         payment.setRefundedAt(LocalDateTime.now());
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        publishPaymentEvent(payment, DomainEventTypes.PAYMENT_REFUNDED, null, null);
+        return payment;
     }
 
     public Payment processPartialRefund(Long paymentId, BigDecimal refundAmount) {
@@ -131,7 +152,43 @@ public class PaymentService {
             payment.setStatus(PaymentStatus.REFUNDED);
         }
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        publishPaymentEvent(payment, DomainEventTypes.PAYMENT_REFUNDED, null, null);
+        return payment;
+    }
+
+    // The callback and the webhook both settle payments; whichever locks the row second sees it settled
+    private Payment lockPending(String conversationId) {
+        Payment payment = lockByConversationId(conversationId);
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            throw BusinessException.paymentAlreadySettled(payment.getStatus().name());
+        }
+        return payment;
+    }
+
+    // The order of a pending or just-settled payment is not DELIVERED/CANCELLED, so OrderArchiver
+    // has not moved it; refunds and lookups of older payments must not rely on this. Looked up with
+    // the pharmacy (the partition key) so only its partition of orders is read.
+    public Order getLiveOrder(Payment payment) {
+        return orderRepository.findByIdAndPharmacyId(payment.getOrderId(), payment.getPharmacyId())
+                .orElseThrow(() -> new ResourceNotFoundException("Order", payment.getOrderId()));
+    }
+
+    // Refunds leave the order (possibly archived by now) untouched and carry no order statuses
+    private void publishPaymentEvent(Payment payment, String eventType,
+                                     OrderStatus oldOrderStatus, OrderStatus newOrderStatus) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("paymentId", payment.getId());
+        payload.put("orderId", payment.getOrderId());
+        payload.put("orderNumber", payment.getOrderNumber());
+        payload.put("customerId", payment.getCustomerId());
+        payload.put("paymentStatus", payment.getStatus().name());
+        payload.put("amount", payment.getAmount());
+        payload.put("refundedAmount", payment.getRefundedAmount());
+        payload.put("oldStatus", oldOrderStatus != null ? oldOrderStatus.name() : null);
+        payload.put("newStatus", newOrderStatus != null ? newOrderStatus.name() : null);
+
+        outboxService.append(DomainEventTypes.PAYMENT, payment.getId(), payment.getPharmacyId(), eventType, payload);
     }
 
     private String generateConversationId() {
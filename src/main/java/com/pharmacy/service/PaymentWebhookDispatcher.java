@@ -0,0 +1,66 @@
+package com.pharmacy.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands inbox events to the webhook worker pool and periodically re-dispatches events
+ * that were rejected during a burst, failed, or were abandoned by a crashed node.
+ * Each event is claimed with a conditional update, so concurrent workers and nodes never apply it twice.
+ */
+@Component
+public class PaymentWebhookDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentWebhookDispatcher.class);
+
+    private final PaymentWebhookService webhookService;
+    private final TaskExecutor webhookExecutor;
+
+    @Value("${payment.webhook.sweep-batch-size:200}")
+    private int sweepBatchSize;
+
+    public PaymentWebhookDispatcher(PaymentWebhookService webhookService,
+                                    @Qualifier("webhookExecutor") TaskExecutor webhookExecutor) {
+        this.webhookService = webhookService;
+        this.webhookExecutor = webhookExecutor;
+    }
+
+    public void dispatch(Long eventId) {
+        try {
+            webhookExecutor.execute(() -> processOne(eventId));
+        } catch (TaskRejectedException e) {
+            // Event is already durable in the inbox; the sweeper will pick it up
+            log.warn("Webhook worker pool saturated, deferring event: {}", eventId);
+        }
+    }
+
+    // Sweep inbox every 30 seconds
+    @Scheduled(fixedDelayString = "${payment.webhook.sweep-interval-ms:30000}")
+    public void sweep() {
+        List<Long> eventIds = webhookService.findRetryable(sweepBatchSize);
+        if (!eventIds.isEmpty()) {
+            log.info("Re-dispatching {} payment webhook events", eventIds.size());
+            eventIds.forEach(this::dispatch);
+        }
+    }
+
+    private void processOne(Long eventId) {
+        if (!webhookService.claim(eventId)) {
+            return;
+        }
+        try {
+            webhookService.process(eventId);
+        } catch (Exception e) {
+            log.error("Error processing payment webhook event: {}", eventId, e);
+            webhookService.markFailed(eventId, e.getMessage());
+        }
+    }
+}
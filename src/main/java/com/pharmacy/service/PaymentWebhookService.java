@@ -0,0 +1,235 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.Order;
+import com.pharmacy.entity.Payment;
+import com.pharmacy.entity.PaymentWebhookEvent;
+import com.pharmacy.enums.PaymentStatus;
+import com.pharmacy.enums.WebhookEventStatus;
+import com.pharmacy.exception.AuthenticationException;
+import com.pharmacy.exception.BadRequestException;
+import com.pharmacy.exception.ResourceNotFoundException;
+import com.pharmacy.repository.PaymentWebhookEventRepository;
+import com.pharmacy.security.WebhookSignatureVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+
+@Service
+@Transactional
+public class PaymentWebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentWebhookService.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final PaymentWebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final AuditLogService auditLogService;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final ObjectMapper objectMapper;
+
+    @Value("${payment.webhook.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${payment.webhook.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    @Value("${payment.webhook.processing-timeout-seconds:300}")
+    private long processingTimeoutSeconds;
+
+    public PaymentWebhookService(PaymentWebhookEventRepository webhookEventRepository,
+                                 PaymentService paymentService,
+                                 AuditLogService auditLogService,
+                                 WebhookSignatureVerifier signatureVerifier,
+                                 ObjectMapper objectMapper) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentService = paymentService;
+        this.auditLogService = auditLogService;
+        this.signatureVerifier = signatureVerifier;
+        this.objectMapper = objectMapper;
+    }
+
+    // ==================== INGESTION ====================
+
+    // Verifies and appends the notification to the inbox. Runs outside the class-level transaction
+    // so a concurrent duplicate insert can be caught and resolved to the existing row.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PaymentWebhookEvent receive(String payload, String signature) {
+        if (!signatureVerifier.verify(payload, signature)) {
+            throw AuthenticationException.invalidSignature();
+        }
+
+        JsonNode json = parse(payload);
+        String conversationId = text(json, "paymentConversationId");
+        if (conversationId == null) {
+            throw new BadRequestException("Webhook payload is missing paymentConversationId", "INVALID_WEBHOOK");
+        }
+
+        PaymentWebhookEvent event = new PaymentWebhookEvent();
+        event.setEventType(text(json, "iyziEventType"));
+        event.setConversationId(conversationId);
+        event.setPaymentId(text(json, "paymentId"));
+        event.setProviderStatus(text(json, "status"));
+        event.setPayload(payload);
+        event.setIdempotencyKey(idempotencyKey(json, event));
+
+        return webhookEventRepository.findByIdempotencyKey(event.getIdempotencyKey())
+                .map(existing -> {
+                    log.info("Duplicate payment webhook ignored: {}", existing.getIdempotencyKey());
+                    return existing;
+                })
+                .orElseGet(() -> insert(event));
+    }
+
+    private PaymentWebhookEvent insert(PaymentWebhookEvent event) {
+        try {
+            return webhookEventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race against a concurrent delivery of the same notification
+            return webhookEventRepository.findByIdempotencyKey(event.getIdempotencyKey())
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    // ==================== PROCESSING ====================
+
+    public boolean claim(Long eventId) {
+        // Events that used up their attempts stay FAILED, even when the provider redelivers them
+        return webhookEventRepository.claim(eventId,
+                EnumSet.of(WebhookEventStatus.RECEIVED, WebhookEventStatus.FAILED),
+                maxAttempts,
+                LocalDateTime.now()) == 1;
+    }
+
+    public void process(Long eventId) {
+        PaymentWebhookEvent event = getById(eventId);
+        // Held until commit, so a concurrent 3DS callback waits and then finds the payment settled
+        Payment payment = paymentService.lockByConversationId(event.getConversationId());
+
+        // Already settled by the 3DS callback or an earlier notification: nothing left to apply
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            finish(event, WebhookEventStatus.IGNORED, "Payment already " + payment.getStatus());
+            return;
+        }
+
+        Order order = paymentService.getLiveOrder(payment);
+        Long pharmacyId = payment.getPharmacyId();
+
+        if (event.isSuccessEvent()) {
+            JsonNode json = parse(event.getPayload());
+            String transactionId = text(json, "iyziReferenceCode");
+            String cardLastFour = text(json, "lastFourDigits");
+            String cardBrand = text(json, "cardAssociation");
+
+            payment = paymentService.processSuccessfulPayment(
+                    event.getConversationId(), transactionId, event.getPaymentId(), cardLastFour, cardBrand);
+
+            auditLogService.logPaymentSuccess(
+                    pharmacyId, order.getCustomer().getId(), order.getCustomer().getEmail(),
+                    payment.getId(), order.getId(), order.getOrderNumber(),
+                    payment.getAmount(), transactionId, cardLastFour
+            );
+        } else {
+            JsonNode json = parse(event.getPayload());
+            String errorCode = text(json, "errorCode");
+            String errorMessage = text(json, "errorMessage");
+
+            payment = paymentService.processFailedPayment(event.getConversationId(), errorCode, errorMessage);
+
+            auditLogService.logPaymentFailed(
+                    pharmacyId, order.getCustomer().getId(), order.getCustomer().getEmail(),
+                    payment.getId(), order.getId(), order.getOrderNumber(),
+                    errorCode, errorMessage
+            );
+        }
+
+        finish(event, WebhookEventStatus.PROCESSED, null);
+        log.info("Payment webhook {} processed for order: {}", event.getId(), order.getOrderNumber());
+    }
+
+    public void markFailed(Long eventId, String error) {
+        PaymentWebhookEvent event = getById(eventId);
+        event.setStatus(WebhookEventStatus.FAILED);
+        event.setLastError(truncate(error));
+        webhookEventRepository.save(event);
+    }
+
+    // Events due for another attempt, after putting back anything abandoned by a dead worker
+    public List<Long> findRetryable(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        int released = webhookEventRepository.releaseStuck(now.minusSeconds(processingTimeoutSeconds));
+        if (released > 0) {
+            log.warn("Released {} stuck payment webhook events", released);
+        }
+        return webhookEventRepository.findIdsForRetry(
+                EnumSet.of(WebhookEventStatus.RECEIVED, WebhookEventStatus.FAILED),
+                maxAttempts,
+                now.minusSeconds(retryDelaySeconds),
+                PageRequest.of(0, limit));
+    }
+
+    public PaymentWebhookEvent getById(Long id) {
+        return webhookEventRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("PaymentWebhookEvent", id));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void finish(PaymentWebhookEvent event, WebhookEventStatus status, String note) {
+        event.setStatus(status);
+        event.setLastError(note);
+        event.setProcessedAt(LocalDateTime.now());
+        webhookEventRepository.save(event);
+    }
+
+    private JsonNode parse(String payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Webhook payload is not valid JSON", "INVALID_WEBHOOK");
+        }
+    }
+
+    private String text(JsonNode json, String field) {
+        JsonNode node = json.get(field);
+        return node == null || node.isNull() || node.asText().isEmpty() ? null : node.asText();
+    }
+
+    // Provider retries resend the same body; the key only depends on what identifies the notification
+    private String idempotencyKey(JsonNode json, PaymentWebhookEvent event) {
+        String source = String.join("|",
+                String.valueOf(event.getEventType()),
+                event.getConversationId(),
+                String.valueOf(event.getPaymentId()),
+                String.valueOf(text(json, "iyziReferenceCode")),
+                String.valueOf(event.getProviderStatus()));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= MAX_ERROR_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_ERROR_LENGTH);
+    }
+}
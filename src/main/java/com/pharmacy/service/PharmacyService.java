@@ -8,22 +8,31 @@ import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.DuplicateResourceException;
 import com.pharmacy.exception.BusinessException;
 import com.pharmacy.repository.PharmacyRepository;
+import com.pharmacy.repository.SearchPatterns;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class PharmacyService {
 
     private final PharmacyRepository pharmacyRepository;
+    private final CatalogVersionService catalogVersionService;
 
-    public PharmacyService(PharmacyRepository pharmacyRepository) {
+    public PharmacyService(PharmacyRepository pharmacyRepository,
+                           CatalogVersionService catalogVersionService) {
         this.pharmacyRepository = pharmacyRepository;
+        this.catalogVersionService = catalogVersionService;
     }
 
     public Pharmacy createPharmacy(Pharmacy pharmacy) {
@@ -68,16 +77,46 @@ public class PharmacyService {
         return pharmacyRepository.findByCustomDomain(domain);
     }
 
+    @Transactional(readOnly = true)
     public List<Pharmacy> findAllActive() {
         return pharmacyRepository.findByStatus(PharmacyStatus.ACTIVE);
     }
 
+    @Transactional(readOnly = true)
     public List<Pharmacy> findAll() {
         return pharmacyRepository.findAll();
     }
 
+    // Admin listing; q matches name, subdomain or email (case-insensitive)
+    @Transactional(readOnly = true)
+    public Page<Pharmacy> searchPharmacies(PharmacyStatus status, SubscriptionPlan plan, String q, Pageable pageable) {
+        return pharmacyRepository.search(status, plan, SearchPatterns.contains(q), pageable);
+    }
+
+    // Walks all matching pharmacies in ID order, one short read per batch instead of one long transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachPharmacyBatch(PharmacyStatus status, SubscriptionPlan plan, String q,
+                                     int batchSize, Consumer<List<Pharmacy>> consumer) {
+        String search = SearchPatterns.contains(q);
+        long afterId = 0L;
+        while (true) {
+            List<Pharmacy> batch = pharmacyRepository.findBatch(
+                    afterId, status, plan, search, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            consumer.accept(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
     public Pharmacy updatePharmacy(Pharmacy pharmacy) {
-        return pharmacyRepository.save(pharmacy);
+        pharmacy = pharmacyRepository.save(pharmacy);
+        catalogVersionService.catalogChanged(pharmacy.getId());
+        return pharmacy;
     }
 
     public Pharmacy upgradePlan(Long pharmacyId, SubscriptionPlan newPlan) {
@@ -90,7 +129,9 @@ public class PharmacyService {
         pharmacy.setSubscriptionPlan(newPlan);
         setSubscriptionFees(pharmacy);
 
-        return pharmacyRepository.save(pharmacy);
+        pharmacy = pharmacyRepository.save(pharmacy);
+        catalogVersionService.catalogChanged(pharmacyId);
+        return pharmacy;
     }
 
     public Pharmacy suspendPharmacy(Long pharmacyId) {
@@ -99,7 +140,9 @@ public class PharmacyService {
         pharmacy.setStatus(PharmacyStatus.SUSPENDED);
         pharmacy.setSuspendedAt(java.time.LocalDateTime.now());
 
-        return pharmacyRepository.save(pharmacy);
+        pharmacy = pharmacyRepository.save(pharmacy);
+        catalogVersionService.catalogChanged(pharmacyId);
+        return pharmacy;
     }
 
     public Pharmacy reactivatePharmacy(Long pharmacyId) {
@@ -110,7 +153,9 @@ public class PharmacyService {
         pharmacy.setGracePeriodEnd(null);
         calculateNextPaymentDate(pharmacy);
 
-        return pharmacyRepository.save(pharmacy);
+        pharmacy = pharmacyRepository.save(pharmacy);
+        catalogVersionService.catalogChanged(pharmacyId);
+        return pharmacy;
     }
 
     public void validatePharmacyActive(Long pharmacyId) {
@@ -0,0 +1,119 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacy.entity.Product;
+import com.pharmacy.mapper.ProductMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps the encoded ProductResponse JSON of storefront products so list endpoints write cached
+ * bytes instead of re-mapping and re-serializing every product on every request.
+ *
+ * An entry is reused only while the product's and its category's updatedAt are unchanged; every
+ * product write (including the JDBC bulk stock path) and category write moves updatedAt.
+ */
+@Component
+public class ProductJsonCache {
+
+    private static final byte[] ARRAY_START = { '[' };
+    private static final byte[] ARRAY_END = { ']' };
+    private static final byte[] SEPARATOR = { ',' };
+
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, Entry> entries;
+
+    public ProductJsonCache(ProductMapper productMapper,
+                            ObjectMapper objectMapper,
+                            @Value("${product-json-cache.max-entries:50000}") long maxEntries) {
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.entries = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    // Needs the product's category loaded (fetch-joined) or still loadable (request thread)
+    public byte[] encode(Product product) {
+        LocalDateTime categoryUpdatedAt = product.getCategory() != null ? product.getCategory().getUpdatedAt() : null;
+
+        Entry entry = entries.getIfPresent(product.getId());
+        if (entry != null && entry.matches(product.getUpdatedAt(), categoryUpdatedAt)) {
+            return entry.json;
+        }
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(productMapper.toResponse(product));
+            entries.put(product.getId(), new Entry(product.getUpdatedAt(), categoryUpdatedAt, json));
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize product " + product.getId(), e);
+        }
+    }
+
+    public List<byte[]> encodeAll(List<Product> products) {
+        List<byte[]> encoded = new ArrayList<>(products.size());
+        for (Product product : products) {
+            encoded.add(encode(product));
+        }
+        return encoded;
+    }
+
+    // Writes the pre-encoded elements as a JSON array without building the whole document in memory
+    public static void writeArray(List<byte[]> elements, OutputStream out) throws IOException {
+        ArrayWriter writer = new ArrayWriter(out);
+        for (byte[] element : elements) {
+            writer.write(element);
+        }
+        writer.close();
+    }
+
+    // Writes a JSON array element by element, for lists produced in batches
+    public static class ArrayWriter {
+        private final OutputStream out;
+        private boolean first = true;
+
+        public ArrayWriter(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(ARRAY_START);
+        }
+
+        public void write(byte[] element) throws IOException {
+            if (!first) {
+                out.write(SEPARATOR);
+            }
+            first = false;
+            out.write(element);
+        }
+
+        public void close() throws IOException {
+            out.write(ARRAY_END);
+        }
+    }
+
+    private static class Entry {
+        final LocalDateTime productUpdatedAt;
+        final LocalDateTime categoryUpdatedAt;
+        final byte[] json;
+
+        Entry(LocalDateTime productUpdatedAt, LocalDateTime categoryUpdatedAt, byte[] json) {
+            this.productUpdatedAt = productUpdatedAt;
+            this.categoryUpdatedAt = categoryUpdatedAt;
+            this.json = json;
+        }
+
+        boolean matches(LocalDateTime productUpdatedAt, LocalDateTime categoryUpdatedAt) {
+            return Objects.equals(this.productUpdatedAt, productUpdatedAt)
+                    && Objects.equals(this.categoryUpdatedAt, categoryUpdatedAt);
+        }
+    }
+}
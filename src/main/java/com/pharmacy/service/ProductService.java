@@ -1,20 +1,35 @@
 package com.pharmacy.service;
 
+import com.pharmacy.dto.request.BulkStockUpdateRequest;
+import com.pharmacy.dto.response.BulkStockUpdateResponse.LineResult;
 import com.pharmacy.entity.Product;
 import com.pharmacy.entity.Pharmacy;
 import com.pharmacy.entity.Category;
+import com.pharmacy.enums.StockUpdateMode;
 import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.DuplicateResourceException;
 import com.pharmacy.exception.BusinessException;
 import com.pharmacy.repository.ProductRepository;
+import com.pharmacy.repository.ProductStockJdbcRepository;
+import com.pharmacy.repository.ProductStockJdbcRepository.StockChange;
+import com.pharmacy.repository.ProductStockJdbcRepository.StockRow;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Service
@@ -22,9 +37,24 @@ import java.util.regex.Pattern;
 public class ProductService {
 
     private final ProductRepository productRepository;
-
-    public ProductService(ProductRepository productRepository) {
+    private final ProductStockJdbcRepository productStockJdbcRepository;
+    private final LowStockMonitor lowStockMonitor;
+    private final CatalogVersionService catalogVersionService;
+    private final CartService cartService;
+    private final CatalogFacetIndex catalogFacetIndex;
+
+    public ProductService(ProductRepository productRepository,
+                          ProductStockJdbcRepository productStockJdbcRepository,
+                          LowStockMonitor lowStockMonitor,
+                          CatalogVersionService catalogVersionService,
+                          CartService cartService,
+                          CatalogFacetIndex catalogFacetIndex) {
         this.productRepository = productRepository;
+        this.productStockJdbcRepository = productStockJdbcRepository;
+        this.lowStockMonitor = lowStockMonitor;
+        this.catalogVersionService = catalogVersionService;
+        this.cartService = cartService;
+        this.catalogFacetIndex = catalogFacetIndex;
     }
 
     public Product createProduct(Product product, Pharmacy pharmacy, Category category) {
@@ -40,22 +70,24 @@ public class ProductService {
         }
 
         product.setActive(true);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.productsChanged(product.getPharmacy().getId());
+        return product;
     }
 
-    public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+    // Lookups carry the pharmacy ID so products is read from one hash partition; a product of
+    // another pharmacy is reported as not found
+    public Optional<Product> findById(Long pharmacyId, Long id) {
+        return productRepository.findByIdAndPharmacyId(id, pharmacyId);
     }
 
-    public Product getById(Long id) {
-        return productRepository.findById(id)
+    public Product getById(Long pharmacyId, Long id) {
+        return productRepository.findByIdAndPharmacyId(id, pharmacyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", id));
     }
 
-    public Optional<Product> findBySlug(String slug) {
-        return productRepository.findBySlug(slug);
-    }
-
     public Optional<Product> findByPharmacyAndSlug(Long pharmacyId, String slug) {
         return productRepository.findByPharmacyIdAndSlug(pharmacyId, slug);
     }
@@ -68,60 +100,247 @@ public class ProductService {
         return productRepository.findByPharmacyIdAndBarcode(pharmacyId, barcode);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> findByPharmacy(Long pharmacyId, Pageable pageable) {
         return productRepository.findByPharmacyIdAndActiveTrue(pharmacyId, pageable);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> findByCategory(Long pharmacyId, Long categoryId) {
         return productRepository.findByPharmacyIdAndCategoryIdAndActiveTrue(pharmacyId, categoryId);
     }
 
+    // Active products of a category in ID order, one keyset batch at a time. Not transactional:
+    // each batch is its own short read, so a slow client never pins a connection and batches
+    // already written are not kept in a persistence context.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachProductBatchInCategory(Long pharmacyId, Long categoryId, int batchSize,
+                                              Consumer<List<Product>> consumer) {
+        long afterId = 0L;
+        while (true) {
+            List<Product> batch = productRepository.findCategoryBatch(
+                    pharmacyId, categoryId, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            consumer.accept(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    // Products in the given ID order (e.g. a facet index page)
+    @Transactional(readOnly = true)
+    public List<Product> findAllInOrder(Long pharmacyId, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllWithCategory(pharmacyId, ids)) {
+            byId.put(product.getId(), product);
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> findFeaturedProducts(Long pharmacyId) {
         return productRepository.findByPharmacyIdAndFeaturedTrueAndActiveTrue(pharmacyId);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> searchProducts(Long pharmacyId, String keyword, Pageable pageable) {
         return productRepository.searchByName(pharmacyId, keyword, pageable);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> findLowStockProducts(Long pharmacyId) {
-        return productRepository.findLowStockProducts(pharmacyId);
+        return lowStockMonitor.findLowStock(pharmacyId);
     }
 
+    @Transactional(readOnly = true)
+    public long countLowStockProducts(Long pharmacyId) {
+        return lowStockMonitor.countLowStock(pharmacyId);
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> findOutOfStockProducts(Long pharmacyId) {
         return productRepository.findByPharmacyIdAndStockQuantityAndActiveTrue(pharmacyId, 0);
     }
 
     public Product updateProduct(Product product) {
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.productsChanged(product.getPharmacy().getId());
+        return product;
     }
 
-    public Product updateStock(Long productId, Integer quantity) {
-        Product product = getById(productId);
+    public Product updateStock(Long pharmacyId, Long productId, Integer quantity) {
+        Product product = getById(pharmacyId, productId);
+        int oldStock = product.getStockQuantity();
         product.setStockQuantity(quantity);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.stockChanged(pharmacyId, oldStock, quantity, product.getLowStockThreshold());
+        return product;
     }
 
-    public Product increaseStock(Long productId, Integer amount) {
-        Product product = getById(productId);
-        product.setStockQuantity(product.getStockQuantity() + amount);
-        return productRepository.save(product);
+    public Product increaseStock(Long pharmacyId, Long productId, Integer amount) {
+        Product product = getById(pharmacyId, productId);
+        int oldStock = product.getStockQuantity();
+        product.setStockQuantity(oldStock + amount);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.stockChanged(pharmacyId, oldStock, product.getStockQuantity(), product.getLowStockThreshold());
+        return product;
     }
 
-    public Product decreaseStock(Long productId, Integer amount) {
-        Product product = getById(productId);
+    public Product decreaseStock(Long pharmacyId, Long productId, Integer amount) {
+        Product product = getById(pharmacyId, productId);
 
         int newStock = product.getStockQuantity() - amount;
         if (newStock < 0) {
             throw BusinessException.insufficientStock(product.getName(), product.getStockQuantity());
         }
 
+        int oldStock = product.getStockQuantity();
         product.setStockQuantity(newStock);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.stockChanged(pharmacyId, oldStock, newStock, product.getLowStockThreshold());
+        return product;
     }
 
-    public void validateStock(Long productId, Integer requiredQuantity) {
-        Product product = getById(productId);
+    // Resolves (and row-locks) all keys in one query and applies every accepted line in one JDBC batch.
+    // Lines are applied in request order, so several lines for the same product accumulate.
+    public List<LineResult> bulkUpdateStock(Long pharmacyId, List<BulkStockUpdateRequest.Line> lines) {
+        List<LineResult> results = new ArrayList<>(lines.size());
+        Set<String> skus = new HashSet<>();
+        Set<String> barcodes = new HashSet<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            BulkStockUpdateRequest.Line line = lines.get(i);
+            LineResult result = new LineResult(i, line.getSku(), line.getBarcode());
+            results.add(result);
+
+            if (isBlank(line.getSku()) && isBlank(line.getBarcode())) {
+                reject(result, LineResult.INVALID, "SKU or barcode is required");
+            } else if (line.getMode() == StockUpdateMode.ABSOLUTE && line.getQuantity() < 0) {
+                reject(result, LineResult.INVALID, "Quantity cannot be negative");
+            } else if (!isBlank(line.getSku())) {
+                skus.add(line.getSku());
+            } else {
+                barcodes.add(line.getBarcode());
+            }
+        }
+
+        // Neither key is unique per pharmacy; a key matching several products is rejected, never guessed
+        Map<String, StockRow> bySku = new HashMap<>();
+        Map<String, StockRow> byBarcode = new HashMap<>();
+        Set<String> ambiguousSkus = new HashSet<>();
+        Set<String> ambiguousBarcodes = new HashSet<>();
+        for (StockRow row : productStockJdbcRepository.lockByKeys(pharmacyId, skus, barcodes)) {
+            if (row.getSku() != null && bySku.putIfAbsent(row.getSku(), row) != null) {
+                ambiguousSkus.add(row.getSku());
+            }
+            if (row.getBarcode() != null && byBarcode.putIfAbsent(row.getBarcode(), row) != null) {
+                ambiguousBarcodes.add(row.getBarcode());
+            }
+        }
+
+        // Running stock per product so repeated lines see the effect of earlier ones
+        Map<Long, Integer> runningStock = new HashMap<>();
+        List<StockChange> changes = new ArrayList<>();
+        List<LineResult> changedResults = new ArrayList<>();
+        Map<Long, StockRow> changedRows = new HashMap<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            LineResult result = results.get(i);
+            if (result.getStatus() != null) {
+                continue;
+            }
+
+            BulkStockUpdateRequest.Line line = lines.get(i);
+            boolean bySkuKey = !isBlank(line.getSku());
+            if (bySkuKey ? ambiguousSkus.contains(line.getSku()) : ambiguousBarcodes.contains(line.getBarcode())) {
+                reject(result, LineResult.AMBIGUOUS, (bySkuKey ? "SKU" : "Barcode") + " matches more than one product");
+                continue;
+            }
+            StockRow row = bySkuKey ? bySku.get(line.getSku()) : byBarcode.get(line.getBarcode());
+            if (row == null) {
+                reject(result, LineResult.NOT_FOUND, "Product not found");
+                continue;
+            }
+
+            int oldStock = runningStock.getOrDefault(row.getId(), row.getStockQuantity());
+            boolean delta = line.getMode() == StockUpdateMode.DELTA;
+            result.setProductId(row.getId());
+            result.setOldStock(oldStock);
+
+            int newStock;
+            try {
+                newStock = delta ? Math.addExact(oldStock, line.getQuantity()) : line.getQuantity();
+            } catch (ArithmeticException e) {
+                // Rejected here so the batch never hits an integer overflow in the database
+                reject(result, LineResult.INVALID, "Resulting stock is out of range");
+                continue;
+            }
+            if (newStock < 0) {
+                reject(result, LineResult.INSUFFICIENT_STOCK, "Available: " + oldStock);
+                continue;
+            }
+
+            result.setStatus(LineResult.UPDATED);
+            result.setNewStock(newStock);
+            runningStock.put(row.getId(), newStock);
+            changes.add(new StockChange(row.getId(), delta, line.getQuantity()));
+            changedResults.add(result);
+            changedRows.put(row.getId(), row);
+        }
+
+        int[] counts = productStockJdbcRepository.applyChanges(pharmacyId, changes);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                // Rows are locked, so this only happens if one was deleted; kept as a safety net
+                LineResult result = changedResults.get(i);
+                result.setNewStock(null);
+                reject(result, LineResult.INSUFFICIENT_STOCK, "Stock changed concurrently");
+            }
+        }
+
+        // One threshold check per touched product, using its final stock from this batch
+        Map<Long, Integer> finalStock = new HashMap<>();
+        for (LineResult result : changedResults) {
+            if (LineResult.UPDATED.equals(result.getStatus())) {
+                finalStock.put(result.getProductId(), result.getNewStock());
+            }
+        }
+        finalStock.forEach((productId, stock) -> {
+            StockRow row = changedRows.get(productId);
+            lowStockMonitor.onStockChanged(pharmacyId, productId, row.getName(), stock,
+                    row.getLowStockThreshold(), row.isActive(), row.getStockAlertLevel());
+            cartService.stockChanged(productId, stock, row.isActive());
+            catalogFacetIndex.stockChanged(pharmacyId, productId, stock);
+            catalogVersionService.stockChanged(pharmacyId, row.getStockQuantity(), stock, row.getLowStockThreshold());
+        });
+
+        return results;
+    }
+
+    public void validateStock(Long pharmacyId, Long productId, Integer requiredQuantity) {
+        Product product = getById(pharmacyId, productId);
         if (product.getStockQuantity() < requiredQuantity) {
             throw BusinessException.insufficientStock(product.getName(), product.getStockQuantity());
         }
@@ -130,28 +349,51 @@ public class ProductService {
         }
     }
 
-    public Product setFeatured(Long productId, boolean featured) {
-        Product product = getById(productId);
+    public Product setFeatured(Long pharmacyId, Long productId, boolean featured) {
+        Product product = getById(pharmacyId, productId);
         product.setFeatured(featured);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.productUpdated(product.getPharmacy().getId());
+        return product;
     }
 
-    public Product deactivateProduct(Long productId) {
-        Product product = getById(productId);
+    public Product deactivateProduct(Long pharmacyId, Long productId) {
+        Product product = getById(pharmacyId, productId);
         product.setActive(false);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.productsChanged(product.getPharmacy().getId());
+        return product;
     }
 
-    public Product activateProduct(Long productId) {
-        Product product = getById(productId);
+    public Product activateProduct(Long pharmacyId, Long productId) {
+        Product product = getById(pharmacyId, productId);
         product.setActive(true);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        lowStockMonitor.onStockChanged(product);
+        cartService.productChanged(product);
+        catalogFacetIndex.productChanged(product);
+        catalogVersionService.productsChanged(product.getPharmacy().getId());
+        return product;
     }
 
+    @Transactional(readOnly = true)
     public long countByPharmacy(Long pharmacyId) {
         return productRepository.countByPharmacyId(pharmacyId);
     }
 
+    private void reject(LineResult result, String status, String message) {
+        result.setStatus(status);
+        result.setMessage(message);
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     private String generateSlug(String name, Long pharmacyId) {
         if (name == null) return "";
 
@@ -174,21 +416,24 @@ public class ProductService {
 
         String finalSlug = slug + "-" + pharmacyId;
 
-        if (productRepository.existsBySlug(finalSlug)) {
+        if (productRepository.existsByPharmacyIdAndSlug(pharmacyId, finalSlug)) {
             finalSlug = slug + "-" + System.currentTimeMillis();
         }
 
         return finalSlug;
     }
 
+    @Transactional(readOnly = true)
     public Long countActiveByPharmacy(Long pharmacyId) {
         return productRepository.countByPharmacyIdAndActiveTrue(pharmacyId);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> findByPharmacyAndActive(Long pharmacyId, boolean active, Pageable pageable) {
         return productRepository.findByPharmacyIdAndActive(pharmacyId, active, pageable);
     }
 
+    @Transactional(readOnly = true)
     public Page<Product> findLowStockProductsPaginated(Long pharmacyId, Pageable pageable) {
         return productRepository.findByPharmacyIdAndStockQuantityLessThan(pharmacyId, 10, pageable);
     }
@@ -0,0 +1,276 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.enums.PaymentPeriod;
+import com.pharmacy.enums.PharmacyStatus;
+import com.pharmacy.repository.BillingRunJdbcRepository;
+import com.pharmacy.repository.JobLockJdbcRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily subscription billing. One node per day wins the "subscription-billing" job lock, selects
+ * the due pharmacies and charges them in chunks of billing.chunk-size on the billingExecutor pool.
+ * The scheduler thread only queues the chunks; the run finishes (and releases the lock) when the
+ * last chunk does.
+ *
+ * Each charge is made outside any transaction, so no pooled connection waits on the provider, and
+ * its outcome (with last_billing_date = today) commits on its own right after. A run that dies or
+ * loses its lease is picked up by the next trigger, on any node, from the first unrecorded pharmacy.
+ *
+ * The idempotency key is the pharmacy, its due date and its last recorded attempt: a charge whose
+ * outcome was never recorded is retried with the same key and not charged twice, while every
+ * recorded attempt (a decline on a grace period day) gives the next one a new key, so a pharmacy
+ * that has fixed its card is charged rather than replayed the old decline.
+ */
+@Component
+public class SubscriptionBillingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionBillingScheduler.class);
+
+    private static final String LOCK_NAME = "subscription-billing";
+
+    private enum Outcome { RENEWED, FAILED, SUSPENDED, SKIPPED }
+
+    private final PharmacyRepository pharmacyRepository;
+    private final BillingRunJdbcRepository billingRunRepository;
+    private final JobLockJdbcRepository jobLockRepository;
+    private final SubscriptionPaymentProvider paymentProvider;
+    private final AuditLogService auditLogService;
+    private final SettingsService settingsService;
+    private final CatalogVersionService catalogVersionService;
+    private final ThreadPoolTaskExecutor billingExecutor;
+    private final TransactionTemplate requiresNew;
+    private final TransactionTemplate readOnly;
+    private final String owner = UUID.randomUUID().toString();
+    // A trigger that fires while this node's run is still going must not start a second one
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${billing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billing.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${billing.lock-lease-seconds:600}")
+    private long leaseSeconds;
+
+    public SubscriptionBillingScheduler(PharmacyRepository pharmacyRepository,
+                                        BillingRunJdbcRepository billingRunRepository,
+                                        JobLockJdbcRepository jobLockRepository,
+                                        SubscriptionPaymentProvider paymentProvider,
+                                        AuditLogService auditLogService,
+                                        SettingsService settingsService,
+                                        CatalogVersionService catalogVersionService,
+                                        @Qualifier("billingExecutor") ThreadPoolTaskExecutor billingExecutor,
+                                        PlatformTransactionManager transactionManager) {
+        this.pharmacyRepository = pharmacyRepository;
+        this.billingRunRepository = billingRunRepository;
+        this.jobLockRepository = jobLockRepository;
+        this.paymentProvider = paymentProvider;
+        this.auditLogService = auditLogService;
+        this.settingsService = settingsService;
+        this.catalogVersionService = catalogVersionService;
+        this.billingExecutor = billingExecutor;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+    }
+
+    // A cron firing more than once a day (e.g. "0 0 2-6 * * *") resumes a run that stopped early
+    @Scheduled(cron = "${billing.cron:0 0 2 * * *}")
+    public void run() {
+        if (enabled) {
+            start(LocalDate.now());
+        }
+    }
+
+    // Returns once the chunks are queued. The future completes with true when every due pharmacy
+    // was billed, false when the run stopped early or was skipped (running here, or locked elsewhere).
+    CompletableFuture<Boolean> start(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!jobLockRepository.tryAcquire(LOCK_NAME, owner, leaseSeconds)) {
+            running.set(false);
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> run;
+        try {
+            List<Long> dueIds = billingRunRepository.findDuePharmacyIds(today);
+            if (dueIds.isEmpty()) {
+                run = CompletableFuture.completedFuture(true);
+            } else {
+                billingRunRepository.start(today, dueIds.size());
+                run = processChunks(today, dueIds).thenApply(completed -> {
+                    billingRunRepository.finish(today, completed ? "COMPLETED" : "FAILED");
+                    log.info("Subscription billing for {} {}: {} pharmacies due",
+                            today, completed ? "completed" : "stopped", dueIds.size());
+                    return completed;
+                });
+            }
+        } catch (Exception e) {
+            log.error("Subscription billing for {} failed", today, e);
+            billingRunRepository.finish(today, "FAILED");
+            run = CompletableFuture.completedFuture(false);
+        }
+        return run.whenComplete((completed, error) -> {
+            running.set(false);
+            jobLockRepository.release(LOCK_NAME, owner);
+        });
+    }
+
+    // Every finished chunk renews the lease. If the lease is lost, chunks stop at their next
+    // pharmacy and chunks not yet started are skipped; the node that took over bills them.
+    private CompletableFuture<Boolean> processChunks(LocalDate today, List<Long> dueIds) {
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < dueIds.size(); from += chunkSize) {
+            List<Long> chunk = dueIds.subList(from, Math.min(from + chunkSize, dueIds.size()));
+            chunks.add(CompletableFuture.runAsync(() -> {
+                if (stopped.get()) {
+                    return;
+                }
+                try {
+                    billChunk(today, chunk, stopped);
+                } catch (RuntimeException e) {
+                    log.error("Subscription billing chunk failed; its unrecorded pharmacies are retried on the next run", e);
+                    failed.set(true);
+                }
+                if (!stopped.get() && !jobLockRepository.extend(LOCK_NAME, owner, leaseSeconds)) {
+                    log.warn("Subscription billing lost its job lock; stopping");
+                    stopped.set(true);
+                }
+            }, billingExecutor));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(done -> !failed.get() && !stopped.get());
+    }
+
+    private void billChunk(LocalDate today, List<Long> pharmacyIds, AtomicBoolean stopped) {
+        int graceDays = settingsService.getSettings().getGracePeriodDays();
+        // Changed since selection (suspended by an admin, already billed by a previous run)
+        List<Pharmacy> due = readOnly.execute(status -> pharmacyRepository.findAllById(pharmacyIds).stream()
+                .filter(pharmacy -> isDue(pharmacy, today))
+                .toList());
+        int renewed = 0;
+        int failed = 0;
+        int suspended = 0;
+
+        for (Pharmacy pharmacy : due) {
+            if (stopped.get()) {
+                break;
+            }
+            BigDecimal amount = amountDue(pharmacy);
+            SubscriptionPaymentProvider.ChargeResult result =
+                    paymentProvider.charge(pharmacy.getId(), amount, idempotencyKey(pharmacy));
+            Outcome outcome = requiresNew.execute(status -> record(pharmacy.getId(), today, graceDays, amount, result));
+            switch (outcome) {
+                case RENEWED -> renewed++;
+                case SUSPENDED -> {
+                    suspended++;
+                    failed++;
+                }
+                case FAILED -> failed++;
+                case SKIPPED -> { }
+            }
+        }
+
+        billingRunRepository.chunkDone(today, renewed, failed, suspended);
+    }
+
+    static String idempotencyKey(Pharmacy pharmacy) {
+        return pharmacy.getId() + ":" + pharmacy.getNextPaymentDate() + ":"
+                + (pharmacy.getLastBillingDate() != null ? pharmacy.getLastBillingDate() : "first");
+    }
+
+    // Applies one charge result to the pharmacy as it is now
+    private Outcome record(Long pharmacyId, LocalDate today, int graceDays, BigDecimal amount,
+                           SubscriptionPaymentProvider.ChargeResult result) {
+        Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId).orElse(null);
+        if (pharmacy == null || !isDue(pharmacy, today)) {
+            if (result.success()) {
+                log.warn("Pharmacy {} was charged (transaction {}) but is no longer due; review the charge",
+                        pharmacyId, result.transactionId());
+            }
+            return Outcome.SKIPPED;
+        }
+        PharmacyStatus previous = pharmacy.getStatus();
+        Outcome outcome;
+        if (result.success()) {
+            renew(pharmacy, amount);
+            outcome = Outcome.RENEWED;
+        } else {
+            auditLogService.logSubscriptionPaymentFailed(pharmacy.getId(), pharmacy.getName(), result.failureReason());
+            outcome = Outcome.FAILED;
+            if (previous == PharmacyStatus.ACTIVE) {
+                pharmacy.setStatus(PharmacyStatus.GRACE_PERIOD);
+                pharmacy.setGracePeriodEnd(today.plusDays(graceDays));
+                auditLogService.logPharmacyGracePeriodStarted(pharmacy.getId(), pharmacy.getName());
+            } else if (pharmacy.getGracePeriodEnd() == null || today.isAfter(pharmacy.getGracePeriodEnd())) {
+                pharmacy.setStatus(PharmacyStatus.SUSPENDED);
+                pharmacy.setSuspendedAt(LocalDateTime.now());
+                auditLogService.logPharmacySuspended(null, null, pharmacy.getId(), pharmacy.getName(),
+                        "Subscription payment not received by end of grace period");
+                outcome = Outcome.SUSPENDED;
+            }
+        }
+
+        pharmacy.setLastBillingDate(today);
+        if (pharmacy.getStatus() != previous) {
+            catalogVersionService.catalogChanged(pharmacy.getId());
+        }
+        return outcome;
+    }
+
+    private void renew(Pharmacy pharmacy, BigDecimal amount) {
+        // Advance from the due date, not today, so the billing day does not drift
+        LocalDate nextPaymentDate = pharmacy.getPaymentPeriod() == PaymentPeriod.MONTHLY
+                ? pharmacy.getNextPaymentDate().plusMonths(1)
+                : pharmacy.getNextPaymentDate().plusYears(1);
+        pharmacy.setNextPaymentDate(nextPaymentDate);
+        pharmacy.setSubscriptionEndDate(nextPaymentDate);
+        pharmacy.setStatus(PharmacyStatus.ACTIVE);
+        pharmacy.setGracePeriodEnd(null);
+
+        auditLogService.logSubscriptionPaymentSuccess(pharmacy.getId(), pharmacy.getName(),
+                amount, pharmacy.getPaymentPeriod().name());
+        auditLogService.logSubscriptionRenewal(pharmacy.getId(), pharmacy.getName(),
+                amount, nextPaymentDate.toString());
+    }
+
+    private boolean isDue(Pharmacy pharmacy, LocalDate today) {
+        return (pharmacy.getStatus() == PharmacyStatus.ACTIVE || pharmacy.getStatus() == PharmacyStatus.GRACE_PERIOD)
+                && pharmacy.getNextPaymentDate() != null
+                && !pharmacy.getNextPaymentDate().isAfter(today)
+                && (pharmacy.getLastBillingDate() == null || pharmacy.getLastBillingDate().isBefore(today));
+    }
+
+    private BigDecimal amountDue(Pharmacy pharmacy) {
+        if (pharmacy.getPaymentPeriod() == PaymentPeriod.YEARLY) {
+            return pharmacy.getMonthlyFee().multiply(new BigDecimal("12"));
+        }
+        return pharmacy.getMonthlyFee();
+    }
+}
@@ -0,0 +1,26 @@
+package com.pharmacy.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Charges a pharmacy's stored payment method for its subscription.
+ *
+ * Implementations must treat idempotencyKey as the identity of the charge: a charge whose outcome
+ * was not recorded is retried with the same key and must not charge twice. Each new attempt (the
+ * next grace period day) comes with a new key.
+ */
+public interface SubscriptionPaymentProvider {
+
+    ChargeResult charge(Long pharmacyId, BigDecimal amount, String idempotencyKey);
+
+    record ChargeResult(boolean success, String transactionId, String failureReason) {
+
+        public static ChargeResult success(String transactionId) {
+            return new ChargeResult(true, transactionId, null);
+        }
+
+        public static ChargeResult failure(String reason) {
+            return new ChargeResult(false, null, reason);
+        }
+    }
+}
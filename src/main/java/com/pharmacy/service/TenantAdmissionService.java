@@ -0,0 +1,110 @@
+package com.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacy.config.TenantBulkhead;
+import com.pharmacy.dto.response.TenantAdmissionStatsResponse;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.enums.SubscriptionPlan;
+import com.pharmacy.repository.PharmacyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out each pharmacy's TenantBulkhead, sized by its subscription plan. Plans are cached for
+ * plan-cache-seconds; when a pharmacy's plan changes its bulkhead is replaced, and requests still
+ * running release their permits to the old one.
+ */
+@Service
+public class TenantAdmissionService {
+
+    private final PharmacyRepository pharmacyRepository;
+    private final Map<Long, TenantBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Cache<Long, Optional<SubscriptionPlan>> plans;
+
+    @Value("${tenant-admission.standard.max-concurrent:8}")
+    private int standardMaxConcurrent;
+
+    @Value("${tenant-admission.standard.max-queued:16}")
+    private int standardMaxQueued;
+
+    @Value("${tenant-admission.standard.max-connections:3}")
+    private int standardMaxConnections;
+
+    @Value("${tenant-admission.pro.max-concurrent:16}")
+    private int proMaxConcurrent;
+
+    @Value("${tenant-admission.pro.max-queued:32}")
+    private int proMaxQueued;
+
+    @Value("${tenant-admission.pro.max-connections:5}")
+    private int proMaxConnections;
+
+    public TenantAdmissionService(PharmacyRepository pharmacyRepository,
+                                  @Value("${tenant-admission.plan-cache-seconds:120}") long planCacheSeconds) {
+        this.pharmacyRepository = pharmacyRepository;
+        this.plans = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(planCacheSeconds))
+                .build();
+    }
+
+    // Empty for an unknown pharmacy; the request goes through and fails in the controller
+    public Optional<TenantBulkhead> bulkheadFor(Long pharmacyId) {
+        Optional<SubscriptionPlan> plan = plan(pharmacyId);
+        if (plan.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(bulkheads.compute(pharmacyId, (id, existing) ->
+                existing != null && existing.getPlan() == plan.get() ? existing : create(id, plan.get())));
+    }
+
+    // False for an id no pharmacy has, such as one made up in a storefront URL
+    public boolean exists(Long pharmacyId) {
+        return plan(pharmacyId).isPresent();
+    }
+
+    // Busiest pharmacies first: most rejections, then most requests in flight
+    public List<TenantAdmissionStatsResponse> getStats(int limit) {
+        return bulkheads.values().stream()
+                .sorted(Comparator.comparingLong(TenantBulkhead::getRejected)
+                        .thenComparingInt(TenantBulkhead::getInFlight)
+                        .reversed())
+                .limit(limit)
+                .map(this::toStats)
+                .toList();
+    }
+
+    private Optional<SubscriptionPlan> plan(Long pharmacyId) {
+        return plans.get(pharmacyId, id -> pharmacyRepository.findById(id).map(Pharmacy::getSubscriptionPlan));
+    }
+
+    private TenantBulkhead create(Long pharmacyId, SubscriptionPlan plan) {
+        if (plan == SubscriptionPlan.PRO) {
+            return new TenantBulkhead(pharmacyId, plan, proMaxConcurrent, proMaxQueued, proMaxConnections);
+        }
+        return new TenantBulkhead(pharmacyId, plan, standardMaxConcurrent, standardMaxQueued, standardMaxConnections);
+    }
+
+    private TenantAdmissionStatsResponse toStats(TenantBulkhead bulkhead) {
+        TenantAdmissionStatsResponse response = new TenantAdmissionStatsResponse();
+        response.setPharmacyId(bulkhead.getPharmacyId());
+        response.setPlan(bulkhead.getPlan().name());
+        response.setMaxConcurrent(bulkhead.getMaxConcurrent());
+        response.setInFlight(bulkhead.getInFlight());
+        response.setQueued(bulkhead.getQueued());
+        response.setAdmitted(bulkhead.getAdmitted());
+        response.setRejected(bulkhead.getRejected());
+        response.setMaxConnections(bulkhead.getMaxConnections());
+        response.setConnectionsInUse(bulkhead.getConnectionsInUse());
+        response.setConnectionTimeouts(bulkhead.getConnectionTimeouts());
+        return response;
+    }
+}
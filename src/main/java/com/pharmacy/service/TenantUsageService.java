@@ -0,0 +1,198 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.response.TenantUsageResponse;
+import com.pharmacy.repository.TenantUsageJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tenant usage metering. UsageMeteringFilter records every pharmacy request here; counters
+ * are kept in memory per minute, pharmacy and route (striped LongAdders and a lock-free latency
+ * histogram, no locks or writes on the request path) and flushed as one row per key to
+ * tenant_usage shortly after each minute ends.
+ *
+ * A node that stops without a clean shutdown loses at most its current minute.
+ */
+@Service
+public class TenantUsageService {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantUsageService.class);
+    private static final long MINUTE_MS = 60_000;
+
+    private final TenantUsageJdbcRepository tenantUsageRepository;
+    private final Map<UsageKey, RouteUsage> usage = new ConcurrentHashMap<>();
+
+    @Value("${usage-metering.retention-days:90}")
+    private int retentionDays;
+
+    public TenantUsageService(TenantUsageJdbcRepository tenantUsageRepository) {
+        this.tenantUsageRepository = tenantUsageRepository;
+    }
+
+    public void record(Long pharmacyId, String route, int status, long responseBytes, long dbNanos, long latencyNanos) {
+        UsageKey key = new UsageKey(System.currentTimeMillis() / MINUTE_MS, pharmacyId, route);
+        usage.computeIfAbsent(key, k -> new RouteUsage())
+                .record(status, responseBytes, TimeUnit.NANOSECONDS.toMicros(dbNanos), TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    // Five seconds past each minute, so requests finishing on the boundary are counted first
+    @Scheduled(cron = "5 * * * * *")
+    public void flush() {
+        flushBefore(System.currentTimeMillis() / MINUTE_MS);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushBefore(Long.MAX_VALUE);
+    }
+
+    // Purge rollups past retention daily at 04:45
+    @Scheduled(cron = "0 45 4 * * *")
+    public void purge() {
+        int deleted = tenantUsageRepository.deleteBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} tenant usage rows", deleted);
+        }
+    }
+
+    public List<TenantUsageResponse> getUsageByRoute(Long pharmacyId, LocalDateTime from, LocalDateTime to) {
+        return tenantUsageRepository.summarizeByRoute(pharmacyId, from, to);
+    }
+
+    public List<TenantUsageResponse> getUsageByPharmacy(LocalDateTime from, LocalDateTime to, int limit) {
+        return tenantUsageRepository.summarizeByPharmacy(from, to, limit);
+    }
+
+    private void flushBefore(long minute) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<UsageKey, RouteUsage> entry : usage.entrySet()) {
+            UsageKey key = entry.getKey();
+            if (key.minute() < minute && usage.remove(key, entry.getValue())) {
+                rows.add(entry.getValue().toRow(key));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            tenantUsageRepository.upsert(rows);
+        } catch (Exception e) {
+            log.error("Dropped {} tenant usage rollups", rows.size(), e);
+        }
+    }
+
+    private record UsageKey(long minute, Long pharmacyId, String route) {
+    }
+
+    private static final class RouteUsage {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder dbMicros = new LongAdder();
+        private final LongAdder latencyMicros = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(int status, long bytes, long dbUs, long latencyUs) {
+            requests.increment();
+            if (status >= 500) {
+                errors.increment();
+            }
+            responseBytes.add(bytes);
+            dbMicros.add(dbUs);
+            latencyMicros.add(latencyUs);
+            latency.record(latencyUs);
+        }
+
+        Object[] toRow(UsageKey key) {
+            LocalDateTime bucketStart = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(key.minute() * MINUTE_MS), ZoneId.systemDefault());
+            return new Object[]{
+                    key.pharmacyId(), Timestamp.valueOf(bucketStart), key.route(),
+                    requests.sum(), errors.sum(), responseBytes.sum(), dbMicros.sum(), latencyMicros.sum(),
+                    latency.percentile(0.50), latency.percentile(0.95), latency.percentile(0.99), latency.max()
+            };
+        }
+    }
+
+    /**
+     * Log-linear latency histogram in microseconds: each power of two is split into eight linear
+     * buckets, so a percentile is reported to within 12.5%. Recording is one atomic increment.
+     */
+    private static final class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Values up to 2^36 us (about 19 hours) are bucketed exactly; larger ones land in the last bucket
+        private static final int MAX_EXPONENT = 36;
+
+        private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts.incrementAndGet(Math.min(index(value), counts.length() - 1));
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket holding the given quantile
+        long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int subBucket = index % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            return (1L << exponent) + (subBucket + 1) * width - 1;
+        }
+    }
+}
@@ -7,15 +7,21 @@ import com.pharmacy.exception.ResourceNotFoundException;
 import com.pharmacy.exception.DuplicateResourceException;
 import com.pharmacy.exception.AuthenticationException;
 import com.pharmacy.exception.PasswordValidationException;
+import com.pharmacy.repository.SearchPatterns;
 import com.pharmacy.repository.UserRepository;
 import com.pharmacy.security.PasswordValidator;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -98,14 +104,17 @@ public class UserService {
         return userRepository.findByEmailAndPharmacyId(email, pharmacyId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> findByPharmacy(Long pharmacyId) {
         return userRepository.findByPharmacyId(pharmacyId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> findStaffByPharmacy(Long pharmacyId) {
         return userRepository.findByPharmacyIdAndRole(pharmacyId, UserRole.STAFF);
     }
 
+    @Transactional(readOnly = true)
     public List<User> findAllCustomers() {
         return userRepository.findByRole(UserRole.CUSTOMER);
     }
@@ -179,15 +188,44 @@ public class UserService {
         return userRepository.existsByEmail(email);
     }
 
+    @Transactional(readOnly = true)
     public List<User> findAll() {
         return userRepository.findAllWithPharmacy();
     }
 
+    @Transactional(readOnly = true)
     public List<User> findByRole(UserRole role) {
         return userRepository.findByRoleWithPharmacy(role);
     }
 
+    @Transactional(readOnly = true)
     public List<User> findByPharmacyAndRole(Long pharmacyId, UserRole role) {
         return userRepository.findByPharmacyIdAndRole(pharmacyId, role);
     }
+
+    // Admin listing; q matches email, first or last name (case-insensitive)
+    @Transactional(readOnly = true)
+    public Page<User> searchUsers(UserRole role, Long pharmacyId, Boolean active, String q, Pageable pageable) {
+        return userRepository.searchWithPharmacy(role, pharmacyId, active, SearchPatterns.contains(q), pageable);
+    }
+
+    // Walks all matching users in ID order, one short read per batch instead of one long transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachUserBatch(UserRole role, Long pharmacyId, Boolean active, String q,
+                                 int batchSize, Consumer<List<User>> consumer) {
+        String search = SearchPatterns.contains(q);
+        long afterId = 0L;
+        while (true) {
+            List<User> batch = userRepository.findBatchWithPharmacy(
+                    afterId, role, pharmacyId, active, search, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            consumer.accept(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backfills products.stock_alert_level for products that were already low before LowStockMonitor
+ * existed, and adds the partial index its reads use (pharmacy_id where stock_alert_level > 0).
+ *
+ * Written in Java because the index statements depend on whether V5's partitioning_swap has run:
+ * a plain products table gets CREATE INDEX CONCURRENTLY, a partitioned one gets the index built
+ * concurrently on each partition and attached to an index on the parent (Postgres cannot build
+ * a partitioned index concurrently). The products_p shadow, when present, gets the same index with
+ * a _p suffix that the swap strips. Runs outside a transaction; the backfill commits per id range
+ * so it never holds row locks on the whole table. Safe to re-run after an interruption.
+ */
+public class V12__stock_alert_index extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    // Same rule as LowStockMonitor.levelOf; backfilled levels raise no audit alerts
+    private static final String BACKFILL_SQL =
+            "UPDATE products SET stock_alert_level = lvl.level FROM (" +
+            "  SELECT id, pharmacy_id, CASE" +
+            "    WHEN NOT is_active OR low_stock_threshold IS NULL OR stock_quantity > low_stock_threshold THEN 0" +
+            "    WHEN stock_quantity <= 0 THEN 2 ELSE 1 END AS level" +
+            "  FROM products WHERE id > ? AND id <= ?) lvl " +
+            "WHERE products.id = lvl.id AND products.pharmacy_id = lvl.pharmacy_id " +
+            "AND products.stock_alert_level <> lvl.level";
+
+    private static final String INDEX_COLUMNS = " (pharmacy_id) WHERE stock_alert_level > 0";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        backfill(connection);
+        createIndex(connection, "products", "idx_product_stock_alert");
+        createIndex(connection, "products_p", "idx_product_stock_alert_p");
+    }
+
+    private void backfill(Connection connection) throws SQLException {
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM products")) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+        try (PreparedStatement update = connection.prepareStatement(BACKFILL_SQL)) {
+            for (long lastId = 0; lastId < maxId; lastId += BATCH_SIZE) {
+                update.setLong(1, lastId);
+                update.setLong(2, lastId + BATCH_SIZE);
+                update.executeUpdate();
+            }
+        }
+    }
+
+    private void createIndex(Connection connection, String table, String indexName) throws SQLException {
+        String relkind = queryString(connection,
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", table);
+        if (relkind == null) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (!"p".equals(relkind)) {
+                statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName + " ON " + table + INDEX_COLUMNS);
+                return;
+            }
+
+            // Invalid until every partition's index is attached
+            statement.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON ONLY " + table + INDEX_COLUMNS);
+            for (String partition : partitions(connection, table)) {
+                String partitionIndex = partition + "_stock_alert_idx";
+                statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + partitionIndex + " ON " + partition + INDEX_COLUMNS);
+                if (queryString(connection, "SELECT inhparent::regclass::text FROM pg_inherits " +
+                        "WHERE inhrelid = to_regclass(?)", partitionIndex) == null) {
+                    statement.execute("ALTER INDEX " + indexName + " ATTACH PARTITION " + partitionIndex);
+                }
+            }
+        }
+    }
+
+    private List<String> partitions(Connection connection, String table) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = to_regclass(?) ORDER BY 1")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(rs.getString(1));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private String queryString(Connection connection, String sql, String arg) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, arg);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
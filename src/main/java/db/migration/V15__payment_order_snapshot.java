@@ -0,0 +1,81 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies each payment's order number, pharmacy and customer onto payments, so payments of orders
+ * OrderArchiver has moved to orders_archive can still be shown, authorized and refunded without
+ * reading orders. Also drops whatever foreign key still ties payments.order_id to orders: V6 dropped
+ * it by its V1 name, which missed databases baselined with a Hibernate-generated name (V13 later
+ * renamed those to fk_payments_order), and the archiver's DELETE fails on it.
+ *
+ * The new columns are nullable without defaults, so adding them does not rewrite payments. Runs
+ * outside a transaction and backfills per id range (from orders, then orders_archive), committing
+ * each range. Safe to re-run after an interruption.
+ */
+public class V15__payment_order_snapshot extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final String BACKFILL_SQL =
+            "UPDATE payments p SET order_number = o.order_number, pharmacy_id = o.pharmacy_id, customer_id = o.customer_id " +
+            "FROM %s o WHERE p.id > ? AND p.id <= ? AND o.id = p.order_id AND p.order_number IS NULL";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE payments ADD COLUMN IF NOT EXISTS order_number varchar(255), " +
+                    "ADD COLUMN IF NOT EXISTS pharmacy_id bigint, ADD COLUMN IF NOT EXISTS customer_id bigint");
+            for (String constraint : orderForeignKeys(connection)) {
+                statement.execute("ALTER TABLE payments DROP CONSTRAINT IF EXISTS \"" + constraint + "\"");
+            }
+        }
+        backfill(connection, "orders");
+        backfill(connection, "orders_archive");
+    }
+
+    // Found by catalog lookup rather than name; conparentid = 0 skips clones on orders' partitions
+    private List<String> orderForeignKeys(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT conname FROM pg_constraint WHERE contype = 'f' AND conparentid = 0 " +
+                     "AND conrelid = to_regclass('payments') AND confrelid = to_regclass('orders')")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private void backfill(Connection connection, String orders) throws SQLException {
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM payments")) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+        try (PreparedStatement update = connection.prepareStatement(String.format(BACKFILL_SQL, orders))) {
+            for (long lastId = 0; lastId < maxId; lastId += BATCH_SIZE) {
+                update.setLong(1, lastId);
+                update.setLong(2, lastId + BATCH_SIZE);
+                update.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+-- Per-minute usage rollups per pharmacy and route (TenantUsageService). Each
+-- node adds its own minute to the row: counters are summed, latency
+-- percentiles keep the highest node value. Latencies and DB time are in
+-- microseconds; DB time is how long the requests held pool connections.
+
+create table tenant_usage (
+    pharmacy_id bigint not null,
+    bucket_start timestamp(6) not null,
+    route varchar(255) not null,
+    requests bigint not null,
+    errors bigint not null,
+    response_bytes bigint not null,
+    db_time_us bigint not null,
+    latency_total_us bigint not null,
+    latency_p50_us bigint not null,
+    latency_p95_us bigint not null,
+    latency_p99_us bigint not null,
+    latency_max_us bigint not null,
+    primary key (pharmacy_id, bucket_start, route)
+);
+
+-- All-tenant totals over a period, and the retention purge
+create index idx_tenant_usage_bucket
+   on tenant_usage (bucket_start);
@@ -0,0 +1,4 @@
+-- Failed outbox events wait for next_attempt_at before the relay locks them
+-- again (null = due now). Nullable with no default, so adding it does not
+-- rewrite outbox_events.
+alter table outbox_events add column next_attempt_at timestamp(6);
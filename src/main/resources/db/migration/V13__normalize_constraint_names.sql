@@ -0,0 +1,48 @@
+-- Databases created by Hibernate before Flyway were baselined at V1, so their
+-- foreign keys still carry generated names (FK1abc...). Later migrations and
+-- the V5/V6 procedures refer to V1's names, so rename every baseline foreign
+-- key found by (table, column, referenced table) to its V1 name. Renaming only
+-- touches the catalog. Databases created from V1 already match and are left
+-- as they are.
+do $$
+declare
+    fk record;
+    existing text;
+begin
+    for fk in
+        select * from (values
+            ('addresses',   'user_id',     'users',      'fk_addresses_user'),
+            ('cart_items',  'cart_id',     'carts',      'fk_cart_items_cart'),
+            ('cart_items',  'product_id',  'products',   'fk_cart_items_product'),
+            ('carts',       'customer_id', 'users',      'fk_carts_customer'),
+            ('carts',       'pharmacy_id', 'pharmacies', 'fk_carts_pharmacy'),
+            ('categories',  'parent_id',   'categories', 'fk_categories_parent'),
+            ('favorites',   'product_id',  'products',   'fk_favorites_product'),
+            ('favorites',   'user_id',     'users',      'fk_favorites_user'),
+            ('order_items', 'order_id',    'orders',     'fk_order_items_order'),
+            ('order_items', 'product_id',  'products',   'fk_order_items_product'),
+            ('orders',      'customer_id', 'users',      'fk_orders_customer'),
+            ('orders',      'pharmacy_id', 'pharmacies', 'fk_orders_pharmacy'),
+            ('payments',    'order_id',    'orders',     'fk_payments_order'),
+            ('products',    'category_id', 'categories', 'fk_products_category'),
+            ('products',    'pharmacy_id', 'pharmacies', 'fk_products_pharmacy'),
+            ('users',       'pharmacy_id', 'pharmacies', 'fk_users_pharmacy')
+        ) as v(table_name, column_name, referenced_table, constraint_name)
+    loop
+        select c.conname into existing
+          from pg_constraint c
+          join pg_attribute a on a.attrelid = c.conrelid and a.attnum = c.conkey[1]
+         where c.contype = 'f'
+           and c.conrelid = to_regclass(fk.table_name)
+           and c.confrelid = to_regclass(fk.referenced_table)
+           and cardinality(c.conkey) = 1
+           and a.attname = fk.column_name
+         limit 1;
+
+        if existing is not null and existing <> fk.constraint_name then
+            execute format('alter table %I rename constraint %I to %I',
+                           fk.table_name, existing, fk.constraint_name);
+        end if;
+    end loop;
+end
+$$;
@@ -0,0 +1,157 @@
+-- Redefines partitioning_swap (V5, V6) so the exclusive lock covers catalog work
+-- only. Before, the lock was held while both tables were counted, NOT NULL was
+-- set and two composite foreign keys were validated, which at 10M orders meant
+-- minutes of write outage. Now:
+--   1. without locks: the backfill and row counts are verified (the mirror
+--      triggers keep the shadows in step from then on)
+--   2. under ACCESS EXCLUSIVE: max(id) is re-checked through the primary keys,
+--      then triggers, foreign keys, indexes and tables are swapped and the
+--      composite foreign keys are added NOT VALID; then commit
+--   3. partitioning_validate() validates them while writes continue
+-- The procedure commits, so it must be called outside a transaction block
+-- (psql autocommit), like partitioning_copy.
+--
+-- Foreign keys from the remaining tables onto products and orders are found in
+-- pg_constraint instead of by name, so databases whose constraints still carry
+-- generated names are handled too.
+--
+-- order_items_p.pharmacy_id is part of the primary key, so it is NOT NULL from
+-- the start and needs no check at the swap.
+
+create or replace procedure partitioning_swap()
+language plpgsql as $$
+declare
+    t text;
+    old_count bigint;
+    new_count bigint;
+    old_max bigint;
+    new_max bigint;
+    idx record;
+    fk record;
+    part record;
+begin
+    -- 1. Full scans, without locks
+
+    if exists (select 1 from order_items where pharmacy_id is null) then
+        raise exception 'partitioning_swap: order_items.pharmacy_id not backfilled; run partitioning_copy first';
+    end if;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        -- One statement, so both counts see the same snapshot
+        execute format('select (select count(*) from %I), (select count(*) from %I)', t, t || '_p')
+            into old_count, new_count;
+        if old_count <> new_count then
+            raise exception 'partitioning_swap: % has % rows but %_p has %; run partitioning_copy first',
+                t, old_count, t, new_count;
+        end if;
+    end loop;
+    commit;
+
+    -- 2. Catalog changes only, under the exclusive lock
+
+    lock table products, orders, order_items in access exclusive mode;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('select (select max(id) from %I), (select max(id) from %I)', t, t || '_p')
+            into old_max, new_max;
+        if old_max is distinct from new_max then
+            raise exception 'partitioning_swap: %_p ends at id % but % at %; are the mirror triggers in place?',
+                t, new_max, t, old_max;
+        end if;
+        execute format('drop trigger %I on %I', t || '_mirror', t);
+    end loop;
+    drop trigger order_items_fill_pharmacy on order_items;
+
+    -- Single-column references to a table whose key becomes composite
+    for fk in
+        select c.conrelid::regclass as table_name, c.conname
+          from pg_constraint c
+         where c.contype = 'f'
+           and c.confrelid in (to_regclass('products'), to_regclass('orders'))
+           and c.conrelid not in (to_regclass('products'), to_regclass('orders'), to_regclass('order_items'))
+    loop
+        execute format('alter table %s drop constraint %I', fk.table_name, fk.conname);
+    end loop;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname not like '%\_pkey'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, idx.indexname || '_unpartitioned');
+    end loop;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('alter table %I rename to %I', t, t || '_unpartitioned');
+        execute format('alter table %I rename to %I', t || '_p', t);
+    end loop;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname like '%\_p'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, left(idx.indexname, -2));
+    end loop;
+
+    -- Postgres cannot add a NOT VALID foreign key to a partitioned table, so
+    -- each partition gets its own; partitioning_validate attaches them
+    for part in
+        select inhrelid::regclass as partition_name
+          from pg_inherits
+         where inhparent = to_regclass('order_items')
+    loop
+        execute format('alter table %s add constraint fk_order_items_order '
+                       'foreign key (order_id, pharmacy_id) references orders (id, pharmacy_id) not valid',
+                       part.partition_name);
+        execute format('alter table %s add constraint fk_order_items_product '
+                       'foreign key (product_id, pharmacy_id) references products (id, pharmacy_id) not valid',
+                       part.partition_name);
+    end loop;
+    commit;
+
+    -- 3. Validation, while writes continue
+    call partitioning_validate();
+end
+$$;
+
+-- Validates the per-partition foreign keys added by partitioning_swap one
+-- partition at a time (SHARE UPDATE EXCLUSIVE: reads and writes continue),
+-- then declares them on order_items, which adopts the validated partition
+-- constraints without another scan. Safe to re-run.
+create or replace procedure partitioning_validate()
+language plpgsql as $$
+declare
+    part record;
+begin
+    for part in
+        select c.conrelid::regclass as partition_name, c.conname
+          from pg_constraint c
+          join pg_inherits i on i.inhrelid = c.conrelid
+         where i.inhparent = to_regclass('order_items')
+           and c.conname in ('fk_order_items_order', 'fk_order_items_product')
+           and not c.convalidated
+    loop
+        execute format('alter table %s validate constraint %I', part.partition_name, part.conname);
+        commit;
+    end loop;
+
+    if not exists (select 1 from pg_constraint
+                    where conrelid = to_regclass('order_items') and conname = 'fk_order_items_order') then
+        alter table order_items
+           add constraint fk_order_items_order
+           foreign key (order_id, pharmacy_id)
+           references orders (id, pharmacy_id);
+    end if;
+
+    if not exists (select 1 from pg_constraint
+                    where conrelid = to_regclass('order_items') and conname = 'fk_order_items_product') then
+        alter table order_items
+           add constraint fk_order_items_product
+           foreign key (product_id, pharmacy_id)
+           references products (id, pharmacy_id);
+    end if;
+end
+$$;
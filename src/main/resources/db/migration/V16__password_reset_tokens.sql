@@ -0,0 +1,27 @@
+-- Password reset codes issued by AuthService.requestPasswordReset. Only the
+-- SHA-256 of the emailed code is stored; a code is redeemed once (used_at),
+-- before expires_at, and issuing a new one retires the user's older codes.
+-- Rows past expiry are purged nightly.
+
+create sequence password_reset_tokens_seq start with 1 increment by 50;
+
+create table password_reset_tokens (
+    id bigint not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    user_id bigint not null,
+    token_hash varchar(64) not null,
+    expires_at timestamp(6) not null,
+    used_at timestamp(6),
+    primary key (id),
+    constraint uq_password_reset_token_hash unique (token_hash),
+    constraint fk_password_reset_tokens_user foreign key (user_id) references users
+);
+
+create index idx_password_reset_user
+   on password_reset_tokens (user_id);
+
+create index idx_password_reset_expires
+   on password_reset_tokens (expires_at);
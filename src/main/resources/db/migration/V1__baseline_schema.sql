@@ -0,0 +1,393 @@
+-- Baseline schema, matching the JPA mapping as previously produced by
+-- ddl-auto: update. Databases created before migrations were introduced are
+-- baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+create table addresses (
+    id bigserial not null,
+    address_line varchar(500) not null,
+    city varchar(255) not null,
+    created_at timestamp(6),
+    district varchar(255) not null,
+    full_name varchar(255) not null,
+    is_default boolean,
+    phone varchar(255) not null,
+    postal_code varchar(255),
+    title varchar(255) not null,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    primary key (id)
+);
+
+create table audit_logs (
+    id bigserial not null,
+    action_type varchar(255) not null,
+    created_at timestamp(6) not null,
+    description text,
+    entity_id bigint,
+    entity_type varchar(255) not null,
+    ip_address varchar(255),
+    new_value text,
+    old_value text,
+    pharmacy_id bigint,
+    request_method varchar(255),
+    request_url varchar(255),
+    user_agent varchar(255),
+    user_email varchar(255),
+    user_id bigint,
+    primary key (id)
+);
+
+create table cart_items (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    quantity integer not null,
+    cart_id bigint not null,
+    product_id bigint not null,
+    primary key (id),
+    unique (cart_id, product_id)
+);
+
+create table carts (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    customer_id bigint not null,
+    pharmacy_id bigint not null,
+    primary key (id),
+    unique (customer_id, pharmacy_id)
+);
+
+create table categories (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    is_active boolean,
+    description text,
+    display_order integer,
+    image_url varchar(255),
+    name varchar(255) not null,
+    slug varchar(255) unique,
+    parent_id bigint,
+    primary key (id)
+);
+
+create table favorites (
+    id bigserial not null,
+    created_at timestamp(6),
+    product_id bigint not null,
+    user_id bigint not null,
+    primary key (id),
+    unique (user_id, product_id)
+);
+
+create table order_items (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    product_name varchar(255) not null,
+    product_sku varchar(255),
+    quantity integer not null,
+    total_price numeric(10,2) not null,
+    unit_price numeric(10,2) not null,
+    order_id bigint not null,
+    product_id bigint not null,
+    primary key (id)
+);
+
+create table orders (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    cancellation_reason text,
+    cancelled_at timestamp(6),
+    cancelled_by bigint,
+    cargo_company varchar(255),
+    confirmed_at timestamp(6),
+    delivered_at timestamp(6),
+    delivery_type varchar(255) not null check (delivery_type in ('COURIER','CARGO')),
+    notes text,
+    order_number varchar(255) not null unique,
+    preparing_at timestamp(6),
+    shipped_at timestamp(6),
+    shipping_address text not null,
+    shipping_city varchar(255) not null,
+    shipping_cost numeric(10,2),
+    shipping_district varchar(255),
+    shipping_phone varchar(255) not null,
+    shipping_postal_code varchar(255),
+    status varchar(255) not null check (status in ('PENDING','CONFIRMED','PREPARING','SHIPPED','DELIVERED','CANCELLED','PAYMENT_FAILED')),
+    subtotal numeric(10,2) not null,
+    total_amount numeric(10,2) not null,
+    tracking_number varchar(255),
+    customer_id bigint not null,
+    pharmacy_id bigint not null,
+    primary key (id)
+);
+
+create table payments (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    amount numeric(10,2) not null,
+    card_brand varchar(255),
+    card_last_four varchar(255),
+    conversation_id varchar(255),
+    error_code varchar(255),
+    error_message text,
+    paid_at timestamp(6),
+    payment_id varchar(255),
+    refunded_amount numeric(10,2),
+    refunded_at timestamp(6),
+    status varchar(255) not null check (status in ('PENDING','SUCCESS','FAILED','REFUNDED')),
+    transaction_id varchar(255),
+    order_id bigint not null unique,
+    primary key (id)
+);
+
+create table pharmacies (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    address varchar(255),
+    city varchar(255),
+    custom_domain varchar(255) unique,
+    district varchar(255),
+    email varchar(255) not null,
+    gln_number varchar(255),
+    grace_period_end date,
+    logo_url varchar(255),
+    monthly_fee numeric(10,2),
+    name varchar(255) not null,
+    next_payment_date date,
+    payment_period varchar(255) not null check (payment_period in ('MONTHLY','YEARLY')),
+    phone varchar(255) not null,
+    postal_code varchar(255),
+    primary_color varchar(255),
+    secondary_color varchar(255),
+    setup_fee numeric(10,2),
+    status varchar(255) not null check (status in ('ACTIVE','SUSPENDED','GRACE_PERIOD','CANCELLED')),
+    subdomain varchar(255) unique,
+    subscription_end_date date,
+    subscription_plan varchar(255) not null check (subscription_plan in ('STANDARD','PRO')),
+    subscription_start_date date,
+    suspended_at timestamp(6),
+    tax_number varchar(255),
+    tax_office varchar(255),
+    primary key (id)
+);
+
+create table products (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    is_active boolean,
+    barcode varchar(255),
+    brand varchar(255),
+    description text,
+    discounted_price numeric(10,2),
+    is_featured boolean,
+    image_url varchar(255),
+    low_stock_threshold integer,
+    name varchar(255) not null,
+    price numeric(10,2) not null,
+    sku varchar(255),
+    slug varchar(255) unique,
+    stock_quantity integer not null,
+    weight integer,
+    category_id bigint not null,
+    pharmacy_id bigint not null,
+    primary key (id)
+);
+
+create table settings (
+    id bigserial not null,
+    account_lockout_minutes integer not null,
+    allow_custom_domains boolean not null,
+    created_at timestamp(6) not null,
+    data_retention_days integer not null,
+    email_enabled boolean not null,
+    email_from_address varchar(255),
+    email_from_name varchar(255),
+    email_verification_required boolean not null,
+    grace_period_days integer not null,
+    maintenance_mode boolean not null,
+    max_failed_login_attempts integer not null,
+    platform_email varchar(255) not null,
+    platform_name varchar(255) not null,
+    registrations_enabled boolean not null,
+    support_email varchar(255),
+    support_phone varchar(255),
+    trial_period_days integer,
+    updated_at timestamp(6),
+    updated_by varchar(255),
+    primary key (id)
+);
+
+create table users (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    is_active boolean,
+    address varchar(255),
+    city varchar(255),
+    district varchar(255),
+    email varchar(255) not null,
+    email_verified boolean,
+    failed_login_attempts integer,
+    first_name varchar(255) not null,
+    last_login timestamp(6),
+    last_name varchar(255) not null,
+    locked_until timestamp(6),
+    password varchar(255) not null,
+    phone varchar(255),
+    phone_verified boolean,
+    postal_code varchar(255),
+    role varchar(255) not null check (role in ('SUPER_ADMIN','PHARMACY_OWNER','STAFF','CUSTOMER')),
+    pharmacy_id bigint,
+    primary key (id),
+    unique (email, pharmacy_id)
+);
+
+create index idx_audit_pharmacy
+   on audit_logs (pharmacy_id);
+
+create index idx_audit_user
+   on audit_logs (user_id);
+
+create index idx_audit_action
+   on audit_logs (action_type);
+
+create index idx_audit_entity
+   on audit_logs (entity_type);
+
+create index idx_audit_created
+   on audit_logs (created_at);
+
+create index idx_order_pharmacy
+   on orders (pharmacy_id);
+
+create index idx_order_customer
+   on orders (customer_id);
+
+create index idx_order_status
+   on orders (status);
+
+create index idx_order_number
+   on orders (order_number);
+
+create index idx_payment_order
+   on payments (order_id);
+
+create index idx_payment_status
+   on payments (status);
+
+create index idx_payment_transaction
+   on payments (transaction_id);
+
+create index idx_product_pharmacy
+   on products (pharmacy_id);
+
+create index idx_product_category
+   on products (category_id);
+
+create index idx_product_sku
+   on products (pharmacy_id, sku);
+
+alter table addresses
+   add constraint fk_addresses_user
+   foreign key (user_id)
+   references users;
+
+alter table cart_items
+   add constraint fk_cart_items_cart
+   foreign key (cart_id)
+   references carts;
+
+alter table cart_items
+   add constraint fk_cart_items_product
+   foreign key (product_id)
+   references products;
+
+alter table carts
+   add constraint fk_carts_customer
+   foreign key (customer_id)
+   references users;
+
+alter table carts
+   add constraint fk_carts_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table categories
+   add constraint fk_categories_parent
+   foreign key (parent_id)
+   references categories;
+
+alter table favorites
+   add constraint fk_favorites_product
+   foreign key (product_id)
+   references products;
+
+alter table favorites
+   add constraint fk_favorites_user
+   foreign key (user_id)
+   references users;
+
+alter table order_items
+   add constraint fk_order_items_order
+   foreign key (order_id)
+   references orders;
+
+alter table order_items
+   add constraint fk_order_items_product
+   foreign key (product_id)
+   references products;
+
+alter table orders
+   add constraint fk_orders_customer
+   foreign key (customer_id)
+   references users;
+
+alter table orders
+   add constraint fk_orders_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table payments
+   add constraint fk_payments_order
+   foreign key (order_id)
+   references orders;
+
+alter table products
+   add constraint fk_products_category
+   foreign key (category_id)
+   references categories;
+
+alter table products
+   add constraint fk_products_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table users
+   add constraint fk_users_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
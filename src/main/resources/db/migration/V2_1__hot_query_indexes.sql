@@ -0,0 +1,55 @@
+-- Composite, partial and covering indexes for the hot ProductRepository and
+-- OrderRepository predicates. Built CONCURRENTLY so existing tenants' tables
+-- stay writable; see the matching .conf file (no surrounding transaction).
+--
+-- Nothing here indexes stock_quantity: it changes on every sale and any index
+-- on it would rule out HOT updates. Low-stock lookups go through the
+-- pharmacy/active indexes below and are only re-run on the monitor refresh.
+
+-- ---------------------------------------------------------------- products
+
+-- Storefront listing: findByPharmacyIdAndActiveTrue, sorted by name by default
+create index concurrently if not exists idx_product_active_name
+   on products (pharmacy_id, name)
+   where is_active = true;
+
+-- Staff listing: findByPharmacyIdAndActive, findByPharmacyId (newest first)
+create index concurrently if not exists idx_product_pharmacy_active_created
+   on products (pharmacy_id, is_active, created_at desc);
+
+-- Category pages: findByPharmacyIdAndCategoryIdAndActiveTrue
+create index concurrently if not exists idx_product_active_category
+   on products (pharmacy_id, category_id)
+   where is_active = true;
+
+-- Home page: findByPharmacyIdAndFeaturedTrueAndActiveTrue (a handful of rows)
+create index concurrently if not exists idx_product_featured
+   on products (pharmacy_id)
+   where is_featured = true and is_active = true;
+
+-- Barcode scans and bulk stock updates keyed by barcode
+create index concurrently if not exists idx_product_barcode
+   on products (pharmacy_id, barcode)
+   where barcode is not null;
+
+-- ------------------------------------------------------------------ orders
+
+-- Status queues and counters: findByPharmacyIdAndStatus,
+-- findByPharmacyIdAndStatusOrderByCreatedAtAsc, countByPharmacyIdAndStatus
+-- (the count is answered index-only)
+create index concurrently if not exists idx_order_pharmacy_status_created
+   on orders (pharmacy_id, status, created_at);
+
+-- Date ranges and recency: findByPharmacyIdAndDateRange, countTodayOrders,
+-- findTop10ByPharmacyIdOrderByCreatedAtDesc, findByPharmacyId (paged, newest
+-- first). countTodayOrders is answered index-only.
+create index concurrently if not exists idx_order_pharmacy_created
+   on orders (pharmacy_id, created_at desc);
+
+-- Customer order history: findByCustomerId (paged, newest first)
+create index concurrently if not exists idx_order_customer_created
+   on orders (customer_id, created_at desc);
+
+-- Superseded by the composite indexes above
+drop index concurrently if exists idx_order_status;
+drop index concurrently if exists idx_order_customer;
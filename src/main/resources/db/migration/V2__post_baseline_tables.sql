@@ -0,0 +1,63 @@
+-- Tables and columns added after the baseline: the payment webhook inbox, the
+-- domain event outbox, per-year order number blocks and the product stock
+-- alert level. Databases baselined at V1 were created by ddl-auto: update from
+-- the baseline mapping and have none of them; a database where a later mapping
+-- already created some of them keeps those (if not exists).
+
+create table if not exists payment_webhook_events (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    attempts integer not null,
+    conversation_id varchar(255),
+    event_type varchar(255),
+    idempotency_key varchar(128) not null,
+    last_error text,
+    payload text not null,
+    payment_id varchar(255),
+    processed_at timestamp(6),
+    provider_status varchar(255),
+    status varchar(255) not null check (status in ('RECEIVED','PROCESSING','PROCESSED','FAILED','IGNORED')),
+    primary key (id),
+    constraint uk_webhook_idempotency_key unique (idempotency_key)
+);
+
+create index if not exists idx_webhook_status
+   on payment_webhook_events (status, updated_at);
+
+create index if not exists idx_webhook_conversation
+   on payment_webhook_events (conversation_id);
+
+create table if not exists outbox_events (
+    id bigserial not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    aggregate_id bigint not null,
+    aggregate_type varchar(255) not null,
+    attempts integer not null,
+    event_type varchar(255) not null,
+    last_error text,
+    payload text not null,
+    pharmacy_id bigint,
+    published_at timestamp(6),
+    primary key (id)
+);
+
+create index if not exists idx_outbox_unpublished
+   on outbox_events (published_at, id);
+
+create index if not exists idx_outbox_aggregate
+   on outbox_events (aggregate_type, aggregate_id);
+
+create table if not exists order_number_sequences (
+    seq_year integer not null,
+    next_value bigint not null,
+    primary key (seq_year)
+);
+
+-- 0 = no alert raised; the stock alert migration (V12) backfills existing products
+alter table products add column if not exists stock_alert_level integer not null default 0;
@@ -0,0 +1,22 @@
+-- Replace bigserial/identity ids with one sequence per table, incremented by the
+-- Hibernate allocation size (50). With the pooled optimizer each nextval reserves
+-- the block (value - 49 .. value], so sequences start at max(id) + 50 to keep the
+-- first block clear of existing rows.
+
+do $$
+declare
+    t text;
+    start_at bigint;
+begin
+    foreach t in array array[
+        'addresses', 'audit_logs', 'cart_items', 'carts', 'categories', 'favorites',
+        'order_items', 'orders', 'outbox_events', 'payment_webhook_events', 'payments',
+        'pharmacies', 'products', 'settings', 'users'
+    ] loop
+        execute format('select coalesce(max(id), 0) + 50 from %I', t) into start_at;
+        execute format('create sequence if not exists %I start with %s increment by 50', t || '_seq', start_at);
+        execute format('alter table %I alter column id drop default', t);
+        execute format('drop sequence if exists %I', t || '_id_seq');
+    end loop;
+end
+$$;
@@ -0,0 +1,8 @@
+-- Per-pharmacy catalog version counters behind the public catalog ETags.
+-- scope_id 0 holds the shared category version; other rows are pharmacy ids.
+create table catalog_versions (
+    scope_id bigint not null,
+    version bigint not null,
+    updated_at timestamp(6) not null,
+    primary key (scope_id)
+);
@@ -0,0 +1,259 @@
+-- Hash-partition products, orders and order_items by pharmacy_id (16 partitions
+-- each). Every tenant-scoped query already filters on pharmacy_id, so it is
+-- pruned to one partition and walks that partition's smaller indexes; order_items
+-- carries pharmacy_id too so an order and its items land in matching partitions.
+--
+-- This migration only prepares the move and never blocks writers for long:
+--   * order_items.pharmacy_id is added (nullable; filled on write from orders)
+--   * empty partitioned shadow tables products_p, orders_p, order_items_p are
+--     created with their final keys and indexes
+--   * row triggers mirror every write on the live tables into the shadows
+-- Operators then run, outside a transaction (psql, not Flyway):
+--   call partitioning_copy(10000);   -- backfill + batched copy, commits per batch
+--   call partitioning_swap();        -- short exclusive lock, verify, rename
+-- The old tables stay behind as *_unpartitioned until dropped by hand.
+--
+-- Partitioned tables need the partition key in every unique key, so:
+--   * primary keys become (id, pharmacy_id); ids still come from <table>_seq
+--   * products.slug and orders.order_number are unique per pharmacy (order
+--     numbers come from a global generator, so they stay unique in practice)
+--   * cart_items/favorites -> products and payments -> orders lose their foreign
+--     keys at the swap (single-column references to a composite key); products
+--     and orders are never deleted, so the application keeps them consistent
+
+-- --------------------------------------------------- order_items.pharmacy_id
+
+alter table order_items add column pharmacy_id bigint;
+
+create function order_items_fill_pharmacy() returns trigger
+language plpgsql as $$
+begin
+    if new.pharmacy_id is null then
+        select o.pharmacy_id into new.pharmacy_id from orders o where o.id = new.order_id;
+    end if;
+    return new;
+end
+$$;
+
+create trigger order_items_fill_pharmacy
+    before insert or update on order_items
+    for each row execute function order_items_fill_pharmacy();
+
+-- ----------------------------------------------------------- shadow tables
+
+create table products_p (like products including defaults including constraints)
+    partition by hash (pharmacy_id);
+create table orders_p (like orders including defaults including constraints)
+    partition by hash (pharmacy_id);
+create table order_items_p (like order_items including defaults including constraints)
+    partition by hash (pharmacy_id);
+
+do $$
+declare
+    t text;
+    r integer;
+begin
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        for r in 0..15 loop
+            execute format('create table %I partition of %I for values with (modulus 16, remainder %s)',
+                           t || '_h' || lpad(r::text, 2, '0'), t || '_p', r);
+        end loop;
+    end loop;
+end
+$$;
+
+alter table products_p add primary key (id, pharmacy_id);
+alter table orders_p add primary key (id, pharmacy_id);
+alter table order_items_p add primary key (id, pharmacy_id);
+
+-- Index names carry a _p suffix until partitioning_swap strips it
+
+-- products: slug lookups and uniqueness (findByPharmacyIdAndSlug, existsByPharmacyIdAndSlug)
+alter table products_p add constraint uq_product_pharmacy_slug_p unique (pharmacy_id, slug);
+
+create index idx_product_category_p on products_p (category_id);
+create index idx_product_sku_p on products_p (pharmacy_id, sku);
+create index idx_product_active_name_p on products_p (pharmacy_id, name) where is_active = true;
+create index idx_product_pharmacy_active_created_p on products_p (pharmacy_id, is_active, created_at desc);
+create index idx_product_active_category_p on products_p (pharmacy_id, category_id) where is_active = true;
+create index idx_product_featured_p on products_p (pharmacy_id) where is_featured = true and is_active = true;
+create index idx_product_barcode_p on products_p (pharmacy_id, barcode) where barcode is not null;
+
+-- orders: staff lookups are per pharmacy; customer lookups (order number, history)
+-- probe every partition through the last two indexes
+alter table orders_p add constraint uq_order_pharmacy_number_p unique (pharmacy_id, order_number);
+
+create index idx_order_pharmacy_status_created_p on orders_p (pharmacy_id, status, created_at);
+create index idx_order_pharmacy_created_p on orders_p (pharmacy_id, created_at desc);
+create index idx_order_number_p on orders_p (order_number);
+create index idx_order_customer_created_p on orders_p (customer_id, created_at desc);
+
+-- order_items: findByPharmacyIdAndOrderId, findByPharmacyIdAndProductId, sales totals
+create index idx_order_item_order_p on order_items_p (pharmacy_id, order_id);
+create index idx_order_item_product_p on order_items_p (pharmacy_id, product_id);
+
+-- References to tables that are not being moved are checked from the start
+alter table products_p
+   add constraint fk_products_category
+   foreign key (category_id)
+   references categories;
+
+alter table products_p
+   add constraint fk_products_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table orders_p
+   add constraint fk_orders_customer
+   foreign key (customer_id)
+   references users;
+
+alter table orders_p
+   add constraint fk_orders_pharmacy
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+-- ------------------------------------------------------------------ mirror
+
+-- Replays a write on the live table (tg_argv[0] names the shadow). An update is
+-- a delete plus insert so a row copied earlier is replaced by its new version.
+create function partitioning_mirror() returns trigger
+language plpgsql as $$
+begin
+    if tg_op in ('UPDATE', 'DELETE') then
+        execute format('delete from %I where id = $1 and pharmacy_id = $2', tg_argv[0])
+            using old.id, old.pharmacy_id;
+    end if;
+    if tg_op = 'DELETE' then
+        return old;
+    end if;
+    execute format('insert into %I select ($1).* on conflict do nothing', tg_argv[0]) using new;
+    return new;
+end
+$$;
+
+create trigger products_mirror
+    after insert or update or delete on products
+    for each row execute function partitioning_mirror('products_p');
+
+create trigger orders_mirror
+    after insert or update or delete on orders
+    for each row execute function partitioning_mirror('orders_p');
+
+create trigger order_items_mirror
+    after insert or update or delete on order_items
+    for each row execute function partitioning_mirror('order_items_p');
+
+-- -------------------------------------------------------------------- copy
+
+-- Backfills order_items.pharmacy_id, then copies existing rows in id ranges of
+-- batch_size, committing after every batch. Copied rows are read FOR SHARE, so a
+-- concurrent update waits for the batch and then replaces the copied version;
+-- rows the mirror already wrote win over the copy (on conflict do nothing).
+-- Safe to re-run after an interruption.
+create procedure partitioning_copy(batch_size integer default 10000)
+language plpgsql as $$
+declare
+    t text;
+    last_id bigint;
+    max_id bigint;
+begin
+    select coalesce(max(id), 0) into max_id from order_items;
+    last_id := 0;
+    while last_id < max_id loop
+        update order_items oi
+           set pharmacy_id = o.pharmacy_id
+          from orders o
+         where o.id = oi.order_id
+           and oi.id > last_id and oi.id <= last_id + batch_size
+           and oi.pharmacy_id is null;
+        last_id := last_id + batch_size;
+        commit;
+    end loop;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('select coalesce(max(id), 0) from %I', t) into max_id;
+        last_id := 0;
+        while last_id < max_id loop
+            execute format('insert into %I select * from %I where id > $1 and id <= $2 for share '
+                           'on conflict do nothing', t || '_p', t)
+                using last_id, last_id + batch_size;
+            last_id := last_id + batch_size;
+            raise notice 'partitioning_copy: % up to id %', t, least(last_id, max_id);
+            commit;
+        end loop;
+    end loop;
+end
+$$;
+
+-- -------------------------------------------------------------------- swap
+
+-- Takes the live tables exclusively (writers queue for the duration), checks the
+-- shadows are complete, and renames them into place. The composite foreign keys
+-- and the NOT NULL on order_items.pharmacy_id are checked here, which is the
+-- longest step; run it in a quiet window.
+create procedure partitioning_swap()
+language plpgsql as $$
+declare
+    t text;
+    old_count bigint;
+    new_count bigint;
+    idx record;
+begin
+    lock table products, orders, order_items in access exclusive mode;
+
+    if exists (select 1 from order_items where pharmacy_id is null) then
+        raise exception 'partitioning_swap: order_items.pharmacy_id not backfilled; run partitioning_copy first';
+    end if;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('select count(*) from %I', t) into old_count;
+        execute format('select count(*) from %I', t || '_p') into new_count;
+        if old_count <> new_count then
+            raise exception 'partitioning_swap: % has % rows but %_p has %; run partitioning_copy first',
+                t, old_count, t, new_count;
+        end if;
+        execute format('drop trigger %I on %I', t || '_mirror', t);
+    end loop;
+    drop trigger order_items_fill_pharmacy on order_items;
+
+    alter table cart_items drop constraint fk_cart_items_product;
+    alter table favorites drop constraint fk_favorites_product;
+    alter table payments drop constraint fk_payments_order;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname not like '%\_pkey'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, idx.indexname || '_unpartitioned');
+    end loop;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('alter table %I rename to %I', t, t || '_unpartitioned');
+        execute format('alter table %I rename to %I', t || '_p', t);
+    end loop;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname like '%\_p'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, left(idx.indexname, -2));
+    end loop;
+
+    alter table order_items alter column pharmacy_id set not null;
+
+    alter table order_items
+       add constraint fk_order_items_order
+       foreign key (order_id, pharmacy_id)
+       references orders (id, pharmacy_id);
+
+    alter table order_items
+       add constraint fk_order_items_product
+       foreign key (product_id, pharmacy_id)
+       references products (id, pharmacy_id);
+end
+$$;
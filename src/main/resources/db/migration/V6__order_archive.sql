@@ -0,0 +1,102 @@
+-- Archive tables for terminal (DELIVERED/CANCELLED) orders moved out of the hot
+-- tables by OrderArchiver. Same columns in the same order as orders/order_items,
+-- so rows move with INSERT ... SELECT *; a column added to orders or order_items
+-- must be added here too. Not partitioned: the archive is written in bulk and
+-- read by order number, customer or pharmacy through the indexes below.
+-- Built outside a transaction (see the .conf) for the CONCURRENTLY index.
+
+create table if not exists orders_archive (
+    like orders including defaults including constraints,
+    primary key (id)
+);
+
+create index if not exists idx_order_archive_number
+   on orders_archive (order_number);
+create index if not exists idx_order_archive_pharmacy_created
+   on orders_archive (pharmacy_id, created_at desc);
+create index if not exists idx_order_archive_customer_created
+   on orders_archive (customer_id, created_at desc);
+
+create table if not exists order_items_archive (
+    like order_items including defaults including constraints,
+    primary key (id)
+);
+
+create index if not exists idx_order_item_archive_order
+   on order_items_archive (order_id);
+
+-- The archiver deletes order_items by order; until partitioning_swap replaces the
+-- table (whose (pharmacy_id, order_id) index covers this) it has no order_id index
+create index concurrently if not exists idx_order_item_order
+   on order_items (order_id);
+
+-- Payments stay in place when their order is archived
+alter table payments drop constraint if exists fk_payments_order;
+
+-- partitioning_swap (V5) dropped the constraint unconditionally; redefined to
+-- tolerate it being gone already. Otherwise unchanged.
+create or replace procedure partitioning_swap()
+language plpgsql as $$
+declare
+    t text;
+    old_count bigint;
+    new_count bigint;
+    idx record;
+begin
+    lock table products, orders, order_items in access exclusive mode;
+
+    if exists (select 1 from order_items where pharmacy_id is null) then
+        raise exception 'partitioning_swap: order_items.pharmacy_id not backfilled; run partitioning_copy first';
+    end if;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('select count(*) from %I', t) into old_count;
+        execute format('select count(*) from %I', t || '_p') into new_count;
+        if old_count <> new_count then
+            raise exception 'partitioning_swap: % has % rows but %_p has %; run partitioning_copy first',
+                t, old_count, t, new_count;
+        end if;
+        execute format('drop trigger %I on %I', t || '_mirror', t);
+    end loop;
+    drop trigger order_items_fill_pharmacy on order_items;
+
+    alter table cart_items drop constraint fk_cart_items_product;
+    alter table favorites drop constraint fk_favorites_product;
+    alter table payments drop constraint if exists fk_payments_order;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname not like '%\_pkey'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, idx.indexname || '_unpartitioned');
+    end loop;
+
+    foreach t in array array['products', 'orders', 'order_items'] loop
+        execute format('alter table %I rename to %I', t, t || '_unpartitioned');
+        execute format('alter table %I rename to %I', t || '_p', t);
+    end loop;
+
+    for idx in
+        select indexname from pg_indexes
+         where schemaname = current_schema()
+           and tablename in ('products', 'orders', 'order_items')
+           and indexname like '%\_p'
+    loop
+        execute format('alter index %I rename to %I', idx.indexname, left(idx.indexname, -2));
+    end loop;
+
+    alter table order_items alter column pharmacy_id set not null;
+
+    alter table order_items
+       add constraint fk_order_items_order
+       foreign key (order_id, pharmacy_id)
+       references orders (id, pharmacy_id);
+
+    alter table order_items
+       add constraint fk_order_items_product
+       foreign key (product_id, pharmacy_id)
+       references products (id, pharmacy_id);
+end
+$$;
@@ -0,0 +1,5 @@
+-- CartReaper locks batches of carts by age (updated_at < cutoff, oldest first),
+-- and the admin cart stats count either side of the same cutoff. Built
+-- CONCURRENTLY so carts stay writable; see the matching .conf file.
+create index concurrently if not exists idx_cart_updated
+   on carts (updated_at);
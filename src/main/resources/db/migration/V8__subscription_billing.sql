@@ -0,0 +1,35 @@
+-- Daily subscription billing (SubscriptionBillingScheduler).
+
+-- Day of the last billing attempt: the restart checkpoint. A run that stops
+-- part-way is picked up by the next one, which skips pharmacies already
+-- attempted that day.
+alter table pharmacies add column last_billing_date date;
+
+-- Due pharmacies: billable status and next_payment_date on or before the run date
+create index idx_pharmacy_billing_due
+   on pharmacies (next_payment_date)
+   where status in ('ACTIVE', 'GRACE_PERIOD');
+
+-- Lease-based locks for jobs that must run on one node at a time. The holder
+-- extends locked_until while it works; an expired lease can be taken over.
+create table job_locks (
+    name varchar(100) not null,
+    owner varchar(255) not null,
+    locked_at timestamp(6) not null,
+    locked_until timestamp(6) not null,
+    primary key (name)
+);
+
+-- One row per billing day; counters are added by each chunk's transaction
+create table billing_runs (
+    run_date date not null,
+    status varchar(20) not null,
+    started_at timestamp(6) not null,
+    finished_at timestamp(6),
+    due_count integer not null default 0,
+    chunks_done integer not null default 0,
+    renewed integer not null default 0,
+    failed integer not null default 0,
+    suspended integer not null default 0,
+    primary key (run_date)
+);
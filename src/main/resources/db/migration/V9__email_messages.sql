@@ -0,0 +1,38 @@
+-- Outbound email queue (EmailService). Messages are rendered when queued and
+-- sent by EmailDispatcher workers; unsent rows wait for next_attempt_at.
+
+create sequence email_messages_seq start with 1 increment by 50;
+
+create table email_messages (
+    id bigint not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    pharmacy_id bigint,
+    template varchar(100) not null,
+    dedupe_key varchar(255) not null,
+    recipient varchar(255) not null,
+    from_name varchar(255),
+    from_address varchar(255) not null,
+    reply_to varchar(255),
+    subject varchar(500) not null,
+    body text not null,
+    sent_at timestamp(6),
+    attempts integer not null,
+    next_attempt_at timestamp(6) not null,
+    last_error text,
+    primary key (id),
+    constraint uq_email_dedupe_key unique (dedupe_key)
+);
+
+-- Only unsent messages are indexed, so the dispatcher's scan stays small as
+-- sent messages accumulate until they are purged
+create index idx_email_unsent
+   on email_messages (next_attempt_at)
+   where sent_at is null;
+
+-- Purge of sent messages past retention
+create index idx_email_sent
+   on email_messages (sent_at)
+   where sent_at is not null;
@@ -0,0 +1,75 @@
+package com.pharmacy.config;
+
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaLagMonitorTest {
+
+    @Test
+    void resultAgesOutWhenChecksStop() {
+        JdbcTemplate replica = mock(JdbcTemplate.class);
+        when(replica.queryForObject(anyString(), eq(Double.class))).thenReturn(500.0);
+        ReplicaLagMonitor monitor = monitor(replica);
+
+        monitor.check();
+        assertThat(monitor.isReplicaUsable()).isTrue();
+
+        // Last check 1.6 s ago: 500 ms measured lag may have grown past the 2 s bound by now
+        ReflectionTestUtils.setField(monitor, "checkedAt", System.currentTimeMillis() - 1_600);
+        assertThat(monitor.isReplicaUsable()).isFalse();
+
+        monitor.check();
+        assertThat(monitor.isReplicaUsable()).isTrue();
+    }
+
+    @Test
+    void unknownLagOrFailedCheckKeepsReadsOnThePrimary() {
+        JdbcTemplate replica = mock(JdbcTemplate.class);
+        when(replica.queryForObject(anyString(), eq(Double.class)))
+                .thenReturn(100.0)
+                .thenReturn(null)
+                .thenReturn(100.0)
+                .thenThrow(new QueryTimeoutException("timeout"));
+        ReplicaLagMonitor monitor = monitor(replica);
+
+        monitor.check();
+        assertThat(monitor.isReplicaUsable()).isTrue();
+        // NULL: the WAL receiver is not streaming
+        monitor.check();
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        monitor.check();
+        monitor.check();
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        assertThat(monitor.getLagMs()).isEqualTo(-1);
+    }
+
+    @Test
+    void lagQueryRunsOnPostgres() {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            ReplicaLagMonitor monitor = new ReplicaLagMonitor(db.jdbc().getDataSource(), 2_000);
+
+            monitor.check();
+
+            // A primary is never behind itself
+            assertThat(monitor.getLagMs()).isZero();
+            assertThat(monitor.isReplicaUsable()).isTrue();
+        }
+    }
+
+    private static ReplicaLagMonitor monitor(JdbcTemplate replica) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(mock(DataSource.class), 2_000);
+        ReflectionTestUtils.setField(monitor, "replica", replica);
+        return monitor;
+    }
+}
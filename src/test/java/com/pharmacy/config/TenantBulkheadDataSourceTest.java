@@ -0,0 +1,61 @@
+package com.pharmacy.config;
+
+import com.pharmacy.enums.SubscriptionPlan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TenantBulkheadDataSourceTest {
+
+    private final TenantBulkhead bulkhead = new TenantBulkhead(7L, SubscriptionPlan.STANDARD, 8, 16, 1);
+
+    @AfterEach
+    void tearDown() {
+        TenantBulkhead.bind(null);
+    }
+
+    @Test
+    void nestedConnectionOnTheSameThreadIsNotChargedAgain() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        TenantBulkheadDataSource dataSource = new TenantBulkheadDataSource(pool, 50);
+        TenantBulkhead.bind(bulkhead);
+
+        // The open-in-view connection, then the one a REQUIRES_NEW transaction takes
+        Connection outer = dataSource.getConnection();
+        Connection inner = dataSource.getConnection();
+        assertThat(bulkhead.getConnectionsInUse()).isEqualTo(1);
+
+        // Another request of the same pharmacy is still limited
+        assertThatThrownBy(() -> CompletableFuture.runAsync(() -> {
+            TenantBulkhead.bind(bulkhead);
+            try {
+                dataSource.getConnection();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                TenantBulkhead.bind(null);
+            }
+        }).join()).hasCauseInstanceOf(TenantConnectionLimitException.class);
+        assertThat(bulkhead.getConnectionTimeouts()).isEqualTo(1);
+
+        inner.close();
+        assertThat(bulkhead.getConnectionsInUse()).isEqualTo(1);
+        outer.close();
+        assertThat(bulkhead.getConnectionsInUse()).isZero();
+
+        // The thread's next connection is charged again
+        Connection next = dataSource.getConnection();
+        assertThat(bulkhead.getConnectionsInUse()).isEqualTo(1);
+        next.close();
+    }
+}
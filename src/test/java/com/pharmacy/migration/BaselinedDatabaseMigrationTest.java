@@ -0,0 +1,84 @@
+package com.pharmacy.migration;
+
+import com.pharmacy.support.MigratedSchema;
+import jakarta.persistence.Entity;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A database that predates Flyway was created by ddl-auto: update from the baseline mapping and is
+ * baselined at V1 (spring.flyway.baseline-on-migrate), so V1 never runs on it: everything mapped
+ * since must come from later migrations, or ddl-auto: validate stops the application.
+ * Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ */
+class BaselinedDatabaseMigrationTest {
+
+    @Test
+    void preFlywayDatabaseMigratesToTheCurrentMapping() {
+        try (MigratedSchema db = MigratedSchema.empty()) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/pre-flyway-schema.sql")).execute(db.newConnections());
+            db.jdbc().update("INSERT INTO pharmacies (created_at, email, name, payment_period, phone, status, subscription_plan) " +
+                    "VALUES (now(), 'central@example.com', 'Central', 'MONTHLY', '555', 'ACTIVE', 'STANDARD')");
+            db.jdbc().update("INSERT INTO categories (created_at, name) VALUES (now(), 'Vitamins')");
+            db.jdbc().update("INSERT INTO products (created_at, name, price, stock_quantity, low_stock_threshold, is_active, " +
+                    "category_id, pharmacy_id) VALUES (now(), 'Vitamin C', 9.90, 2, 5, true, 1, 1)");
+
+            db.migrate(null);
+
+            assertThat(db.jdbc().queryForObject(
+                    "SELECT type FROM flyway_schema_history WHERE version = '1'", String.class)).isEqualTo("BASELINE");
+            // Backfilled by V12 on the column V2 added
+            assertThat(db.jdbc().queryForObject("SELECT stock_alert_level FROM products", Integer.class)).isEqualTo(1);
+            validateMapping(db);
+        }
+    }
+
+    @Test
+    void freshDatabaseMatchesTheCurrentMapping() {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            validateMapping(db);
+        }
+    }
+
+    // What spring.jpa.hibernate.ddl-auto: validate does on startup
+    private static void validateMapping(MigratedSchema db) {
+        DataSource dataSource = db.newConnections();
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.DEFAULT_SCHEMA, db.schema())
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "validate")
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .build();
+        try {
+            MetadataSources sources = new MetadataSources(registry);
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+            scanner.findCandidateComponents("com.pharmacy.entity").forEach(candidate ->
+                    sources.addAnnotatedClass(ClassUtils.resolveClassName(candidate.getBeanClassName(), null)));
+
+            // Throws SchemaManagementException on a missing table or column, or a mismatched type
+            try (SessionFactory sessionFactory = sources.buildMetadata().buildSessionFactory()) {
+                assertThat(sessionFactory.isOpen()).isTrue();
+            }
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pharmacy.migration;
+
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * V13 renames foreign keys that a pre-Flyway (Hibernate-created, then baselined) database still
+ * carries under generated names. Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ */
+class ConstraintNamesMigrationTest {
+
+    @Test
+    void generatedForeignKeyNamesAreNormalized() {
+        try (MigratedSchema db = MigratedSchema.create("12")) {
+            db.jdbc().execute("ALTER TABLE orders RENAME CONSTRAINT fk_orders_customer TO fk9x2lq0hz1xjpbbqjvwb7ad5w");
+            db.jdbc().execute("ALTER TABLE favorites RENAME CONSTRAINT fk_favorites_product TO fkk7du8b8ewipawnnpg76d55fus");
+
+            db.migrate(null);
+
+            List<String> names = db.jdbc().queryForList(
+                    "SELECT conname FROM pg_constraint WHERE contype = 'f' " +
+                    "AND conrelid IN (to_regclass('orders'), to_regclass('favorites')) ORDER BY conname", String.class);
+            assertThat(names).containsExactly("fk_favorites_product", "fk_favorites_user", "fk_orders_customer", "fk_orders_pharmacy");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.pharmacy.migration;
+
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Small tenants' order queries when one tenant holds BIG_TENANT_ORDERS orders, before and after
+ * the V5/V14 move to hash partitions, and what the move itself costs:
+ *   index depth - B-tree levels of idx_order_pharmacy_created a small tenant's lookups descend
+ *                 (the shared index before, the tenant's partition index after; needs pageinspect)
+ *   latency     - mean of QUERIES runs of each hot order query for random small tenants (warm cache)
+ *   copy        - partitioning_copy wall time
+ *   swap        - partitioning_swap wall time, and the longest a concurrent order insert waited
+ * Data is loaded before V5, as on a live database. Needs PHARMACY_TEST_DB_URL (see MigratedSchema);
+ * installs pageinspect in the public schema when it can. Override the big tenant's size with
+ * -Dbench.orders=N. Run with: mvn test -Pbenchmark -Dtest=PartitioningBenchmark
+ */
+@Tag("benchmark")
+class PartitioningBenchmark {
+
+    private static final long BIG_TENANT_ORDERS = Long.getLong("bench.orders", 10_000_000L);
+    private static final int SMALL_TENANTS = 50;
+    private static final int SMALL_TENANT_ORDERS = 2_000;
+    private static final int QUERIES = 2_000;
+
+    private static final String[] QUERY_NAMES = { "recent orders", "status count", "order by id" };
+    private static final String[] QUERY_SQL = {
+            "SELECT * FROM orders WHERE pharmacy_id = ? ORDER BY created_at DESC LIMIT 20",
+            "SELECT count(*) FROM orders WHERE pharmacy_id = ? AND status = 'PENDING'",
+            "SELECT * FROM orders WHERE pharmacy_id = ? AND id = ?",
+    };
+
+    @Test
+    void smallTenantLatency() throws Exception {
+        try (MigratedSchema db = MigratedSchema.create("4")) {
+            seed(db);
+            db.migrate(null);
+            boolean pageInspect = installPageInspect(db);
+
+            db.jdbc().execute("VACUUM ANALYZE orders");
+            System.out.printf("%-36s %12s %12s%n", "", "depth", "mean us");
+            report(db, "unpartitioned", pageInspect);
+
+            long start = System.nanoTime();
+            db.jdbc().execute("CALL partitioning_copy(50000)");
+            System.out.printf("%ncopy: %.1f s%n", (System.nanoTime() - start) / 1e9);
+            swapUnderWriteLoad(db);
+
+            db.jdbc().execute("VACUUM ANALYZE orders");
+            System.out.println();
+            report(db, "partitioned", pageInspect);
+
+            assertThat(db.jdbc().queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass('orders')",
+                    String.class)).isEqualTo("p");
+        }
+    }
+
+    private void seed(MigratedSchema db) {
+        db.jdbc().execute("INSERT INTO pharmacies (id, created_at, email, name, payment_period, phone, status, subscription_plan) " +
+                "SELECT g, now(), 'p' || g || '@test', 'Pharmacy ' || g, 'MONTHLY', '555', 'ACTIVE', 'STANDARD' " +
+                "FROM generate_series(1, " + (SMALL_TENANTS + 1) + ") g");
+        db.jdbc().execute("INSERT INTO users (id, created_at, is_active, email, first_name, last_name, password, role) " +
+                "SELECT g, now(), true, 'c' || g || '@test', 'C', 'U', 'x', 'CUSTOMER' FROM generate_series(1, 10000) g");
+        // Pharmacy 1 is the big tenant; the small ones follow its ids
+        db.jdbc().execute(ordersInsert("1", "1", String.valueOf(BIG_TENANT_ORDERS)));
+        db.jdbc().execute(ordersInsert("2 + (g - " + (BIG_TENANT_ORDERS + 1) + ") % " + SMALL_TENANTS,
+                String.valueOf(BIG_TENANT_ORDERS + 1), String.valueOf(BIG_TENANT_ORDERS + (long) SMALL_TENANTS * SMALL_TENANT_ORDERS)));
+        db.jdbc().execute("SELECT setval('orders_seq', (SELECT max(id) FROM orders) + 1000)");
+    }
+
+    private static String ordersInsert(String pharmacy, String from, String to) {
+        return "INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, shipping_city, " +
+                "shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) " +
+                "SELECT g, now() - (g % 100000) * interval '5 minutes', 'COURIER', 'ORD-' || g, 'Street 1', 'City', '555', " +
+                "(array['PENDING','CONFIRMED','PREPARING','SHIPPED','DELIVERED','CANCELLED'])[1 + g % 6], 10, 10, " +
+                "1 + g % 10000, " + pharmacy + " FROM generate_series(" + from + ", " + to + ") g";
+    }
+
+    private void report(MigratedSchema db, String phase, boolean pageInspect) throws SQLException {
+        System.out.printf("%-36s %12s%n", phase + ": big tenant index", depth(db, 1, pageInspect));
+        System.out.printf("%-36s %12s%n", phase + ": small tenant index", depth(db, 2, pageInspect));
+        try (Connection connection = db.connection(false)) {
+            for (int q = 0; q < QUERY_SQL.length; q++) {
+                try (PreparedStatement statement = connection.prepareStatement(QUERY_SQL[q])) {
+                    run(statement, q, QUERIES);  // warm-up
+                    long start = System.nanoTime();
+                    run(statement, q, QUERIES);
+                    double micros = (System.nanoTime() - start) / 1e3 / QUERIES;
+                    System.out.printf("%-36s %12s %12.0f%n", phase + ": " + QUERY_NAMES[q], "", micros);
+                }
+            }
+        }
+    }
+
+    private void run(PreparedStatement statement, int query, int times) throws SQLException {
+        Random random = new Random(query);
+        for (int i = 0; i < times; i++) {
+            int tenant = random.nextInt(SMALL_TENANTS);
+            statement.setLong(1, 2 + tenant);
+            if (query == 2) {
+                // An order of that tenant: ids after the big tenant's cycle through the small tenants
+                statement.setLong(2, BIG_TENANT_ORDERS + 1 + tenant + (long) SMALL_TENANTS * random.nextInt(SMALL_TENANT_ORDERS));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+            }
+        }
+    }
+
+    // Levels of the idx_order_pharmacy_created B-tree that holds the pharmacy's rows
+    private String depth(MigratedSchema db, long pharmacyId, boolean pageInspect) {
+        if (!pageInspect) {
+            return "n/a";
+        }
+        String index = db.jdbc().queryForObject(
+                "SELECT coalesce((SELECT i.indexrelid::regclass::text FROM pg_index i " +
+                "  JOIN pg_inherits h ON h.inhrelid = i.indexrelid " +
+                " WHERE h.inhparent = to_regclass('idx_order_pharmacy_created') " +
+                "   AND i.indrelid = (SELECT tableoid FROM orders WHERE pharmacy_id = ? LIMIT 1)), " +
+                "  'idx_order_pharmacy_created')", String.class, pharmacyId);
+        Integer level = db.jdbc().queryForObject("SELECT level FROM public.bt_metap(?)", Integer.class, index);
+        return String.valueOf(level + 1);
+    }
+
+    private boolean installPageInspect(MigratedSchema db) {
+        try {
+            db.jdbc().execute("CREATE EXTENSION IF NOT EXISTS pageinspect SCHEMA public");
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Inserts small-tenant orders one per transaction while the swap runs; reports the longest wait
+    private void swapUnderWriteLoad(MigratedSchema db) throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong longestNanos = new AtomicLong();
+        AtomicLong inserted = new AtomicLong();
+        Thread writer = new Thread(() -> {
+            try (Connection connection = db.connection(false);
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, shipping_city, " +
+                         "shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) " +
+                         "VALUES (nextval('orders_seq'), now(), 'COURIER', 'LIVE-' || nextval('orders_seq'), 'a', 'c', '555', " +
+                         "'PENDING', 10, 10, 1, ?)")) {
+                while (!done.get()) {
+                    insert.setLong(1, 2 + inserted.get() % SMALL_TENANTS);
+                    long start = System.nanoTime();
+                    insert.executeUpdate();
+                    longestNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+                    inserted.incrementAndGet();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        Thread.sleep(500);
+
+        long start = System.nanoTime();
+        db.jdbc().execute("CALL partitioning_swap()");
+        double swapSeconds = (System.nanoTime() - start) / 1e9;
+        Thread.sleep(500);
+        done.set(true);
+        writer.join();
+
+        System.out.printf("swap: %.1f s, %d concurrent inserts, longest insert %.0f ms%n",
+                swapSeconds, inserted.get(), longestNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,107 @@
+package com.pharmacy.migration;
+
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The online move of V5 (products, orders, order_items into hash-partitioned tables) with the
+ * V14 swap, end to end on a small dataset. Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ */
+class PartitioningSwapTest {
+
+    @Test
+    void swapMovesEveryRowAndLeavesValidatedForeignKeys() {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            seed(db);
+            // As on a database baselined from Hibernate's schema (see V13)
+            db.jdbc().execute("ALTER TABLE cart_items RENAME CONSTRAINT fk_cart_items_product TO fkn3p2r8i6a5bc1v0k4f");
+
+            db.jdbc().execute("CALL partitioning_copy(25)");
+            // Written after the copy: reaches the shadows through the mirror triggers
+            db.jdbc().execute("UPDATE products SET stock_quantity = 7 WHERE id = 3");
+            db.jdbc().execute("INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, " +
+                    "shipping_city, shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) " +
+                    "VALUES (1000, now(), 'COURIER', 'ORD-1000', 'a', 'c', '555', 'PENDING', 10, 10, 1, 2)");
+            db.jdbc().execute("INSERT INTO order_items (id, created_at, product_name, quantity, total_price, unit_price, " +
+                    "order_id, product_id) VALUES (1000, now(), 'P', 1, 10, 10, 1000, 1)");
+
+            db.jdbc().execute("CALL partitioning_swap()");
+
+            for (String table : List.of("products", "orders", "order_items")) {
+                assertThat(db.jdbc().queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)",
+                        String.class, table)).as(table).isEqualTo("p");
+            }
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM orders", Long.class)).isEqualTo(61);
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM order_items", Long.class)).isEqualTo(121);
+            assertThat(db.jdbc().queryForObject("SELECT pharmacy_id FROM order_items WHERE id = 1000", Long.class)).isEqualTo(2);
+            assertThat(db.jdbc().queryForObject("SELECT stock_quantity FROM products WHERE id = 3", Integer.class)).isEqualTo(7);
+
+            List<Map<String, Object>> orderItemKeys = db.jdbc().queryForList(
+                    "SELECT conname, convalidated FROM pg_constraint WHERE contype = 'f' " +
+                    "AND conrelid = to_regclass('order_items') AND conparentid = 0 ORDER BY conname");
+            assertThat(orderItemKeys).containsExactly(
+                    Map.of("conname", "fk_order_items_order", "convalidated", true),
+                    Map.of("conname", "fk_order_items_product", "convalidated", true));
+            // The partitions' validated keys were adopted, not duplicated
+            assertThat(db.jdbc().queryForList("SELECT DISTINCT c.conname FROM pg_constraint c " +
+                    "JOIN pg_inherits i ON i.inhrelid = c.conrelid WHERE i.inhparent = to_regclass('order_items') " +
+                    "AND c.contype = 'f' AND c.confrelid IN (to_regclass('orders'), to_regclass('products'))", String.class))
+                    .containsExactlyInAnyOrder("fk_order_items_order", "fk_order_items_product");
+            // Including the one under a generated name
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM pg_constraint WHERE contype = 'f' " +
+                    "AND confrelid IN (to_regclass('products'), to_regclass('orders')) " +
+                    "AND conrelid IN (to_regclass('cart_items'), to_regclass('favorites'), to_regclass('payments'))",
+                    Long.class)).isZero();
+
+            assertThatThrownBy(() -> db.jdbc().execute("INSERT INTO order_items (id, created_at, product_name, quantity, " +
+                    "total_price, unit_price, order_id, product_id, pharmacy_id) VALUES (1001, now(), 'P', 1, 10, 10, 1000, 1, 3)"))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        }
+    }
+
+    @Test
+    void swapRefusesIncompleteShadows() {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            seed(db);
+            // A row the copy has not reached yet
+            db.jdbc().execute("DELETE FROM orders_p WHERE id = 5");
+
+            assertThatThrownBy(() -> db.jdbc().execute("CALL partitioning_swap()"))
+                    .hasMessageContaining("run partitioning_copy first");
+
+            assertThat(db.jdbc().queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass('orders')",
+                    String.class)).isEqualTo("r");
+        }
+    }
+
+    private static void seed(MigratedSchema db) {
+        db.jdbc().execute("INSERT INTO pharmacies (id, created_at, email, name, payment_period, phone, status, subscription_plan) " +
+                "SELECT g, now(), 'p' || g || '@test', 'Pharmacy ' || g, 'MONTHLY', '555', 'ACTIVE', 'STANDARD' " +
+                "FROM generate_series(1, 3) g");
+        db.jdbc().execute("INSERT INTO categories (id, created_at, is_active, name, slug) VALUES (1, now(), true, 'C', 'c')");
+        db.jdbc().execute("INSERT INTO users (id, created_at, is_active, email, first_name, last_name, password, role) " +
+                "SELECT g, now(), true, 'c' || g || '@test', 'C', 'U', 'x', 'CUSTOMER' FROM generate_series(1, 10) g");
+        db.jdbc().execute("INSERT INTO products (id, created_at, is_active, is_featured, low_stock_threshold, name, " +
+                "price, sku, slug, stock_alert_level, stock_quantity, category_id, pharmacy_id) " +
+                "SELECT g, now(), true, false, 10, 'Product ' || g, 10, 'SKU' || g, 'product-' || g, 0, 100, 1, 1 + g % 3 " +
+                "FROM generate_series(1, 30) g");
+        db.jdbc().execute("INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, shipping_city, " +
+                "shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) " +
+                "SELECT g, now(), 'COURIER', 'ORD-' || g, 'a', 'c', '555', 'DELIVERED', 10, 10, 1 + g % 10, 1 + g % 3 " +
+                "FROM generate_series(1, 60) g");
+        // Item g belongs to order (g + 1) / 2 and a product of the same pharmacy
+        db.jdbc().execute("INSERT INTO order_items (id, created_at, product_name, quantity, total_price, unit_price, " +
+                "order_id, product_id) " +
+                "SELECT g, now(), 'P', 1, 10, 10, (g + 1) / 2, 3 + ((g + 1) / 2) % 3 FROM generate_series(1, 120) g");
+        db.jdbc().execute("INSERT INTO carts (id, created_at, customer_id, pharmacy_id) VALUES (1, now(), 1, 1)");
+        db.jdbc().execute("INSERT INTO cart_items (id, created_at, quantity, cart_id, product_id) VALUES (1, now(), 1, 1, 3)");
+        db.jdbc().execute("INSERT INTO favorites (id, created_at, product_id, user_id) VALUES (1, now(), 3, 1)");
+    }
+}
@@ -0,0 +1,46 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.EmailMessage;
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EmailService.enqueue's insert: a dedupe key already queued is skipped rather than failing the
+ * caller's transaction. Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ */
+class EmailMessageJdbcRepositoryTest {
+
+    @Test
+    void duplicateDedupeKeyIsSkipped() {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            EmailMessageJdbcRepository repository = new EmailMessageJdbcRepository(db.jdbc());
+            LocalDateTime now = LocalDateTime.now();
+
+            assertThat(repository.insertIfAbsent(message("order-confirmed:1", null), now)).isTrue();
+            assertThat(repository.insertIfAbsent(message("order-confirmed:1", 4L), now)).isFalse();
+            assertThat(repository.insertIfAbsent(message("order-confirmed:2", 4L), now)).isTrue();
+
+            assertThat(db.jdbc().queryForList("SELECT pharmacy_id FROM email_messages ORDER BY dedupe_key", Long.class))
+                    .containsExactly(null, 4L);
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM email_messages WHERE attempts = 0 " +
+                    "AND sent_at IS NULL", Long.class)).isEqualTo(2);
+        }
+    }
+
+    private static EmailMessage message(String dedupeKey, Long pharmacyId) {
+        EmailMessage message = new EmailMessage();
+        message.setPharmacyId(pharmacyId);
+        message.setTemplate("order-confirmed");
+        message.setDedupeKey(dedupeKey);
+        message.setRecipient("customer@example.com");
+        message.setFromAddress("noreply@example.com");
+        message.setSubject("Order confirmed");
+        message.setBody("Thanks");
+        message.setNextAttemptAt(LocalDateTime.now());
+        return message;
+    }
+}
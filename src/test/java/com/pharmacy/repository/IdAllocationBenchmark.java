@@ -0,0 +1,128 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Insert throughput for the statement patterns Hibernate issues before and after V3, on audit_logs:
+ *   identity - one INSERT ... RETURNING id round trip per row (IDENTITY disables batching)
+ *   pooled   - one nextval per 50 ids (pooled optimizer), rows sent as JDBC batches of 50
+ *   pooled + reWriteBatchedInserts - the same, collapsed by the driver into multi-row inserts
+ * Two shapes: a 10k-row import in one transaction, and a 20-line checkout repeated CHECKOUTS times
+ * (one transaction each). Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ * Run with: mvn test -Pbenchmark -Dtest=IdAllocationBenchmark
+ */
+@Tag("benchmark")
+class IdAllocationBenchmark {
+
+    private static final int IMPORT_ROWS = 10_000;
+    private static final int CHECKOUT_LINES = 20;
+    private static final int CHECKOUTS = 500;
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (id, action_type, created_at, entity_type, pharmacy_id) VALUES (?, 'BENCH', ?, 'BENCH', 1)";
+
+    @Test
+    void insertThroughput() throws Exception {
+        try (MigratedSchema db = MigratedSchema.create()) {
+            db.jdbc().execute("CREATE SEQUENCE bench_identity_seq");
+
+            System.out.printf("%-44s %12s %12s%n", "pattern", "round trips", "ms");
+            for (int round = 0; round < 2; round++) {
+                // First round warms up the JIT and the server caches; only the second is meaningful
+                boolean report = round == 1;
+                measure(report, "import 10k: identity", 1, () -> identity(db, false, IMPORT_ROWS));
+                measure(report, "import 10k: pooled", 1, () -> pooled(db, false, IMPORT_ROWS));
+                measure(report, "import 10k: pooled + reWriteBatchedInserts", 1, () -> pooled(db, true, IMPORT_ROWS));
+                measure(report, "checkout 20 lines: identity", CHECKOUTS, () -> identity(db, false, CHECKOUT_LINES));
+                measure(report, "checkout 20 lines: pooled", CHECKOUTS, () -> pooled(db, false, CHECKOUT_LINES));
+                measure(report, "checkout 20 lines: pooled + rewrite", CHECKOUTS, () -> pooled(db, true, CHECKOUT_LINES));
+            }
+
+            Long rows = db.jdbc().queryForObject("SELECT count(*) FROM audit_logs", Long.class);
+            assertThat(rows).isEqualTo(2L * 3 * (IMPORT_ROWS + (long) CHECKOUTS * CHECKOUT_LINES));
+        }
+    }
+
+    // Returns the statement round trips issued (commit excluded)
+    private int identity(MigratedSchema db, boolean rewrite, int rows) throws SQLException {
+        try (Connection connection = db.connection(rewrite);
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO audit_logs (id, action_type, created_at, entity_type, pharmacy_id) " +
+                     "VALUES (nextval('bench_identity_seq') + 1000000000, 'BENCH', ?, 'BENCH', 1) RETURNING id")) {
+            connection.setAutoCommit(false);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < rows; i++) {
+                insert.setTimestamp(1, now);
+                try (ResultSet rs = insert.executeQuery()) {
+                    rs.next();
+                }
+            }
+            connection.commit();
+            return rows;
+        }
+    }
+
+    private int pooled(MigratedSchema db, boolean rewrite, int rows) throws SQLException {
+        try (Connection connection = db.connection(rewrite);
+             PreparedStatement nextBlock = connection.prepareStatement("SELECT nextval('audit_logs_seq')");
+             PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            connection.setAutoCommit(false);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            long next = 0;
+            long limit = 0;
+            int roundTrips = 0;
+            for (int i = 0; i < rows; i++) {
+                if (next >= limit) {
+                    roundTrips++;
+                    try (ResultSet rs = nextBlock.executeQuery()) {
+                        rs.next();
+                        limit = rs.getLong(1) + 1;
+                        next = limit - BATCH_SIZE;
+                    }
+                }
+                insert.setLong(1, next++);
+                insert.setTimestamp(2, now);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    roundTrips++;
+                }
+            }
+            if (rows % BATCH_SIZE != 0) {
+                insert.executeBatch();
+                roundTrips++;
+            }
+            connection.commit();
+            return roundTrips;
+        }
+    }
+
+    // Prints round trips and mean latency per run (a run is one transaction)
+    private void measure(boolean report, String name, int runs, SqlRun run) throws SQLException {
+        int roundTrips = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            roundTrips = run.run();
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        if (report) {
+            System.out.printf("%-44s %12d %12.2f%n", name, roundTrips, millis);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlRun {
+        int run() throws SQLException;
+    }
+}
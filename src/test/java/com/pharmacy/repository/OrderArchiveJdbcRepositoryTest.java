@@ -0,0 +1,71 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.entity.Order;
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * OrderArchiver's chunk statement and the archive reads, on a database whose payments predate V15.
+ * Needs PHARMACY_TEST_DB_URL (see MigratedSchema).
+ */
+class OrderArchiveJdbcRepositoryTest {
+
+    @Test
+    void archivedOrderKeepsItsPaymentAndItems() {
+        try (MigratedSchema db = MigratedSchema.create("14")) {
+            seed(db);
+            db.migrate(null);
+
+            // V15 copied the order's identifiers onto the payment and dropped the foreign key
+            assertThat(db.jdbc().queryForMap("SELECT order_number, pharmacy_id, customer_id FROM payments WHERE id = 1"))
+                    .isEqualTo(Map.of("order_number", "ORD-1", "pharmacy_id", 1L, "customer_id", 2L));
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM pg_constraint WHERE contype = 'f' " +
+                    "AND conrelid = to_regclass('payments')", Long.class)).isZero();
+
+            OrderArchiveJdbcRepository repository = new OrderArchiveJdbcRepository(db.jdbc(),
+                    mock(PharmacyRepository.class), mock(UserRepository.class), mock(ProductRepository.class));
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+
+            // Old and DELIVERED: order 1 only; order 2 is still PENDING, order 3 is recent
+            assertThat(repository.archiveChunk(1L, cutoff, 500)).isEqualTo(1);
+            assertThat(repository.archiveChunk(1L, cutoff, 500)).isZero();
+
+            assertThat(db.jdbc().queryForList("SELECT id FROM orders ORDER BY id", Long.class)).containsExactly(2L, 3L);
+            assertThat(db.jdbc().queryForObject("SELECT count(*) FROM order_items WHERE order_id = 1", Long.class)).isZero();
+            assertThat(db.jdbc().queryForObject("SELECT order_number FROM payments WHERE order_id = 1", String.class))
+                    .isEqualTo("ORD-1");
+
+            Order archived = repository.findByOrderNumber("ORD-1").orElseThrow();
+            assertThat(archived.getId()).isEqualTo(1L);
+            assertThat(archived.getItems()).hasSize(2);
+            assertThat(repository.countByCustomerId(2L)).isEqualTo(1);
+        }
+    }
+
+    private static void seed(MigratedSchema db) {
+        db.jdbc().execute("INSERT INTO pharmacies (id, created_at, email, name, payment_period, phone, status, subscription_plan) " +
+                "VALUES (1, now(), 'p1@test', 'Pharmacy 1', 'MONTHLY', '555', 'ACTIVE', 'STANDARD')");
+        db.jdbc().execute("INSERT INTO categories (id, created_at, is_active, name, slug) VALUES (1, now(), true, 'C', 'c')");
+        db.jdbc().execute("INSERT INTO users (id, created_at, is_active, email, first_name, last_name, password, role) " +
+                "VALUES (2, now(), true, 'c2@test', 'C', 'U', 'x', 'CUSTOMER')");
+        db.jdbc().execute("INSERT INTO products (id, created_at, is_active, is_featured, low_stock_threshold, name, " +
+                "price, sku, slug, stock_alert_level, stock_quantity, category_id, pharmacy_id) " +
+                "VALUES (1, now(), true, false, 10, 'Product 1', 10, 'SKU1', 'product-1', 0, 100, 1, 1)");
+        db.jdbc().execute("INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, shipping_city, " +
+                "shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) VALUES " +
+                "(1, now() - interval '400 days', 'COURIER', 'ORD-1', 'a', 'c', '555', 'DELIVERED', 10, 10, 2, 1), " +
+                "(2, now() - interval '400 days', 'COURIER', 'ORD-2', 'a', 'c', '555', 'PENDING', 10, 10, 2, 1), " +
+                "(3, now(), 'COURIER', 'ORD-3', 'a', 'c', '555', 'DELIVERED', 10, 10, 2, 1)");
+        db.jdbc().execute("INSERT INTO order_items (id, created_at, product_name, quantity, total_price, unit_price, " +
+                "order_id, product_id, pharmacy_id) VALUES " +
+                "(1, now(), 'P', 1, 5, 5, 1, 1, 1), (2, now(), 'P', 1, 5, 5, 1, 1, 1), (3, now(), 'P', 1, 10, 10, 2, 1, 1)");
+        db.jdbc().execute("INSERT INTO payments (id, created_at, amount, refunded_amount, status, order_id) " +
+                "VALUES (1, now(), 10, 0, 'SUCCESS', 1)");
+    }
+}
@@ -0,0 +1,153 @@
+package com.pharmacy.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the hot-query indexes (V2.1, V12): seeds a multi-tenant dataset large enough for the planner
+ * to prefer indexes, then checks each hot predicate is served by its intended index and never by a
+ * sequential scan. Needs PHARMACY_TEST_DB_URL (see MigratedSchema); skipped otherwise.
+ */
+class QueryPlanRegressionTest {
+
+    private static final int PHARMACIES = 20;
+    private static final int PRODUCTS_PER_PHARMACY = 5_000;
+    private static final int ORDERS_PER_PHARMACY = 5_000;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static MigratedSchema db;
+
+    @BeforeAll
+    static void seed() {
+        db = MigratedSchema.create();
+        db.jdbc().execute("INSERT INTO pharmacies (id, created_at, email, name, payment_period, phone, status, subscription_plan) " +
+                "SELECT g, now(), 'p' || g || '@test', 'Pharmacy ' || g, 'MONTHLY', '555', 'ACTIVE', 'STANDARD' " +
+                "FROM generate_series(1, " + PHARMACIES + ") g");
+        db.jdbc().execute("INSERT INTO categories (id, created_at, is_active, name, slug) " +
+                "SELECT g, now(), true, 'Category ' || g, 'category-' || g FROM generate_series(1, 50) g");
+        db.jdbc().execute("INSERT INTO users (id, created_at, is_active, email, first_name, last_name, password, role) " +
+                "SELECT g, now(), true, 'c' || g || '@test', 'C', 'U', 'x', 'CUSTOMER' FROM generate_series(1, 5000) g");
+        db.jdbc().execute("INSERT INTO products (id, created_at, is_active, barcode, is_featured, low_stock_threshold, name, " +
+                "price, sku, slug, stock_alert_level, stock_quantity, category_id, pharmacy_id) " +
+                "SELECT g, now() - (g % 1000) * interval '1 hour', g % 10 <> 0, 'B' || g, g % 500 = 0, 10, " +
+                "'Product ' || md5(g::text), 10, 'SKU' || g, 'product-' || g, CASE WHEN g % 200 = 0 THEN 1 ELSE 0 END, " +
+                "100, 1 + g % 50, 1 + g % " + PHARMACIES + " " +
+                "FROM generate_series(1, " + PHARMACIES * PRODUCTS_PER_PHARMACY + ") g");
+        db.jdbc().execute("INSERT INTO orders (id, created_at, delivery_type, order_number, shipping_address, shipping_city, " +
+                "shipping_phone, status, subtotal, total_amount, customer_id, pharmacy_id) " +
+                "SELECT g, now() - (g % 10000) * interval '10 minutes', 'COURIER', 'ORD-' || g, 'a', 'c', '555', " +
+                "(array['PENDING','CONFIRMED','PREPARING','SHIPPED','DELIVERED','CANCELLED'])[1 + g % 6], 10, 10, " +
+                "1 + g % 5000, 1 + g % " + PHARMACIES + " " +
+                "FROM generate_series(1, " + PHARMACIES * ORDERS_PER_PHARMACY + ") g");
+        db.jdbc().execute("VACUUM ANALYZE products");
+        db.jdbc().execute("VACUUM ANALYZE orders");
+    }
+
+    @AfterAll
+    static void drop() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    void storefrontListingUsesActiveNameIndex() {
+        assertUsesIndex("SELECT * FROM products WHERE pharmacy_id = 5 AND is_active = true ORDER BY name LIMIT 20",
+                "idx_product_active_name");
+    }
+
+    @Test
+    void staffListingUsesPharmacyActiveCreatedIndex() {
+        assertUsesIndex("SELECT * FROM products WHERE pharmacy_id = 5 AND is_active = false ORDER BY created_at DESC LIMIT 20",
+                "idx_product_pharmacy_active_created");
+    }
+
+    @Test
+    void categoryPageUsesActiveCategoryIndex() {
+        assertUsesIndex("SELECT * FROM products WHERE pharmacy_id = 5 AND category_id = 7 AND is_active = true",
+                "idx_product_active_category");
+    }
+
+    @Test
+    void featuredProductsUseFeaturedIndex() {
+        assertUsesIndex("SELECT * FROM products WHERE pharmacy_id = 5 AND is_featured = true AND is_active = true",
+                "idx_product_featured");
+    }
+
+    @Test
+    void barcodeLookupUsesBarcodeIndex() {
+        assertUsesIndex("SELECT * FROM products WHERE pharmacy_id = 5 AND barcode = 'B105'", "idx_product_barcode");
+    }
+
+    @Test
+    void lowStockUsesStockAlertIndex() {
+        assertUsesIndex("SELECT count(*) FROM products WHERE pharmacy_id = 5 AND stock_alert_level > 0",
+                "idx_product_stock_alert");
+    }
+
+    @Test
+    void statusCountIsIndexOnly() {
+        JsonNode plan = explain("SELECT count(*) FROM orders WHERE pharmacy_id = 5 AND status = 'PENDING'");
+        assertThat(indexNames(plan)).contains("idx_order_pharmacy_status_created");
+        assertThat(nodeTypes(plan)).contains("Index Only Scan").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void recentOrdersUsePharmacyCreatedIndex() {
+        assertUsesIndex("SELECT * FROM orders WHERE pharmacy_id = 5 ORDER BY created_at DESC LIMIT 10",
+                "idx_order_pharmacy_created");
+    }
+
+    @Test
+    void customerHistoryUsesCustomerCreatedIndex() {
+        assertUsesIndex("SELECT * FROM orders WHERE customer_id = 42 ORDER BY created_at DESC LIMIT 20",
+                "idx_order_customer_created");
+    }
+
+    private void assertUsesIndex(String sql, String index) {
+        JsonNode plan = explain(sql);
+        assertThat(indexNames(plan)).as(sql).contains(index);
+        assertThat(nodeTypes(plan)).as(sql).doesNotContain("Seq Scan");
+    }
+
+    private JsonNode explain(String sql) {
+        String json = db.jdbc().queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        try {
+            return objectMapper.readTree(json).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> indexNames(JsonNode plan) {
+        List<String> names = new ArrayList<>();
+        collect(plan, "Index Name", names);
+        return names;
+    }
+
+    private List<String> nodeTypes(JsonNode plan) {
+        List<String> types = new ArrayList<>();
+        collect(plan, "Node Type", types);
+        return types;
+    }
+
+    private void collect(JsonNode node, String field, List<String> out) {
+        if (node.has(field)) {
+            out.add(node.get(field).asText());
+        }
+        if (node.has("Plans")) {
+            for (JsonNode child : node.get("Plans")) {
+                collect(child, field, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.pharmacy.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchPatternsTest {
+
+    @Test
+    void blankQueryDisablesTheSearch() {
+        assertThat(SearchPatterns.contains(null)).isNull();
+        assertThat(SearchPatterns.contains("  ")).isNull();
+    }
+
+    @Test
+    void wildcardsInInputMatchLiterally() {
+        assertThat(SearchPatterns.contains(" Ali_Veli ")).isEqualTo("%ali\\_veli%");
+        assertThat(SearchPatterns.contains("100%")).isEqualTo("%100\\%%");
+        assertThat(SearchPatterns.contains("a\\b")).isEqualTo("%a\\\\b%");
+    }
+}
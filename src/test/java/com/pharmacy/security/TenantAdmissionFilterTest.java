@@ -0,0 +1,118 @@
+package com.pharmacy.security;
+
+import com.pharmacy.config.TenantBulkhead;
+import com.pharmacy.config.TenantContextTaskDecorator;
+import com.pharmacy.enums.SubscriptionPlan;
+import com.pharmacy.service.TenantAdmissionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TenantAdmissionFilterTest {
+
+    private final TenantBulkhead bulkhead = new TenantBulkhead(7L, SubscriptionPlan.STANDARD, 1, 0, 3);
+    private TenantAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = filter(bulkhead);
+    }
+
+    @Test
+    void asyncRequestHoldsItsPermitUntilCompleteAndItsTaskRunsUnderTheBulkhead() throws Exception {
+        MockHttpServletRequest request = request();
+        AtomicReference<TenantBulkhead> onAsyncThread = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.startAsync();
+            // What the MVC async executor does with a StreamingResponseBody
+            Runnable body = new TenantContextTaskDecorator().decorate(() -> onAsyncThread.set(TenantBulkhead.current()));
+            CompletableFuture.runAsync(body).join();
+        });
+
+        assertThat(onAsyncThread.get()).isSameAs(bulkhead);
+        assertThat(TenantBulkhead.current()).isNull();
+        assertThat(bulkhead.getInFlight()).isEqualTo(1);
+
+        // Still streaming: the pharmacy's next request is turned away
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request(), rejected, (req, res) -> {});
+        assertThat(rejected.getStatus()).isEqualTo(429);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(bulkhead.getInFlight()).isZero();
+    }
+
+    @Test
+    void syncRequestReleasesItsPermitOnReturn() throws Exception {
+        AtomicReference<TenantBulkhead> duringRequest = new AtomicReference<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(), response, (req, res) -> duringRequest.set(TenantBulkhead.current()));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(duringRequest.get()).isSameAs(bulkhead);
+        assertThat(TenantBulkhead.current()).isNull();
+        assertThat(bulkhead.getInFlight()).isZero();
+        assertThat(bulkhead.getAdmitted()).isEqualTo(1);
+    }
+
+    @Test
+    void openStaffStreamsDoNotHoldRequestPermits() throws Exception {
+        TenantBulkhead standard = new TenantBulkhead(7L, SubscriptionPlan.STANDARD, 8, 0, 3);
+        TenantAdmissionFilter streamingFilter = filter(standard);
+
+        List<MockHttpServletRequest> streams = new ArrayList<>();
+        for (int i = 0; i < standard.getMaxConcurrent(); i++) {
+            MockHttpServletRequest stream = new MockHttpServletRequest("GET", "/api/staff/orders/stream");
+            stream.setAsyncSupported(true);
+            streamingFilter.doFilter(stream, new MockHttpServletResponse(), (req, res) -> {
+                // What SseEmitter does on subscribe
+                res.setContentType("text/event-stream");
+                req.startAsync();
+            });
+            streams.add(stream);
+        }
+        assertThat(streams).allSatisfy(stream -> assertThat(stream.isAsyncStarted()).isTrue());
+        assertThat(standard.getInFlight()).isZero();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamingFilter.doFilter(request(), response, (req, res) -> {});
+        assertThat(response.getStatus()).isEqualTo(200);
+
+        // Closing a stream later does not return a permit it no longer holds
+        ((MockAsyncContext) streams.get(0).getAsyncContext()).complete();
+        assertThat(standard.getInFlight()).isZero();
+        assertThat(standard.getAdmitted()).isEqualTo(9);
+    }
+
+    private static TenantAdmissionFilter filter(TenantBulkhead bulkhead) {
+        TenantAdmissionService admissionService = mock(TenantAdmissionService.class);
+        when(admissionService.bulkheadFor(7L)).thenReturn(Optional.of(bulkhead));
+        TenantResolver tenantResolver = mock(TenantResolver.class);
+        when(tenantResolver.resolvePharmacyId(any())).thenReturn(7L);
+
+        TenantAdmissionFilter filter = new TenantAdmissionFilter(admissionService, tenantResolver);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "queueTimeoutMs", 0L);
+        return filter;
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/public/pharmacies/7/products/export");
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,93 @@
+package com.pharmacy.security;
+
+import com.pharmacy.config.DbTimeTracker;
+import com.pharmacy.config.TenantContextTaskDecorator;
+import com.pharmacy.service.TenantAdmissionService;
+import com.pharmacy.service.TenantUsageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UsageMeteringFilterTest {
+
+    private static final String EXPORT = "/api/public/pharmacies/{pharmacyId}/products/export";
+
+    private TenantUsageService usageService;
+    private TenantResolver tenantResolver;
+    private UsageMeteringFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        usageService = mock(TenantUsageService.class);
+        tenantResolver = mock(TenantResolver.class);
+        TenantAdmissionService admissionService = mock(TenantAdmissionService.class);
+        when(admissionService.exists(7L)).thenReturn(true);
+
+        filter = new UsageMeteringFilter(usageService, tenantResolver, admissionService);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+    }
+
+    @Test
+    void streamedResponseIsRecordedOnCompletionWithTheAsyncThreadsBytesAndDbTime() throws Exception {
+        when(tenantResolver.resolvePharmacyId(any())).thenReturn(7L);
+        MockHttpServletRequest request = request("/api/public/pharmacies/7/products/export");
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, EXPORT);
+            req.startAsync();
+            // What the MVC async executor does with a StreamingResponseBody
+            Runnable body = new TenantContextTaskDecorator().decorate(() -> {
+                try {
+                    res.getOutputStream().write(new byte[4096]);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                DbTimeTracker.add(TimeUnit.MILLISECONDS.toNanos(40));
+            });
+            CompletableFuture.runAsync(body).join();
+        });
+
+        assertThat(DbTimeTracker.isActive()).isFalse();
+        verify(usageService, never()).record(any(), anyString(), anyInt(), anyLong(), anyLong(), anyLong());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        verify(usageService).record(eq(7L), eq("GET " + EXPORT), eq(200), eq(4096L),
+                eq(TimeUnit.MILLISECONDS.toNanos(40)), longThat(latency -> latency > 0));
+    }
+
+    @Test
+    void idThatIsNoPharmacyIsNotMetered() throws Exception {
+        when(tenantResolver.resolvePharmacyId(any())).thenReturn(999_999L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("/api/public/pharmacies/999999/products"), response, (req, res) -> {});
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        verifyNoInteractions(usageService);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,132 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ActiveCartTest {
+
+    @Test
+    void effectivePriceIsRoundedToCents() {
+        assertThat(ActiveCart.toCents(new BigDecimal("12.5"))).isEqualTo(1250);
+        assertThat(ActiveCart.toCents(new BigDecimal("0.005"))).isEqualTo(1);
+        assertThat(ActiveCart.toCents(new BigDecimal("19.994"))).isEqualTo(1999);
+
+        Product product = product(1L, "40.00", 10);
+        product.setDiscountedPrice(new BigDecimal("29.99"));
+        assertThat(new ActiveCart.CartLine(product, 3).getTotalCents()).isEqualTo(8997);
+    }
+
+    @Test
+    void runningTotalsMatchARecountAfterEveryChange() {
+        ActiveCart cart = new ActiveCart(1L, 7L, "Central", null,
+                List.of(new ActiveCart.CartLine(product(1L, "3.10", 5), 2)), null);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2_000; i++) {
+            long productId = 1 + random.nextInt(8);
+            switch (random.nextInt(6)) {
+                case 0, 1 -> cart.put(product(productId, (1 + random.nextInt(5000)) / 100 + "." + random.nextInt(10) + "5",
+                        random.nextInt(6)), 1 + random.nextInt(4));
+                case 2 -> cart.remove(productId);
+                case 3 -> cart.refreshStock(productId, random.nextInt(6), random.nextInt(5) > 0);
+                case 4 -> cart.refreshProduct(new ActiveCart.CartLine(product(productId, "7.49", random.nextInt(6)), 1));
+                default -> {
+                    if (random.nextInt(20) == 0) {
+                        cart.clear();
+                    }
+                }
+            }
+            assertTotalsMatchLines(cart.view());
+        }
+    }
+
+    @Test
+    void lineChangesUpdateTheTotals() {
+        ActiveCart cart = new ActiveCart(1L, 7L, "Central", null, List.of(), null);
+
+        cart.put(product(1L, "10.00", 5), 2);
+        cart.put(product(2L, "0.99", 1), 3);
+        ActiveCart.View view = cart.view();
+        assertThat(view.subtotalCents()).isEqualTo(2297);
+        assertThat(view.totalQuantity()).isEqualTo(5);
+        assertThat(view.unavailableCount()).isEqualTo(1);
+
+        // Quantity is kept when the price changes; stock back above the quantity makes the line available
+        cart.refreshProduct(new ActiveCart.CartLine(product(1L, "12.00", 5), 1));
+        cart.refreshStock(2L, 10, true);
+        view = cart.view();
+        assertThat(view.subtotalCents()).isEqualTo(2697);
+        assertThat(view.totalQuantity()).isEqualTo(5);
+        assertThat(view.unavailableCount()).isZero();
+
+        cart.remove(1L);
+        assertThat(cart.view().subtotalCents()).isEqualTo(297);
+        cart.clear();
+        assertThat(cart.view().subtotalCents()).isZero();
+        assertThat(cart.view().totalQuantity()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void storeIndexFollowsTheLinesOfCachedCarts() {
+        InMemoryCartStore store = new InMemoryCartStore(mock(CartPersister.class), 100, 30);
+        Map<Long, Set<ActiveCart>> index = (Map<Long, Set<ActiveCart>>) ReflectionTestUtils.getField(store, "cartsByProduct");
+        ActiveCart first = new ActiveCart(1L, 7L, "Central", null, List.of(), null);
+        ActiveCart second = new ActiveCart(2L, 7L, "Central", null, List.of(), null);
+        first.attach((ActiveCart.LineListener) ReflectionTestUtils.getField(store, "index"));
+        second.attach((ActiveCart.LineListener) ReflectionTestUtils.getField(store, "index"));
+
+        first.put(product(1L, "10.00", 5), 1);
+        first.put(product(2L, "5.00", 5), 1);
+        second.put(product(1L, "10.00", 5), 2);
+        assertThat(index.get(1L)).containsExactlyInAnyOrder(first, second);
+
+        store.productChanged(new ActiveCart.CartLine(product(1L, "8.00", 5), 1));
+        store.stockChanged(2L, 0, true);
+        assertThat(first.view().subtotalCents()).isEqualTo(1300);
+        assertThat(first.view().unavailableCount()).isEqualTo(1);
+        assertThat(second.view().subtotalCents()).isEqualTo(1600);
+
+        first.remove(1L);
+        second.clear();
+        first.detach();
+        assertThat(index).isEmpty();
+    }
+
+    private static void assertTotalsMatchLines(ActiveCart.View view) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        int quantity = 0;
+        int unavailable = 0;
+        for (ActiveCart.CartLine line : view.lines()) {
+            BigDecimal price = line.getDiscountedPrice() != null ? line.getDiscountedPrice() : line.getPrice();
+            subtotal = subtotal.add(price.multiply(BigDecimal.valueOf(line.getQuantity())));
+            quantity += line.getQuantity();
+            if (!line.isActive() || line.getStockQuantity() < line.getQuantity()) {
+                unavailable++;
+            }
+        }
+        assertThat(view.subtotalCents()).isEqualTo(ActiveCart.toCents(subtotal));
+        assertThat(view.totalQuantity()).isEqualTo(quantity);
+        assertThat(view.unavailableCount()).isEqualTo(unavailable);
+    }
+
+    private static Product product(Long id, String price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(new BigDecimal(price));
+        product.setStockQuantity(stock);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,145 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.request.ResetPasswordRequest;
+import com.pharmacy.entity.PasswordResetToken;
+import com.pharmacy.entity.User;
+import com.pharmacy.exception.BadRequestException;
+import com.pharmacy.repository.PasswordResetTokenRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import com.pharmacy.repository.UserRepository;
+import com.pharmacy.security.JwtService;
+import com.pharmacy.security.PasswordValidator;
+import com.pharmacy.security.TokenBlacklistService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServicePasswordResetTest {
+
+    private static final String NEW_PASSWORD = "Fresh!Start42";
+
+    private final User user = new User();
+    private final Map<String, PasswordResetToken> tokens = new HashMap<>();
+    private UserRepository userRepository;
+    private PasswordResetTokenRepository tokenRepository;
+    private PasswordEncoder passwordEncoder;
+    private EmailService emailService;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        user.setId(3L);
+        user.setEmail("jane@example.com");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        user.setPassword("old-hash");
+        user.setFailedLoginAttempts(5);
+        user.setLockedUntil(LocalDateTime.now().plusMinutes(20));
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail("jane@example.com")).thenReturn(Optional.of(user));
+        tokenRepository = mock(PasswordResetTokenRepository.class);
+        when(tokenRepository.save(any(PasswordResetToken.class))).thenAnswer(invocation -> {
+            PasswordResetToken token = invocation.getArgument(0);
+            token.setId((long) tokens.size() + 1);
+            tokens.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(tokenRepository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(tokens.get(invocation.<String>getArgument(0))));
+        when(tokenRepository.retireOutstanding(eq(3L), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            tokens.values().stream().filter(t -> t.getUsedAt() == null)
+                    .forEach(t -> t.setUsedAt(invocation.getArgument(1)));
+            return 0;
+        });
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hash:" + invocation.getArgument(0));
+        emailService = mock(EmailService.class);
+
+        authService = new AuthService(userRepository, mock(PharmacyRepository.class), passwordEncoder,
+                new PasswordValidator(), mock(JwtService.class), mock(TokenBlacklistService.class),
+                mock(AuditLogService.class), emailService, tokenRepository);
+        ReflectionTestUtils.setField(authService, "resetTokenTtlMinutes", 30L);
+    }
+
+    @Test
+    void emailedCodeResetsThePasswordOnceAndLiftsTheLockout() {
+        String code = requestCode();
+
+        // Only a hash is stored
+        PasswordResetToken stored = tokens.values().iterator().next();
+        assertThat(stored.getTokenHash()).hasSize(64).doesNotContain(code);
+        assertThat(stored.getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(29));
+
+        authService.resetPassword(request(code), "10.0.0.1");
+
+        assertThat(user.getPassword()).isEqualTo("hash:" + NEW_PASSWORD);
+        assertThat(user.getFailedLoginAttempts()).isZero();
+        assertThat(user.getLockedUntil()).isNull();
+        assertThat(stored.getUsedAt()).isNotNull();
+
+        assertThatThrownBy(() -> authService.resetPassword(request(code), "10.0.0.1"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void expiredOrUnknownCodeIsRejected() {
+        String code = requestCode();
+        tokens.values().iterator().next().setExpiresAt(LocalDateTime.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> authService.resetPassword(request(code), "10.0.0.1"))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> authService.resetPassword(request("not-a-code"), "10.0.0.1"))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(user.getPassword()).isEqualTo("old-hash");
+        verify(passwordEncoder, never()).encode(anyString());
+    }
+
+    @Test
+    void newCodeRetiresTheOutstandingOnes() {
+        String first = requestCode();
+        String second = requestCode();
+
+        verify(tokenRepository, times(2)).retireOutstanding(eq(3L), any(LocalDateTime.class));
+        assertThatThrownBy(() -> authService.resetPassword(request(first), "10.0.0.1"))
+                .isInstanceOf(BadRequestException.class);
+        authService.resetPassword(request(second), "10.0.0.1");
+        assertThat(user.getPassword()).isEqualTo("hash:" + NEW_PASSWORD);
+    }
+
+    @SuppressWarnings("unchecked")
+    private String requestCode() {
+        authService.requestPasswordReset("jane@example.com", "10.0.0.1");
+        ArgumentCaptor<Map<String, ?>> params = ArgumentCaptor.forClass(Map.class);
+        verify(emailService, atLeastOnce()).enqueue(any(), eq(EmailTemplates.PASSWORD_RESET),
+                anyString(), eq("jane@example.com"), params.capture());
+        return (String) params.getValue().get("resetToken");
+    }
+
+    private ResetPasswordRequest request(String code) {
+        ResetPasswordRequest request = new ResetPasswordRequest();
+        request.setToken(code);
+        request.setNewPassword(NEW_PASSWORD);
+        request.setConfirmPassword(NEW_PASSWORD);
+        return request;
+    }
+}
@@ -0,0 +1,146 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Cart;
+import com.pharmacy.entity.CartItem;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.User;
+import com.pharmacy.repository.CartRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import com.pharmacy.repository.ProductRepository;
+import com.pharmacy.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartReaperTest {
+
+    private CartRepository cartRepository;
+    private PlatformTransactionManager transactionManager;
+    private CartReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        reaper = new CartReaper(cartRepository, mock(CartStore.class), transactionManager);
+        ReflectionTestUtils.setField(reaper, "ttlDays", 30);
+        ReflectionTestUtils.setField(reaper, "batchSize", 2);
+        ReflectionTestUtils.setField(reaper, "maxBatches", 3);
+    }
+
+    @Test
+    void stopsAfterTheFirstShortBatch() {
+        when(cartRepository.lockIdleBatch(any(LocalDateTime.class), anyInt()))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(cartRepository.deleteByIdIn(anyList())).thenReturn(2, 1);
+
+        reaper.reap();
+
+        verify(cartRepository, times(2)).lockIdleBatch(any(LocalDateTime.class), anyInt());
+        verify(cartRepository).deleteItemsByCartIdIn(List.of(1L, 2L));
+        verify(cartRepository).deleteItemsByCartIdIn(List.of(3L));
+        // One transaction per batch
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void nothingIdleDeletesNothing() {
+        when(cartRepository.lockIdleBatch(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+        reaper.reap();
+
+        verify(cartRepository, times(1)).lockIdleBatch(any(LocalDateTime.class), anyInt());
+        verify(cartRepository, never()).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void fullBatchesStopAtMaxBatches() {
+        when(cartRepository.lockIdleBatch(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L, 2L));
+        when(cartRepository.deleteByIdIn(anyList())).thenReturn(2);
+
+        reaper.reap();
+
+        verify(cartRepository, times(3)).lockIdleBatch(any(LocalDateTime.class), anyInt());
+        verify(cartRepository, times(3)).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void failedBatchEndsTheRunWithoutThrowing() {
+        when(cartRepository.lockIdleBatch(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L, 2L));
+        when(cartRepository.deleteByIdIn(anyList()))
+                .thenReturn(2)
+                .thenThrow(new IllegalStateException("db down"));
+
+        reaper.reap();
+
+        verify(cartRepository, times(2)).lockIdleBatch(any(LocalDateTime.class), anyInt());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void reapedCartIsRecreatedOnItsNextFlush() {
+        Cart stored = new Cart();
+        stored.setId(10L);
+        when(cartRepository.findByCustomerIdAndPharmacyIdForUpdate(1L, 7L))
+                .thenReturn(Optional.of(stored))
+                // Reaped between the two flushes; the locked lookup comes back empty once the reap commits
+                .thenReturn(Optional.empty());
+        AtomicReference<Cart> recreated = new AtomicReference<>();
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(11L);
+            recreated.set(cart);
+            return cart;
+        });
+        CartPersister persister = persister();
+
+        ActiveCart activeCart = new ActiveCart(1L, 7L, "Central", null, List.of(), null);
+        activeCart.put(InMemoryCartStoreTest.product(21L), 2);
+        persister.flush(activeCart);
+        assertThat(activeCart.getCartId()).isEqualTo(10L);
+
+        activeCart.put(InMemoryCartStoreTest.product(22L), 1);
+        persister.flush(activeCart);
+
+        assertThat(activeCart.getCartId()).isEqualTo(11L);
+        assertThat(activeCart.isDirty()).isFalse();
+        assertThat(recreated.get().getItems())
+                .extracting(item -> item.getProduct().getId(), CartItem::getQuantity)
+                .containsExactlyInAnyOrder(tuple(21L, 2), tuple(22L, 1));
+        verify(cartRepository, never()).findByCustomerIdAndPharmacyId(anyLong(), anyLong());
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    private CartPersister persister() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.getReferenceById(anyLong())).thenAnswer(invocation -> new User());
+        PharmacyRepository pharmacyRepository = mock(PharmacyRepository.class);
+        when(pharmacyRepository.getReferenceById(anyLong())).thenAnswer(invocation -> new Pharmacy());
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.getReferenceById(anyLong()))
+                .thenAnswer(invocation -> InMemoryCartStoreTest.product(invocation.getArgument(0)));
+        return new CartPersister(cartRepository, userRepository, pharmacyRepository, productRepository,
+                transactionManager);
+    }
+}
@@ -0,0 +1,30 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.CartItemRepository;
+import com.pharmacy.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    @Test
+    void changeToARetiredCartMovesToTheCurrentOne() {
+        ActiveCart retired = new ActiveCart(1L, 7L, "Central", 99L, List.of(), null);
+        retired.retire();
+        ActiveCart current = new ActiveCart(1L, 7L, "Central", 99L, List.of(), null);
+        CartStore cartStore = mock(CartStore.class);
+        when(cartStore.get(1L, 7L)).thenReturn(retired, current);
+        CartService cartService = new CartService(mock(CartRepository.class), mock(CartItemRepository.class), cartStore);
+
+        ActiveCart result = cartService.addItem(1L, 7L, InMemoryCartStoreTest.product(11L), 2, cartId -> {});
+
+        assertThat(result).isSameAs(current);
+        assertThat(current.getLine(11L).getQuantity()).isEqualTo(2);
+        assertThat(retired.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,157 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Category;
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.Product;
+import com.pharmacy.repository.CategoryRepository;
+import com.pharmacy.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogFacetIndexTest {
+
+    private static final CatalogFacetIndex.FacetQuery ALL =
+            new CatalogFacetIndex.FacetQuery(null, Set.of(), Set.of(), false, false, false);
+
+    private ProductRepository productRepository;
+    private CatalogFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        // Health > Vitamins > Vitamin C
+        Category health = category(1L, "Health", null);
+        Category vitamins = category(2L, "Vitamins", health);
+        Category vitaminC = category(3L, "Vitamin C", vitamins);
+        when(categoryRepository.findByActiveTrue()).thenReturn(List.of(health, vitamins, vitaminC));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        index = new CatalogFacetIndex(productRepository, categoryRepository, transactionManager, 100);
+    }
+
+    @Test
+    void categoryCountsCoverTheWholeSubtree() {
+        when(productRepository.findFacetRows(7L)).thenReturn(List.of(
+                row(1L, 3L, 5), row(2L, 3L, 0), row(3L, 2L, 5), row(4L, 1L, 5)));
+
+        CatalogFacetIndex.FacetResult all = index.search(7L, ALL, 0, 20);
+        assertThat(counts(all)).isEqualTo(Map.of("1", 4L, "2", 3L, "3", 2L));
+
+        // Counted against the other selections, and consistent with filtering by the parent
+        CatalogFacetIndex.FacetResult inStock = index.search(7L,
+                new CatalogFacetIndex.FacetQuery(2L, Set.of(), Set.of(), true, false, false), 0, 20);
+        assertThat(counts(inStock)).isEqualTo(Map.of("1", 3L, "2", 2L, "3", 1L));
+        assertThat(inStock.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void indexVersionChangesWithEveryAppliedChangeAndEveryBuild() {
+        when(productRepository.findFacetRows(7L)).thenReturn(List.<Object[]>of(row(1L, 3L, 5)));
+
+        String built = index.search(7L, ALL, 0, 20).getIndexVersion();
+        assertThat(index.search(7L, ALL, 0, 20).getIndexVersion()).isEqualTo(built);
+
+        index.stockChanged(7L, 1L, 0);
+        String changed = index.search(7L, ALL, 0, 20).getIndexVersion();
+        assertThat(changed).isNotEqualTo(built);
+
+        index.refresh();
+        assertThat(index.search(7L, ALL, 0, 20).getIndexVersion()).isNotIn(built, changed);
+    }
+
+    @Test
+    void changeCommittedDuringABuildIsAppliedToTheNewIndex() throws Exception {
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch releaseBuild = new CountDownLatch(1);
+        when(productRepository.findFacetRows(7L)).thenAnswer(invocation -> {
+            buildStarted.countDown();
+            releaseBuild.await(5, TimeUnit.SECONDS);
+            // Read before the change below committed
+            return List.<Object[]>of(row(1L, 3L, 5));
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<CatalogFacetIndex.FacetResult>> readers = new ArrayList<>();
+            readers.add(pool.submit(() -> index.search(7L, ALL, 0, 20)));
+            assertThat(buildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            readers.add(pool.submit(() -> index.search(7L, ALL, 0, 20)));
+
+            // Neither the change nor another pharmacy's read waits for the running build
+            index.stockChanged(7L, 1L, 0);
+            when(productRepository.findFacetRows(8L)).thenReturn(List.of());
+            assertThat(pool.submit(() -> index.search(8L, ALL, 0, 20)).get(1, TimeUnit.SECONDS).getTotal()).isZero();
+
+            releaseBuild.countDown();
+            for (Future<CatalogFacetIndex.FacetResult> reader : readers) {
+                assertThat(reader.get(5, TimeUnit.SECONDS).getTotal()).isEqualTo(1);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(index.search(7L, new CatalogFacetIndex.FacetQuery(null, Set.of(), Set.of(), true, false, false), 0, 20)
+                .getTotal()).isZero();
+        verify(productRepository, times(1)).findFacetRows(7L);
+    }
+
+    @Test
+    void productChangeMovesTheProductBetweenCategories() {
+        when(productRepository.findFacetRows(7L)).thenReturn(List.<Object[]>of(row(1L, 3L, 5)));
+        index.search(7L, ALL, 0, 20);
+
+        Product product = new Product();
+        product.setId(1L);
+        product.setPharmacy(new Pharmacy());
+        product.getPharmacy().setId(7L);
+        product.setCategory(category(1L, "Health", null));
+        product.setPrice(new BigDecimal("20.00"));
+        product.setStockQuantity(5);
+        product.setActive(true);
+        index.productChanged(product);
+
+        assertThat(counts(index.search(7L, ALL, 0, 20))).isEqualTo(Map.of("1", 1L));
+    }
+
+    private static Map<String, Long> counts(CatalogFacetIndex.FacetResult result) {
+        return result.getCategories().stream()
+                .collect(Collectors.toMap(CatalogFacetIndex.FacetCount::value, CatalogFacetIndex.FacetCount::count));
+    }
+
+    // Columns of ProductRepository.findFacetRows
+    private static Object[] row(Long id, Long categoryId, int stock) {
+        return new Object[] { id, categoryId, "Acme", new BigDecimal("20.00"), null, stock, false };
+    }
+
+    private static Category category(Long id, String name, Category parent) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setParent(parent);
+        return category;
+    }
+}
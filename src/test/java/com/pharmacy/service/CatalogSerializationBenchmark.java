@@ -0,0 +1,133 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.Category;
+import com.pharmacy.entity.Product;
+import com.pharmacy.mapper.ProductMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CPU, allocation and bytes on the wire for one category listing response:
+ *   materialized - every product mapped to a ProductResponse and the list serialized (before user-037)
+ *   cached       - cached per-product JSON written through ProductJsonCache.ArrayWriter
+ * Wire size is measured uncompressed and gzip-compressed (Tomcat's default deflate level).
+ * The database side is not included: both variants see the same entities. Streaming additionally
+ * bounds the entities held per request to one 500-row batch.
+ * Run with: mvn test -Pbenchmark -Dtest=CatalogSerializationBenchmark
+ */
+@Tag("benchmark")
+class CatalogSerializationBenchmark {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int WARMUP = 300;
+    private static final int REQUESTS = 300;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ProductMapper productMapper = new ProductMapper();
+    private final ProductJsonCache cache = new ProductJsonCache(productMapper, objectMapper, 50_000);
+
+    @Test
+    void categoryListing() throws Exception {
+        List<Product> products = products();
+
+        byte[] materialized = materialized(products);
+        byte[] cached = cached(products);
+        assertThat(objectMapper.readTree(cached)).isEqualTo(objectMapper.readTree(materialized));
+
+        System.out.printf("%-14s %14s %14s %12s %12s%n", "variant", "cpu us/req", "alloc KB/req", "bytes", "gzip bytes");
+        report("materialized", products, true, materialized);
+        report("cached", products, false, cached);
+    }
+
+    private void report(String name, List<Product> products, boolean materialize, byte[] body) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            write(products, materialize);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long allocStart = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < REQUESTS; i++) {
+            write(products, materialize);
+        }
+        double cpuMicros = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e3 / REQUESTS;
+        double allocKb = (threads.getThreadAllocatedBytes(thread) - allocStart) / 1024.0 / REQUESTS;
+        System.out.printf("%-14s %14.0f %14.0f %12d %12d%n", name, cpuMicros, allocKb, body.length, gzip(body));
+    }
+
+    // Writes the response body to a sink, as the servlet output stream would receive it
+    private void write(List<Product> products, boolean materialize) throws IOException {
+        OutputStream sink = OutputStream.nullOutputStream();
+        if (materialize) {
+            objectMapper.writeValue(sink, products.stream().map(productMapper::toResponse).toList());
+        } else {
+            ProductJsonCache.ArrayWriter writer = new ProductJsonCache.ArrayWriter(sink);
+            for (Product product : products) {
+                writer.write(cache.encode(product));
+            }
+            writer.close();
+        }
+    }
+
+    private byte[] materialized(List<Product> products) throws IOException {
+        return objectMapper.writeValueAsBytes(products.stream().map(productMapper::toResponse).toList());
+    }
+
+    private byte[] cached(List<Product> products) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductJsonCache.writeArray(cache.encodeAll(products), out);
+        return out.toByteArray();
+    }
+
+    private int gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size();
+    }
+
+    private List<Product> products() {
+        Category category = new Category();
+        category.setId(7L);
+        category.setName("Vitamins");
+        category.setUpdatedAt(LocalDateTime.now());
+
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Vitamin C 1000 mg, 30 effervescent tablets #" + i);
+            product.setSlug("vitamin-c-1000-mg-" + i);
+            product.setDescription("Effervescent vitamin C supplement, orange flavour. Dissolve one tablet in water daily.");
+            product.setSku("SKU-" + i);
+            product.setBarcode("869" + (1_000_000_000L + i));
+            product.setPrice(new BigDecimal("149.90"));
+            product.setDiscountedPrice(i % 4 == 0 ? new BigDecimal("119.90") : null);
+            product.setStockQuantity(i % 50);
+            product.setLowStockThreshold(10);
+            product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+            product.setFeatured(i % 20 == 0);
+            product.setActive(true);
+            product.setCategory(category);
+            product.setCreatedAt(LocalDateTime.now().minusDays(i));
+            product.setUpdatedAt(LocalDateTime.now());
+            products.add(product);
+        }
+        return products;
+    }
+}
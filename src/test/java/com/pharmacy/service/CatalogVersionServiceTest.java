@@ -0,0 +1,134 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.CatalogVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogVersionServiceTest {
+
+    private CatalogVersionRepository catalogVersionRepository;
+    private CatalogVersionService service;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersionRepository = mock(CatalogVersionRepository.class);
+        when(catalogVersionRepository.bump(anyLong())).thenReturn(1L);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        service = new CatalogVersionService(catalogVersionRepository, mock(CategoryTreeService.class),
+                mock(CatalogFacetIndex.class), transactionManager);
+        ReflectionTestUtils.setField(service, "versionTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxAgeSeconds", 30L);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void onlyInStockAndLowStockFlipsAreVisible() {
+        assertThat(CatalogVersionService.flagsChanged(5, 4, 2)).isFalse();
+        assertThat(CatalogVersionService.flagsChanged(3, 2, 2)).isTrue();
+        assertThat(CatalogVersionService.flagsChanged(1, 0, null)).isTrue();
+        assertThat(CatalogVersionService.flagsChanged(0, 7, 2)).isTrue();
+        assertThat(CatalogVersionService.flagsChanged(9, 8, null)).isFalse();
+    }
+
+    @Test
+    void checkoutTouchingManyProductsBumpsOnceAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.stockChanged(7L, 1, 0, 2);
+        service.stockChanged(7L, 5, 0, 2);
+        service.stockChanged(7L, 50, 49, 2);
+        verify(catalogVersionRepository, never()).bump(anyLong());
+
+        commit();
+
+        verify(catalogVersionRepository, times(1)).bump(-7L);
+        // The bump already covers the quantity-only line
+        service.flushStockChanges();
+        verify(catalogVersionRepository, times(1)).bump(-7L);
+    }
+
+    @Test
+    void quantityOnlyChangesAreFoldedIntoOnePeriodicBump() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.stockChanged(7L, 50, 49, 2);
+        commit();
+        TransactionSynchronizationManager.initSynchronization();
+        service.stockChanged(7L, 49, 48, 2);
+        commit();
+        verify(catalogVersionRepository, never()).bump(anyLong());
+
+        service.flushStockChanges();
+        service.flushStockChanges();
+
+        verify(catalogVersionRepository, times(1)).bump(-7L);
+    }
+
+    @Test
+    void rolledBackChangeIsNeverBumped() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.stockChanged(7L, 1, 0, 2);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        service.flushStockChanges();
+
+        verify(catalogVersionRepository, never()).bump(anyLong());
+        assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+    }
+
+    @Test
+    void notModifiedResponseKeepsCacheControl() {
+        when(catalogVersionRepository.findVersion(anyLong())).thenReturn(Optional.of(3L));
+        String etag = service.pharmacyEtag(7L);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/public/pharmacies/7/products");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(service.checkNotModified(new ServletWebRequest(request, response), etag)).isTrue();
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=30, public");
+    }
+
+    private void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
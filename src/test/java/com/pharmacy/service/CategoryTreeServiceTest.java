@@ -0,0 +1,111 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.Category;
+import com.pharmacy.mapper.CategoryMapper;
+import com.pharmacy.repository.CategoryRepository;
+import com.pharmacy.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryTreeServiceTest {
+
+    private CategoryRepository categoryRepository;
+    private ProductRepository productRepository;
+    private CategoryTreeService service;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        productRepository = mock(ProductRepository.class);
+        Category root = new Category();
+        root.setId(1L);
+        root.setName("Vitamins");
+        when(categoryRepository.findByActiveTrueOrderByDisplayOrderAsc()).thenReturn(List.of(root));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        service = new CategoryTreeService(categoryRepository, productRepository, new CategoryMapper(),
+                new ObjectMapper().findAndRegisterModules(), transactionManager, 2);
+    }
+
+    @Test
+    void concurrentReadersOfAStaleTreeShareOneBuild() throws Exception {
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch releaseBuild = new CountDownLatch(1);
+        when(productRepository.countActiveByCategory(7L)).thenAnswer(invocation -> {
+            buildStarted.countDown();
+            releaseBuild.await(5, TimeUnit.SECONDS);
+            return List.<Object[]>of(new Object[] { 1L, 3L });
+        });
+
+        int readers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<CategoryTreeService.TreeSnapshot>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> service.getTree(7L)));
+            assertThat(buildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < readers; i++) {
+                futures.add(pool.submit(() -> service.getTree(7L)));
+            }
+            // Give the other readers time to reach the in-flight build before it completes
+            Thread.sleep(100);
+            releaseBuild.countDown();
+
+            CategoryTreeService.TreeSnapshot first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CategoryTreeService.TreeSnapshot> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(productRepository, times(1)).countActiveByCategory(7L);
+        assertThat(new String(service.getTree(7L).getJson())).contains("\"productCount\":3");
+    }
+
+    @Test
+    void failedBuildIsNotCachedAndPropagates() {
+        when(productRepository.countActiveByCategory(7L))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.getTree(7L)).hasMessage("db down");
+
+        assertThat(service.getTree(7L)).isNotNull();
+        verify(productRepository, times(2)).countActiveByCategory(7L);
+    }
+
+    @Test
+    void productChangeRebuildsOnlyThatPharmacy() {
+        when(productRepository.countActiveByCategory(anyLong())).thenReturn(List.of());
+
+        service.getTree(7L);
+        service.getTree(8L);
+        service.productsChanged(7L);
+        service.getTree(7L);
+        service.getTree(8L);
+
+        verify(productRepository, times(2)).countActiveByCategory(7L);
+        verify(productRepository, times(1)).countActiveByCategory(8L);
+    }
+}
@@ -0,0 +1,178 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.EmailMessage;
+import com.pharmacy.repository.EmailMessageJdbcRepository;
+import com.pharmacy.repository.EmailMessageRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drains MESSAGES queued emails through EmailDispatcher's default 4 workers and batches of 50,
+ * against an SMTP server that takes CONNECT_MS per connection and MESSAGE_MS per message:
+ *   throughput   - messages sent per second until the queue is empty
+ *   transactions - peak concurrently open transactions (each holds a pooled connection and, while
+ *                  claiming, the batch's row locks) and the total time they were open, against the
+ *                  total time spent talking to SMTP
+ * The queue is in memory, so transaction time is bookkeeping only; what matters is that no
+ * transaction is open across a send. Run with: mvn test -Pbenchmark -Dtest=EmailDispatchBenchmark
+ */
+@Tag("benchmark")
+class EmailDispatchBenchmark {
+
+    private static final int MESSAGES = 20_000;
+    private static final int WORKERS = 4;
+    private static final int BATCH_SIZE = 50;
+    private static final long CONNECT_MS = 50;
+    private static final long MESSAGE_MS = 2;
+
+    private final List<EmailMessage> queue = new ArrayList<>();
+    // Rows locked by an open claim transaction, skipped by other workers as FOR UPDATE SKIP LOCKED does
+    private final Set<Long> locked = new HashSet<>();
+    private final ThreadLocal<List<Long>> lockedByThread = ThreadLocal.withInitial(ArrayList::new);
+    private final AtomicInteger sentMessages = new AtomicInteger();
+    private final AtomicInteger openTransactions = new AtomicInteger();
+    private final AtomicInteger peakTransactions = new AtomicInteger();
+    private final AtomicLong transactionNanos = new AtomicLong();
+    private final AtomicLong smtpNanos = new AtomicLong();
+    private final ThreadLocal<Long> transactionStart = new ThreadLocal<>();
+
+    @Test
+    void drainQueue() throws Exception {
+        for (long id = 1; id <= MESSAGES; id++) {
+            EmailMessage message = new EmailMessage();
+            message.setId(id);
+            message.setTemplate(EmailTemplates.PASSWORD_RESET);
+            message.setDedupeKey("password-reset:" + id);
+            message.setRecipient("user" + id + "@example.com");
+            message.setFromAddress("noreply@example.com");
+            message.setFromName("Pharmacy");
+            message.setSubject("Reset your password");
+            message.setBody("Use this code within 30 minutes.");
+            message.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            queue.add(message);
+        }
+
+        EmailMessageRepository repository = mock(EmailMessageRepository.class);
+        when(repository.lockNextBatch(any(LocalDateTime.class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            LocalDateTime now = invocation.getArgument(0);
+            int limit = invocation.getArgument(2);
+            synchronized (queue) {
+                List<EmailMessage> batch = queue.stream()
+                        .filter(m -> m.getSentAt() == null && !m.getNextAttemptAt().isAfter(now) && !locked.contains(m.getId()))
+                        .limit(limit).toList();
+                batch.forEach(m -> locked.add(m.getId()));
+                lockedByThread.get().addAll(batch.stream().map(EmailMessage::getId).toList());
+                return batch;
+            }
+        });
+        when(repository.markSent(any(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            synchronized (queue) {
+                ids.forEach(id -> queue.get((int) (id - 1)).setSentAt(invocation.getArgument(1)));
+            }
+            return ids.size();
+        });
+        @SuppressWarnings("unchecked")
+        ObjectProvider<JavaMailSender> mailSender = mock(ObjectProvider.class);
+        when(mailSender.getObject()).thenReturn(new SlowSmtp());
+
+        EmailService emailService = new EmailService(repository, mock(EmailMessageJdbcRepository.class),
+                mock(PharmacyRepository.class), mock(SettingsService.class), mock(EmailTemplates.class),
+                mailSender, countingTransactionManager());
+        ReflectionTestUtils.setField(emailService, "maxAttempts", 8);
+        ReflectionTestUtils.setField(emailService, "sendLeaseSeconds", 300L);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(WORKERS);
+        executor.setMaxPoolSize(WORKERS);
+        executor.initialize();
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                workers.add(executor.submit(() -> {
+                    while (emailService.sendBatch(BATCH_SIZE) == BATCH_SIZE) {
+                        // keep draining, as EmailDispatcher's workers do
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertThat(sentMessages).hasValue(MESSAGES);
+            assertThat(queue).allSatisfy(m -> assertThat(m.getSentAt()).isNotNull());
+            System.out.printf("messages %d, workers %d, batch %d, smtp %d ms/connection + %d ms/message%n",
+                    MESSAGES, WORKERS, BATCH_SIZE, CONNECT_MS, MESSAGE_MS);
+            System.out.printf("drained in %.1f s (%.0f messages/s)%n", seconds, MESSAGES / seconds);
+            System.out.printf("peak open transactions: %d; open %.2f s in total vs %.1f s talking to SMTP%n",
+                    peakTransactions.get(), transactionNanos.get() / 1e9, smtpNanos.get() / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private PlatformTransactionManager countingTransactionManager() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            peakTransactions.accumulateAndGet(openTransactions.incrementAndGet(), Math::max);
+            transactionStart.set(System.nanoTime());
+            return new SimpleTransactionStatus();
+        });
+        Answer<Void> end = invocation -> {
+            transactionNanos.addAndGet(System.nanoTime() - transactionStart.get());
+            openTransactions.decrementAndGet();
+            synchronized (queue) {
+                locked.removeAll(lockedByThread.get());
+            }
+            lockedByThread.get().clear();
+            return null;
+        };
+        doAnswer(end).when(transactionManager).commit(any());
+        doAnswer(end).when(transactionManager).rollback(any());
+        return transactionManager;
+    }
+
+    private class SlowSmtp extends JavaMailSenderImpl {
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            long start = System.nanoTime();
+            try {
+                Thread.sleep(CONNECT_MS + MESSAGE_MS * mimeMessages.length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            smtpNanos.addAndGet(System.nanoTime() - start);
+            sentMessages.addAndGet(mimeMessages.length);
+        }
+    }
+}
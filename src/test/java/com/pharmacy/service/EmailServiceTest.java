@@ -0,0 +1,124 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.EmailMessage;
+import com.pharmacy.repository.EmailMessageJdbcRepository;
+import com.pharmacy.repository.EmailMessageRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailServiceTest {
+
+    private final AtomicInteger openTransactions = new AtomicInteger();
+    private final List<EmailMessage> queue = new ArrayList<>();
+    private EmailMessageRepository repository;
+    private RecordingSender sender;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 3; id++) {
+            EmailMessage message = new EmailMessage();
+            message.setId(id);
+            message.setTemplate(EmailTemplates.PASSWORD_RESET);
+            message.setDedupeKey("password-reset:" + id);
+            message.setRecipient("user" + id + "@example.com");
+            message.setFromAddress("noreply@example.com");
+            message.setSubject("Reset");
+            message.setBody("Code");
+            message.setNextAttemptAt(LocalDateTime.now());
+            queue.add(message);
+        }
+
+        repository = mock(EmailMessageRepository.class);
+        when(repository.lockNextBatch(any(LocalDateTime.class), anyInt(), anyInt())).thenReturn(queue);
+        sender = new RecordingSender();
+        @SuppressWarnings("unchecked")
+        ObjectProvider<JavaMailSender> mailSender = mock(ObjectProvider.class);
+        when(mailSender.getObject()).thenReturn(sender);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openTransactions.incrementAndGet();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).rollback(any());
+
+        emailService = new EmailService(repository, mock(EmailMessageJdbcRepository.class),
+                mock(PharmacyRepository.class), mock(SettingsService.class), mock(EmailTemplates.class),
+                mailSender, transactionManager);
+        ReflectionTestUtils.setField(emailService, "maxAttempts", 8);
+        ReflectionTestUtils.setField(emailService, "backoffSeconds", 30L);
+        ReflectionTestUtils.setField(emailService, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(emailService, "sendLeaseSeconds", 300L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsWithoutATransactionAndRecordsEachOutcome() {
+        sender.failRecipient = "user2@example.com";
+
+        assertThat(emailService.sendBatch(50)).isEqualTo(3);
+
+        // The claim pushed the batch past the lease before the send started
+        assertThat(sender.leasedUntil).allSatisfy(until -> assertThat(until).isAfter(LocalDateTime.now().plusSeconds(290)));
+        assertThat(sender.openTransactionsDuringSend).isZero();
+        assertThat(openTransactions).hasValue(0);
+
+        ArgumentCaptor<Collection<Long>> sent = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).markSent(sent.capture(), any(LocalDateTime.class));
+        assertThat(sent.getValue()).containsExactlyInAnyOrder(1L, 3L);
+        verify(repository).saveAll(eq(List.of(queue.get(1))));
+        assertThat(queue.get(1).getAttempts()).isEqualTo(1);
+        assertThat(queue.get(1).getNextAttemptAt()).isBefore(LocalDateTime.now().plusSeconds(60));
+    }
+
+    private class RecordingSender extends JavaMailSenderImpl {
+
+        volatile String failRecipient;
+        volatile int openTransactionsDuringSend = -1;
+        final List<LocalDateTime> leasedUntil = new ArrayList<>();
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            openTransactionsDuringSend = openTransactions.get();
+            queue.forEach(message -> leasedUntil.add(message.getNextAttemptAt()));
+            for (MimeMessage mime : mimeMessages) {
+                try {
+                    if (mime.getAllRecipients()[0].toString().equals(failRecipient)) {
+                        throw new MailSendException(Map.<Object, Exception>of(mime, new IllegalStateException("mailbox full")));
+                    }
+                } catch (MessagingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
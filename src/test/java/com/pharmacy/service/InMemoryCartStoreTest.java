@@ -0,0 +1,115 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryCartStoreTest {
+
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private CartPersister cartPersister;
+    private InMemoryCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        cartPersister = mock(CartPersister.class);
+        when(cartPersister.load(anyLong(), anyLong())).thenAnswer(invocation -> new ActiveCart(
+                invocation.getArgument(0), invocation.getArgument(1), "Central", null, List.of(), null));
+        // Stands in for the real write: same snapshot/flushed protocol, failing while the database is down
+        doAnswer(invocation -> {
+            ActiveCart cart = invocation.getArgument(0);
+            ActiveCart.Snapshot snapshot = cart.snapshot();
+            if (snapshot == null) {
+                return null;
+            }
+            if (databaseDown.get()) {
+                cart.flushFailed(snapshot);
+                throw new IllegalStateException("db down");
+            }
+            cart.flushed(snapshot, 99L);
+            return null;
+        }).when(cartPersister).flush(any());
+
+        store = new InMemoryCartStore(cartPersister, 1, 30);
+    }
+
+    @Test
+    void evictedCartIsKeptUntilWrittenAndReadsGetTheSameInstance() {
+        ActiveCart first = store.get(1L, 7L);
+        first.put(product(11L), 2);
+        ActiveCart second = store.get(2L, 7L);
+        second.put(product(12L), 1);
+
+        databaseDown.set(true);
+        store.flushDirty();
+
+        // One cart no longer fits, but its unwritten change is neither lost nor shadowed by a reload
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(first.isDirty()).isTrue();
+        assertThat(second.isDirty()).isTrue();
+        assertThat(store.get(1L, 7L)).isSameAs(first);
+        assertThat(store.get(2L, 7L)).isSameAs(second);
+        verify(cartPersister, times(2)).load(anyLong(), anyLong());
+
+        databaseDown.set(false);
+        store.flushDirty();
+
+        // The evicted cart is written, then retired and dropped; the next read loads the persisted cart
+        assertThat(first.isDirty()).isFalse();
+        assertThat(second.isDirty()).isFalse();
+        assertThat(Stream.of(first, second).filter(ActiveCart::isRetired).count()).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+        ActiveCart retired = first.isRetired() ? first : second;
+        assertThat(store.get(retired.getCustomerId(), 7L)).isNotSameAs(retired);
+        verify(cartPersister, times(3)).load(anyLong(), anyLong());
+    }
+
+    @Test
+    void explicitFlushPropagatesTheFailure() {
+        ActiveCart cart = store.get(1L, 7L);
+        cart.put(product(11L), 2);
+        databaseDown.set(true);
+
+        assertThatThrownBy(() -> store.flush(1L, 7L)).hasMessage("db down");
+
+        assertThat(cart.isDirty()).isTrue();
+    }
+
+    @Test
+    void evictedCartStopsReceivingProductChanges() {
+        ActiveCart cart = store.get(1L, 7L);
+        cart.put(product(11L), 2);
+
+        store.evict(1L, 7L);
+        store.stockChanged(11L, 0, true);
+
+        assertThat(cart.isRetired()).isTrue();
+        assertThat(cart.getLine(11L).getStockQuantity()).isEqualTo(100);
+        assertThat(store.get(1L, 7L)).isNotSameAs(cart);
+    }
+
+    static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(new BigDecimal("12.50"));
+        product.setStockQuantity(100);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LowStockMonitorTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private AuditLogService auditLogService;
+
+    private LowStockMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new LowStockMonitor(productRepository, auditLogService);
+    }
+
+    @Test
+    void levelsMatchTheDashboardRule() {
+        assertThat(LowStockMonitor.levelOf(11, 10, true)).isEqualTo(LowStockMonitor.LEVEL_OK);
+        assertThat(LowStockMonitor.levelOf(10, 10, true)).isEqualTo(LowStockMonitor.LEVEL_LOW);
+        assertThat(LowStockMonitor.levelOf(0, 10, true)).isEqualTo(LowStockMonitor.LEVEL_OUT);
+        assertThat(LowStockMonitor.levelOf(0, 10, false)).isEqualTo(LowStockMonitor.LEVEL_OK);
+        // No threshold means the product is not tracked, even when out of stock
+        assertThat(LowStockMonitor.levelOf(0, null, true)).isEqualTo(LowStockMonitor.LEVEL_OK);
+    }
+
+    @Test
+    void crossingRaisesOneAlert() {
+        when(productRepository.raiseStockAlertLevel(1L, 2L, LowStockMonitor.LEVEL_LOW)).thenReturn(1);
+
+        int level = monitor.onStockChanged(1L, 2L, "Aspirin", 3, 5, true, LowStockMonitor.LEVEL_OK);
+
+        assertThat(level).isEqualTo(LowStockMonitor.LEVEL_LOW);
+        verify(auditLogService).logProductLowStock(1L, 2L, "Aspirin", 3, 5);
+    }
+
+    @Test
+    void concurrentCrossingLosesTheConditionalUpdateAndStaysQuiet() {
+        when(productRepository.raiseStockAlertLevel(1L, 2L, LowStockMonitor.LEVEL_OUT)).thenReturn(0);
+
+        monitor.onStockChanged(1L, 2L, "Aspirin", 0, 5, true, LowStockMonitor.LEVEL_LOW);
+
+        verify(auditLogService, never()).logProductOutOfStock(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void unchangedLevelWritesNothing() {
+        monitor.onStockChanged(1L, 2L, "Aspirin", 4, 5, true, LowStockMonitor.LEVEL_LOW);
+
+        verify(productRepository, never()).raiseStockAlertLevel(anyLong(), anyLong(), anyInt());
+        verify(productRepository, never()).lowerStockAlertLevel(anyLong(), anyLong(), anyInt());
+        verifyNoInteractions(auditLogService);
+    }
+}
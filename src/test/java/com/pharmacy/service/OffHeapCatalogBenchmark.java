@@ -0,0 +1,187 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.Category;
+import com.pharmacy.entity.Product;
+import com.pharmacy.mapper.ProductMapper;
+import com.pharmacy.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Heap footprint and GC cost of serving one pharmacy's catalog of PRODUCTS products:
+ *   materialized - entities mapped to ProductResponse and serialized per request (store disabled)
+ *   json cache   - per-product JSON from ProductJsonCache (store disabled, entities per request)
+ *   off-heap     - OffHeapCatalogStore snapshot (catalog-store.off-heap.enabled=true)
+ * Footprint is the heap retained by the encoded catalog after a full GC, plus direct memory.
+ * Serving runs REQUESTS category listings and reports allocation per request and the collections
+ * (count and pause time across all collectors) they caused. Entities stand in for the rows a
+ * request would load; only the two store-disabled variants need them.
+ * Run with: mvn test -Pbenchmark -Dtest=OffHeapCatalogBenchmark
+ */
+@Tag("benchmark")
+class OffHeapCatalogBenchmark {
+
+    private static final int PRODUCTS = 50_000;
+    private static final int CATEGORIES = 50;
+    private static final int REQUESTS = 2_000;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ProductMapper productMapper = new ProductMapper();
+
+    @Test
+    void footprintAndGc() throws Exception {
+        List<Product> products = products();
+
+        long before = usedHeapAfterGc();
+        ProductJsonCache cache = new ProductJsonCache(productMapper, objectMapper, PRODUCTS);
+        cache.encodeAll(products);
+        long cacheHeap = usedHeapAfterGc() - before;
+
+        OffHeapCatalogStore store = store(products);
+        before = usedHeapAfterGc();
+        long directBefore = directMemory();
+        OffHeapCatalogStore.Snapshot snapshot = store.get(7L);
+        long snapshotHeap = usedHeapAfterGc() - before;
+        long snapshotDirect = directMemory() - directBefore;
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ProductJsonCache.writeArray(cache.encodeAll(inCategory(products, 3)), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        snapshot.writeCategory(3, actual);
+        assertThat(objectMapper.readTree(actual.toByteArray())).isEqualTo(objectMapper.readTree(expected.toByteArray()));
+
+        System.out.printf("%-14s %14s %14s%n", "variant", "heap KB", "direct KB");
+        System.out.printf("%-14s %14d %14d%n", "json cache", cacheHeap / 1024, 0);
+        System.out.printf("%-14s %14d %14d%n", "off-heap", snapshotHeap / 1024, snapshotDirect / 1024);
+
+        System.out.printf("%n%-14s %14s %10s %10s%n", "variant", "alloc KB/req", "GCs", "GC ms");
+        serve("materialized", () -> {
+            long category = 0;
+            for (int i = 0; i < REQUESTS; i++) {
+                objectMapper.writeValue(OutputStream.nullOutputStream(),
+                        inCategory(products, category++ % CATEGORIES).stream().map(productMapper::toResponse).toList());
+            }
+        });
+        serve("json cache", () -> {
+            long category = 0;
+            for (int i = 0; i < REQUESTS; i++) {
+                ProductJsonCache.writeArray(cache.encodeAll(inCategory(products, category++ % CATEGORIES)),
+                        OutputStream.nullOutputStream());
+            }
+        });
+        serve("off-heap", () -> {
+            long category = 0;
+            for (int i = 0; i < REQUESTS; i++) {
+                store.get(7L).writeCategory(category++ % CATEGORIES, OutputStream.nullOutputStream());
+            }
+        });
+    }
+
+    private void serve(String name, Requests requests) throws IOException {
+        requests.run();  // warm-up
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        usedHeapAfterGc();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocStart = threads.getThreadAllocatedBytes(thread);
+        requests.run();
+        double allocKb = (threads.getThreadAllocatedBytes(thread) - allocStart) / 1024.0 / REQUESTS;
+        System.out.printf("%-14s %14.1f %10d %10d%n", name, allocKb, gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    private OffHeapCatalogStore store(List<Product> products) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findActiveWithCategory(anyLong())).thenReturn(products);
+        CatalogVersionService catalogVersionService = mock(CatalogVersionService.class);
+        when(catalogVersionService.productsVersion(anyLong())).thenReturn("c1-r1");
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new OffHeapCatalogStore(productRepository, productMapper, objectMapper, catalogVersionService,
+                transactionManager, 1L << 30);
+    }
+
+    private static List<Product> inCategory(List<Product> products, long categoryId) {
+        return products.stream().filter(p -> p.getCategory().getId() == categoryId).toList();
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static List<Product> products() {
+        List<Category> categories = new ArrayList<>();
+        for (long c = 0; c < CATEGORIES; c++) {
+            Category category = new Category();
+            category.setId(c);
+            category.setName("Category " + c);
+            categories.add(category);
+        }
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Vitamin C 1000 mg, 30 effervescent tablets #" + i);
+            product.setSlug("vitamin-c-1000-mg-" + i);
+            product.setDescription("Effervescent vitamin C supplement, orange flavour. Dissolve one tablet in water daily.");
+            product.setSku("SKU-" + i);
+            product.setBarcode("869" + (1_000_000_000L + i));
+            product.setPrice(new BigDecimal("149.90"));
+            product.setDiscountedPrice(i % 4 == 0 ? new BigDecimal("119.90") : null);
+            product.setStockQuantity(i % 50);
+            product.setLowStockThreshold(10);
+            product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+            product.setFeatured(i % 20 == 0);
+            product.setActive(true);
+            product.setCategory(categories.get(i % CATEGORIES));
+            product.setCreatedAt(LocalDateTime.now().minusDays(i % 365));
+            product.setUpdatedAt(LocalDateTime.now());
+            products.add(product);
+        }
+        return products;
+    }
+
+    @FunctionalInterface
+    private interface Requests {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,87 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.OrderArchiveJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderArchiverTest {
+
+    private OrderArchiveJdbcRepository repository;
+    private ThreadPoolTaskExecutor executor;
+    private OrderArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OrderArchiveJdbcRepository.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("order-archive-");
+        executor.initialize();
+
+        archiver = new OrderArchiver(repository, executor);
+        ReflectionTestUtils.setField(archiver, "enabled", true);
+        ReflectionTestUtils.setField(archiver, "minAgeDays", 365);
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void runsOffTheSchedulerThreadAndSkipsOverlappingTriggers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(repository.findPharmacyIds()).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(1L);
+        });
+
+        archiver.archive();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // Returns at once, as the scheduler thread must; the run it overlaps keeps going
+        archiver.archive();
+        release.countDown();
+
+        verify(repository, timeout(5000)).archiveChunk(eq(1L), any(LocalDateTime.class), eq(2));
+        assertThat(thread.get()).startsWith("order-archive-");
+        verify(repository, times(1)).findPharmacyIds();
+    }
+
+    @Test
+    void drainsEachPharmacyInChunksAndSurvivesAFailure() {
+        when(repository.findPharmacyIds()).thenReturn(List.of(1L, 2L));
+        when(repository.archiveChunk(eq(1L), any(LocalDateTime.class), anyInt()))
+                .thenThrow(new IllegalStateException("db down"));
+        when(repository.archiveChunk(eq(2L), any(LocalDateTime.class), anyInt())).thenReturn(2, 2, 1);
+
+        archiver.archiveAll();
+
+        verify(repository, times(3)).archiveChunk(eq(2L), any(LocalDateTime.class), eq(2));
+    }
+}
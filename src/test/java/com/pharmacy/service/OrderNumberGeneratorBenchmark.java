@@ -0,0 +1,85 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.OrderNumberSequenceRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Order number throughput with a simulated 2 ms block reservation round trip, comparing one
+ * reservation per order (block size 1, the old per-order counter) with 50-number blocks.
+ * Run with: mvn test -Pbenchmark -Dtest=OrderNumberGeneratorBenchmark
+ */
+@Tag("benchmark")
+class OrderNumberGeneratorBenchmark {
+
+    private static final long RESERVE_LATENCY_MS = 2;
+    private static final int NUMBERS_PER_THREAD = 2_000;
+
+    @Test
+    void throughputByBlockSizeAndThreads() throws Exception {
+        System.out.printf("%-10s %-8s %12s %10s%n", "blockSize", "threads", "numbers/s", "reserves");
+        for (int blockSize : new int[]{1, 50}) {
+            for (int threads : new int[]{1, 8, 32}) {
+                run(blockSize, threads);
+            }
+        }
+    }
+
+    private void run(int blockSize, int threads) throws Exception {
+        AtomicLong sequence = new AtomicLong(1);
+        AtomicLong reserves = new AtomicLong();
+        OrderNumberSequenceRepository sequenceRepository = mock(OrderNumberSequenceRepository.class);
+        when(sequenceRepository.existsById(anyInt())).thenReturn(true);
+        when(sequenceRepository.reserveBlock(anyInt(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            reserves.incrementAndGet();
+            Thread.sleep(RESERVE_LATENCY_MS);
+            return sequence.addAndGet(invocation.<Integer>getArgument(2));
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        OrderNumberGenerator generator = new OrderNumberGenerator(sequenceRepository, transactionManager);
+        ReflectionTestUtils.setField(generator, "blockSize", blockSize);
+
+        int perThread = blockSize == 1 ? NUMBERS_PER_THREAD / 10 : NUMBERS_PER_THREAD;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        generator.nextOrderNumber();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long total = (long) threads * perThread;
+            System.out.printf("%-10d %-8d %12.0f %10d%n", blockSize, threads, total / seconds, reserves.get());
+            assertThat(reserves.get()).isGreaterThanOrEqualTo(total / blockSize);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
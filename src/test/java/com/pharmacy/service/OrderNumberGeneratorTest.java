@@ -0,0 +1,123 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.OrderNumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderNumberGeneratorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    private final AtomicLong sequence = new AtomicLong(1);
+    private OrderNumberSequenceRepository sequenceRepository;
+    private OrderNumberGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        sequenceRepository = mock(OrderNumberSequenceRepository.class);
+        when(sequenceRepository.existsById(anyInt())).thenReturn(true);
+        when(sequenceRepository.reserveBlock(anyInt(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> sequence.addAndGet(invocation.<Integer>getArgument(2)));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        generator = new OrderNumberGenerator(sequenceRepository, transactionManager);
+        ReflectionTestUtils.setField(generator, "blockSize", BLOCK_SIZE);
+    }
+
+    @Test
+    void allocatesSequentialNumbersFromOneBlock() {
+        int year = LocalDate.now().getYear();
+
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-" + year + "-00001");
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-" + year + "-00002");
+        for (int i = 0; i < BLOCK_SIZE - 2; i++) {
+            generator.nextOrderNumber();
+        }
+        verify(sequenceRepository, times(1)).reserveBlock(anyInt(), anyLong(), anyInt());
+
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-" + year + "-00011");
+        verify(sequenceRepository, times(2)).reserveBlock(anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    void concurrentCallersNeverShareANumber() throws Exception {
+        int threads = 16;
+        int perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    List<String> numbers = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(generator.nextOrderNumber());
+                    }
+                    return numbers;
+                }));
+            }
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                all.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reservationDoesNotBlockOtherCallers() throws Exception {
+        CountDownLatch firstReservationStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstReservation = new CountDownLatch(1);
+        AtomicLong calls = new AtomicLong();
+        when(sequenceRepository.reserveBlock(anyInt(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // First caller stalls in the database (e.g. waiting for a pooled connection)
+                firstReservationStarted.countDown();
+                releaseFirstReservation.await(10, TimeUnit.SECONDS);
+            }
+            return sequence.addAndGet(invocation.<Integer>getArgument(2));
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> stalled = pool.submit(generator::nextOrderNumber);
+            assertThat(firstReservationStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Must complete while the first reservation is still in flight
+            String other = pool.submit(generator::nextOrderNumber).get(5, TimeUnit.SECONDS);
+
+            releaseFirstReservation.countDown();
+            assertThat(stalled.get(5, TimeUnit.SECONDS)).isNotEqualTo(other);
+        } finally {
+            releaseFirstReservation.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pharmacy.service;
+
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.repository.OrderStreamJdbcRepository;
+import com.pharmacy.support.MigratedSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OrderStreamListenerTest {
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO outbox_events (id, created_at, aggregate_id, aggregate_type, attempts, event_type, payload, " +
+            "pharmacy_id) VALUES (nextval('outbox_events_seq'), now(), 1, 'Order', 0, 'ORDER_CREATED', '{}', 7) " +
+            "RETURNING id";
+
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+    private final List<OrderStreamListener> listeners = new ArrayList<>();
+
+    @Test
+    void everyNodeStreamsAnEventOnceItsDispatchCommits() throws Exception {
+        try (MigratedSchema schema = MigratedSchema.create()) {
+            DataSource dataSource = schema.newConnections();
+            OrderStreamJdbcRepository repository = new OrderStreamJdbcRepository(new JdbcTemplate(dataSource));
+            try {
+                OrderStreamService nodeA = mock(OrderStreamService.class);
+                OrderStreamService nodeB = mock(OrderStreamService.class);
+                startListening(nodeA, repository, dataSource);
+                startListening(nodeB, repository, dataSource);
+
+                // What the relay does on whichever node claimed the event
+                TransactionTemplate dispatch = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+                Long eventId = dispatch.execute(status -> {
+                    Long id = new JdbcTemplate(dataSource).queryForObject(INSERT_EVENT_SQL, Long.class);
+                    repository.notifyCommitted(id);
+                    sleep(500);
+                    // Nothing is heard while the dispatch is open
+                    verify(nodeA, never()).publish(any(DomainEvent.class));
+                    return id;
+                });
+
+                verify(nodeA, timeout(5000)).publish(argThat(event -> event.getId().equals(eventId)
+                        && event.getPharmacyId() == 7L && "ORDER_CREATED".equals(event.getEventType())));
+                verify(nodeB, timeout(5000)).publish(argThat(event -> event.getId().equals(eventId)));
+
+                // A rolled-back dispatch announces nothing
+                dispatch.executeWithoutResult(status -> {
+                    repository.notifyCommitted(new JdbcTemplate(dataSource).queryForObject(INSERT_EVENT_SQL, Long.class));
+                    status.setRollbackOnly();
+                });
+
+                // A node that was not listening at the time catches up when it connects
+                OrderStreamService nodeC = mock(OrderStreamService.class);
+                startListening(nodeC, repository, dataSource);
+                verify(nodeC, timeout(5000)).publish(argThat(event -> event.getId().equals(eventId)));
+
+                sleep(500);
+                verify(nodeA, times(1)).publish(any(DomainEvent.class));
+                verify(nodeB, times(1)).publish(any(DomainEvent.class));
+            } finally {
+                listeners.forEach(OrderStreamListener::stop);
+                executors.forEach(ThreadPoolTaskExecutor::shutdown);
+            }
+        }
+    }
+
+    private void startListening(OrderStreamService node, OrderStreamJdbcRepository repository, DataSource dataSource)
+            throws InterruptedException {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("order-stream-listen-");
+        executor.initialize();
+        executors.add(executor);
+
+        OrderStreamListener listener = new OrderStreamListener(node, repository, dataSource, executor);
+        ReflectionTestUtils.setField(listener, "pollMs", 100);
+        ReflectionTestUtils.setField(listener, "catchUpSeconds", 60L);
+        listeners.add(listener);
+
+        listener.ensureListening();
+        for (int i = 0; i < 100 && !listener.isListening(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(listener.isListening()).isTrue();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.pharmacy.service;
+
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.event.DomainEventTypes;
+import com.pharmacy.repository.OrderStreamJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class OrderStreamServiceTest {
+
+    private OrderStreamJdbcRepository orderStreamRepository;
+    private OrderStreamService orderStreamService;
+
+    @BeforeEach
+    void setUp() {
+        orderStreamRepository = mock(OrderStreamJdbcRepository.class);
+        orderStreamService = new OrderStreamService(orderStreamRepository, new SyncTaskExecutor()) {
+            @Override
+            SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(orderStreamService, "emitterTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(orderStreamService, "replayBufferSize", 3);
+        ReflectionTestUtils.setField(orderStreamService, "maxConnectionsPerPharmacy", 50);
+    }
+
+    @Test
+    void relayOnlyAnnouncesTheEventForEveryNodesListener() {
+        RecordingEmitter emitter = subscribe(7L, null);
+
+        orderStreamService.onEvent(event(10L, 7L));
+
+        verify(orderStreamRepository).notifyCommitted(10L);
+        assertThat(emitter.sent).isEmpty();
+    }
+
+    @Test
+    void subscriberGetsItsPharmacysEventsOnce() {
+        RecordingEmitter emitter = subscribe(7L, null);
+        assertThat(emitter.sent).isEmpty();
+
+        orderStreamService.publish(event(10L, 7L));
+        orderStreamService.publish(event(11L, 8L));
+        // Redelivered by the relay, or read again while catching up
+        orderStreamService.publish(event(10L, 7L));
+
+        assertThat(emitter.sent).containsExactly("10 " + DomainEventTypes.ORDER_CREATED);
+        assertThat(orderStreamService.countSubscribers(7L)).isEqualTo(1);
+    }
+
+    @Test
+    void reconnectReplaysWhatCameAfterLastEventId() {
+        orderStreamService.publish(event(10L, 7L));
+        orderStreamService.publish(event(20L, 7L));
+        orderStreamService.publish(event(30L, 7L));
+
+        RecordingEmitter emitter = subscribe(7L, 10L);
+
+        assertThat(emitter.sent).containsExactly(
+                "20 " + DomainEventTypes.ORDER_CREATED, "30 " + DomainEventTypes.ORDER_CREATED);
+
+        // Live events follow the replay
+        orderStreamService.publish(event(40L, 7L));
+        assertThat(emitter.sent).last().isEqualTo("40 " + DomainEventTypes.ORDER_CREATED);
+    }
+
+    @Test
+    void lastEventIdOlderThanTheBufferGetsResyncFirst() {
+        for (long id = 10; id <= 50; id += 10) {
+            orderStreamService.publish(event(id, 7L));
+        }
+
+        // The buffer holds 30..50; 20 fell out, so the client must refetch its lists
+        RecordingEmitter behind = subscribe(7L, 15L);
+        assertThat(behind.sent).containsExactly("RESYNC",
+                "30 " + DomainEventTypes.ORDER_CREATED,
+                "40 " + DomainEventTypes.ORDER_CREATED,
+                "50 " + DomainEventTypes.ORDER_CREATED);
+
+        // Nothing buffered for this pharmacy on this node at all (e.g. it just started)
+        RecordingEmitter unknown = subscribe(8L, 15L);
+        assertThat(unknown.sent).containsExactly("RESYNC");
+    }
+
+    private RecordingEmitter subscribe(Long pharmacyId, Long lastEventId) {
+        return (RecordingEmitter) orderStreamService.subscribe(pharmacyId, lastEventId);
+    }
+
+    private static DomainEvent event(Long id, Long pharmacyId) {
+        return new DomainEvent(id, "Order", id, pharmacyId, DomainEventTypes.ORDER_CREATED,
+                "{\"orderId\":" + id + "}", LocalDateTime.now());
+    }
+
+    // Keeps each sent event as "<id> <name>", or just the name when it has no id
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String text = builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining());
+            String id = field(text, "id:");
+            String name = field(text, "event:");
+            sent.add(id != null ? id + " " + name : name);
+        }
+
+        private static String field(String text, String prefix) {
+            return text.lines()
+                    .filter(line -> line.startsWith(prefix))
+                    .map(line -> line.substring(prefix.length()))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.entity.OutboxEvent;
+import com.pharmacy.event.DomainEvent;
+import com.pharmacy.event.DomainEventListener;
+import com.pharmacy.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxServiceTest {
+
+    private final List<Long> delivered = new ArrayList<>();
+    private final List<OutboxEvent> batch = new ArrayList<>();
+    private PlatformTransactionManager transactionManager;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 3; id++) {
+            OutboxEvent event = new OutboxEvent();
+            event.setId(id);
+            event.setAggregateType("Order");
+            event.setAggregateId(id);
+            event.setPharmacyId(7L);
+            event.setEventType("ORDER_CREATED");
+            event.setPayload("{}");
+            batch.add(event);
+        }
+        OutboxEventRepository repository = mock(OutboxEventRepository.class);
+        when(repository.lockNextBatch(anyInt(), any(LocalDateTime.class), anyInt())).thenReturn(batch);
+
+        // Fails on event 2 the way a duplicate email enqueue used to
+        DomainEventListener listener = new DomainEventListener() {
+            @Override
+            public boolean supports(String eventType) {
+                return true;
+            }
+
+            @Override
+            public void onEvent(DomainEvent event) {
+                if (event.getId() == 2L) {
+                    throw new DataIntegrityViolationException("uq_email_dedupe_key");
+                }
+                delivered.add(event.getId());
+            }
+        };
+        @SuppressWarnings("unchecked")
+        ObjectProvider<DomainEventListener> listeners = mock(ObjectProvider.class);
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.of(listener));
+
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        outboxService = new OutboxService(repository, listeners, new ObjectMapper(), transactionManager);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 10);
+        ReflectionTestUtils.setField(outboxService, "backoffSeconds", 5L);
+        ReflectionTestUtils.setField(outboxService, "maxBackoffSeconds", 600L);
+    }
+
+    @Test
+    void failingListenerRollsBackOnlyItsEventWhichIsRetriedAfterBackoff() {
+        assertThat(outboxService.relayBatch(100)).isEqualTo(3);
+
+        // Each event had its own transaction; only the failed one was rolled back
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+
+        assertThat(delivered).containsExactly(1L, 3L);
+        assertThat(batch.get(0).getPublishedAt()).isNotNull();
+        assertThat(batch.get(2).getPublishedAt()).isNotNull();
+
+        OutboxEvent failed = batch.get(1);
+        assertThat(failed.getPublishedAt()).isNull();
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).contains("uq_email_dedupe_key");
+        assertThat(failed.getNextAttemptAt()).isBetween(LocalDateTime.now().plusSeconds(3), LocalDateTime.now().plusSeconds(6));
+    }
+}
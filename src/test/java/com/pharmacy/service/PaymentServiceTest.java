@@ -0,0 +1,35 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Order;
+import com.pharmacy.entity.Payment;
+import com.pharmacy.repository.OrderRepository;
+import com.pharmacy.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+
+    @Test
+    void liveOrderIsReadFromThePaymentsPharmacyPartition() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        Order order = new Order();
+        when(orderRepository.findByIdAndPharmacyId(11L, 7L)).thenReturn(Optional.of(order));
+        PaymentService paymentService = new PaymentService(mock(PaymentRepository.class), orderRepository,
+                mock(OutboxService.class));
+
+        Payment payment = new Payment();
+        payment.setOrderId(11L);
+        payment.setPharmacyId(7L);
+
+        assertThat(paymentService.getLiveOrder(payment)).isSameAs(order);
+        verify(orderRepository, never()).findById(any());
+    }
+}
@@ -0,0 +1,274 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.controller.PaymentController;
+import com.pharmacy.entity.Order;
+import com.pharmacy.entity.Payment;
+import com.pharmacy.entity.PaymentWebhookEvent;
+import com.pharmacy.entity.User;
+import com.pharmacy.enums.PaymentStatus;
+import com.pharmacy.enums.WebhookEventStatus;
+import com.pharmacy.exception.AuthenticationException;
+import com.pharmacy.mapper.PaymentMapper;
+import com.pharmacy.repository.PaymentWebhookEventRepository;
+import com.pharmacy.security.SecurityUtils;
+import com.pharmacy.security.WebhookSignatureVerifier;
+import com.pharmacy.support.FakePaymentProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentWebhookServiceTest {
+
+    private static final String SECRET = "merchant-webhook-secret";
+    private static final String CONVERSATION_ID = "conv-42";
+
+    private final FakePaymentProvider provider = new FakePaymentProvider(SECRET);
+    private final Map<Long, PaymentWebhookEvent> inbox = new LinkedHashMap<>();
+    private final AtomicBoolean workersSaturated = new AtomicBoolean();
+    private final Payment payment = new Payment();
+    private PaymentService paymentService;
+    private PaymentWebhookDispatcher dispatcher;
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() {
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier();
+        ReflectionTestUtils.setField(verifier, "secret", SECRET);
+
+        payment.setId(5L);
+        payment.setConversationId(CONVERSATION_ID);
+        payment.setPharmacyId(7L);
+        payment.setStatus(PaymentStatus.PENDING);
+        User customer = new User();
+        customer.setId(3L);
+        customer.setEmail("customer@example.com");
+        Order order = new Order();
+        order.setId(11L);
+        order.setOrderNumber("ORD-0011");
+        order.setCustomer(customer);
+
+        paymentService = mock(PaymentService.class);
+        when(paymentService.lockByConversationId(CONVERSATION_ID)).thenReturn(payment);
+        when(paymentService.getLiveOrder(payment)).thenReturn(order);
+        when(paymentService.processSuccessfulPayment(anyString(), anyString(), anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    payment.setStatus(PaymentStatus.SUCCESS);
+                    return payment;
+                });
+
+        PaymentWebhookService webhookService = new PaymentWebhookService(inboxRepository(), paymentService,
+                mock(AuditLogService.class), verifier, new ObjectMapper());
+        ReflectionTestUtils.setField(webhookService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(webhookService, "retryDelaySeconds", 60L);
+        ReflectionTestUtils.setField(webhookService, "processingTimeoutSeconds", 300L);
+
+        // Runs each event inline, or turns it away the way a full webhook pool does
+        dispatcher = new PaymentWebhookDispatcher(webhookService, task -> {
+            if (workersSaturated.get()) {
+                throw new TaskRejectedException("webhook pool full");
+            }
+            task.run();
+        });
+        ReflectionTestUtils.setField(dispatcher, "sweepBatchSize", 200);
+
+        controller = new PaymentController(paymentService, mock(OrderService.class), mock(PaymentMapper.class),
+                mock(SecurityUtils.class), mock(AuditLogService.class), webhookService, dispatcher);
+    }
+
+    @Test
+    void notificationSignedWithAnotherSecretIsRejectedBeforeTheInbox() {
+        String payload = provider.success(CONVERSATION_ID, "pay-1", "ref-1");
+        String forged = new FakePaymentProvider("someone-else").sign(payload);
+
+        assertThatThrownBy(() -> controller.handleWebhook(payload, forged))
+                .isInstanceOf(AuthenticationException.class);
+        assertThatThrownBy(() -> controller.handleWebhook(payload, null))
+                .isInstanceOf(AuthenticationException.class);
+        // Signed body, tampered with on the way
+        assertThatThrownBy(() -> controller.handleWebhook(payload.replace("SUCCESS", "FAILURE"), provider.sign(payload)))
+                .isInstanceOf(AuthenticationException.class);
+
+        assertThat(inbox).isEmpty();
+        verify(paymentService, never()).lockByConversationId(anyString());
+    }
+
+    @Test
+    void redeliveryIsDeduplicatedByItsIdempotencyKey() {
+        String payload = provider.success(CONVERSATION_ID, "pay-1", "ref-1");
+
+        assertThat(provider.post(controller, payload).getStatusCode().value()).isEqualTo(200);
+        // Same notification again, fields in another order: still the same key
+        String reordered = "{\"status\":\"SUCCESS\",\"paymentId\":\"pay-1\",\"iyziReferenceCode\":\"ref-1\","
+                + "\"paymentConversationId\":\"" + CONVERSATION_ID + "\",\"iyziEventType\":\"CHECKOUT_FORM_AUTH\"}";
+        assertThat(provider.post(controller, reordered).getStatusCode().value()).isEqualTo(200);
+
+        assertThat(inbox).hasSize(1);
+        assertThat(onlyEvent().getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+        assertThat(onlyEvent().getAttempts()).isEqualTo(1);
+        verify(paymentService, times(1))
+                .processSuccessfulPayment(CONVERSATION_ID, "ref-1", "pay-1", "0008", "MASTER_CARD");
+    }
+
+    @Test
+    void failingEventIsClaimedAtMostMaxAttemptsTimes() {
+        when(paymentService.lockByConversationId(CONVERSATION_ID)).thenThrow(new IllegalStateException("db down"));
+        String payload = provider.failure(CONVERSATION_ID, "pay-1", "10051");
+
+        provider.post(controller, payload);
+        for (int i = 0; i < 4; i++) {
+            dispatcher.dispatch(onlyEvent().getId());
+        }
+        // The provider's own retry does not reopen an event that used up its attempts
+        provider.post(controller, payload);
+        dueForRetry(onlyEvent());
+        dispatcher.sweep();
+
+        assertThat(onlyEvent().getStatus()).isEqualTo(WebhookEventStatus.FAILED);
+        assertThat(onlyEvent().getAttempts()).isEqualTo(3);
+        assertThat(onlyEvent().getLastError()).isEqualTo("db down");
+        verify(paymentService, times(3)).lockByConversationId(CONVERSATION_ID);
+    }
+
+    @Test
+    void notificationForASettledPaymentIsIgnored() {
+        // The 3DS callback got there first
+        payment.setStatus(PaymentStatus.SUCCESS);
+
+        provider.post(controller, provider.failure(CONVERSATION_ID, "pay-1", "10051"));
+
+        assertThat(onlyEvent().getStatus()).isEqualTo(WebhookEventStatus.IGNORED);
+        assertThat(onlyEvent().getLastError()).isEqualTo("Payment already SUCCESS");
+        assertThat(onlyEvent().getProcessedAt()).isNotNull();
+        verify(paymentService, never()).processFailedPayment(anyString(), any(), any());
+        verify(paymentService, never()).getLiveOrder(any());
+    }
+
+    @Test
+    void sweeperRedispatchesDeferredAndAbandonedEvents() {
+        workersSaturated.set(true);
+        provider.post(controller, provider.success(CONVERSATION_ID, "pay-1", "ref-1"));
+        assertThat(inbox).hasSize(1);
+        PaymentWebhookEvent deferred = onlyEvent();
+        assertThat(deferred.getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+
+        // A second event a crashed node claimed and never finished
+        PaymentWebhookEvent abandoned = new PaymentWebhookEvent();
+        abandoned.setIdempotencyKey("abandoned");
+        abandoned.setConversationId("conv-43");
+        abandoned.setProviderStatus("FAILURE");
+        abandoned.setPayload(provider.failure("conv-43", "pay-2", "10051"));
+        abandoned.setStatus(WebhookEventStatus.PROCESSING);
+        abandoned.setAttempts(1);
+        put(abandoned, LocalDateTime.now().minusMinutes(10));
+        Payment settled = new Payment();
+        settled.setStatus(PaymentStatus.FAILED);
+        when(paymentService.lockByConversationId("conv-43")).thenReturn(settled);
+
+        workersSaturated.set(false);
+        dispatcher.sweep();
+        // Released after processing-timeout-seconds and claimed again
+        assertThat(abandoned.getStatus()).isEqualTo(WebhookEventStatus.IGNORED);
+        assertThat(abandoned.getAttempts()).isEqualTo(2);
+        // Not due yet: retry-delay-seconds has not passed since it arrived
+        assertThat(deferred.getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+
+        dueForRetry(deferred);
+        dispatcher.sweep();
+
+        assertThat(deferred.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+        assertThat(deferred.getAttempts()).isEqualTo(1);
+        verify(paymentService, times(1)).processSuccessfulPayment(anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+
+    private PaymentWebhookEvent onlyEvent() {
+        return inbox.values().iterator().next();
+    }
+
+    private void dueForRetry(PaymentWebhookEvent event) {
+        event.setUpdatedAt(LocalDateTime.now().minusMinutes(2));
+    }
+
+    private void put(PaymentWebhookEvent event, LocalDateTime updatedAt) {
+        if (event.getId() == null) {
+            event.setId((long) inbox.size() + 1);
+        }
+        event.setUpdatedAt(updatedAt);
+        inbox.put(event.getId(), event);
+    }
+
+    // The inbox table in memory; each query keeps the conditions of its counterpart in the repository
+    @SuppressWarnings("unchecked")
+    private PaymentWebhookEventRepository inboxRepository() {
+        PaymentWebhookEventRepository repository = mock(PaymentWebhookEventRepository.class);
+        when(repository.findByIdempotencyKey(anyString())).thenAnswer(invocation -> inbox.values().stream()
+                .filter(event -> event.getIdempotencyKey().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(repository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(inbox.get(invocation.getArgument(0))));
+        when(repository.saveAndFlush(any(PaymentWebhookEvent.class))).thenAnswer(invocation -> {
+            put(invocation.getArgument(0), LocalDateTime.now());
+            return invocation.getArgument(0);
+        });
+        when(repository.save(any(PaymentWebhookEvent.class))).thenAnswer(invocation -> {
+            put(invocation.getArgument(0), LocalDateTime.now());
+            return invocation.getArgument(0);
+        });
+        when(repository.claim(anyLong(), any(), anyInt(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            PaymentWebhookEvent event = inbox.get(invocation.getArgument(0));
+            Collection<WebhookEventStatus> claimable = invocation.getArgument(1);
+            int maxAttempts = invocation.getArgument(2);
+            if (event == null || !claimable.contains(event.getStatus()) || event.getAttempts() >= maxAttempts) {
+                return 0;
+            }
+            event.setStatus(WebhookEventStatus.PROCESSING);
+            event.setAttempts(event.getAttempts() + 1);
+            event.setUpdatedAt(invocation.getArgument(3));
+            return 1;
+        });
+        when(repository.releaseStuck(any(LocalDateTime.class))).thenAnswer(invocation -> {
+            LocalDateTime before = invocation.getArgument(0);
+            List<PaymentWebhookEvent> stuck = inbox.values().stream()
+                    .filter(event -> event.getStatus() == WebhookEventStatus.PROCESSING && event.getUpdatedAt().isBefore(before))
+                    .toList();
+            stuck.forEach(event -> {
+                event.setStatus(WebhookEventStatus.FAILED);
+                event.setLastError("Processing timed out");
+            });
+            return stuck.size();
+        });
+        when(repository.findIdsForRetry(any(), anyInt(), any(LocalDateTime.class), any())).thenAnswer(invocation -> {
+            Collection<WebhookEventStatus> statuses = invocation.getArgument(0);
+            int maxAttempts = invocation.getArgument(1);
+            LocalDateTime before = invocation.getArgument(2);
+            return inbox.values().stream()
+                    .filter(event -> statuses.contains(event.getStatus()) && event.getAttempts() < maxAttempts
+                            && event.getUpdatedAt().isBefore(before))
+                    .sorted(Comparator.comparing(PaymentWebhookEvent::getId))
+                    .map(PaymentWebhookEvent::getId)
+                    .toList();
+        });
+        return repository;
+    }
+}
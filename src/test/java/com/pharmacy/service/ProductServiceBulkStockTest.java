@@ -0,0 +1,135 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.request.BulkStockUpdateRequest;
+import com.pharmacy.dto.response.BulkStockUpdateResponse.LineResult;
+import com.pharmacy.enums.StockUpdateMode;
+import com.pharmacy.repository.ProductRepository;
+import com.pharmacy.repository.ProductStockJdbcRepository;
+import com.pharmacy.repository.ProductStockJdbcRepository.StockChange;
+import com.pharmacy.repository.ProductStockJdbcRepository.StockRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceBulkStockTest {
+
+    private static final Long PHARMACY_ID = 7L;
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductStockJdbcRepository productStockJdbcRepository;
+    @Mock
+    private LowStockMonitor lowStockMonitor;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CartService cartService;
+    @Mock
+    private CatalogFacetIndex catalogFacetIndex;
+
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(productRepository, productStockJdbcRepository, lowStockMonitor,
+                catalogVersionService, cartService, catalogFacetIndex);
+        when(productStockJdbcRepository.applyChanges(eq(PHARMACY_ID), anyList()))
+                .thenAnswer(invocation -> {
+                    int[] counts = new int[invocation.<List<?>>getArgument(1).size()];
+                    Arrays.fill(counts, 1);
+                    return counts;
+                });
+    }
+
+    @Test
+    void repeatedLinesAccumulateAndReportLockedStock() {
+        when(productStockJdbcRepository.lockByKeys(eq(PHARMACY_ID), any(), any()))
+                .thenReturn(List.of(row(1, "SKU-1", "111", 10)));
+
+        List<LineResult> results = productService.bulkUpdateStock(PHARMACY_ID, List.of(
+                line("SKU-1", null, StockUpdateMode.DELTA, 5),
+                line(null, "111", StockUpdateMode.DELTA, -3)));
+
+        assertThat(results).extracting(LineResult::getStatus).containsOnly(LineResult.UPDATED);
+        assertThat(results.get(0).getOldStock()).isEqualTo(10);
+        assertThat(results.get(0).getNewStock()).isEqualTo(15);
+        assertThat(results.get(1).getOldStock()).isEqualTo(15);
+        assertThat(results.get(1).getNewStock()).isEqualTo(12);
+        verify(lowStockMonitor).onStockChanged(eq(PHARMACY_ID), eq(1L), any(), eq(12), any(), eq(true), eq(0));
+    }
+
+    @Test
+    void overflowRejectsOnlyThatLine() {
+        when(productStockJdbcRepository.lockByKeys(eq(PHARMACY_ID), any(), any()))
+                .thenReturn(List.of(row(1, "SKU-1", null, Integer.MAX_VALUE - 1), row(2, "SKU-2", null, 4)));
+
+        List<LineResult> results = productService.bulkUpdateStock(PHARMACY_ID, List.of(
+                line("SKU-1", null, StockUpdateMode.DELTA, 10),
+                line("SKU-2", null, StockUpdateMode.DELTA, 1)));
+
+        assertThat(results.get(0).getStatus()).isEqualTo(LineResult.INVALID);
+        assertThat(results.get(1).getStatus()).isEqualTo(LineResult.UPDATED);
+        assertThat(appliedChanges()).extracting(StockChange::getProductId).containsExactly(2L);
+    }
+
+    @Test
+    void ambiguousBarcodeIsRejected() {
+        when(productStockJdbcRepository.lockByKeys(eq(PHARMACY_ID), any(), any()))
+                .thenReturn(List.of(row(1, "SKU-1", "999", 5), row(2, "SKU-2", "999", 5)));
+
+        List<LineResult> results = productService.bulkUpdateStock(PHARMACY_ID, List.of(
+                line(null, "999", StockUpdateMode.ABSOLUTE, 1),
+                line("SKU-2", null, StockUpdateMode.ABSOLUTE, 8)));
+
+        assertThat(results.get(0).getStatus()).isEqualTo(LineResult.AMBIGUOUS);
+        assertThat(results.get(1).getStatus()).isEqualTo(LineResult.UPDATED);
+        assertThat(appliedChanges()).extracting(StockChange::getProductId).containsExactly(2L);
+    }
+
+    @Test
+    void negativeResultIsInsufficientStock() {
+        when(productStockJdbcRepository.lockByKeys(eq(PHARMACY_ID), any(), any()))
+                .thenReturn(List.of(row(1, "SKU-1", null, 2)));
+
+        List<LineResult> results = productService.bulkUpdateStock(PHARMACY_ID, List.of(
+                line("SKU-1", null, StockUpdateMode.DELTA, -3)));
+
+        assertThat(results.get(0).getStatus()).isEqualTo(LineResult.INSUFFICIENT_STOCK);
+        assertThat(results.get(0).getNewStock()).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<StockChange> appliedChanges() {
+        ArgumentCaptor<List<StockChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(productStockJdbcRepository).applyChanges(eq(PHARMACY_ID), captor.capture());
+        return captor.getValue();
+    }
+
+    private static StockRow row(long id, String sku, String barcode, int stock) {
+        return new StockRow(id, sku, barcode, "Product " + id, stock, 5, true, 0);
+    }
+
+    private static BulkStockUpdateRequest.Line line(String sku, String barcode, StockUpdateMode mode, int quantity) {
+        BulkStockUpdateRequest.Line line = new BulkStockUpdateRequest.Line();
+        line.setSku(sku);
+        line.setBarcode(barcode);
+        line.setMode(mode);
+        line.setQuantity(quantity);
+        return line;
+    }
+}
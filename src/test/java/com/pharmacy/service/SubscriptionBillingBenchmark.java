@@ -0,0 +1,165 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.Settings;
+import com.pharmacy.enums.PaymentPeriod;
+import com.pharmacy.enums.PharmacyStatus;
+import com.pharmacy.repository.BillingRunJdbcRepository;
+import com.pharmacy.repository.JobLockJdbcRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * One daily billing run over PHARMACIES due tenants on the default 8 workers, against a provider
+ * that takes PROVIDER_LATENCY_MS per charge and declines DECLINE_PERCENT of them:
+ *   trigger      - how long the scheduler thread is held before the run continues on the workers
+ *   run          - wall time until the run completes and releases its lock
+ *   transactions - peak concurrently open transactions (each holds a pooled connection) and the total
+ *                  time they were open, against the total time spent waiting on the provider
+ * Repositories are in-memory, so transaction time is bookkeeping only; what matters is that no
+ * transaction is open across a provider call. Run with: mvn test -Pbenchmark -Dtest=SubscriptionBillingBenchmark
+ */
+@Tag("benchmark")
+class SubscriptionBillingBenchmark {
+
+    private static final int PHARMACIES = 50_000;
+    private static final int WORKERS = 8;
+    private static final long PROVIDER_LATENCY_MS = 5;
+    private static final int DECLINE_PERCENT = 10;
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 1);
+
+    private final AtomicInteger openTransactions = new AtomicInteger();
+    private final AtomicInteger peakTransactions = new AtomicInteger();
+    private final AtomicLong transactionNanos = new AtomicLong();
+    private final AtomicLong providerNanos = new AtomicLong();
+    private final ThreadLocal<Long> transactionStart = new ThreadLocal<>();
+
+    @Test
+    void dailyRun() throws Exception {
+        Map<Long, Pharmacy> pharmacies = LongStream.rangeClosed(1, PHARMACIES).mapToObj(this::pharmacy)
+                .collect(Collectors.toMap(Pharmacy::getId, Function.identity()));
+
+        PharmacyRepository pharmacyRepository = mock(PharmacyRepository.class);
+        when(pharmacyRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            List<Pharmacy> found = new ArrayList<>();
+            ids.forEach(id -> found.add(pharmacies.get(id)));
+            return found;
+        });
+        when(pharmacyRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(pharmacies.get(invocation.<Long>getArgument(0))));
+        BillingRunJdbcRepository billingRunRepository = mock(BillingRunJdbcRepository.class);
+        when(billingRunRepository.findDuePharmacyIds(any())).thenReturn(pharmacies.keySet().stream().sorted().toList());
+        JobLockJdbcRepository jobLockRepository = mock(JobLockJdbcRepository.class);
+        when(jobLockRepository.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(jobLockRepository.extend(anyString(), anyString(), anyLong())).thenReturn(true);
+        SettingsService settingsService = mock(SettingsService.class);
+        when(settingsService.getSettings()).thenReturn(new Settings());
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(WORKERS);
+        executor.setMaxPoolSize(WORKERS);
+        executor.initialize();
+        try {
+            SubscriptionBillingScheduler scheduler = new SubscriptionBillingScheduler(pharmacyRepository,
+                    billingRunRepository, jobLockRepository, new SlowProvider(), mock(AuditLogService.class),
+                    settingsService, mock(CatalogVersionService.class), executor, countingTransactionManager());
+            ReflectionTestUtils.setField(scheduler, "enabled", true);
+            ReflectionTestUtils.setField(scheduler, "chunkSize", 500);
+            ReflectionTestUtils.setField(scheduler, "leaseSeconds", 600L);
+
+            long start = System.nanoTime();
+            CompletableFuture<Boolean> run = scheduler.start(TODAY);
+            double triggerMs = (System.nanoTime() - start) / 1e6;
+            assertThat(run.get(10, TimeUnit.MINUTES)).isTrue();
+            double runSeconds = (System.nanoTime() - start) / 1e9;
+
+            long billed = pharmacies.values().stream().filter(p -> TODAY.equals(p.getLastBillingDate())).count();
+            assertThat(billed).isEqualTo(PHARMACIES);
+            System.out.printf("pharmacies %d, workers %d, provider %d ms, declines %d%%%n",
+                    PHARMACIES, WORKERS, PROVIDER_LATENCY_MS, DECLINE_PERCENT);
+            System.out.printf("trigger held the scheduler thread: %.1f ms%n", triggerMs);
+            System.out.printf("run: %.1f s (%.0f charges/s)%n", runSeconds, PHARMACIES / runSeconds);
+            System.out.printf("peak open transactions: %d; open %.1f s in total vs %.1f s waiting on the provider%n",
+                    peakTransactions.get(), transactionNanos.get() / 1e9, providerNanos.get() / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Pharmacy pharmacy(long id) {
+        Pharmacy pharmacy = new Pharmacy();
+        pharmacy.setId(id);
+        pharmacy.setName("Pharmacy " + id);
+        pharmacy.setStatus(PharmacyStatus.ACTIVE);
+        pharmacy.setPaymentPeriod(PaymentPeriod.MONTHLY);
+        pharmacy.setMonthlyFee(new BigDecimal("99.00"));
+        pharmacy.setNextPaymentDate(TODAY);
+        return pharmacy;
+    }
+
+    private PlatformTransactionManager countingTransactionManager() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            peakTransactions.accumulateAndGet(openTransactions.incrementAndGet(), Math::max);
+            transactionStart.set(System.nanoTime());
+            return new SimpleTransactionStatus();
+        });
+        Answer<Void> end = invocation -> {
+            transactionNanos.addAndGet(System.nanoTime() - transactionStart.get());
+            openTransactions.decrementAndGet();
+            return null;
+        };
+        doAnswer(end).when(transactionManager).commit(any());
+        doAnswer(end).when(transactionManager).rollback(any());
+        return transactionManager;
+    }
+
+    private class SlowProvider implements SubscriptionPaymentProvider {
+
+        private final Map<String, ChargeResult> results = new ConcurrentHashMap<>();
+
+        @Override
+        public ChargeResult charge(Long pharmacyId, BigDecimal amount, String idempotencyKey) {
+            long start = System.nanoTime();
+            try {
+                Thread.sleep(PROVIDER_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            providerNanos.addAndGet(System.nanoTime() - start);
+            return results.computeIfAbsent(idempotencyKey, key -> pharmacyId % 100 < DECLINE_PERCENT
+                    ? ChargeResult.failure("Card declined")
+                    : ChargeResult.success("tx-" + key));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.pharmacy.service;
+
+import com.pharmacy.entity.Pharmacy;
+import com.pharmacy.entity.Settings;
+import com.pharmacy.enums.PaymentPeriod;
+import com.pharmacy.enums.PharmacyStatus;
+import com.pharmacy.repository.BillingRunJdbcRepository;
+import com.pharmacy.repository.JobLockJdbcRepository;
+import com.pharmacy.repository.PharmacyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionBillingSchedulerTest {
+
+    private static final LocalDate DUE = LocalDate.of(2026, 3, 1);
+
+    private final Pharmacy pharmacy = new Pharmacy();
+    private final ReplayingProvider provider = new ReplayingProvider();
+    private PharmacyRepository pharmacyRepository;
+    private BillingRunJdbcRepository billingRunRepository;
+    private JobLockJdbcRepository jobLockRepository;
+    private ThreadPoolTaskExecutor executor;
+    private SubscriptionBillingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        pharmacy.setId(7L);
+        pharmacy.setName("Pharmacy 7");
+        pharmacy.setStatus(PharmacyStatus.ACTIVE);
+        pharmacy.setPaymentPeriod(PaymentPeriod.MONTHLY);
+        pharmacy.setMonthlyFee(new BigDecimal("99.00"));
+        pharmacy.setNextPaymentDate(DUE);
+
+        pharmacyRepository = mock(PharmacyRepository.class);
+        when(pharmacyRepository.findAllById(any())).thenReturn(List.of(pharmacy));
+        when(pharmacyRepository.findById(7L)).thenReturn(Optional.of(pharmacy));
+        billingRunRepository = mock(BillingRunJdbcRepository.class);
+        when(billingRunRepository.findDuePharmacyIds(any())).thenReturn(List.of(7L));
+        jobLockRepository = mock(JobLockJdbcRepository.class);
+        when(jobLockRepository.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(jobLockRepository.extend(anyString(), anyString(), anyLong())).thenReturn(true);
+        SettingsService settingsService = mock(SettingsService.class);
+        Settings settings = new Settings();
+        settings.setGracePeriodDays(3);
+        when(settingsService.getSettings()).thenReturn(settings);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+
+        scheduler = new SubscriptionBillingScheduler(pharmacyRepository, billingRunRepository, jobLockRepository,
+                provider, mock(AuditLogService.class), settingsService, mock(CatalogVersionService.class),
+                executor, transactionManager);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 500);
+        ReflectionTestUtils.setField(scheduler, "leaseSeconds", 600L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void declinedPharmacyIsChargedAgainOnceItsCardIsFixed() throws Exception {
+        provider.declining = true;
+        assertThat(scheduler.start(DUE).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(pharmacy.getStatus()).isEqualTo(PharmacyStatus.GRACE_PERIOD);
+
+        provider.declining = false;
+        assertThat(scheduler.start(DUE.plusDays(1)).get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(pharmacy.getStatus()).isEqualTo(PharmacyStatus.ACTIVE);
+        assertThat(pharmacy.getNextPaymentDate()).isEqualTo(DUE.plusMonths(1));
+        assertThat(provider.keys).hasSize(2).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void chargeWhoseOutcomeWasNotRecordedIsRetriedWithTheSameKey() throws Exception {
+        when(pharmacyRepository.findById(7L))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(Optional.of(pharmacy));
+
+        assertThat(scheduler.start(DUE).get(5, TimeUnit.SECONDS)).isFalse();
+        verify(billingRunRepository).finish(DUE, "FAILED");
+        assertThat(pharmacy.getLastBillingDate()).isNull();
+
+        assertThat(scheduler.start(DUE).get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(provider.keys).hasSize(2);
+        assertThat(provider.results).hasSize(1);
+        assertThat(pharmacy.getStatus()).isEqualTo(PharmacyStatus.ACTIVE);
+        assertThat(pharmacy.getLastBillingDate()).isEqualTo(DUE);
+    }
+
+    @Test
+    void triggerReturnsWhileChargesRunAndOverlappingTriggersAreSkipped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        provider.gate = release;
+
+        CompletableFuture<Boolean> run = scheduler.start(DUE);
+        assertThat(run).isNotDone();
+        assertThat(scheduler.start(DUE).get(1, TimeUnit.SECONDS)).isFalse();
+
+        release.countDown();
+        assertThat(run.get(5, TimeUnit.SECONDS)).isTrue();
+        verify(jobLockRepository).release(eq("subscription-billing"), anyString());
+        assertThat(provider.results).hasSize(1);
+    }
+
+    // Answers a repeated key with its first result, as the provider contract requires
+    private static class ReplayingProvider implements SubscriptionPaymentProvider {
+
+        final Map<String, ChargeResult> results = new ConcurrentHashMap<>();
+        final List<String> keys = new ArrayList<>();
+        volatile boolean declining;
+        volatile CountDownLatch gate;
+
+        @Override
+        public ChargeResult charge(Long pharmacyId, BigDecimal amount, String idempotencyKey) {
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (keys) {
+                keys.add(idempotencyKey);
+            }
+            return results.computeIfAbsent(idempotencyKey, key -> declining
+                    ? ChargeResult.failure("Card declined")
+                    : ChargeResult.success("tx-" + key));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.pharmacy.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pharmacy.controller.PaymentController;
+import org.springframework.http.ResponseEntity;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Stands in for iyzico when testing payment webhooks. Builds notification bodies in the provider's
+ * shape, signs them the way the provider does (hex HMAC-SHA256 of the raw body under the merchant
+ * secret, computed here rather than with WebhookSignatureVerifier) and posts them to the webhook
+ * endpoint as the X-Iyzico-Signature header would carry them.
+ */
+public final class FakePaymentProvider {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String secret;
+
+    public FakePaymentProvider(String secret) {
+        this.secret = secret;
+    }
+
+    public String success(String conversationId, String paymentId, String referenceCode) {
+        ObjectNode body = notification(conversationId, paymentId, "SUCCESS");
+        body.put("iyziReferenceCode", referenceCode);
+        body.put("lastFourDigits", "0008");
+        body.put("cardAssociation", "MASTER_CARD");
+        return body.toString();
+    }
+
+    public String failure(String conversationId, String paymentId, String errorCode) {
+        ObjectNode body = notification(conversationId, paymentId, "FAILURE");
+        body.put("errorCode", errorCode);
+        body.put("errorMessage", "Card declined");
+        return body.toString();
+    }
+
+    public String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Delivers a signed notification, as the provider does on every attempt and retry
+    public ResponseEntity<String> post(PaymentController controller, String payload) {
+        return controller.handleWebhook(payload, sign(payload));
+    }
+
+    private ObjectNode notification(String conversationId, String paymentId, String status) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("iyziEventType", "CHECKOUT_FORM_AUTH");
+        body.put("paymentConversationId", conversationId);
+        body.put("paymentId", paymentId);
+        body.put("status", status);
+        return body;
+    }
+}
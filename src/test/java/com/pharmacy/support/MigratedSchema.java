@@ -0,0 +1,117 @@
+package com.pharmacy.support;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * A throwaway Postgres schema with every Flyway migration applied, for tests that need the real
+ * database (query plans, migration procedures, SKIP LOCKED). Point PHARMACY_TEST_DB_URL (plus
+ * PHARMACY_TEST_DB_USER / PHARMACY_TEST_DB_PASSWORD) at a scratch database to run them; without
+ * it they are skipped. The schema is dropped on close.
+ */
+public final class MigratedSchema implements AutoCloseable {
+
+    private static final String URL = System.getenv("PHARMACY_TEST_DB_URL");
+    private static final String USER = System.getenv().getOrDefault("PHARMACY_TEST_DB_USER", "postgres");
+    private static final String PASSWORD = System.getenv().getOrDefault("PHARMACY_TEST_DB_PASSWORD", "");
+
+    private final String schema;
+    private final SingleConnectionDataSource dataSource;
+    private final JdbcTemplate jdbc;
+
+    private MigratedSchema(String schema) {
+        this.schema = schema;
+        this.dataSource = new SingleConnectionDataSource(URL, USER, PASSWORD, true);
+        this.jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE SCHEMA " + schema);
+        jdbc.execute("SET search_path TO " + schema);
+    }
+
+    public static void assumeDatabase() {
+        Assumptions.assumeTrue(URL != null && !URL.isBlank(), "PHARMACY_TEST_DB_URL not set");
+    }
+
+    // Fresh schema with no migrations applied, e.g. to lay down an older schema before migrate()
+    public static MigratedSchema empty() {
+        assumeDatabase();
+        return new MigratedSchema(randomName());
+    }
+
+    // Fresh schema migrated to the latest version
+    public static MigratedSchema create() {
+        return create(null);
+    }
+
+    // Fresh schema migrated up to (and including) the given version; null means latest
+    public static MigratedSchema create(String targetVersion) {
+        assumeDatabase();
+        MigratedSchema migrated = new MigratedSchema(randomName());
+        migrated.migrate(targetVersion);
+        return migrated;
+    }
+
+    public void migrate(String targetVersion) {
+        var config = Flyway.configure()
+                .dataSource(new DriverManagerDataSource(URL, USER, PASSWORD))
+                .schemas(schema)
+                .createSchemas(false)
+                // As in application.yml: a schema that already has tables (created before Flyway) starts at V1
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                // As in application.yml: a transactional lock would block CREATE INDEX CONCURRENTLY
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+        if (targetVersion != null) {
+            config.target(targetVersion);
+        }
+        config.load().migrate();
+    }
+
+    // New connection to this schema (caller closes); optionally with the driver's insert rewriting
+    public Connection connection(boolean reWriteBatchedInserts) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", USER);
+        properties.setProperty("password", PASSWORD);
+        properties.setProperty("reWriteBatchedInserts", String.valueOf(reWriteBatchedInserts));
+        properties.setProperty("currentSchema", schema);
+        return DriverManager.getConnection(URL, properties);
+    }
+
+    // Opens a new connection to this schema on every getConnection(), for code that needs its own
+    public DataSource newConnections() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+        dataSource.setSchema(schema);
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    public String schema() {
+        return schema;
+    }
+
+    private static String randomName() {
+        return "test_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+    }
+
+    @Override
+    public void close() {
+        try {
+            jdbc.execute("DROP SCHEMA " + schema + " CASCADE");
+        } finally {
+            dataSource.destroy();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+-- The schema ddl-auto: update created from the baseline entity mapping (Hibernate 6.3,
+-- PostgreSQLDialect, Spring Boot naming), i.e. what a database that predates Flyway holds
+-- when it is baselined at V1. Used by BaselinedDatabaseMigrationTest; not a migration.
+
+create table addresses (
+    is_default boolean,
+    created_at timestamp(6),
+    id bigserial not null,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    address_line varchar(500) not null,
+    city varchar(255) not null,
+    district varchar(255) not null,
+    full_name varchar(255) not null,
+    phone varchar(255) not null,
+    postal_code varchar(255),
+    title varchar(255) not null,
+    primary key (id)
+);
+
+create table audit_logs (
+    created_at timestamp(6) not null,
+    entity_id bigint,
+    id bigserial not null,
+    pharmacy_id bigint,
+    user_id bigint,
+    action_type varchar(255) not null,
+    description TEXT,
+    entity_type varchar(255) not null,
+    ip_address varchar(255),
+    new_value TEXT,
+    old_value TEXT,
+    request_method varchar(255),
+    request_url varchar(255),
+    user_agent varchar(255),
+    user_email varchar(255),
+    primary key (id)
+);
+
+create table cart_items (
+    quantity integer not null,
+    cart_id bigint not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    product_id bigint not null,
+    updated_at timestamp(6),
+    updated_by bigint,
+    primary key (id),
+    unique (cart_id, product_id)
+);
+
+create table carts (
+    created_at timestamp(6) not null,
+    created_by bigint,
+    customer_id bigint not null,
+    id bigserial not null,
+    pharmacy_id bigint not null,
+    updated_at timestamp(6),
+    updated_by bigint,
+    primary key (id),
+    unique (customer_id, pharmacy_id)
+);
+
+create table categories (
+    display_order integer,
+    is_active boolean,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    parent_id bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    description TEXT,
+    image_url varchar(255),
+    name varchar(255) not null,
+    slug varchar(255) unique,
+    primary key (id)
+);
+
+create table favorites (
+    created_at timestamp(6),
+    id bigserial not null,
+    product_id bigint not null,
+    user_id bigint not null,
+    primary key (id),
+    unique (user_id, product_id)
+);
+
+create table order_items (
+    quantity integer not null,
+    total_price numeric(10,2) not null,
+    unit_price numeric(10,2) not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    order_id bigint not null,
+    product_id bigint not null,
+    updated_at timestamp(6),
+    updated_by bigint,
+    product_name varchar(255) not null,
+    product_sku varchar(255),
+    primary key (id)
+);
+
+create table orders (
+    shipping_cost numeric(10,2),
+    subtotal numeric(10,2) not null,
+    total_amount numeric(10,2) not null,
+    cancelled_at timestamp(6),
+    cancelled_by bigint,
+    confirmed_at timestamp(6),
+    created_at timestamp(6) not null,
+    created_by bigint,
+    customer_id bigint not null,
+    delivered_at timestamp(6),
+    id bigserial not null,
+    pharmacy_id bigint not null,
+    preparing_at timestamp(6),
+    shipped_at timestamp(6),
+    updated_at timestamp(6),
+    updated_by bigint,
+    cancellation_reason TEXT,
+    cargo_company varchar(255),
+    delivery_type varchar(255) not null check (delivery_type in ('COURIER','CARGO')),
+    notes TEXT,
+    order_number varchar(255) not null unique,
+    shipping_address TEXT not null,
+    shipping_city varchar(255) not null,
+    shipping_district varchar(255),
+    shipping_phone varchar(255) not null,
+    shipping_postal_code varchar(255),
+    status varchar(255) not null check (status in ('PENDING','CONFIRMED','PREPARING','SHIPPED','DELIVERED','CANCELLED','PAYMENT_FAILED')),
+    tracking_number varchar(255),
+    primary key (id)
+);
+
+create table payments (
+    amount numeric(10,2) not null,
+    refunded_amount numeric(10,2),
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    order_id bigint not null unique,
+    paid_at timestamp(6),
+    refunded_at timestamp(6),
+    updated_at timestamp(6),
+    updated_by bigint,
+    card_brand varchar(255),
+    card_last_four varchar(255),
+    conversation_id varchar(255),
+    error_code varchar(255),
+    error_message TEXT,
+    payment_id varchar(255),
+    status varchar(255) not null check (status in ('PENDING','SUCCESS','FAILED','REFUNDED')),
+    transaction_id varchar(255),
+    primary key (id)
+);
+
+create table pharmacies (
+    grace_period_end date,
+    monthly_fee numeric(10,2),
+    next_payment_date date,
+    setup_fee numeric(10,2),
+    subscription_end_date date,
+    subscription_start_date date,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    suspended_at timestamp(6),
+    updated_at timestamp(6),
+    updated_by bigint,
+    address varchar(255),
+    city varchar(255),
+    custom_domain varchar(255) unique,
+    district varchar(255),
+    email varchar(255) not null,
+    gln_number varchar(255),
+    logo_url varchar(255),
+    name varchar(255) not null,
+    payment_period varchar(255) not null check (payment_period in ('MONTHLY','YEARLY')),
+    phone varchar(255) not null,
+    postal_code varchar(255),
+    primary_color varchar(255),
+    secondary_color varchar(255),
+    status varchar(255) not null check (status in ('ACTIVE','SUSPENDED','GRACE_PERIOD','CANCELLED')),
+    subdomain varchar(255) unique,
+    subscription_plan varchar(255) not null check (subscription_plan in ('STANDARD','PRO')),
+    tax_number varchar(255),
+    tax_office varchar(255),
+    primary key (id)
+);
+
+create table products (
+    discounted_price numeric(10,2),
+    is_active boolean,
+    is_featured boolean,
+    low_stock_threshold integer,
+    price numeric(10,2) not null,
+    stock_quantity integer not null,
+    weight integer,
+    category_id bigint not null,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    pharmacy_id bigint not null,
+    updated_at timestamp(6),
+    updated_by bigint,
+    barcode varchar(255),
+    brand varchar(255),
+    description TEXT,
+    image_url varchar(255),
+    name varchar(255) not null,
+    sku varchar(255),
+    slug varchar(255) unique,
+    primary key (id)
+);
+
+create table settings (
+    account_lockout_minutes integer not null,
+    allow_custom_domains boolean not null,
+    data_retention_days integer not null,
+    email_enabled boolean not null,
+    email_verification_required boolean not null,
+    grace_period_days integer not null,
+    maintenance_mode boolean not null,
+    max_failed_login_attempts integer not null,
+    registrations_enabled boolean not null,
+    trial_period_days integer,
+    created_at timestamp(6) not null,
+    id bigserial not null,
+    updated_at timestamp(6),
+    email_from_address varchar(255),
+    email_from_name varchar(255),
+    platform_email varchar(255) not null,
+    platform_name varchar(255) not null,
+    support_email varchar(255),
+    support_phone varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+);
+
+create table users (
+    email_verified boolean,
+    failed_login_attempts integer,
+    is_active boolean,
+    phone_verified boolean,
+    created_at timestamp(6) not null,
+    created_by bigint,
+    id bigserial not null,
+    last_login timestamp(6),
+    locked_until timestamp(6),
+    pharmacy_id bigint,
+    updated_at timestamp(6),
+    updated_by bigint,
+    address varchar(255),
+    city varchar(255),
+    district varchar(255),
+    email varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255),
+    postal_code varchar(255),
+    role varchar(255) not null check (role in ('SUPER_ADMIN','PHARMACY_OWNER','STAFF','CUSTOMER')),
+    primary key (id),
+    unique (email, pharmacy_id)
+);
+
+create index idx_audit_pharmacy
+   on audit_logs (pharmacy_id);
+
+create index idx_audit_user
+   on audit_logs (user_id);
+
+create index idx_audit_action
+   on audit_logs (action_type);
+
+create index idx_audit_entity
+   on audit_logs (entity_type);
+
+create index idx_audit_created
+   on audit_logs (created_at);
+
+create index idx_order_pharmacy
+   on orders (pharmacy_id);
+
+create index idx_order_customer
+   on orders (customer_id);
+
+create index idx_order_status
+   on orders (status);
+
+create index idx_order_number
+   on orders (order_number);
+
+create index idx_payment_order
+   on payments (order_id);
+
+create index idx_payment_status
+   on payments (status);
+
+create index idx_payment_transaction
+   on payments (transaction_id);
+
+create index idx_product_pharmacy
+   on products (pharmacy_id);
+
+create index idx_product_category
+   on products (category_id);
+
+create index idx_product_sku
+   on products (pharmacy_id, sku);
+
+alter table if exists addresses
+   add constraint FK1fa36y2oqhao3wgg2rw1pi459
+   foreign key (user_id)
+   references users;
+
+alter table if exists cart_items
+   add constraint FKpcttvuq4mxppo8sxggjtn5i2c
+   foreign key (cart_id)
+   references carts;
+
+alter table if exists cart_items
+   add constraint FK1re40cjegsfvw58xrkdp6bac6
+   foreign key (product_id)
+   references products;
+
+alter table if exists carts
+   add constraint FK99i1rh5nm7r3f1b3wdcuq5h57
+   foreign key (customer_id)
+   references users;
+
+alter table if exists carts
+   add constraint FK7wkkberx1td6f1ee4dmxxejqe
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table if exists categories
+   add constraint FKsaok720gsu4u2wrgbk10b5n8d
+   foreign key (parent_id)
+   references categories;
+
+alter table if exists favorites
+   add constraint FK6sgu5npe8ug4o42bf9j71x20c
+   foreign key (product_id)
+   references products;
+
+alter table if exists favorites
+   add constraint FKk7du8b8ewipawnnpg76d55fus
+   foreign key (user_id)
+   references users;
+
+alter table if exists order_items
+   add constraint FKbioxgbv59vetrxe0ejfubep1w
+   foreign key (order_id)
+   references orders;
+
+alter table if exists order_items
+   add constraint FKocimc7dtr037rh4ls4l95nlfi
+   foreign key (product_id)
+   references products;
+
+alter table if exists orders
+   add constraint FKsjfs85qf6vmcurlx43cnc16gy
+   foreign key (customer_id)
+   references users;
+
+alter table if exists orders
+   add constraint FKhexqog8hk3m7u4g7slprn2wfs
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table if exists payments
+   add constraint FK81gagumt0r8y3rmudcgpbk42l
+   foreign key (order_id)
+   references orders;
+
+alter table if exists products
+   add constraint FKog2rp4qthbtt2lfyhfo32lsw9
+   foreign key (category_id)
+   references categories;
+
+alter table if exists products
+   add constraint FKtp0bkyp2hecnphe4s49mtpfvm
+   foreign key (pharmacy_id)
+   references pharmacies;
+
+alter table if exists users
+   add constraint FKbgq15hbsk1ltdpiymvf3hob7l
+   foreign key (pharmacy_id)
+   references pharmacies;